@@ -0,0 +1,216 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.api.JCGLContextType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoaderType;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoaders;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link SMFArrayLoaders#newLoader} runs, from parse events to
+ * uploaded array objects, against a fake GL implementation. The primary
+ * score is the time per mesh; the secondary counters give vertices/second and
+ * bytes/second. With {@code reuse} enabled, a single loader is
+ * {@link SMFArrayLoaderType#reset() reset} and reused for every mesh, so
+ * staging memory is only allocated during warmup.
+ */
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1G", "-Xmx8G"})
+@State(Scope.Thread)
+public class SMFArrayLoaderBenchmark
+{
+  private static final long VERTEX_SIZE = 32L;
+  private static final long INDEX_SIZE = 4L;
+
+  // JMH requires public, non-final state fields.
+  // CHECKSTYLE:OFF
+
+  /**
+   * The number of vertices in the loaded mesh.
+   */
+
+  @Param({"1000", "100000", "1000000", "10000000"})
+  public long vertices;
+
+  /**
+   * The source of parse events.
+   */
+
+  @Param({"SOURCE_TEXT", "SOURCE_DECODED"})
+  public Source source;
+
+  /**
+   * Whether a single loader is reused for every mesh.
+   */
+
+  @Param({"false", "true"})
+  public boolean reuse;
+
+  // CHECKSTYLE:ON
+
+  private Path directory;
+  private Path file;
+  private JCGLContextType context;
+  private JCGLInterfaceGL33Type g;
+  private SMFArrayObjectConfiguration config;
+  private SMFBenchmarkMeshes.Decoded decoded;
+  private SMFArrayLoaderType reusable;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SMFArrayLoaderBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the mesh.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public final void setup()
+    throws Exception
+  {
+    this.directory = Files.createTempDirectory("smfj-jcanephora-bench");
+    this.file = this.directory.resolve("mesh.smft");
+    SMFBenchmarkMeshes.writeTextMesh(this.file, this.vertices, 32);
+
+    if (this.source == Source.SOURCE_DECODED) {
+      this.decoded = SMFBenchmarkMeshes.decode(this.file, this.vertices);
+    }
+
+    this.config = SMFBenchmarkMeshes.configuration();
+    this.context = SMFBenchmarkContexts.newFakeContext("loader");
+    this.g = this.context.contextGetGL33();
+    this.reusable =
+      SMFArrayLoaders.newLoader(this.g, SMFBenchmarkMeshes.meta(), this.config);
+  }
+
+  /**
+   * Delete the generated mesh.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public final void tearDown()
+    throws IOException
+  {
+    Files.deleteIfExists(this.file);
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Load the mesh.
+   *
+   * @param counters The byte and vertex counters
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @Benchmark
+  public final void load(
+    final SMFBenchmarkCounters counters)
+    throws IOException
+  {
+    final SMFArrayLoaderType loader;
+    if (this.reuse) {
+      loader = this.reusable;
+      loader.reset();
+    } else {
+      loader = SMFArrayLoaders.newLoader(
+        this.g, SMFBenchmarkMeshes.meta(), this.config);
+    }
+
+    switch (this.source) {
+      case SOURCE_TEXT: {
+        SMFBenchmarkMeshes.parseText(loader, this.file);
+        break;
+      }
+      case SOURCE_DECODED: {
+        this.decoded.replay(loader);
+        break;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+
+    if (!loader.errors().isEmpty()) {
+      throw new IllegalStateException("Loading failed: " + loader.errors());
+    }
+
+    this.g.getArrayObjects().arrayObjectDelete(loader.arrayObject());
+    this.g.getArrayBuffers().arrayBufferDelete(loader.arrayBuffer());
+    this.g.getIndexBuffers().indexBufferDelete(loader.indexBuffer());
+
+    final long triangles = SMFBenchmarkMeshes.triangleCountFor(this.vertices);
+    counters.vertices += this.vertices;
+    counters.bytes += Math.addExact(
+      Math.multiplyExact(this.vertices, VERTEX_SIZE),
+      Math.multiplyExact(triangles, 3L * INDEX_SIZE));
+  }
+
+  /**
+   * The source of parse events.
+   */
+
+  public enum Source
+  {
+    /**
+     * Meshes are parsed from the text format.
+     */
+
+    SOURCE_TEXT,
+
+    /**
+     * Meshes are replayed from memory with no decoding cost, modelling a
+     * binary format decoder that is free.
+     */
+
+    SOURCE_DECODED
+  }
+}
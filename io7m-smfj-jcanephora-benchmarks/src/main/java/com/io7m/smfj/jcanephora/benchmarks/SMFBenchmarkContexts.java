@@ -0,0 +1,112 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.JCGLExceptionProgramCompileError;
+import com.io7m.jcanephora.core.JCGLProgramAttributeType;
+import com.io7m.jcanephora.core.JCGLProgramShaderUsableType;
+import com.io7m.jcanephora.core.JCGLProgramUniformType;
+import com.io7m.jcanephora.core.api.JCGLContextType;
+import com.io7m.jcanephora.fake.FakeContext;
+import com.io7m.jcanephora.fake.FakeShaderControlType;
+import com.io7m.jcanephora.fake.JCGLImplementationFake;
+import com.io7m.jcanephora.fake.JCGLImplementationFakeType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Functions to create headless, non-GPU GL contexts for benchmarks.
+ */
+
+public final class SMFBenchmarkContexts
+{
+  private SMFBenchmarkContexts()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new fake GL context. The context performs no rendering and
+   * requires no GPU, so benchmarks measure only the CPU side of the loaders.
+   *
+   * @param name The context name
+   *
+   * @return A new context
+   *
+   * @throws Exception On errors
+   */
+
+  public static JCGLContextType newFakeContext(
+    final String name)
+    throws Exception
+  {
+    final JCGLImplementationFakeType i = JCGLImplementationFake.getInstance();
+    return i.newContext(name, new NullShaderControl());
+  }
+
+  private static final class NullShaderControl implements FakeShaderControlType
+  {
+    NullShaderControl()
+    {
+
+    }
+
+    @Override
+    public void onCompileVertexShaderStart(
+      final FakeContext context,
+      final String name,
+      final List<String> lines)
+      throws JCGLExceptionProgramCompileError
+    {
+      // Benchmarks do not compile shaders
+    }
+
+    @Override
+    public void onCompileFragmentShaderStart(
+      final FakeContext context,
+      final String name,
+      final List<String> lines)
+      throws JCGLExceptionProgramCompileError
+    {
+      // Benchmarks do not compile shaders
+    }
+
+    @Override
+    public void onCompileGeometryShaderStart(
+      final FakeContext context,
+      final String name,
+      final List<String> lines)
+      throws JCGLExceptionProgramCompileError
+    {
+      // Benchmarks do not compile shaders
+    }
+
+    @Override
+    public void onLinkProgram(
+      final FakeContext context,
+      final JCGLProgramShaderUsableType p,
+      final String name,
+      final Map<String, JCGLProgramAttributeType> attributes,
+      final Map<String, JCGLProgramUniformType> uniforms)
+      throws JCGLExceptionProgramCompileError
+    {
+      // Benchmarks do not link programs
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Secondary benchmark counters. JMH reports each public field as a rate, so
+ * the results include vertices/second and bytes/second alongside the primary
+ * score.
+ */
+
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class SMFBenchmarkCounters
+{
+  // JMH requires public, non-final state fields.
+  // CHECKSTYLE:OFF
+
+  /**
+   * The number of vertices processed.
+   */
+
+  public long vertices;
+
+  /**
+   * The number of bytes packed.
+   */
+
+  public long bytes;
+
+  // CHECKSTYLE:ON
+
+  /**
+   * Construct counters.
+   */
+
+  public SMFBenchmarkCounters()
+  {
+
+  }
+
+  /**
+   * Reset the counters at the start of each iteration.
+   */
+
+  @Setup(Level.Iteration)
+  public final void reset()
+  {
+    this.vertices = 0L;
+    this.bytes = 0L;
+  }
+}
@@ -0,0 +1,684 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import javaslang.Tuple;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Functions to generate, parse and replay synthetic meshes for benchmarks.
+ */
+
+public final class SMFBenchmarkMeshes
+{
+  /**
+   * The name of the position attribute in generated meshes.
+   */
+
+  public static final SMFAttributeName POSITION;
+
+  /**
+   * The name of the normal attribute in generated meshes.
+   */
+
+  public static final SMFAttributeName NORMAL;
+
+  /**
+   * The name of the UV attribute in generated meshes.
+   */
+
+  public static final SMFAttributeName UV;
+
+  static {
+    POSITION = SMFAttributeName.of("position");
+    NORMAL = SMFAttributeName.of("normal");
+    UV = SMFAttributeName.of("uv");
+  }
+
+  private SMFBenchmarkMeshes()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return A metadata listener that ignores all metadata
+   */
+
+  public static SMFParserEventsMetaType meta()
+  {
+    return new NullMeta();
+  }
+
+  /**
+   * @return A configuration that maps the position, normal and UV attributes
+   * of generated meshes to array attributes 0, 1 and 2
+   */
+
+  public static SMFArrayObjectConfiguration configuration()
+  {
+    final SMFArrayAttributeMapping m_position =
+      SMFArrayAttributeMapping.of(
+        POSITION, 0, Optional.of(JCGLScalarType.TYPE_FLOAT), 3);
+    final SMFArrayAttributeMapping m_normal =
+      SMFArrayAttributeMapping.of(
+        NORMAL, 1, Optional.of(JCGLScalarType.TYPE_FLOAT), 3);
+    final SMFArrayAttributeMapping m_uv =
+      SMFArrayAttributeMapping.of(
+        UV, 2, Optional.of(JCGLScalarType.TYPE_FLOAT), 2);
+
+    return SMFArrayObjectConfiguration.builder()
+      .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setMappings(HashMap.ofEntries(List.of(
+        Tuple.of(POSITION, m_position),
+        Tuple.of(NORMAL, m_normal),
+        Tuple.of(UV, m_uv))))
+      .build();
+  }
+
+  /**
+   * @param vertices The number of vertices
+   *
+   * @return The number of triangles in a generated mesh
+   */
+
+  public static long triangleCountFor(
+    final long vertices)
+  {
+    return Math.max(1L, vertices - 2L);
+  }
+
+  /**
+   * Write a text mesh with {@code vertices} vertices, each having a 3 component
+   * position, a 3 component normal and a 2 component UV coordinate. The
+   * triangles form a strip over the vertices.
+   *
+   * @param file       The output file
+   * @param vertices   The number of vertices ({@code >= 3})
+   * @param index_bits The triangle index size in bits
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeTextMesh(
+    final Path file,
+    final long vertices,
+    final int index_bits)
+    throws IOException
+  {
+    writeTextMesh(file, vertices, triangleCountFor(vertices), index_bits);
+  }
+
+  /**
+   * Write a text mesh with {@code vertices} vertices, each having a 3 component
+   * position, a 3 component normal and a 2 component UV coordinate. The
+   * {@code triangles} triangles form a strip that wraps around the vertices
+   * as many times as necessary.
+   *
+   * @param file       The output file
+   * @param vertices   The number of vertices ({@code >= 3})
+   * @param triangles  The number of triangles
+   * @param index_bits The triangle index size in bits
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void writeTextMesh(
+    final Path file,
+    final long vertices,
+    final long triangles,
+    final int index_bits)
+    throws IOException
+  {
+    NullCheck.notNull(file, "File");
+
+    try (final BufferedWriter w =
+           Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      w.append("smf 1 0\n");
+      w.append("vertices ").append(Long.toString(vertices)).append('\n');
+      w.append("triangles ")
+        .append(Long.toString(triangles))
+        .append(' ')
+        .append(Integer.toString(index_bits))
+        .append('\n');
+      w.append("coordinates +x +y -z counter-clockwise\n");
+      w.append("attribute \"position\" float 3 32\n");
+      w.append("attribute \"normal\" float 3 32\n");
+      w.append("attribute \"uv\" float 2 32\n");
+      w.append("data\n");
+
+      w.append("attribute \"position\"\n");
+      for (long index = 0L; index < vertices; index = index + 1) {
+        w.append(Double.toString(positionX(index))).append(' ');
+        w.append(Double.toString(positionY(index))).append(' ');
+        w.append(Double.toString(positionZ(index))).append('\n');
+      }
+
+      w.append("attribute \"normal\"\n");
+      for (long index = 0L; index < vertices; index = index + 1) {
+        w.append("0.0 1.0 0.0\n");
+      }
+
+      w.append("attribute \"uv\"\n");
+      for (long index = 0L; index < vertices; index = index + 1) {
+        w.append(Double.toString(uvS(index, vertices))).append(' ');
+        w.append(Double.toString(uvT(index, vertices))).append('\n');
+      }
+
+      w.append("triangles\n");
+      for (long index = 0L; index < triangles; index = index + 1) {
+        final long v0 = index % vertices;
+        final long v1 = (index + 1L) % vertices;
+        final long v2 = (index + 2L) % vertices;
+        w.append(Long.toString(v0)).append(' ');
+        w.append(Long.toString(v1)).append(' ');
+        w.append(Long.toString(v2)).append('\n');
+      }
+    }
+  }
+
+  private static double positionX(
+    final long index)
+  {
+    return (double) (index % 1024L) * 0.5;
+  }
+
+  private static double positionY(
+    final long index)
+  {
+    return (double) (index / 1024L) * 0.5;
+  }
+
+  private static double positionZ(
+    final long index)
+  {
+    return -(double) (index % 7L);
+  }
+
+  private static double uvS(
+    final long index,
+    final long vertices)
+  {
+    return (double) index / (double) vertices;
+  }
+
+  private static double uvT(
+    final long index,
+    final long vertices)
+  {
+    return 1.0 - uvS(index, vertices);
+  }
+
+  /**
+   * Open a sequential text parser for the given file. The parser is not
+   * started.
+   *
+   * @param events The receiver of parse events
+   * @param file   The file
+   * @param stream The file stream
+   *
+   * @return A new parser
+   */
+
+  public static SMFParserSequentialType openTextParser(
+    final SMFParserEventsType events,
+    final Path file,
+    final InputStream stream)
+  {
+    final SMFParserProviderType fmt = new SMFFormatText();
+    return fmt.parserCreateSequential(events, file, stream);
+  }
+
+  /**
+   * Parse the given text file and deliver all events to {@code events}.
+   *
+   * @param events The receiver of parse events
+   * @param file   The file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void parseText(
+    final SMFParserEventsType events,
+    final Path file)
+    throws IOException
+  {
+    try (final InputStream stream = Files.newInputStream(file)) {
+      try (final SMFParserSequentialType parser =
+             openTextParser(events, file, stream)) {
+        parser.parseHeader();
+        parser.parseData();
+      }
+    }
+  }
+
+  /**
+   * Parse only the header of the given text file.
+   *
+   * @param file The file
+   *
+   * @return The parsed header and format version
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static Decoded parseHeader(
+    final Path file)
+    throws IOException
+  {
+    final HeaderCapture capture = new HeaderCapture();
+    try (final InputStream stream = Files.newInputStream(file)) {
+      try (final SMFParserSequentialType parser =
+             openTextParser(capture, file, stream)) {
+        parser.parseHeader();
+      }
+    }
+
+    if (capture.header == null || capture.version == null) {
+      throw new IOException("No header could be parsed from " + file);
+    }
+    return new Decoded(capture.version, capture.header);
+  }
+
+  /**
+   * Generate a mesh that has already been decoded into memory, with the same
+   * contents as {@link #writeTextMesh(Path, long, int)} would write.
+   * Replaying the mesh delivers events without any parsing cost, and so
+   * models a format decoder that is free.
+   *
+   * @param file     A text file previously written by
+   *                 {@link #writeTextMesh(Path, long, int)}
+   * @param vertices The number of vertices
+   *
+   * @return A decoded mesh
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static Decoded decode(
+    final Path file,
+    final long vertices)
+    throws IOException
+  {
+    final Decoded d = parseHeader(file);
+    final int count = Math.toIntExact(vertices);
+    final int triangles = Math.toIntExact(triangleCountFor(vertices));
+
+    d.positions = new float[Math.multiplyExact(count, 3)];
+    d.uvs = new float[Math.multiplyExact(count, 2)];
+    d.triangles = new int[Math.multiplyExact(triangles, 3)];
+
+    for (int index = 0; index < count; index = index + 1) {
+      d.positions[index * 3] = (float) positionX((long) index);
+      d.positions[index * 3 + 1] = (float) positionY((long) index);
+      d.positions[index * 3 + 2] = (float) positionZ((long) index);
+      d.uvs[index * 2] = (float) uvS((long) index, vertices);
+      d.uvs[index * 2 + 1] = (float) uvT((long) index, vertices);
+    }
+
+    for (int index = 0; index < triangles; index = index + 1) {
+      d.triangles[index * 3] = index % count;
+      d.triangles[index * 3 + 1] = (index + 1) % count;
+      d.triangles[index * 3 + 2] = (index + 2) % count;
+    }
+    return d;
+  }
+
+  /**
+   * A header and (optionally) the decoded contents of a mesh.
+   */
+
+  public static final class Decoded
+  {
+    private final SMFFormatVersion version;
+    private final SMFHeader header;
+    private float[] positions;
+    private float[] uvs;
+    private int[] triangles;
+
+    Decoded(
+      final SMFFormatVersion in_version,
+      final SMFHeader in_header)
+    {
+      this.version = NullCheck.notNull(in_version, "Version");
+      this.header = NullCheck.notNull(in_header, "Header");
+    }
+
+    /**
+     * @return The parsed header
+     */
+
+    public SMFHeader header()
+    {
+      return this.header;
+    }
+
+    /**
+     * Deliver the decoded mesh to the given receiver.
+     *
+     * @param events The receiver of parse events
+     */
+
+    public void replay(
+      final SMFParserEventsType events)
+    {
+      NullCheck.notNull(this.positions, "Positions");
+
+      events.onStart();
+      events.onVersionReceived(this.version);
+      events.onHeaderParsed(this.header);
+
+      final int count = this.positions.length / 3;
+
+      final SMFAttribute a_position =
+        this.header.attributesByName().get(POSITION).get();
+      events.onDataAttributeStart(a_position);
+      for (int index = 0; index < count; index = index + 1) {
+        events.onDataAttributeValueFloat3(
+          (double) this.positions[index * 3],
+          (double) this.positions[index * 3 + 1],
+          (double) this.positions[index * 3 + 2]);
+      }
+      events.onDataAttributeFinish(a_position);
+
+      final SMFAttribute a_normal =
+        this.header.attributesByName().get(NORMAL).get();
+      events.onDataAttributeStart(a_normal);
+      for (int index = 0; index < count; index = index + 1) {
+        events.onDataAttributeValueFloat3(0.0, 1.0, 0.0);
+      }
+      events.onDataAttributeFinish(a_normal);
+
+      final SMFAttribute a_uv =
+        this.header.attributesByName().get(UV).get();
+      events.onDataAttributeStart(a_uv);
+      for (int index = 0; index < count; index = index + 1) {
+        events.onDataAttributeValueFloat2(
+          (double) this.uvs[index * 2],
+          (double) this.uvs[index * 2 + 1]);
+      }
+      events.onDataAttributeFinish(a_uv);
+
+      events.onDataTrianglesStart();
+      final int[] t = this.triangles;
+      for (int index = 0; index < t.length; index += 3) {
+        events.onDataTriangle(
+          (long) t[index], (long) t[index + 1], (long) t[index + 2]);
+      }
+      events.onDataTrianglesFinish();
+      events.onFinish();
+    }
+  }
+
+  private static final class NullMeta implements SMFParserEventsMetaType
+  {
+    NullMeta()
+    {
+
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      return false;
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      // Metadata is ignored
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      // Errors are reported by the loaders
+    }
+  }
+
+  private static final class HeaderCapture implements SMFParserEventsType
+  {
+    private @Nullable SMFHeader header;
+    private @Nullable SMFFormatVersion version;
+
+    HeaderCapture()
+    {
+
+    }
+
+    @Override
+    public void onStart()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onVersionReceived(
+      final SMFFormatVersion in_version)
+    {
+      this.version = in_version;
+    }
+
+    @Override
+    public void onFinish()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      throw new IllegalStateException(e.message());
+    }
+
+    @Override
+    public void onHeaderParsed(
+      final SMFHeader in_header)
+    {
+      this.header = in_header;
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      return false;
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeStart(
+      final SMFAttribute attribute)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeFinish(
+      final SMFAttribute attribute)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTrianglesStart()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTriangle(
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTrianglesFinish()
+    {
+      // Nothing
+    }
+  }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPacker;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackers;
+import com.io7m.smfj.parser.api.SMFParserEventsDataType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link SMFByteBufferPacker} and of the specialized packers
+ * returned by {@link SMFByteBufferPackers}, for every scalar type and
+ * component count. The primary score is vertices/second.
+ *
+ * <p>Packing must not allocate per vertex: when run with the JMH GC profiler
+ * ({@code -prof gc}), {@code gc.alloc.rate.norm} should be close to zero,
+ * as the only allocation is the packer constructed once per invocation.</p>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SMFByteBufferPackerBenchmark
+{
+  static final int VERTICES = 4096;
+
+  // JMH requires public, non-final state fields.
+  // CHECKSTYLE:OFF
+
+  /**
+   * The type of packed components.
+   */
+
+  @Param({
+    "TYPE_BYTE",
+    "TYPE_SHORT",
+    "TYPE_INT",
+    "TYPE_UNSIGNED_BYTE",
+    "TYPE_UNSIGNED_SHORT",
+    "TYPE_UNSIGNED_INT",
+    "TYPE_HALF_FLOAT",
+    "TYPE_FLOAT"})
+  public JCGLScalarType type;
+
+  /**
+   * The number of components per vertex.
+   */
+
+  @Param({"1", "2", "3", "4"})
+  public int component_count;
+
+  /**
+   * The packer implementation.
+   */
+
+  @Param({"GENERIC", "SPECIALIZED"})
+  public Implementation implementation;
+
+  // CHECKSTYLE:ON
+
+  private ByteBuffer buffer;
+  private int stride;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SMFByteBufferPackerBenchmark()
+  {
+
+  }
+
+  static ByteBuffer allocate(
+    final int size)
+  {
+    final ByteBuffer b = ByteBuffer.allocateDirect(size);
+    b.order(ByteOrder.nativeOrder());
+    return b;
+  }
+
+  /**
+   * Deliver {@code vertices} values of the given type and component count to
+   * {@code p}.
+   *
+   * @param p               The receiver
+   * @param type            The component type
+   * @param component_count The component count
+   * @param vertices        The number of vertices
+   */
+
+  static void packVertices(
+    final SMFParserEventsDataType p,
+    final JCGLScalarType type,
+    final int component_count,
+    final int vertices)
+  {
+    switch (type) {
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT: {
+        packSigned(p, component_count, vertices);
+        return;
+      }
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT: {
+        packUnsigned(p, component_count, vertices);
+        return;
+      }
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT: {
+        packFloat(p, component_count, vertices);
+        return;
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static void packFloat(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int vertices)
+  {
+    switch (component_count) {
+      case 1: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final double x = (double) index * 0.5;
+          p.onDataAttributeValueFloat1(x);
+        }
+        return;
+      }
+      case 2: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final double x = (double) index * 0.5;
+          p.onDataAttributeValueFloat2(x, -x);
+        }
+        return;
+      }
+      case 3: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final double x = (double) index * 0.5;
+          p.onDataAttributeValueFloat3(x, -x, x);
+        }
+        return;
+      }
+      case 4: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final double x = (double) index * 0.5;
+          p.onDataAttributeValueFloat4(x, -x, x, 1.0);
+        }
+        return;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+  }
+
+  private static void packUnsigned(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int vertices)
+  {
+    switch (component_count) {
+      case 1: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) (index & 0x7f);
+          p.onDataAttributeValueIntegerUnsigned1(x);
+        }
+        return;
+      }
+      case 2: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) (index & 0x7f);
+          p.onDataAttributeValueIntegerUnsigned2(x, x);
+        }
+        return;
+      }
+      case 3: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) (index & 0x7f);
+          p.onDataAttributeValueIntegerUnsigned3(x, x, x);
+        }
+        return;
+      }
+      case 4: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) (index & 0x7f);
+          p.onDataAttributeValueIntegerUnsigned4(x, x, x, x);
+        }
+        return;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+  }
+
+  private static void packSigned(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int vertices)
+  {
+    switch (component_count) {
+      case 1: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) ((index & 0x7f) - 64);
+          p.onDataAttributeValueIntegerSigned1(x);
+        }
+        return;
+      }
+      case 2: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) ((index & 0x7f) - 64);
+          p.onDataAttributeValueIntegerSigned2(x, -x);
+        }
+        return;
+      }
+      case 3: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) ((index & 0x7f) - 64);
+          p.onDataAttributeValueIntegerSigned3(x, -x, x);
+        }
+        return;
+      }
+      case 4: {
+        for (int index = 0; index < vertices; index = index + 1) {
+          final long x = (long) ((index & 0x7f) - 64);
+          p.onDataAttributeValueIntegerSigned4(x, -x, x, -x);
+        }
+        return;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+  }
+
+  /**
+   * Allocate the target buffer.
+   */
+
+  @Setup(Level.Trial)
+  public final void setup()
+  {
+    this.stride =
+      Math.multiplyExact(this.component_count, this.type.getSizeBytes());
+    this.buffer = allocate(Math.multiplyExact(this.stride, VERTICES));
+  }
+
+  /**
+   * Pack {@link #VERTICES} vertices.
+   *
+   * @param counters The byte and vertex counters
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(VERTICES)
+  public final void pack(
+    final SMFBenchmarkCounters counters)
+  {
+    final SMFParserEventsDataType p;
+    switch (this.implementation) {
+      case GENERIC: {
+        p = new SMFByteBufferPacker(this.buffer, this.type, 0, this.stride);
+        break;
+      }
+      case SPECIALIZED: {
+        p = SMFByteBufferPackers.createPacker(
+          this.buffer, this.type, this.component_count, 0, this.stride);
+        break;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+
+    packVertices(p, this.type, this.component_count, VERTICES);
+    counters.vertices += (long) VERTICES;
+    counters.bytes += (long) this.buffer.capacity();
+  }
+
+  /**
+   * The available packer implementations.
+   */
+
+  public enum Implementation
+  {
+    /**
+     * {@link SMFByteBufferPacker}, which selects an encoding for every value.
+     */
+
+    GENERIC,
+
+    /**
+     * A packer from {@link SMFByteBufferPackers}.
+     */
+
+    SPECIALIZED
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPacker;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackerType;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Throughput of packers when every scalar type and component count is
+ * packed through a single interface-typed field, as in a loader that packs
+ * many differently typed attributes. Unlike
+ * {@link SMFByteBufferPackerBenchmark}, the call sites observe every packer
+ * class, and so this benchmark measures specialized packers at a
+ * megamorphic call site. The primary score is vertices/second.</p>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SMFByteBufferPackerMixedBenchmark
+{
+  /**
+   * The number of combinations of scalar type and component count.
+   */
+
+  static final int COMBINATIONS = 32;
+
+  // JMH requires public, non-final state fields.
+  // CHECKSTYLE:OFF
+
+  /**
+   * The packer implementation.
+   */
+
+  @Param({"GENERIC", "SPECIALIZED"})
+  public SMFByteBufferPackerBenchmark.Implementation implementation;
+
+  // CHECKSTYLE:ON
+
+  private ByteBuffer buffer;
+  private SMFByteBufferPackerType packer;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SMFByteBufferPackerMixedBenchmark()
+  {
+
+  }
+
+  /**
+   * Allocate the target buffer, which is large enough for the widest
+   * combination of type and component count.
+   */
+
+  @Setup(Level.Trial)
+  public final void setup()
+  {
+    if (JCGLScalarType.values().length * 4 != COMBINATIONS) {
+      throw new IllegalStateException("Unexpected number of scalar types");
+    }
+    this.buffer = SMFByteBufferPackerBenchmark.allocate(
+      Math.multiplyExact(16, SMFByteBufferPackerBenchmark.VERTICES));
+  }
+
+  private SMFByteBufferPackerType packerFor(
+    final JCGLScalarType type,
+    final int component_count,
+    final int stride)
+  {
+    switch (this.implementation) {
+      case GENERIC: {
+        return new SMFByteBufferPacker(this.buffer, type, 0, stride);
+      }
+      case SPECIALIZED: {
+        return SMFByteBufferPackers.createPacker(
+          this.buffer, type, component_count, 0, stride);
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Pack {@link SMFByteBufferPackerBenchmark#VERTICES} vertices of every
+   * combination of type and component count.
+   *
+   * @param counters The byte and vertex counters
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(
+    SMFByteBufferPackerBenchmark.VERTICES * COMBINATIONS)
+  public final void packMixed(
+    final SMFBenchmarkCounters counters)
+  {
+    for (final JCGLScalarType type : JCGLScalarType.values()) {
+      for (int count = 1; count <= 4; count = count + 1) {
+        final int stride = Math.multiplyExact(count, type.getSizeBytes());
+        this.packer = this.packerFor(type, count, stride);
+        SMFByteBufferPackerBenchmark.packVertices(
+          this.packer, type, count, SMFByteBufferPackerBenchmark.VERTICES);
+        counters.bytes = counters.bytes
+          + (long) (stride * SMFByteBufferPackerBenchmark.VERTICES);
+      }
+    }
+    counters.vertices = counters.vertices
+      + (long) (SMFByteBufferPackerBenchmark.VERTICES * COMBINATIONS);
+  }
+}
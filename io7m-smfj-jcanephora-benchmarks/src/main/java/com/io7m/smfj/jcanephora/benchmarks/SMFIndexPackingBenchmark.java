@@ -0,0 +1,184 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.benchmarks;
+
+import com.io7m.jcanephora.core.api.JCGLContextType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoaderType;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoaders;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of triangle index packing in the array loader for each of the
+ * index types. The primary score is triangles/second.
+ *
+ * <p>Packing must not allocate per triangle: when run with the JMH GC
+ * profiler ({@code -prof gc}), {@code gc.alloc.rate.norm} should be zero.</p>
+ */
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Thread)
+public class SMFIndexPackingBenchmark
+{
+  private static final int TRIANGLES = 65536;
+
+  // JMH requires public, non-final state fields.
+  // CHECKSTYLE:OFF
+
+  /**
+   * The size in bits of triangle indices.
+   */
+
+  @Param({"8", "16", "32"})
+  public int index_bits;
+
+  // CHECKSTYLE:ON
+
+  private Path directory;
+  private Path file;
+  private JCGLContextType context;
+  private JCGLInterfaceGL33Type g;
+  private SMFHeader header;
+  private SMFArrayObjectConfiguration config;
+  private int[] triangles;
+  private SMFArrayLoaderType loader;
+
+  /**
+   * Construct a benchmark.
+   */
+
+  public SMFIndexPackingBenchmark()
+  {
+
+  }
+
+  /**
+   * Generate the mesh and parse its header.
+   *
+   * @throws Exception On errors
+   */
+
+  @Setup(Level.Trial)
+  public final void setupTrial()
+    throws Exception
+  {
+    final int vertices = this.index_bits == 8 ? 256 : 65536;
+
+    this.directory = Files.createTempDirectory("smfj-jcanephora-bench");
+    this.file = this.directory.resolve("indices.smft");
+    SMFBenchmarkMeshes.writeTextMesh(
+      this.file, (long) vertices, (long) TRIANGLES, this.index_bits);
+
+    this.header = SMFBenchmarkMeshes.parseHeader(this.file).header();
+    this.config = SMFBenchmarkMeshes.configuration();
+    this.context = SMFBenchmarkContexts.newFakeContext("indices");
+    this.g = this.context.contextGetGL33();
+
+    this.triangles = new int[TRIANGLES * 3];
+    for (int index = 0; index < TRIANGLES; index = index + 1) {
+      this.triangles[index * 3] = index % vertices;
+      this.triangles[index * 3 + 1] = (index + 1) % vertices;
+      this.triangles[index * 3 + 2] = (index + 2) % vertices;
+    }
+  }
+
+  /**
+   * Delete the generated mesh.
+   *
+   * @throws IOException On I/O errors
+   */
+
+  @TearDown(Level.Trial)
+  public final void tearDownTrial()
+    throws IOException
+  {
+    Files.deleteIfExists(this.file);
+    Files.deleteIfExists(this.directory);
+  }
+
+  /**
+   * Create a loader that has received the mesh header and is ready to
+   * receive triangles.
+   */
+
+  @Setup(Level.Invocation)
+  public final void setupInvocation()
+  {
+    this.loader =
+      SMFArrayLoaders.newLoader(this.g, SMFBenchmarkMeshes.meta(), this.config);
+    this.loader.onStart();
+    this.loader.onHeaderParsed(this.header);
+  }
+
+  /**
+   * Finish the loader and release the GL objects it created.
+   */
+
+  @TearDown(Level.Invocation)
+  public final void tearDownInvocation()
+  {
+    this.loader.onFinish();
+    this.g.getArrayObjects().arrayObjectDelete(this.loader.arrayObject());
+    this.g.getArrayBuffers().arrayBufferDelete(this.loader.arrayBuffer());
+    this.g.getIndexBuffers().indexBufferDelete(this.loader.indexBuffer());
+  }
+
+  /**
+   * Pack {@link #TRIANGLES} triangles.
+   *
+   * @param counters The byte and vertex counters
+   */
+
+  @Benchmark
+  @OperationsPerInvocation(TRIANGLES)
+  public final void packTriangles(
+    final SMFBenchmarkCounters counters)
+  {
+    final SMFArrayLoaderType l = this.loader;
+    final int[] t = this.triangles;
+    for (int index = 0; index < t.length; index += 3) {
+      l.onDataTriangle((long) t[index], (long) t[index + 1], (long) t[index + 2]);
+    }
+
+    counters.vertices += (long) t.length;
+    counters.bytes += (long) (t.length * (this.index_bits / 8));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectBuilderType;
+import com.io7m.jcanephora.core.JCGLScalarIntegralType;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.List;
+
+/**
+ * Functions to bind vertex layouts to array object builders.
+ */
+
+final class SMFArrayAttributeBindings
+{
+  private SMFArrayAttributeBindings()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Configure all attributes of {@code layout} on the given builder, sourcing
+   * data from {@code array_buffer}, which holds the packed vertex data of all
+   * streams. Attributes packed with any encoding other than
+   * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_DIRECT} are bound as
+   * normalized values.
+   *
+   * @param builder      The array object builder
+   * @param layout       The vertex layout
+   * @param array_buffer The array buffer holding the vertices
+   */
+
+  static void bind(
+    final JCGLArrayObjectBuilderType builder,
+    final SMFArrayLayout layout,
+    final JCGLArrayBufferType array_buffer)
+  {
+    for (final SMFArrayAttributeLayout attr : layout.attributes()) {
+      bindAttribute(builder, array_buffer, attr, attr.offset());
+    }
+  }
+
+  /**
+   * Configure all attributes of {@code layout} on the given builder, sourcing
+   * the data of each stream from the array buffer at the same index in
+   * {@code array_buffers}.
+   *
+   * @param builder       The array object builder
+   * @param layout        The vertex layout
+   * @param array_buffers The array buffers, one per stream
+   *
+   * @see #bind(JCGLArrayObjectBuilderType, SMFArrayLayout,
+   * JCGLArrayBufferType)
+   */
+
+  static void bindStreams(
+    final JCGLArrayObjectBuilderType builder,
+    final SMFArrayLayout layout,
+    final List<JCGLArrayBufferType> array_buffers)
+  {
+    final List<SMFArrayStreamLayout> streams = layout.streams();
+    for (final SMFArrayAttributeLayout attr : layout.attributes()) {
+      final SMFArrayStreamLayout stream = streams.get(attr.stream());
+      bindAttribute(
+        builder,
+        array_buffers.get(attr.stream()),
+        attr,
+        attr.offset() - stream.offset());
+    }
+  }
+
+  private static void bindAttribute(
+    final JCGLArrayObjectBuilderType builder,
+    final JCGLArrayBufferType array_buffer,
+    final SMFArrayAttributeLayout attr,
+    final long offset)
+  {
+    final SMFArrayAttributeEncoding encoding = attr.encoding();
+    if (encoding != SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_DIRECT) {
+      builder.setAttributeFloatingPoint(
+        attr.index(),
+        array_buffer,
+        attr.componentCount(),
+        attr.componentType(),
+        attr.stride(),
+        offset,
+        true);
+    } else {
+      bindDirect(builder, array_buffer, attr, offset);
+    }
+  }
+
+  private static void bindDirect(
+    final JCGLArrayObjectBuilderType builder,
+    final JCGLArrayBufferType array_buffer,
+    final SMFArrayAttributeLayout attr,
+    final long offset)
+  {
+    switch (attr.componentType()) {
+      case TYPE_UNSIGNED_INT:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_INT:
+      case TYPE_SHORT:
+      case TYPE_BYTE: {
+        builder.setAttributeIntegral(
+          attr.index(),
+          array_buffer,
+          attr.componentCount(),
+          JCGLScalarIntegralType.fromScalar(attr.componentType()),
+          attr.stride(),
+          offset);
+        break;
+      }
+      case TYPE_FLOAT:
+      case TYPE_HALF_FLOAT: {
+        builder.setAttributeFloatingPoint(
+          attr.index(),
+          array_buffer,
+          attr.componentCount(),
+          attr.componentType(),
+          attr.stride(),
+          offset,
+          false);
+        break;
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * The encodings that may be used to pack attributes into array buffers.
+ */
+
+public enum SMFArrayAttributeEncoding
+{
+  /**
+   * Components are packed as values of the array attribute's component type
+   * without any conversion beyond a change of size. Integer attributes are
+   * bound as integers, and floating point attributes as floating point
+   * values.
+   */
+
+  ATTRIBUTE_ENCODING_DIRECT,
+
+  /**
+   * Floating point components are quantized to normalized integers of the
+   * array attribute's component type, which must be an integer type. Signed
+   * types are packed as <i>snorm</i> values mapping {@code [-1, 1]}, and
+   * unsigned types as <i>unorm</i> values mapping {@code [0, 1]}; values
+   * outside of the range are clamped. The attribute is bound with
+   * {@code normalized=true}, so shaders receive floating point values.
+   */
+
+  ATTRIBUTE_ENCODING_NORMALIZED,
+
+  /**
+   * A floating point unit vector of at least three components is encoded as
+   * two snorm components using the octahedral mapping. The array attribute's
+   * component type must be {@code TYPE_BYTE} or {@code TYPE_SHORT}, and its
+   * declared component count must be {@code 2}. Shaders must decode the
+   * resulting values.
+   *
+   * @see SMFFrameEncodings#octahedral(double, double, double, double[])
+   */
+
+  ATTRIBUTE_ENCODING_OCTAHEDRAL,
+
+  /**
+   * A floating point tangent, with the sign of the bitangent in the fourth
+   * component if present, is combined with the normal named by
+   * {@link SMFArrayAttributeMappingType#frameNormal()} and encoded as a
+   * single quaternion of four snorm components (a <i>QTangent</i>). The
+   * array attribute's component type must be {@code TYPE_BYTE} or
+   * {@code TYPE_SHORT}, and its declared component count must be {@code 4}.
+   * The sign of the quaternion's {@code w} component holds the sign of the
+   * bitangent. Shaders must decode the resulting values.
+   *
+   * @see SMFFrameEncodings#qTangent(double, double, double, double, double,
+   * double, double, double, double[])
+   */
+
+  ATTRIBUTE_ENCODING_QTANGENT,
+
+  /**
+   * Floating point components are quantized to unorm values of the array
+   * attribute's component type, which must be an unsigned integer type,
+   * relative to the per-mesh range of each component. The range is only
+   * known once all values of the attribute have been received, so values are
+   * held in scratch memory before being packed: loaders that stage the whole
+   * mesh allocate {@code 4 * vertexCount * componentCount} additional bytes
+   * of heap memory per range-normalized attribute, unless the attribute is
+   * delivered as bulk data, in which case the packed data is read twice
+   * instead. Streaming loaders do not support this encoding. The attribute
+   * is bound with {@code normalized=true}, and shaders recover the original
+   * values using the offsets and scales published in an
+   * {@link SMFAttributeDequantization}. A component type of
+   * {@code TYPE_UNSIGNED_SHORT} halves the storage of {@code float32}
+   * positions and texture coordinates.
+   */
+
+  ATTRIBUTE_ENCODING_RANGE_NORMALIZED
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * The layout of a single attribute within a vertex.
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFArrayAttributeLayoutType
+{
+  /**
+   * @return The integer index of the array attribute
+   */
+
+  @Value.Parameter
+  int index();
+
+  /**
+   * @return The name of the source SMF attribute
+   */
+
+  @Value.Parameter
+  SMFAttributeName name();
+
+  /**
+   * @return The type of the packed attribute components
+   */
+
+  @Value.Parameter
+  JCGLScalarType componentType();
+
+  /**
+   * @return The number of components in each element
+   */
+
+  @Value.Parameter
+  int componentCount();
+
+  /**
+   * @return The offset in bytes of the first element of the attribute from
+   * the start of the packed vertex data; subtract the offset of the
+   * attribute's stream to obtain the offset within the stream's array buffer
+   */
+
+  @Value.Parameter
+  long offset();
+
+  /**
+   * @return The distance in bytes between consecutive elements of the
+   * attribute
+   */
+
+  @Value.Parameter
+  int stride();
+
+  /**
+   * @return The encoding used to pack the attribute
+   */
+
+  @Value.Default
+  default SMFArrayAttributeEncoding encoding()
+  {
+    return SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_DIRECT;
+  }
+
+  /**
+   * @return The name of the attribute holding normals, for attributes using
+   * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_QTANGENT}
+   */
+
+  Optional<SMFAttributeName> frameNormal();
+
+  /**
+   * @return The index of the stream holding the attribute in
+   * {@link SMFArrayLayoutType#streams()}
+   */
+
+  @Value.Default
+  default int stream()
+  {
+    return 0;
+  }
+
+  /**
+   * @return The size in bytes of a single element of the attribute
+   */
+
+  default int sizeBytes()
+  {
+    return Math.multiplyExact(
+      this.componentCount(), this.componentType().getSizeBytes());
+  }
+}
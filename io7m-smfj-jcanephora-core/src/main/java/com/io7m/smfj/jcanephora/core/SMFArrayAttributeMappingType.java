@@ -63,4 +63,91 @@ public interface SMFArrayAttributeMappingType
 
   @Value.Parameter
   int componentCount();
+
+  /**
+   * @return The encoding used to pack the attribute
+   */
+
+  @Value.Default
+  default SMFArrayAttributeEncoding encoding()
+  {
+    return SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_DIRECT;
+  }
+
+  /**
+   * @return The name of the attribute holding normals, for attributes using
+   * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_QTANGENT}. The named
+   * attribute need not itself be mapped.
+   */
+
+  Optional<SMFAttributeName> frameNormal();
+
+  /**
+   * @return The name of the vertex stream to which the attribute is assigned,
+   * or nothing to assign the attribute to the default stream. Each stream is
+   * uploaded to a separate array buffer, in which the attributes of the
+   * stream are interleaved. A stream holding only positions, for example,
+   * allows depth-only passes to fetch only the data that they use.
+   */
+
+  Optional<String> stream();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final SMFArrayAttributeEncoding encoding = this.encoding();
+    final JCGLScalarType type =
+      this.componentType().orElse(JCGLScalarType.TYPE_FLOAT);
+
+    switch (encoding) {
+      case ATTRIBUTE_ENCODING_DIRECT: {
+        break;
+      }
+      case ATTRIBUTE_ENCODING_NORMALIZED: {
+        if (type == JCGLScalarType.TYPE_FLOAT
+          || type == JCGLScalarType.TYPE_HALF_FLOAT) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "an integer component type");
+        }
+        break;
+      }
+      case ATTRIBUTE_ENCODING_OCTAHEDRAL: {
+        if (!SMFArrayAttributeMappings.isSnormFrameType(type)) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "a component type of TYPE_BYTE or TYPE_SHORT");
+        }
+        if (this.componentCount() != 2) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "a component count of 2");
+        }
+        break;
+      }
+      case ATTRIBUTE_ENCODING_QTANGENT: {
+        if (!SMFArrayAttributeMappings.isSnormFrameType(type)) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "a component type of TYPE_BYTE or TYPE_SHORT");
+        }
+        if (this.componentCount() != 4) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "a component count of 4");
+        }
+        if (!this.frameNormal().isPresent()) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "a frame normal attribute");
+        }
+        break;
+      }
+      case ATTRIBUTE_ENCODING_RANGE_NORMALIZED: {
+        if (!SMFArrayAttributeMappings.isUnsignedType(type)) {
+          throw SMFArrayAttributeMappings.invalid(
+            this, "an unsigned integer component type");
+        }
+        break;
+      }
+    }
+  }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Functions to validate attribute mappings.
+ */
+
+final class SMFArrayAttributeMappings
+{
+  private SMFArrayAttributeMappings()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param type A component type
+   *
+   * @return {@code true} iff {@code type} may hold octahedral normals or
+   * QTangents
+   */
+
+  static boolean isSnormFrameType(
+    final JCGLScalarType type)
+  {
+    return type == JCGLScalarType.TYPE_BYTE
+      || type == JCGLScalarType.TYPE_SHORT;
+  }
+
+  /**
+   * @param type A component type
+   *
+   * @return {@code true} iff {@code type} is an unsigned integer type
+   */
+
+  static boolean isUnsignedType(
+    final JCGLScalarType type)
+  {
+    return type == JCGLScalarType.TYPE_UNSIGNED_BYTE
+      || type == JCGLScalarType.TYPE_UNSIGNED_SHORT
+      || type == JCGLScalarType.TYPE_UNSIGNED_INT;
+  }
+
+  /**
+   * @param mapping     The mapping
+   * @param requirement A description of the unmet requirement
+   *
+   * @return An exception describing an invalid mapping
+   */
+
+  static IllegalArgumentException invalid(
+    final SMFArrayAttributeMappingType mapping,
+    final String requirement)
+  {
+    return new IllegalArgumentException(
+      "Attribute " + mapping.name().value() + " must specify " + requirement
+        + " for encoding " + mapping.encoding());
+  }
+}
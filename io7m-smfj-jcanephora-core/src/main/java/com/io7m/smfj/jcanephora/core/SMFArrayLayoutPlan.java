@@ -0,0 +1,318 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.smfj.core.SMFAttributeName;
+import javaslang.collection.List;
+
+import java.util.Optional;
+
+/**
+ * <p>A precomputed vertex layout plan. A plan captures every decision made by
+ * matching an {@link SMFArrayObjectConfiguration} against the attributes
+ * declared in an SMF header, none of which depend on the number of vertices
+ * in the mesh. Concrete layouts for a given vertex count are then produced
+ * without repeating the matching.</p>
+ *
+ * <p>Attributes are numbered from {@code 0} in ascending order of array
+ * index, and the properties of each attribute are held in flat arrays
+ * indexed by that number.</p>
+ *
+ * @see SMFArrayLayoutPlans
+ */
+
+public final class SMFArrayLayoutPlan
+{
+  private final SMFArrayAttributeLayout[] attributes;
+  private final int[] indices;
+  private final JCGLScalarType[] types;
+  private final int[] component_counts;
+  private final long[] record_offsets;
+  private final int[] sizes;
+  private final int[] streams;
+  private final int[] stream_strides;
+  private final List<Optional<String>> stream_names;
+  private final int vertex_size;
+  private final @Nullable SMFArrayLayout single_stream_layout;
+
+  SMFArrayLayoutPlan(
+    final List<SMFArrayAttributeLayout> in_attributes,
+    final List<Optional<String>> in_stream_names)
+  {
+    NullCheck.notNull(in_attributes, "Attributes");
+    this.stream_names = NullCheck.notNull(in_stream_names, "Stream names");
+
+    final int count = in_attributes.size();
+    this.attributes = new SMFArrayAttributeLayout[count];
+    this.indices = new int[count];
+    this.types = new JCGLScalarType[count];
+    this.component_counts = new int[count];
+    this.record_offsets = new long[count];
+    this.sizes = new int[count];
+    this.streams = new int[count];
+    this.stream_strides = new int[in_stream_names.size()];
+
+    int vertex_size_now = 0;
+    for (int index = 0; index < count; index = index + 1) {
+      final SMFArrayAttributeLayout attr = in_attributes.get(index);
+      this.attributes[index] = attr;
+      this.indices[index] = attr.index();
+      this.types[index] = attr.componentType();
+      this.component_counts[index] = attr.componentCount();
+      this.record_offsets[index] = attr.offset();
+      this.sizes[index] = attr.sizeBytes();
+      this.streams[index] = attr.stream();
+      this.stream_strides[attr.stream()] = attr.stride();
+      vertex_size_now = Math.addExact(vertex_size_now, attr.sizeBytes());
+    }
+    this.vertex_size = vertex_size_now;
+
+    if (in_stream_names.size() == 1) {
+      this.single_stream_layout = SMFArrayLayout.builder()
+        .setAttributes(in_attributes)
+        .setVertexSize(this.vertex_size)
+        .setStreams(List.of(SMFArrayStreamLayout.of(
+          in_stream_names.get(0), 0L, this.stream_strides[0])))
+        .build();
+    } else {
+      this.single_stream_layout = null;
+    }
+  }
+
+  /**
+   * @return The number of packed attributes
+   */
+
+  public int attributeCount()
+  {
+    return this.attributes.length;
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The array index of the given attribute
+   */
+
+  public int attributeIndex(
+    final int attribute)
+  {
+    return this.indices[attribute];
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The name of the given attribute
+   */
+
+  public SMFAttributeName attributeName(
+    final int attribute)
+  {
+    return this.attributes[attribute].name();
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The packed component type of the given attribute
+   */
+
+  public JCGLScalarType componentType(
+    final int attribute)
+  {
+    return this.types[attribute];
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The packed component count of the given attribute
+   */
+
+  public int componentCount(
+    final int attribute)
+  {
+    return this.component_counts[attribute];
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The offset in bytes of the given attribute from the start of a
+   * vertex record in its stream
+   */
+
+  public long recordOffset(
+    final int attribute)
+  {
+    return this.record_offsets[attribute];
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The size in bytes of a single element of the given attribute
+   */
+
+  public int sizeBytes(
+    final int attribute)
+  {
+    return this.sizes[attribute];
+  }
+
+  /**
+   * @param attribute The attribute number
+   *
+   * @return The stream that holds the given attribute
+   */
+
+  public int stream(
+    final int attribute)
+  {
+    return this.streams[attribute];
+  }
+
+  /**
+   * @return The number of vertex streams
+   */
+
+  public int streamCount()
+  {
+    return this.stream_strides.length;
+  }
+
+  /**
+   * @param stream The stream
+   *
+   * @return The size in bytes of a vertex record in the given stream
+   */
+
+  public int streamStride(
+    final int stream)
+  {
+    return this.stream_strides[stream];
+  }
+
+  /**
+   * @return The total size in bytes of all attributes of a single vertex
+   */
+
+  public int vertexSize()
+  {
+    return this.vertex_size;
+  }
+
+  /**
+   * @param vertex_count The number of vertices
+   *
+   * @return The total size in bytes of {@code vertex_count} packed vertices
+   */
+
+  public long vertexBytes(
+    final long vertex_count)
+  {
+    return Math.multiplyExact((long) this.vertex_size, vertex_count);
+  }
+
+  /**
+   * Produce an interleaved layout for the given number of vertices.
+   *
+   * @param vertex_count The number of vertices
+   *
+   * @return A vertex layout
+   *
+   * @see SMFArrayLayouts#layoutFor(SMFArrayObjectConfiguration,
+   * com.io7m.smfj.core.SMFHeader)
+   */
+
+  public SMFArrayLayout layout(
+    final long vertex_count)
+  {
+    if (this.single_stream_layout != null) {
+      return this.single_stream_layout;
+    }
+
+    final int stream_count = this.stream_strides.length;
+    final long[] stream_offsets = new long[stream_count];
+    List<SMFArrayStreamLayout> stream_layouts = List.empty();
+    long stream_offset = 0L;
+    for (int index = 0; index < stream_count; index = index + 1) {
+      stream_offsets[index] = stream_offset;
+      stream_layouts = stream_layouts.append(SMFArrayStreamLayout.of(
+        this.stream_names.get(index),
+        stream_offset,
+        this.stream_strides[index]));
+      stream_offset = Math.addExact(
+        stream_offset,
+        Math.multiplyExact((long) this.stream_strides[index], vertex_count));
+    }
+
+    List<SMFArrayAttributeLayout> attribute_layouts = List.empty();
+    for (int index = 0; index < this.attributes.length; index = index + 1) {
+      attribute_layouts = attribute_layouts.append(
+        this.attributes[index].withOffset(Math.addExact(
+          stream_offsets[this.streams[index]],
+          this.record_offsets[index])));
+    }
+
+    return SMFArrayLayout.builder()
+      .setAttributes(attribute_layouts)
+      .setVertexSize(this.vertex_size)
+      .setStreams(stream_layouts)
+      .build();
+  }
+
+  /**
+   * Produce a planar layout for the given number of vertices.
+   *
+   * @param vertex_count The number of vertices
+   *
+   * @return A vertex layout
+   *
+   * @see SMFArrayLayouts#planarLayoutFor(SMFArrayObjectConfiguration,
+   * com.io7m.smfj.core.SMFHeader)
+   */
+
+  public SMFArrayLayout planarLayout(
+    final long vertex_count)
+  {
+    List<SMFArrayAttributeLayout> attribute_layouts = List.empty();
+    long offset = 0L;
+    for (int index = 0; index < this.attributes.length; index = index + 1) {
+      final int size = this.sizes[index];
+      attribute_layouts = attribute_layouts.append(
+        this.attributes[index]
+          .withOffset(offset)
+          .withStride(size)
+          .withStream(0));
+      offset = Math.addExact(
+        offset, Math.multiplyExact((long) size, vertex_count));
+    }
+
+    return SMFArrayLayout.builder()
+      .setAttributes(attribute_layouts)
+      .setVertexSize(this.vertex_size)
+      .setStreams(List.of(
+        SMFArrayStreamLayout.of(Optional.empty(), 0L, this.vertex_size)))
+      .build();
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFHeader;
+
+/**
+ * <p>A cache of vertex layout plans, keyed by array object configuration and
+ * by the set of attributes declared in a header.</p>
+ *
+ * <p>Implementations are required to be safe for use from multiple
+ * threads.</p>
+ */
+
+public interface SMFArrayLayoutPlanCacheType
+{
+  /**
+   * @return The maximum number of plans held by the cache
+   */
+
+  int maximumSize();
+
+  /**
+   * @return The number of plans currently held by the cache
+   */
+
+  int size();
+
+  /**
+   * @return The number of lookups that found an existing plan
+   */
+
+  long hits();
+
+  /**
+   * @return The number of lookups that had to compute a plan
+   */
+
+  long misses();
+
+  /**
+   * Retrieve the plan for the given configuration and header attributes,
+   * computing and caching it if necessary. Other properties of the header,
+   * such as the vertex and triangle counts, do not affect the plan.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return A layout plan
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  SMFArrayLayoutPlan planFor(
+    SMFArrayObjectConfiguration configuration,
+    SMFHeader header)
+    throws IllegalArgumentException;
+
+  /**
+   * Remove all plans from the cache.
+   */
+
+  void clear();
+}
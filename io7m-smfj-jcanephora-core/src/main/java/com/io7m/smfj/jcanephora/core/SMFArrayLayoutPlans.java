@@ -0,0 +1,221 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFHeader;
+import javaslang.collection.Map;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Functions to compute and cache vertex layout plans.
+ */
+
+public final class SMFArrayLayoutPlans
+{
+  private static final int SHARED_SIZE = 256;
+  private static final SMFArrayLayoutPlanCacheType SHARED;
+
+  static {
+    SHARED = new Cache(SHARED_SIZE);
+  }
+
+  private SMFArrayLayoutPlans()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Compute a layout plan for the given configuration and header, without
+   * consulting any cache.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return A layout plan
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  public static SMFArrayLayoutPlan plan(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+    throws IllegalArgumentException
+  {
+    return SMFArrayLayouts.planFor(configuration, header);
+  }
+
+  /**
+   * Create a new plan cache that holds at most {@code maximum} plans. When
+   * full, the least recently used plan is discarded.
+   *
+   * @param maximum The maximum number of plans
+   *
+   * @return A new cache
+   */
+
+  public static SMFArrayLayoutPlanCacheType newCache(
+    final int maximum)
+  {
+    if (maximum <= 0) {
+      throw new IllegalArgumentException(
+        "Maximum cache size must be positive");
+    }
+    return new Cache(maximum);
+  }
+
+  /**
+   * @return The process-wide plan cache used by
+   * {@link SMFArrayLayouts#layoutFor(SMFArrayObjectConfiguration, SMFHeader)}
+   * and by all loaders
+   */
+
+  public static SMFArrayLayoutPlanCacheType shared()
+  {
+    return SHARED;
+  }
+
+  /**
+   * A cache key. Configurations are prehashed, and are usually shared by
+   * every load that uses them, so the cost of a lookup is dominated by
+   * hashing and comparing the (small) attribute maps of headers.
+   */
+
+  private static final class Key
+  {
+    private final SMFArrayObjectConfiguration configuration;
+    private final Map<SMFAttributeName, SMFAttribute> attributes;
+    private final int hash;
+
+    Key(
+      final SMFArrayObjectConfiguration in_configuration,
+      final Map<SMFAttributeName, SMFAttribute> in_attributes)
+    {
+      this.configuration =
+        NullCheck.notNull(in_configuration, "Configuration");
+      this.attributes = NullCheck.notNull(in_attributes, "Attributes");
+      this.hash =
+        31 * this.configuration.hashCode() + this.attributes.hashCode();
+    }
+
+    @Override
+    public boolean equals(
+      final Object other)
+    {
+      if (this == other) {
+        return true;
+      }
+      if (other == null || this.getClass() != other.getClass()) {
+        return false;
+      }
+      final Key k = (Key) other;
+      return this.hash == k.hash
+        && (this.configuration == k.configuration
+        || this.configuration.equals(k.configuration))
+        && this.attributes.equals(k.attributes);
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return this.hash;
+    }
+  }
+
+  private static final class Cache implements SMFArrayLayoutPlanCacheType
+  {
+    private final int maximum;
+    private final LinkedHashMap<Key, SMFArrayLayoutPlan> plans;
+    private long hits;
+    private long misses;
+
+    Cache(
+      final int in_maximum)
+    {
+      this.maximum = in_maximum;
+      this.plans = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    @Override
+    public int maximumSize()
+    {
+      return this.maximum;
+    }
+
+    @Override
+    public synchronized int size()
+    {
+      return this.plans.size();
+    }
+
+    @Override
+    public synchronized long hits()
+    {
+      return this.hits;
+    }
+
+    @Override
+    public synchronized long misses()
+    {
+      return this.misses;
+    }
+
+    @Override
+    public SMFArrayLayoutPlan planFor(
+      final SMFArrayObjectConfiguration configuration,
+      final SMFHeader header)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(configuration, "Configuration");
+      NullCheck.notNull(header, "Header");
+
+      final Key key = new Key(configuration, header.attributesByName());
+      synchronized (this) {
+        final SMFArrayLayoutPlan existing = this.plans.get(key);
+        if (existing != null) {
+          this.hits = this.hits + 1L;
+          return existing;
+        }
+      }
+
+      final SMFArrayLayoutPlan plan =
+        SMFArrayLayouts.planFor(configuration, header);
+
+      synchronized (this) {
+        this.misses = this.misses + 1L;
+        this.plans.put(key, plan);
+        if (this.plans.size() > this.maximum) {
+          this.plans.remove(this.plans.keySet().iterator().next());
+        }
+      }
+      return plan;
+    }
+
+    @Override
+    public synchronized void clear()
+    {
+      this.plans.clear();
+    }
+  }
+}
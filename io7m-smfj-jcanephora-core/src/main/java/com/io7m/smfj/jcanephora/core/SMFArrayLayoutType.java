@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.List;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+/**
+ * The layout of vertices in one or more array buffers, as decided by matching
+ * an {@link SMFArrayObjectConfiguration} against the attributes declared in
+ * an SMF header. Attributes may either be interleaved, or stored as
+ * consecutive planar blocks; see {@link SMFArrayLayouts}. The packed vertex
+ * data is divided into one or more streams, each of which is uploaded to a
+ * separate array buffer.
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFArrayLayoutType
+{
+  /**
+   * @return The packed attributes, in ascending order of array index
+   */
+
+  List<SMFArrayAttributeLayout> attributes();
+
+  /**
+   * @return The total size in bytes of all attributes of a single vertex
+   */
+
+  int vertexSize();
+
+  /**
+   * @return The vertex streams, in ascending order of offset
+   */
+
+  List<SMFArrayStreamLayout> streams();
+}
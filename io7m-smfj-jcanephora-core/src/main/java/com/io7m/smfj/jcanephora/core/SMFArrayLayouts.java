@@ -0,0 +1,708 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFAttributeNameType;
+import com.io7m.smfj.core.SMFAttributeType;
+import com.io7m.smfj.core.SMFComponentType;
+import com.io7m.smfj.core.SMFHeader;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Functions to decide the layout of vertices in array buffers.
+ */
+
+public final class SMFArrayLayouts
+{
+  private SMFArrayLayouts()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Decide the type of triangle indices for the given header, using the
+   * index size declared by the header, widened if the declared size cannot
+   * address every vertex of the mesh.
+   *
+   * @param header The parsed header
+   *
+   * @return The index type
+   */
+
+  public static JCGLUnsignedType indexTypeFor(
+    final SMFHeader header)
+  {
+    NullCheck.notNull(header, "Header");
+    return indexTypeFor(
+      SMFIndexTypePolicy.INDEX_TYPE_POLICY_FROM_HEADER,
+      true,
+      header.triangleIndexSizeBits(),
+      header.vertexCount());
+  }
+
+  /**
+   * Decide the type of triangle indices for the given configuration and
+   * header.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return The index type
+   *
+   * @see #indexTypeFor(SMFIndexTypePolicy, boolean, long, long)
+   */
+
+  public static JCGLUnsignedType indexTypeFor(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+  {
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(header, "Header");
+    return indexTypeFor(
+      configuration.indexTypePolicy(),
+      configuration.indexTypeAllowByte(),
+      header.triangleIndexSizeBits(),
+      header.vertexCount());
+  }
+
+  /**
+   * Decide the type of triangle indices. If {@code allow_byte} is
+   * {@code false}, {@link JCGLUnsignedType#TYPE_UNSIGNED_BYTE} is never
+   * returned and 16-bit indices are used in its place. The returned type can
+   * always address {@code vertex_count} vertices: a size declared by the
+   * header that is too small is widened.
+   *
+   * @param policy       The index type policy
+   * @param allow_byte   {@code true} iff 8-bit indices may be used
+   * @param header_bits  The index size in bits declared by the header
+   * @param vertex_count The number of vertices in the mesh
+   *
+   * @return The index type
+   */
+
+  public static JCGLUnsignedType indexTypeFor(
+    final SMFIndexTypePolicy policy,
+    final boolean allow_byte,
+    final long header_bits,
+    final long vertex_count)
+  {
+    NullCheck.notNull(policy, "Policy");
+
+    final long bits;
+    switch (policy) {
+      case INDEX_TYPE_POLICY_FROM_HEADER: {
+        bits = Math.max(header_bits, bitsRequiredFor(vertex_count));
+        break;
+      }
+      case INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT: {
+        bits = bitsRequiredFor(vertex_count);
+        break;
+      }
+      default: {
+        throw new UnreachableCodeException();
+      }
+    }
+
+    if (bits <= 8L && allow_byte) {
+      return JCGLUnsignedType.TYPE_UNSIGNED_BYTE;
+    }
+    if (bits <= 16L) {
+      return JCGLUnsignedType.TYPE_UNSIGNED_SHORT;
+    }
+    return JCGLUnsignedType.TYPE_UNSIGNED_INT;
+  }
+
+  private static long bitsRequiredFor(
+    final long vertex_count)
+  {
+    if (vertex_count <= 0x100L) {
+      return 8L;
+    }
+    if (vertex_count <= 0x10000L) {
+      return 16L;
+    }
+    return 32L;
+  }
+
+  /**
+   * Decide the layout of vertices for the given configuration and header.
+   * Attributes are grouped into streams, with the default stream first and
+   * named streams following in order of name. Within each stream, attributes
+   * are interleaved in ascending order of array index. Attributes that are
+   * required by the configuration but are not present in the header are
+   * ignored.
+   *
+   * <p>The decisions that do not depend on the vertex count are made once
+   * per distinct configuration and header attribute set, and are cached by
+   * {@link SMFArrayLayoutPlans#shared()}.</p>
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return A vertex layout
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header, or if overdraw optimization is
+   *                                  configured and its position attribute
+   *                                  is not directly encoded or is not
+   *                                  present in the header with 3 floating
+   *                                  point components
+   */
+
+  public static SMFArrayLayout layoutFor(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+    throws IllegalArgumentException
+  {
+    return SMFArrayLayoutPlans.shared()
+      .planFor(configuration, header)
+      .layout(header.vertexCount());
+  }
+
+  /**
+   * Compute a layout plan for the given configuration and header, without
+   * consulting any cache.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return A layout plan
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  static SMFArrayLayoutPlan planFor(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+    throws IllegalArgumentException
+  {
+    final SortedMap<Integer, Decided> decided = decide(configuration, header);
+    final List<Optional<String>> names = streamNames(decided);
+
+    final int[] strides = new int[names.size()];
+    for (final Decided d : decided.values()) {
+      final int s_index = names.indexOf(d.stream);
+      strides[s_index] = Math.addExact(strides[s_index], d.sizeBytes());
+    }
+
+    final long[] offsets = new long[names.size()];
+    List<SMFArrayAttributeLayout> attributes = List.empty();
+    for (final Integer a_index : decided.keySet()) {
+      final Decided d = decided.get(a_index);
+      final int s_index = names.indexOf(d.stream);
+      attributes = attributes.append(SMFArrayAttributeLayout.of(
+        a_index.intValue(),
+        d.name,
+        d.type,
+        d.count,
+        offsets[s_index],
+        strides[s_index])
+        .withEncoding(d.encoding)
+        .withFrameNormal(d.frame_normal)
+        .withStream(s_index));
+      offsets[s_index] =
+        Math.addExact(offsets[s_index], (long) d.sizeBytes());
+    }
+
+    return new SMFArrayLayoutPlan(attributes, names);
+  }
+
+  private static List<Optional<String>> streamNames(
+    final SortedMap<Integer, Decided> decided)
+  {
+    final SortedSet<String> named = new TreeSet<>();
+    boolean unnamed = decided.isEmpty();
+    for (final Decided d : decided.values()) {
+      if (d.stream.isPresent()) {
+        named.add(d.stream.get());
+      } else {
+        unnamed = true;
+      }
+    }
+
+    List<Optional<String>> names = List.empty();
+    if (unnamed) {
+      names = names.append(Optional.empty());
+    }
+    for (final String name : named) {
+      names = names.append(Optional.of(name));
+    }
+    return names;
+  }
+
+  /**
+   * Decide the layout of vertices for the given configuration and header.
+   * Attributes are not interleaved: all elements of each attribute are stored
+   * as a single contiguous block, and blocks are placed in ascending order of
+   * array index. The layout has a single stream holding all attributes, and
+   * so the stream assignments of the configuration are ignored. Attributes
+   * that are required by the configuration but are not present in the
+   * header are ignored.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return A vertex layout
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  public static SMFArrayLayout planarLayoutFor(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+    throws IllegalArgumentException
+  {
+    return SMFArrayLayoutPlans.shared()
+      .planFor(configuration, header)
+      .planarLayout(header.vertexCount());
+  }
+
+  private static SortedMap<Integer, Decided> decide(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+  {
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(header, "Header");
+
+    final Map<SMFAttributeName, SMFArrayAttributeMapping> required_attributes =
+      configuration.mappings();
+    final Map<SMFAttributeName, SMFAttribute> received_attributes =
+      header.attributesByName();
+    final SortedMap<Integer, Decided> attributes_by_index = new TreeMap<>();
+
+    for (final SMFAttributeName name : required_attributes.keySet()) {
+      final SMFArrayAttributeMapping required_attribute =
+        required_attributes.get(name).get();
+
+      if (received_attributes.containsKey(name)) {
+        final SMFAttribute received_attribute =
+          received_attributes.get(name).get();
+
+        final SMFArrayAttributeEncoding encoding =
+          required_attribute.encoding();
+        final JCGLScalarType decided =
+          determineComponentType(
+            encoding,
+            required_attribute.componentType(),
+            received_attribute.componentType());
+
+        if (decided == null
+          || !frameCompatible(encoding, received_attribute)) {
+          throw incompatibleType(
+            name, required_attribute, received_attribute);
+        }
+
+        checkFrameNormal(required_attribute, received_attributes);
+
+        final int count =
+          componentCountFor(required_attribute, received_attribute);
+
+        attributes_by_index.put(
+          Integer.valueOf(required_attribute.index()),
+          new Decided(name, count, decided, required_attribute));
+      }
+    }
+
+    checkOverdrawPosition(configuration, received_attributes);
+    return attributes_by_index;
+  }
+
+  private static void checkOverdrawPosition(
+    final SMFArrayObjectConfiguration configuration,
+    final Map<SMFAttributeName, SMFAttribute> received_attributes)
+  {
+    final Optional<SMFOverdrawConfiguration> overdraw =
+      configuration.overdrawOptimization();
+    if (!overdraw.isPresent()) {
+      return;
+    }
+
+    final SMFAttributeName position = overdraw.get().positionAttribute();
+    final SMFArrayAttributeEncoding encoding =
+      configuration.mappings().get(position).get().encoding();
+    final boolean usable =
+      encoding == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_DIRECT
+        && received_attributes.get(position)
+        .map(a -> a.componentType() == SMFComponentType.ELEMENT_TYPE_FLOATING
+          && a.componentCount() == 3)
+        .getOrElse(Boolean.FALSE)
+        .booleanValue();
+
+    if (!usable) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Missing or unusable overdraw position attribute.");
+      sb.append(System.lineSeparator());
+      sb.append("  Position attribute: ");
+      sb.append(position.value());
+      sb.append(System.lineSeparator());
+      sb.append("  Encoding: ");
+      sb.append(encoding);
+      sb.append(System.lineSeparator());
+      sb.append(
+        "  Required: a directly encoded attribute of 3 floating point "
+          + "components");
+      sb.append(System.lineSeparator());
+      throw new IllegalArgumentException(sb.toString());
+    }
+  }
+
+  /**
+   * Determine whether elements of the given attribute can be copied
+   * byte-for-byte (modulo byte order) into an array buffer with the given
+   * attribute layout.
+   *
+   * @param attribute The SMF attribute
+   * @param layout    The attribute layout
+   *
+   * @return {@code true} iff no conversion or encoding is required
+   */
+
+  static boolean copyable(
+    final SMFAttributeType attribute,
+    final SMFArrayAttributeLayout layout)
+  {
+    final SMFArrayAttributeEncoding encoding = layout.encoding();
+    return encoding == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_DIRECT
+      && matchesExactly(attribute, layout.componentType());
+  }
+
+  /**
+   * Determine whether the components of the given attribute are encoded
+   * exactly as components of {@code type}, such that elements of the attribute
+   * can be copied byte-for-byte (modulo byte order) into an array buffer.
+   *
+   * @param attribute The SMF attribute
+   * @param type      The packed component type
+   *
+   * @return {@code true} iff no conversion is required
+   */
+
+  static boolean matchesExactly(
+    final SMFAttributeType attribute,
+    final JCGLScalarType type)
+  {
+    if (attribute.componentSizeBits() != type.getSizeBytes() * 8) {
+      return false;
+    }
+
+    switch (attribute.componentType()) {
+      case ELEMENT_TYPE_INTEGER_SIGNED:
+        return type == JCGLScalarType.TYPE_BYTE
+          || type == JCGLScalarType.TYPE_SHORT
+          || type == JCGLScalarType.TYPE_INT;
+      case ELEMENT_TYPE_INTEGER_UNSIGNED:
+        return type == JCGLScalarType.TYPE_UNSIGNED_BYTE
+          || type == JCGLScalarType.TYPE_UNSIGNED_SHORT
+          || type == JCGLScalarType.TYPE_UNSIGNED_INT;
+      case ELEMENT_TYPE_FLOATING:
+        return type == JCGLScalarType.TYPE_HALF_FLOAT
+          || type == JCGLScalarType.TYPE_FLOAT;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static IllegalArgumentException incompatibleType(
+    final SMFAttributeNameType name,
+    final SMFArrayAttributeMappingType required_attribute,
+    final SMFAttributeType received_attribute)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append("Incompatible types.");
+    sb.append(System.lineSeparator());
+    sb.append("  Attribute: ");
+    sb.append(name.value());
+    sb.append(System.lineSeparator());
+    sb.append("  Required type: ");
+    sb.append(required_attribute.componentCount());
+    sb.append(" of ");
+    sb.append(
+      required_attribute.componentType()
+        .map(JCGLScalarType::toString)
+        .orElse("(inferred)"));
+    sb.append(System.lineSeparator());
+    sb.append("  Required encoding: ");
+    sb.append(required_attribute.encoding());
+    sb.append(System.lineSeparator());
+    sb.append("  Received type: ");
+    sb.append(received_attribute.componentCount());
+    sb.append(" of ");
+    sb.append(received_attribute.componentType());
+    sb.append(System.lineSeparator());
+    return new IllegalArgumentException(sb.toString());
+  }
+
+  private static
+  @Nullable
+  JCGLScalarType determineComponentType(
+    final SMFArrayAttributeEncoding encoding,
+    final Optional<JCGLScalarType> required_opt,
+    final SMFComponentType received)
+  {
+    switch (encoding) {
+      case ATTRIBUTE_ENCODING_DIRECT:
+        break;
+      case ATTRIBUTE_ENCODING_NORMALIZED:
+      case ATTRIBUTE_ENCODING_OCTAHEDRAL:
+      case ATTRIBUTE_ENCODING_QTANGENT:
+        return determineNormalizedType(required_opt, received);
+      case ATTRIBUTE_ENCODING_RANGE_NORMALIZED:
+        return determineRangeNormalizedType(required_opt, received);
+    }
+
+    if (required_opt.isPresent()) {
+      final JCGLScalarType required = required_opt.get();
+      switch (received) {
+        case ELEMENT_TYPE_INTEGER_SIGNED: {
+          switch (required) {
+            case TYPE_BYTE:
+            case TYPE_INT:
+            case TYPE_SHORT:
+              return required;
+            case TYPE_HALF_FLOAT:
+            case TYPE_FLOAT:
+            case TYPE_UNSIGNED_BYTE:
+            case TYPE_UNSIGNED_INT:
+            case TYPE_UNSIGNED_SHORT:
+              return null;
+          }
+          throw new UnreachableCodeException();
+        }
+        case ELEMENT_TYPE_INTEGER_UNSIGNED: {
+          switch (required) {
+            case TYPE_BYTE:
+            case TYPE_INT:
+            case TYPE_SHORT:
+            case TYPE_HALF_FLOAT:
+            case TYPE_FLOAT:
+              return null;
+            case TYPE_UNSIGNED_BYTE:
+            case TYPE_UNSIGNED_INT:
+            case TYPE_UNSIGNED_SHORT:
+              return required;
+          }
+          throw new UnreachableCodeException();
+        }
+        case ELEMENT_TYPE_FLOATING: {
+          switch (required) {
+            case TYPE_BYTE:
+            case TYPE_INT:
+            case TYPE_SHORT:
+            case TYPE_UNSIGNED_BYTE:
+            case TYPE_UNSIGNED_INT:
+            case TYPE_UNSIGNED_SHORT:
+              return null;
+            case TYPE_HALF_FLOAT:
+            case TYPE_FLOAT:
+              return required;
+          }
+          throw new UnreachableCodeException();
+        }
+      }
+
+      throw new UnreachableCodeException();
+    }
+
+    switch (received) {
+      case ELEMENT_TYPE_INTEGER_SIGNED:
+        return JCGLScalarType.TYPE_INT;
+      case ELEMENT_TYPE_INTEGER_UNSIGNED:
+        return JCGLScalarType.TYPE_UNSIGNED_INT;
+      case ELEMENT_TYPE_FLOATING:
+        return JCGLScalarType.TYPE_FLOAT;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static int componentCountFor(
+    final SMFArrayAttributeMappingType required,
+    final SMFAttributeType received)
+  {
+    switch (required.encoding()) {
+      case ATTRIBUTE_ENCODING_DIRECT:
+      case ATTRIBUTE_ENCODING_NORMALIZED:
+      case ATTRIBUTE_ENCODING_RANGE_NORMALIZED:
+        return received.componentCount();
+      case ATTRIBUTE_ENCODING_OCTAHEDRAL:
+      case ATTRIBUTE_ENCODING_QTANGENT:
+        return required.componentCount();
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static boolean frameCompatible(
+    final SMFArrayAttributeEncoding encoding,
+    final SMFAttributeType received)
+  {
+    switch (encoding) {
+      case ATTRIBUTE_ENCODING_DIRECT:
+      case ATTRIBUTE_ENCODING_NORMALIZED:
+      case ATTRIBUTE_ENCODING_RANGE_NORMALIZED:
+        return true;
+      case ATTRIBUTE_ENCODING_OCTAHEDRAL:
+      case ATTRIBUTE_ENCODING_QTANGENT:
+        return received.componentCount() >= 3;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static void checkFrameNormal(
+    final SMFArrayAttributeMappingType required,
+    final Map<SMFAttributeName, SMFAttribute> received_attributes)
+  {
+    if (required.encoding()
+      != SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_QTANGENT) {
+      return;
+    }
+
+    final SMFAttributeName normal = required.frameNormal().get();
+    final boolean usable =
+      received_attributes.get(normal)
+        .map(a -> a.componentType() == SMFComponentType.ELEMENT_TYPE_FLOATING
+          && a.componentCount() >= 3)
+        .getOrElse(Boolean.FALSE)
+        .booleanValue();
+
+    if (!usable) {
+      final StringBuilder sb = new StringBuilder(128);
+      sb.append("Missing or unusable frame normal attribute.");
+      sb.append(System.lineSeparator());
+      sb.append("  Attribute: ");
+      sb.append(required.name().value());
+      sb.append(System.lineSeparator());
+      sb.append("  Frame normal: ");
+      sb.append(normal.value());
+      sb.append(System.lineSeparator());
+      sb.append("  Required type: 3 or more floating point components");
+      sb.append(System.lineSeparator());
+      throw new IllegalArgumentException(sb.toString());
+    }
+  }
+
+  private static
+  @Nullable
+  JCGLScalarType determineNormalizedType(
+    final Optional<JCGLScalarType> required_opt,
+    final SMFComponentType received)
+  {
+    if (received != SMFComponentType.ELEMENT_TYPE_FLOATING
+      || !required_opt.isPresent()) {
+      return null;
+    }
+
+    final JCGLScalarType required = required_opt.get();
+    switch (required) {
+      case TYPE_BYTE:
+      case TYPE_INT:
+      case TYPE_SHORT:
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_INT:
+      case TYPE_UNSIGNED_SHORT:
+        return required;
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        return null;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Range-normalized values are quantized to {@code [0, 1]}, so only unsigned
+   * integer types are accepted: a signed type would leave half of its codes
+   * unused.
+   */
+
+  private static
+  @Nullable
+  JCGLScalarType determineRangeNormalizedType(
+    final Optional<JCGLScalarType> required_opt,
+    final SMFComponentType received)
+  {
+    if (received != SMFComponentType.ELEMENT_TYPE_FLOATING
+      || !required_opt.isPresent()) {
+      return null;
+    }
+
+    final JCGLScalarType required = required_opt.get();
+    switch (required) {
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_INT:
+      case TYPE_UNSIGNED_SHORT:
+        return required;
+      case TYPE_BYTE:
+      case TYPE_INT:
+      case TYPE_SHORT:
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        return null;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static final class Decided
+  {
+    private final SMFAttributeName name;
+    private final int count;
+    private final JCGLScalarType type;
+    private final SMFArrayAttributeEncoding encoding;
+    private final Optional<SMFAttributeName> frame_normal;
+    private final Optional<String> stream;
+
+    Decided(
+      final SMFAttributeName in_name,
+      final int in_count,
+      final JCGLScalarType in_type,
+      final SMFArrayAttributeMappingType in_mapping)
+    {
+      this.name = in_name;
+      this.count = in_count;
+      this.type = in_type;
+      this.encoding = in_mapping.encoding();
+      this.frame_normal = in_mapping.frameNormal();
+      this.stream = in_mapping.stream();
+    }
+
+    int sizeBytes()
+    {
+      return Math.multiplyExact(this.count, this.type.getSizeBytes());
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * The memory that loading a mesh will require, computed from its header
+ * alone.
+ *
+ * @see SMFArrayLoadEstimates
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFArrayLoadEstimateType
+{
+  /**
+   * @return The number of vertices declared by the header
+   */
+
+  long vertexCount();
+
+  /**
+   * @return The number of triangles declared by the header
+   */
+
+  long triangleCount();
+
+  /**
+   * @return The type of the triangle indices that will be uploaded
+   */
+
+  JCGLUnsignedType indexType();
+
+  /**
+   * @return The size in bytes of a single packed vertex
+   */
+
+  int vertexSize();
+
+  /**
+   * @return The total size in bytes of the array buffers that will be
+   * allocated
+   */
+
+  long vertexBytes();
+
+  /**
+   * @return The size in bytes of the index buffer that will be allocated
+   */
+
+  long indexBytes();
+
+  /**
+   * @return The size in bytes of the host memory that will be allocated to
+   * stage data before it is uploaded
+   */
+
+  long stagingBytes();
+
+  /**
+   * @return The total size in bytes of GPU memory that will be allocated
+   */
+
+  default long gpuBytes()
+  {
+    return Math.addExact(this.vertexBytes(), this.indexBytes());
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.vertexBytes() < 0L
+      || this.indexBytes() < 0L
+      || this.stagingBytes() < 0L) {
+      throw new IllegalArgumentException("Sizes must be non-negative");
+    }
+  }
+}
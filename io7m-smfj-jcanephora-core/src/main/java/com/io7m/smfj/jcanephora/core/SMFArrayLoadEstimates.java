@@ -0,0 +1,460 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Functions to estimate the memory required to load a mesh from its header
+ * alone, so that callers can budget memory before committing to a load.
+ */
+
+public final class SMFArrayLoadEstimates
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SMFArrayLoadEstimates.class);
+  }
+
+  private SMFArrayLoadEstimates()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return An estimate that does not yet include any staging memory
+   */
+
+  private static SMFArrayLoadEstimate estimateGPU(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+  {
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(header, "Header");
+
+    final SMFArrayLayoutPlan plan =
+      SMFArrayLayoutPlans.shared().planFor(configuration, header);
+    final JCGLUnsignedType index_type =
+      SMFArrayLayouts.indexTypeFor(configuration, header);
+
+    return SMFArrayLoadEstimate.builder()
+      .setVertexCount(header.vertexCount())
+      .setTriangleCount(header.triangleCount())
+      .setIndexType(index_type)
+      .setVertexSize(plan.vertexSize())
+      .setVertexBytes(plan.vertexBytes(header.vertexCount()))
+      .setIndexBytes(Math.multiplyExact(
+        Math.multiplyExact(header.triangleCount(), 3L),
+        (long) index_type.getSizeBytes()))
+      .setStagingBytes(0L)
+      .build();
+  }
+
+  /**
+   * Estimate the memory required to load a mesh with the given header using
+   * a loader created by {@link SMFArrayLoaders#newLoader} or
+   * {@link SMFArrayLoaders#newDeduplicatingLoader}. Such loaders stage the
+   * entire mesh in host memory before uploading it. The staging estimate
+   * includes the scratch memory used to capture the values of
+   * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED}
+   * attributes, assuming that they are not delivered as bulk data.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   *
+   * @return An estimate
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  public static SMFArrayLoadEstimate estimate(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+    throws IllegalArgumentException
+  {
+    final SMFArrayLoadEstimate gpu = estimateGPU(configuration, header);
+    return gpu.withStagingBytes(Math.addExact(
+      gpu.gpuBytes(), rangeScratchBytes(configuration, header)));
+  }
+
+  private static long rangeScratchBytes(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header)
+  {
+    final long vertex_count = header.vertexCount();
+    final SMFArrayLayout layout =
+      SMFArrayLayoutPlans.shared()
+        .planFor(configuration, header)
+        .layout(vertex_count);
+
+    long size = 0L;
+    for (final SMFArrayAttributeLayout attr : layout.attributes()) {
+      if (attr.encoding()
+        == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED) {
+        size = Math.addExact(
+          size,
+          Math.multiplyExact(
+            Math.multiplyExact(vertex_count, (long) attr.componentCount()),
+            4L));
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Estimate the memory required to load a mesh with the given header using
+   * a loader created by {@link SMFArrayLoaders#newStreamingLoader}. Such
+   * loaders stage data in a single window of fixed size.
+   *
+   * @param configuration The array object configuration
+   * @param header        The parsed header
+   * @param window_size   The size in bytes of the staging window
+   *
+   * @return An estimate
+   *
+   * @throws IllegalArgumentException If a required attribute has a type that
+   *                                  is incompatible with the attribute in the
+   *                                  header
+   */
+
+  public static SMFArrayLoadEstimate estimateStreaming(
+    final SMFArrayObjectConfiguration configuration,
+    final SMFHeader header,
+    final int window_size)
+    throws IllegalArgumentException
+  {
+    if (window_size <= 0) {
+      throw new IllegalArgumentException("Window size must be positive");
+    }
+
+    return estimateGPU(configuration, header)
+      .withStagingBytes((long) window_size);
+  }
+
+  /**
+   * Read only the header of the mesh file at {@code path} and estimate the
+   * memory required to load it as {@link #estimate(SMFArrayObjectConfiguration,
+   * SMFHeader)} does. No mesh data is read.
+   *
+   * @param parsers       A parser provider
+   * @param path          The mesh file
+   * @param configuration The array object configuration
+   *
+   * @return An estimate, or the errors that prevented one from being made
+   */
+
+  public static SMFArrayLoadEstimateResult estimatePath(
+    final SMFParserProviderType parsers,
+    final Path path,
+    final SMFArrayObjectConfiguration configuration)
+  {
+    NullCheck.notNull(configuration, "Configuration");
+    return estimateWith(
+      parsers, path, header -> estimate(configuration, header));
+  }
+
+  /**
+   * Read only the header of the mesh file at {@code path} and estimate the
+   * memory required to load it as {@link #estimateStreaming(
+   * SMFArrayObjectConfiguration, SMFHeader, int)} does. No mesh data is read.
+   *
+   * @param parsers       A parser provider
+   * @param path          The mesh file
+   * @param configuration The array object configuration
+   * @param window_size   The size in bytes of the staging window
+   *
+   * @return An estimate, or the errors that prevented one from being made
+   */
+
+  public static SMFArrayLoadEstimateResult estimateStreamingPath(
+    final SMFParserProviderType parsers,
+    final Path path,
+    final SMFArrayObjectConfiguration configuration,
+    final int window_size)
+  {
+    NullCheck.notNull(configuration, "Configuration");
+    return estimateWith(
+      parsers,
+      path,
+      header -> estimateStreaming(configuration, header, window_size));
+  }
+
+  private static SMFArrayLoadEstimateResult estimateWith(
+    final SMFParserProviderType parsers,
+    final Path path,
+    final Function<SMFHeader, SMFArrayLoadEstimate> estimator)
+  {
+    NullCheck.notNull(parsers, "Parsers");
+    NullCheck.notNull(path, "Path");
+
+    try {
+      final HeaderReader reader = new HeaderReader();
+      try (final InputStream stream = Files.newInputStream(path)) {
+        try (final SMFParserSequentialType parser =
+               parsers.parserCreateSequential(reader, path, stream)) {
+          parser.parseHeader();
+        }
+      }
+
+      if (!reader.errors.isEmpty()) {
+        return SMFArrayLoadEstimateResult.of(Optional.empty(), reader.errors);
+      }
+      if (reader.header == null) {
+        return SMFArrayLoadEstimateResult.of(
+          Optional.empty(),
+          List.of(SMFParseError.of(
+            LexicalPosition.of(0, 0, Optional.of(path)),
+            "No header could be parsed",
+            Optional.empty())));
+      }
+
+      return SMFArrayLoadEstimateResult.of(
+        Optional.of(estimator.apply(reader.header)), List.empty());
+    } catch (final IOException | RuntimeException e) {
+      LOG.error("failed to read header of {}: ", path, e);
+      final SMFParseError error = SMFParseError.of(
+        LexicalPosition.of(0, 0, Optional.of(path)),
+        e.getMessage() == null ? e.getClass().getName() : e.getMessage(),
+        Optional.of(e));
+      return SMFArrayLoadEstimateResult.of(Optional.empty(), List.of(error));
+    }
+  }
+
+  private static final class HeaderReader implements SMFParserEventsType
+  {
+    private @Nullable SMFHeader header;
+    private List<SMFParseError> errors;
+
+    HeaderReader()
+    {
+      this.errors = List.empty();
+    }
+
+    @Override
+    public void onStart()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onVersionReceived(
+      final SMFFormatVersion version)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onFinish()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      this.errors = this.errors.append(e);
+    }
+
+    @Override
+    public void onHeaderParsed(
+      final SMFHeader in_header)
+    {
+      this.header = in_header;
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      return false;
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeStart(
+      final SMFAttribute attribute)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataAttributeFinish(
+      final SMFAttribute attribute)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTrianglesStart()
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTriangle(
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      // Nothing
+    }
+
+    @Override
+    public void onDataTrianglesFinish()
+    {
+      // Nothing
+    }
+  }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.Map;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * <p>Timings and sizes recorded for a single load.</p>
+ *
+ * <p>Times are measured between parser events, and therefore include the
+ * time spent by the parser in producing the events. The exception is the
+ * time spent obtaining GL buffers, which is reported by the loader itself
+ * (see {@link SMFArrayLoaderType#bufferAllocationNanos()}) and is counted as
+ * allocation even for loaders that obtain buffers when the load finishes.
+ * Time spent in the listener of a load is not included.</p>
+ *
+ * @see SMFArrayLoaders#instrumented(SMFArrayLoaderType,
+ * SMFArrayObjectConfiguration, SMFArrayLoaderListenerType)
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFArrayLoadStatisticsType
+{
+  /**
+   * @return {@code true} iff the load completed without errors
+   */
+
+  boolean succeeded();
+
+  /**
+   * @return The number of vertices declared by the mesh header, or
+   * {@code 0} if no header was parsed
+   */
+
+  long vertexCount();
+
+  /**
+   * @return The number of triangles declared by the mesh header, or
+   * {@code 0} if no header was parsed
+   */
+
+  long triangleCount();
+
+  /**
+   * @return The size in bytes of a packed vertex
+   */
+
+  int vertexStride();
+
+  /**
+   * @return The total size in bytes of packed vertices
+   */
+
+  long vertexBytes();
+
+  /**
+   * @return The total size in bytes of packed indices
+   */
+
+  long indexBytes();
+
+  /**
+   * @return The chosen type of indices, if a header was parsed
+   */
+
+  Optional<JCGLUnsignedType> indexType();
+
+  /**
+   * @return The time in nanoseconds from the start of parsing to the
+   * delivery of the parsed header
+   */
+
+  long headerParseNanos();
+
+  /**
+   * @return The time in nanoseconds spent handling the parsed header, which
+   * includes the allocation of staging memory, plus the time spent obtaining
+   * GL buffers at any point in the load
+   */
+
+  long allocateNanos();
+
+  /**
+   * @return The time in nanoseconds spent parsing and packing each
+   * attribute
+   */
+
+  Map<SMFAttributeName, Long> attributePackNanos();
+
+  /**
+   * @return The time in nanoseconds spent parsing and packing triangles,
+   * including any triangle reordering or vertex remapping passes
+   */
+
+  long trianglePackNanos();
+
+  /**
+   * @return The time in nanoseconds spent finishing the load, which
+   * includes GL buffer updates and array object allocation, but excludes any
+   * time spent obtaining GL buffers
+   */
+
+  long uploadNanos();
+
+  /**
+   * @return The total time in nanoseconds from the start to the end of the
+   * load
+   */
+
+  long totalNanos();
+}
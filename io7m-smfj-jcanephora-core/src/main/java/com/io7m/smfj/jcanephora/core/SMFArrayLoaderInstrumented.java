@@ -0,0 +1,434 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * An array loader that measures the events delivered to another loader and
+ * reports the measurements to a listener when the load finishes. Individual
+ * attribute values and triangles are delegated without measurement, so the
+ * per-element cost of instrumentation is a single method call. Time spent
+ * obtaining GL buffers is taken from the delegate's
+ * {@link SMFArrayLoaderType#bufferAllocationNanos()}, and is attributed to
+ * allocation regardless of the event during which the delegate allocates.
+ */
+
+final class SMFArrayLoaderInstrumented implements SMFArrayLoaderType
+{
+  private final SMFArrayLoaderType delegate;
+  private final SMFArrayObjectConfiguration configuration;
+  private final SMFArrayLoaderListenerType listener;
+  private final SMFArrayLoadStatistics.Builder statistics;
+  private Map<SMFAttributeName, Long> attribute_nanos;
+  private long time_start;
+  private long time_attribute;
+  private long time_triangles;
+  private long nanos_allocate;
+
+  SMFArrayLoaderInstrumented(
+    final SMFArrayLoaderType in_delegate,
+    final SMFArrayObjectConfiguration in_configuration,
+    final SMFArrayLoaderListenerType in_listener)
+  {
+    this.delegate = NullCheck.notNull(in_delegate, "Delegate");
+    this.configuration = NullCheck.notNull(in_configuration, "Configuration");
+    this.listener = NullCheck.notNull(in_listener, "Listener");
+    this.statistics = SMFArrayLoadStatistics.builder();
+    this.attribute_nanos = HashMap.empty();
+    this.resetStatistics();
+  }
+
+  private void addAttributeTime(
+    final SMFAttributeName name,
+    final long nanos)
+  {
+    final long previous =
+      this.attribute_nanos.get(name).getOrElse(Long.valueOf(0L)).longValue();
+    this.attribute_nanos =
+      this.attribute_nanos.put(name, Long.valueOf(previous + nanos));
+  }
+
+  @Override
+  public void onError(
+    final SMFParseError e)
+  {
+    this.delegate.onError(e);
+  }
+
+  @Override
+  public void reset()
+  {
+    this.delegate.reset();
+    this.resetStatistics();
+  }
+
+  @Override
+  public void onStart()
+  {
+    this.resetStatistics();
+    this.delegate.onStart();
+  }
+
+  private void resetStatistics()
+  {
+    this.time_start = System.nanoTime();
+    this.statistics
+      .setVertexCount(0L)
+      .setTriangleCount(0L)
+      .setVertexStride(0)
+      .setVertexBytes(0L)
+      .setIndexBytes(0L)
+      .setIndexType(Optional.empty())
+      .setHeaderParseNanos(0L)
+      .setAllocateNanos(0L)
+      .setTrianglePackNanos(0L);
+    this.nanos_allocate = 0L;
+    this.attribute_nanos = HashMap.empty();
+  }
+
+  @Override
+  public void onVersionReceived(
+    final SMFFormatVersion version)
+  {
+    this.delegate.onVersionReceived(version);
+  }
+
+  @Override
+  public void onHeaderParsed(
+    final SMFHeader header)
+  {
+    final long time_header = System.nanoTime();
+    this.delegate.onHeaderParsed(header);
+    final long time_allocated = System.nanoTime();
+    this.nanos_allocate = time_allocated - time_header;
+
+    final int stride =
+      SMFArrayLayouts.layoutFor(this.configuration, header).vertexSize();
+    final JCGLUnsignedType index_type =
+      SMFArrayLayouts.indexTypeFor(this.configuration, header);
+    final long triangles = header.triangleCount();
+
+    this.statistics
+      .setVertexCount(header.vertexCount())
+      .setTriangleCount(triangles)
+      .setVertexStride(stride)
+      .setVertexBytes(
+        Math.multiplyExact((long) stride, header.vertexCount()))
+      .setIndexBytes(
+        Math.multiplyExact(
+          Math.multiplyExact(triangles, 3L),
+          (long) index_type.getSizeBytes()))
+      .setIndexType(index_type)
+      .setHeaderParseNanos(time_header - this.time_start);
+  }
+
+  @Override
+  public boolean onMeta(
+    final long vendor,
+    final long schema,
+    final long length)
+  {
+    return this.delegate.onMeta(vendor, schema, length);
+  }
+
+  @Override
+  public void onMetaData(
+    final long vendor,
+    final long schema,
+    final byte[] data)
+  {
+    this.delegate.onMetaData(vendor, schema, data);
+  }
+
+  @Override
+  public void onDataAttributeStart(
+    final SMFAttribute attribute)
+  {
+    this.time_attribute = System.nanoTime();
+    this.delegate.onDataAttributeStart(attribute);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned1(
+    final long x)
+  {
+    this.delegate.onDataAttributeValueIntegerSigned1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned2(
+    final long x,
+    final long y)
+  {
+    this.delegate.onDataAttributeValueIntegerSigned2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    this.delegate.onDataAttributeValueIntegerSigned3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    this.delegate.onDataAttributeValueIntegerSigned4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned1(
+    final long x)
+  {
+    this.delegate.onDataAttributeValueIntegerUnsigned1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned2(
+    final long x,
+    final long y)
+  {
+    this.delegate.onDataAttributeValueIntegerUnsigned2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    this.delegate.onDataAttributeValueIntegerUnsigned3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    this.delegate.onDataAttributeValueIntegerUnsigned4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat1(
+    final double x)
+  {
+    this.delegate.onDataAttributeValueFloat1(x);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat2(
+    final double x,
+    final double y)
+  {
+    this.delegate.onDataAttributeValueFloat2(x, y);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat3(
+    final double x,
+    final double y,
+    final double z)
+  {
+    this.delegate.onDataAttributeValueFloat3(x, y, z);
+  }
+
+  @Override
+  public void onDataAttributeValueFloat4(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    this.delegate.onDataAttributeValueFloat4(x, y, z, w);
+  }
+
+  @Override
+  public void onDataAttributeFinish(
+    final SMFAttribute attribute)
+  {
+    this.delegate.onDataAttributeFinish(attribute);
+    this.addAttributeTime(
+      attribute.name(), System.nanoTime() - this.time_attribute);
+  }
+
+  @Override
+  public boolean onDataAttributeBulk(
+    final SMFAttribute attribute,
+    final ByteBuffer data)
+  {
+    final long time_bulk = System.nanoTime();
+    final boolean accepted = this.delegate.onDataAttributeBulk(attribute, data);
+    this.addAttributeTime(attribute.name(), System.nanoTime() - time_bulk);
+    return accepted;
+  }
+
+  @Override
+  public void onDataTrianglesStart()
+  {
+    this.time_triangles = System.nanoTime();
+    this.delegate.onDataTrianglesStart();
+  }
+
+  @Override
+  public void onDataTriangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    this.delegate.onDataTriangle(v0, v1, v2);
+  }
+
+  @Override
+  public void onDataTrianglesBulk(
+    final long[] indices,
+    final int offset,
+    final int count)
+  {
+    this.delegate.onDataTrianglesBulk(indices, offset, count);
+  }
+
+  @Override
+  public void onDataTrianglesBulk(
+    final int[] indices,
+    final int offset,
+    final int count)
+  {
+    this.delegate.onDataTrianglesBulk(indices, offset, count);
+  }
+
+  @Override
+  public void onDataTrianglesFinish()
+  {
+    this.delegate.onDataTrianglesFinish();
+    this.statistics.setTrianglePackNanos(
+      System.nanoTime() - this.time_triangles);
+  }
+
+  @Override
+  public void onFinish()
+  {
+    final long allocated_before = this.delegate.bufferAllocationNanos();
+    final long time_finish = System.nanoTime();
+    this.delegate.onFinish();
+    final long time_end = System.nanoTime();
+    final long allocated =
+      this.delegate.bufferAllocationNanos() - allocated_before;
+
+    this.listener.onLoadFinished(
+      this.statistics
+        .setSucceeded(this.delegate.errors().isEmpty())
+        .setAttributePackNanos(this.attribute_nanos)
+        .setAllocateNanos(this.nanos_allocate + allocated)
+        .setUploadNanos((time_end - time_finish) - allocated)
+        .setTotalNanos(time_end - this.time_start)
+        .build());
+  }
+
+  @Override
+  public List<SMFParseError> errors()
+  {
+    return this.delegate.errors();
+  }
+
+  @Override
+  public JCGLArrayObjectType arrayObject()
+    throws IllegalStateException
+  {
+    return this.delegate.arrayObject();
+  }
+
+  @Override
+  public JCGLArrayBufferType arrayBuffer()
+    throws IllegalStateException
+  {
+    return this.delegate.arrayBuffer();
+  }
+
+  @Override
+  public List<JCGLArrayBufferType> arrayBuffers()
+    throws IllegalStateException
+  {
+    return this.delegate.arrayBuffers();
+  }
+
+  @Override
+  public JCGLIndexBufferType indexBuffer()
+    throws IllegalStateException
+  {
+    return this.delegate.indexBuffer();
+  }
+
+  @Override
+  public Optional<RangeInclusiveL> indexRange()
+    throws IllegalStateException
+  {
+    return this.delegate.indexRange();
+  }
+
+  @Override
+  public Optional<SMFVertexCacheStatistics> vertexCacheStatistics()
+    throws IllegalStateException
+  {
+    return this.delegate.vertexCacheStatistics();
+  }
+
+  @Override
+  public Map<SMFAttributeName, SMFAttributeDequantization> dequantization()
+    throws IllegalStateException
+  {
+    return this.delegate.dequantization();
+  }
+
+  @Override
+  public Optional<SMFShadowMeshType> shadow()
+    throws IllegalStateException
+  {
+    return this.delegate.shadow();
+  }
+
+  @Override
+  public long bufferAllocationNanos()
+  {
+    return this.delegate.bufferAllocationNanos();
+  }
+}
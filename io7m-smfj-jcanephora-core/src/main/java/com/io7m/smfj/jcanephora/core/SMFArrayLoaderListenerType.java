@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * The type of listeners that receive statistics for each completed load.
+ *
+ * @see SMFArrayLoaders#instrumented(SMFArrayLoaderType,
+ * SMFArrayObjectConfiguration, SMFArrayLoaderListenerType)
+ */
+
+@FunctionalInterface
+public interface SMFArrayLoaderListenerType
+{
+  /**
+   * A load has finished. This is called on the thread that delivered the
+   * final parser event, after the instrumented loader has finished.
+   *
+   * @param statistics The statistics of the load
+   */
+
+  void onLoadFinished(SMFArrayLoadStatistics statistics);
+}
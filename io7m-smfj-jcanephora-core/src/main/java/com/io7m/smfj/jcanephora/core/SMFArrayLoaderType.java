@@ -19,9 +19,14 @@ package com.io7m.smfj.jcanephora.core;
 import com.io7m.jcanephora.core.JCGLArrayBufferType;
 import com.io7m.jcanephora.core.JCGLArrayObjectType;
 import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFAttributeName;
 import com.io7m.smfj.parser.api.SMFParseError;
 import com.io7m.smfj.parser.api.SMFParserEventsType;
 import javaslang.collection.List;
+import javaslang.collection.Map;
+
+import java.util.Optional;
 
 /**
  * <p>The type of array loaders.</p>
@@ -31,9 +36,14 @@ import javaslang.collection.List;
  * index buffer, or array object will raise an exception. If an array loader
  * has not failed, then the caller takes ownership of the loaded resources
  * and is responsible for deleting them when they are no longer being used.</p>
+ *
+ * <p>An array loader may be used to load any number of meshes in sequence by
+ * calling {@link #reset()} between loads. Array loaders are not
+ * thread-safe.</p>
  */
 
-public interface SMFArrayLoaderType extends SMFParserEventsType
+public interface SMFArrayLoaderType
+  extends SMFParserEventsType, SMFBulkDataReceiverType
 {
   /**
    * @return The list of errors encountered during parsing, if any
@@ -51,7 +61,7 @@ public interface SMFArrayLoaderType extends SMFParserEventsType
     throws IllegalStateException;
 
   /**
-   * @return The loaded array buffer
+   * @return The loaded array buffer of the first vertex stream
    *
    * @throws IllegalStateException Iff {@link #errors()} is non-empty
    */
@@ -59,6 +69,16 @@ public interface SMFArrayLoaderType extends SMFParserEventsType
   JCGLArrayBufferType arrayBuffer()
     throws IllegalStateException;
 
+  /**
+   * @return The loaded array buffers, one per vertex stream, in the order of
+   * {@link SMFArrayLayoutType#streams()}
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty
+   */
+
+  List<JCGLArrayBufferType> arrayBuffers()
+    throws IllegalStateException;
+
   /**
    * @return The loaded index buffer
    *
@@ -67,4 +87,69 @@ public interface SMFArrayLoaderType extends SMFParserEventsType
 
   JCGLIndexBufferType indexBuffer()
     throws IllegalStateException;
+
+  /**
+   * @return The inclusive range of vertex indices referenced by the loaded
+   * triangles, or nothing if the mesh has no triangles. Renderers may use
+   * this range for range-limited draw calls.
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty
+   */
+
+  Optional<RangeInclusiveL> indexRange()
+    throws IllegalStateException;
+
+  /**
+   * @return Statistics describing the triangle reordering passes, or nothing
+   * if no passes were enabled by the configuration
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty
+   */
+
+  Optional<SMFVertexCacheStatistics> vertexCacheStatistics()
+    throws IllegalStateException;
+
+  /**
+   * @return The information required to dequantize each attribute packed
+   * with {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED}
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty
+   */
+
+  Map<SMFAttributeName, SMFAttributeDequantization> dequantization()
+    throws IllegalStateException;
+
+  /**
+   * @return A shadow copy of the packed mesh data, or nothing if the loader
+   * was not given a shadow store, if the store's budget was exhausted, or if
+   * the loader does not retain packed data
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty
+   */
+
+  Optional<SMFShadowMeshType> shadow()
+    throws IllegalStateException;
+
+  /**
+   * @return The total time in nanoseconds that the loader has spent
+   * obtaining GL buffers since it was created or last reset. For loaders
+   * that obtain buffers from a {@link SMFBufferDeduplicatorType}, this
+   * includes hashing the packed data and uploading any buffer that was not
+   * already live.
+   */
+
+  long bufferAllocationNanos();
+
+  /**
+   * <p>Reset the loader so that it can be used to load another mesh. The
+   * errors and results of the previous load are discarded. If the previous
+   * load finished successfully, the caller retains ownership of the loaded
+   * resources. If the previous load did not finish, any resources allocated
+   * for it are released.</p>
+   *
+   * <p>Staging memory is retained across loads, and is only reallocated when
+   * a mesh requires more than the loader currently holds.</p>
+   */
+
+  void reset();
 }
@@ -20,40 +20,31 @@ import com.io7m.jcanephora.core.JCGLArrayBufferType;
 import com.io7m.jcanephora.core.JCGLArrayObjectBuilderType;
 import com.io7m.jcanephora.core.JCGLArrayObjectType;
 import com.io7m.jcanephora.core.JCGLBufferUpdateType;
-import com.io7m.jcanephora.core.JCGLBufferUpdates;
 import com.io7m.jcanephora.core.JCGLIndexBufferType;
-import com.io7m.jcanephora.core.JCGLScalarIntegralType;
-import com.io7m.jcanephora.core.JCGLScalarType;
 import com.io7m.jcanephora.core.JCGLUnsignedType;
 import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
 import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
 import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
-import com.io7m.jintegers.Unsigned16;
-import com.io7m.jintegers.Unsigned32;
-import com.io7m.jintegers.Unsigned8;
 import com.io7m.jlexing.core.LexicalPosition;
 import com.io7m.jnull.NullCheck;
-import com.io7m.jnull.Nullable;
+import com.io7m.jranges.RangeInclusiveL;
 import com.io7m.junreachable.UnreachableCodeException;
 import com.io7m.smfj.core.SMFAttribute;
 import com.io7m.smfj.core.SMFAttributeName;
-import com.io7m.smfj.core.SMFAttributeNameType;
-import com.io7m.smfj.core.SMFAttributeType;
-import com.io7m.smfj.core.SMFComponentType;
 import com.io7m.smfj.core.SMFFormatVersion;
 import com.io7m.smfj.core.SMFHeader;
 import com.io7m.smfj.parser.api.SMFParseError;
 import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import javaslang.collection.HashMap;
 import javaslang.collection.List;
 import javaslang.collection.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.nio.file.Path;
 import java.util.Optional;
-import java.util.SortedMap;
-import java.util.TreeMap;
 
 /**
  * The default provider of {@link SMFArrayLoaderType} values.
@@ -73,7 +64,8 @@ public final class SMFArrayLoaders
   }
 
   /**
-   * Construct a new array loader.
+   * Construct a new array loader. The loader may be reused for any number of
+   * meshes by calling {@link SMFArrayLoaderType#reset()} between loads.
    *
    * @param g             A GL interface
    * @param in_meta       A metadata listener
@@ -87,151 +79,305 @@ public final class SMFArrayLoaders
     final SMFParserEventsMetaType in_meta,
     final SMFArrayObjectConfiguration configuration)
   {
-    return new Loader(g, in_meta, configuration);
+    return newLoader(
+      g, in_meta, configuration, SMFBufferAllocators.direct());
+  }
+
+  /**
+   * Construct a new array loader that obtains buffers from the given
+   * allocator. If loading fails, any buffers obtained are released back to
+   * the allocator. Buffers of successfully loaded meshes are owned by the
+   * caller, and should be released to the same allocator when they are no
+   * longer needed.
+   *
+   * @param g             A GL interface
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   * @param allocator     A buffer allocator
+   *
+   * @return A new array loader
+   *
+   * @see SMFBufferPools
+   */
+
+  public static SMFArrayLoaderType newLoader(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFBufferAllocatorType allocator)
+  {
+    return new Loader(
+      g, in_meta, configuration, allocator, Optional.empty(), Optional.empty());
+  }
+
+  /**
+   * Construct a new array loader that obtains buffers from the given
+   * allocator, and that retains a shadow copy of the packed mesh data in
+   * {@code shadows} once loading has succeeded. If the store's budget would
+   * be exceeded, no shadow copy is retained. See
+   * {@link SMFArrayLoaderType#shadow()}.
+   *
+   * @param g             A GL interface
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   * @param allocator     A buffer allocator
+   * @param shadows       A shadow store
+   *
+   * @return A new array loader
+   *
+   * @see SMFShadowStores
+   */
+
+  public static SMFArrayLoaderType newLoader(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFBufferAllocatorType allocator,
+    final SMFShadowStoreType shadows)
+  {
+    return new Loader(
+      g,
+      in_meta,
+      configuration,
+      allocator,
+      Optional.of(NullCheck.notNull(shadows, "Shadows")),
+      Optional.empty());
+  }
+
+  /**
+   * <p>Construct a new array loader that obtains buffers from the given
+   * deduplicator.</p>
+   *
+   * <p>GL buffers are not allocated until parsing has finished. Each packed
+   * vertex stream and the packed indices are then hashed, and a live buffer
+   * with identical contents is reused instead of uploading a duplicate. The
+   * buffers of a loaded mesh may therefore be shared with other meshes, and
+   * must be released to {@code deduplicator} rather than deleted.</p>
+   *
+   * @param g             A GL interface
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   * @param deduplicator  A buffer deduplicator
+   *
+   * @return A new array loader
+   *
+   * @see SMFBufferDeduplicators
+   */
+
+  public static SMFArrayLoaderType newDeduplicatingLoader(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFBufferDeduplicatorType deduplicator)
+  {
+    return new Loader(
+      g,
+      in_meta,
+      configuration,
+      SMFBufferAllocators.direct(),
+      Optional.empty(),
+      Optional.of(NullCheck.notNull(deduplicator, "Deduplicator")));
+  }
+
+  /**
+   * <p>Instrument an array loader. The returned loader delegates all events
+   * to {@code loader}, measures the time spent in each phase of the load,
+   * and reports the measurements to {@code listener} when the load
+   * finishes.</p>
+   *
+   * <p>Individual attribute values and triangles are not measured, so
+   * instrumentation adds no per-element cost beyond a single method
+   * call.</p>
+   *
+   * @param loader        The loader to instrument
+   * @param configuration The configuration with which {@code loader} was
+   *                      constructed, used to compute the reported sizes
+   * @param listener      The listener that receives statistics
+   *
+   * @return An instrumented loader
+   */
+
+  public static SMFArrayLoaderType instrumented(
+    final SMFArrayLoaderType loader,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFArrayLoaderListenerType listener)
+  {
+    return new SMFArrayLoaderInstrumented(loader, configuration, listener);
+  }
+
+  /**
+   * <p>Construct a new streaming array loader.</p>
+   *
+   * <p>A streaming loader packs data into a staging window of
+   * {@code window_size} bytes and uploads each filled window to the GPU as
+   * parsing proceeds, instead of staging the entire mesh and uploading it
+   * when parsing has finished. Peak staging memory is therefore bounded by
+   * the window size rather than by the size of the mesh.</p>
+   *
+   * <p>In order to upload attributes as they are received, the loaded array
+   * buffer uses a planar layout: the elements of each attribute are stored
+   * in a contiguous block rather than interleaved. See
+   * {@link SMFArrayLayouts#planarLayoutFor(SMFArrayObjectConfiguration,
+   * SMFHeader)}.</p>
+   *
+   * @param g             A GL interface
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   * @param window_size   The size in bytes of the staging window, which must
+   *                      be at least 16
+   *
+   * @return A new array loader
+   *
+   * @throws IllegalArgumentException If the window size is too small, or if
+   *                                  the configuration requests triangle
+   *                                  reordering, vertex remapping,
+   *                                  QTangent encoding, range normalization,
+   *                                  or named vertex streams
+   */
+
+  public static SMFArrayLoaderType newStreamingLoader(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration,
+    final int window_size)
+    throws IllegalArgumentException
+  {
+    return newStreamingLoader(
+      g, in_meta, configuration, window_size, SMFBufferAllocators.direct());
+  }
+
+  /**
+   * Construct a new streaming array loader that obtains buffers from the
+   * given allocator.
+   *
+   * @param g             A GL interface
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   * @param window_size   The size in bytes of the staging window, which must
+   *                      be at least 16
+   * @param allocator     A buffer allocator
+   *
+   * @return A new array loader
+   *
+   * @throws IllegalArgumentException If the window size is too small, or if
+   *                                  the configuration is not supported by
+   *                                  streaming loaders
+   * @see #newStreamingLoader(JCGLInterfaceGL33Type, SMFParserEventsMetaType,
+   * SMFArrayObjectConfiguration, int)
+   * @see #newLoader(JCGLInterfaceGL33Type, SMFParserEventsMetaType,
+   * SMFArrayObjectConfiguration, SMFBufferAllocatorType)
+   */
+
+  public static SMFArrayLoaderType newStreamingLoader(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration,
+    final int window_size,
+    final SMFBufferAllocatorType allocator)
+    throws IllegalArgumentException
+  {
+    return new SMFArrayStreamingLoader(
+      g, in_meta, configuration, window_size, allocator);
+  }
+
+  /**
+   * @param current The current staging buffer, if any
+   * @param size    The required size in bytes
+   *
+   * @return {@code current} if it can hold {@code size} bytes, or a new
+   * direct buffer of at least {@code size} bytes otherwise
+   */
+
+  private static ByteBuffer stagingFor(
+    final ByteBuffer current,
+    final int size)
+  {
+    if (current != null && current.capacity() >= size) {
+      return current;
+    }
+
+    final long grown = current == null
+      ? (long) size
+      : Math.max((long) size, 2L * (long) current.capacity());
+    final ByteBuffer data = ByteBuffer.allocateDirect(
+      (int) Math.min(grown, (long) Integer.MAX_VALUE));
+    data.order(ByteOrder.nativeOrder());
+    return data;
+  }
+
+  /**
+   * @param staging A staging buffer
+   * @param size    The size in bytes of the view
+   *
+   * @return A view of the first {@code size} bytes of {@code staging}, in
+   * native byte order
+   */
+
+  private static ByteBuffer stagingView(
+    final ByteBuffer staging,
+    final int size)
+  {
+    final ByteBuffer d = staging.duplicate();
+    d.clear();
+    d.limit(size);
+    final ByteBuffer view = d.slice();
+    view.order(ByteOrder.nativeOrder());
+    return view;
   }
 
   private static final class Loader implements SMFArrayLoaderType
   {
     private final JCGLInterfaceGL33Type g;
     private final SMFArrayObjectConfiguration configuration;
-    private final SortedMap<Integer, Attribute> attributes_by_index;
-    private final SortedMap<String, Attribute> attributes_by_name;
     private final SMFParserEventsMetaType meta;
+    private final SMFBufferAllocatorType allocator;
+    private final Optional<SMFShadowStoreType> shadows;
+    private final Optional<SMFBufferDeduplicatorType> deduplicator;
     private List<SMFParseError> errors;
-    private int index_position;
-    private long array_buffer_size;
-    private int vertex_size;
     private JCGLArrayObjectBuilderType array_object_builder;
     private JCGLArrayObjectType array_object;
-    private JCGLArrayBufferType array_buffer;
-    private JCGLUnsignedType index_type;
+    private List<JCGLArrayBufferType> array_buffers;
     private JCGLIndexBufferType index_buffer;
-    private JCGLBufferUpdateType<JCGLArrayBufferType> array_update;
-    private SMFByteBufferPacker packer;
+    private List<JCGLBufferUpdateType<JCGLArrayBufferType>> array_updates;
     private JCGLBufferUpdateType<JCGLIndexBufferType> index_update;
-    private int index_stride;
+    private SMFMeshPacker mesh_packer;
+    private SMFHeader header;
+    private SMFArrayLayout layout;
+    private JCGLUnsignedType index_type;
+    private ByteBuffer vertex_data;
+    private ByteBuffer index_data;
+    private Optional<SMFShadowMeshType> shadow;
+    private Optional<RangeInclusiveL> index_range;
+    private Optional<SMFVertexCacheStatistics> cache_statistics;
+    private Map<SMFAttributeName, SMFAttributeDequantization> dequantization;
+    private SMFByteBufferPackerType packer;
+    private ByteBuffer vertex_staging;
+    private ByteBuffer index_staging;
+    private boolean aborted;
+    private boolean finished;
+    private long allocation_nanos;
 
     Loader(
       final JCGLInterfaceGL33Type in_g,
       final SMFParserEventsMetaType in_meta,
-      final SMFArrayObjectConfiguration in_configuration)
+      final SMFArrayObjectConfiguration in_configuration,
+      final SMFBufferAllocatorType in_allocator,
+      final Optional<SMFShadowStoreType> in_shadows,
+      final Optional<SMFBufferDeduplicatorType> in_deduplicator)
     {
       this.g = NullCheck.notNull(in_g, "GL");
       this.configuration = NullCheck.notNull(in_configuration, "Configuration");
       this.meta = NullCheck.notNull(in_meta, "Meta");
-      this.attributes_by_index = new TreeMap<>();
-      this.attributes_by_name = new TreeMap<>();
-      this.vertex_size = 0;
-      this.array_buffer_size = 0L;
-      this.index_position = 0;
+      this.allocator = NullCheck.notNull(in_allocator, "Allocator");
+      this.shadows = NullCheck.notNull(in_shadows, "Shadows");
+      this.deduplicator = NullCheck.notNull(in_deduplicator, "Deduplicator");
+      this.shadow = Optional.empty();
       this.errors = List.empty();
-    }
-
-    private static JCGLUnsignedType determineIndexType(
-      final long size)
-    {
-      if (size == 8L) {
-        return JCGLUnsignedType.TYPE_UNSIGNED_BYTE;
-      }
-      if (size == 16L) {
-        return JCGLUnsignedType.TYPE_UNSIGNED_SHORT;
-      }
-      return JCGLUnsignedType.TYPE_UNSIGNED_INT;
-    }
-
-    private static IllegalArgumentException incompatibleType(
-      final SMFAttributeNameType name,
-      final SMFArrayAttributeMappingType required_attribute,
-      final SMFAttributeType received_attribute)
-    {
-      final StringBuilder sb = new StringBuilder(128);
-      sb.append("Incompatible types.");
-      sb.append(System.lineSeparator());
-      sb.append("  Attribute: ");
-      sb.append(name.value());
-      sb.append(System.lineSeparator());
-      sb.append("  Required type: ");
-      sb.append(required_attribute.componentCount());
-      sb.append(" of ");
-      sb.append(required_attribute.componentType().get());
-      sb.append(System.lineSeparator());
-      sb.append("  Received type: ");
-      sb.append(received_attribute.componentCount());
-      sb.append(" of ");
-      sb.append(received_attribute.componentType());
-      sb.append(System.lineSeparator());
-      return new IllegalArgumentException(sb.toString());
-    }
-
-    private static
-    @Nullable
-    JCGLScalarType determineComponentType(
-      final Optional<JCGLScalarType> required_opt,
-      final SMFComponentType received)
-    {
-      if (required_opt.isPresent()) {
-        final JCGLScalarType required = required_opt.get();
-        switch (received) {
-          case ELEMENT_TYPE_INTEGER_SIGNED: {
-            switch (required) {
-              case TYPE_BYTE:
-              case TYPE_INT:
-              case TYPE_SHORT:
-                return required;
-              case TYPE_HALF_FLOAT:
-              case TYPE_FLOAT:
-              case TYPE_UNSIGNED_BYTE:
-              case TYPE_UNSIGNED_INT:
-              case TYPE_UNSIGNED_SHORT:
-                return null;
-            }
-            throw new UnreachableCodeException();
-          }
-          case ELEMENT_TYPE_INTEGER_UNSIGNED: {
-            switch (required) {
-              case TYPE_BYTE:
-              case TYPE_INT:
-              case TYPE_SHORT:
-              case TYPE_HALF_FLOAT:
-              case TYPE_FLOAT:
-                return null;
-              case TYPE_UNSIGNED_BYTE:
-              case TYPE_UNSIGNED_INT:
-              case TYPE_UNSIGNED_SHORT:
-                return required;
-            }
-            throw new UnreachableCodeException();
-          }
-          case ELEMENT_TYPE_FLOATING: {
-            switch (required) {
-              case TYPE_BYTE:
-              case TYPE_INT:
-              case TYPE_SHORT:
-              case TYPE_UNSIGNED_BYTE:
-              case TYPE_UNSIGNED_INT:
-              case TYPE_UNSIGNED_SHORT:
-                return null;
-              case TYPE_HALF_FLOAT:
-              case TYPE_FLOAT:
-                return required;
-            }
-            throw new UnreachableCodeException();
-          }
-        }
-
-        throw new UnreachableCodeException();
-      }
-
-      switch (received) {
-        case ELEMENT_TYPE_INTEGER_SIGNED:
-          return JCGLScalarType.TYPE_INT;
-        case ELEMENT_TYPE_INTEGER_UNSIGNED:
-          return JCGLScalarType.TYPE_UNSIGNED_INT;
-        case ELEMENT_TYPE_FLOATING:
-          return JCGLScalarType.TYPE_FLOAT;
-      }
-
-      throw new UnreachableCodeException();
+      this.array_buffers = List.empty();
+      this.array_updates = List.empty();
+      this.index_range = Optional.empty();
+      this.cache_statistics = Optional.empty();
+      this.dequantization = HashMap.empty();
     }
 
     @Override
@@ -247,13 +393,83 @@ public final class SMFArrayLoaders
         e.message());
 
       this.errors = this.errors.append(e);
+
+      if (!this.aborted
+        && this.configuration.errorPolicy()
+        == SMFErrorPolicy.ERROR_POLICY_FAIL_FAST) {
+        this.abort();
+      }
+    }
+
+    /**
+     * Abort the load: release every buffer allocated so far and discard the
+     * packer so that all further data is ignored.
+     */
+
+    private void abort()
+    {
+      LOG.debug("aborting load after first error");
+      this.aborted = true;
+      this.releaseBuffers();
+      this.mesh_packer = null;
+      this.packer = null;
+      this.array_updates = List.empty();
+      this.index_update = null;
+      this.vertex_data = null;
+      this.index_data = null;
+    }
+
+    private void releaseBuffers()
+    {
+      SMFArrayStreams.release(
+        this.allocator, this.g.getArrayBuffers(), this.array_buffers);
+      this.array_buffers = List.empty();
+      if (this.index_buffer != null) {
+        this.allocator.indexBufferRelease(
+          this.g.getIndexBuffers(), this.index_buffer);
+        this.index_buffer = null;
+      }
+    }
+
+    @Override
+    public void reset()
+    {
+      if (!this.finished) {
+        this.releaseBuffers();
+      }
+      if (this.array_object_builder != null) {
+        this.array_object_builder.reset();
+      }
+
+      this.aborted = false;
+      this.finished = false;
+      this.errors = List.empty();
+      this.array_object = null;
+      this.array_buffers = List.empty();
+      this.index_buffer = null;
+      this.array_updates = List.empty();
+      this.index_update = null;
+      this.mesh_packer = null;
+      this.packer = null;
+      this.header = null;
+      this.layout = null;
+      this.index_type = null;
+      this.vertex_data = null;
+      this.index_data = null;
+      this.shadow = Optional.empty();
+      this.index_range = Optional.empty();
+      this.cache_statistics = Optional.empty();
+      this.dequantization = HashMap.empty();
+      this.allocation_nanos = 0L;
     }
 
     @Override
     public void onStart()
     {
-      this.array_object_builder =
-        this.g.getArrayObjects().arrayObjectNewBuilder();
+      if (this.array_object_builder == null) {
+        this.array_object_builder =
+          this.g.getArrayObjects().arrayObjectNewBuilder();
+      }
     }
 
     @Override
@@ -266,132 +482,145 @@ public final class SMFArrayLoaders
     @Override
     public void onFinish()
     {
+      this.finished = true;
+      if (!this.errors.isEmpty()) {
+        this.releaseBuffers();
+        this.vertex_data = null;
+        this.index_data = null;
+        return;
+      }
+
       final JCGLArrayBuffersType g_ab = this.g.getArrayBuffers();
       final JCGLIndexBuffersType g_ib = this.g.getIndexBuffers();
 
-      if (!this.errors.isEmpty()) {
-        if (this.array_buffer != null) {
-          g_ab.arrayBufferDelete(this.array_buffer);
-          this.array_buffer = null;
-        }
-        if (this.index_buffer != null) {
-          g_ib.indexBufferDelete(this.index_buffer);
-          this.index_buffer = null;
+      if (this.deduplicator.isPresent()) {
+        this.uploadDeduplicated(this.deduplicator.get(), g_ab, g_ib);
+      } else {
+        for (final JCGLBufferUpdateType<JCGLArrayBufferType> update
+          : this.array_updates) {
+          g_ab.arrayBufferUpdate(update);
         }
+        g_ib.indexBufferUpdate(this.index_update);
       }
 
-      g_ab.arrayBufferUpdate(this.array_update);
-      g_ib.indexBufferUpdate(this.index_update);
-
       this.array_object =
         this.g.getArrayObjects().arrayObjectAllocate(this.array_object_builder);
+
+      if (this.shadows.isPresent()) {
+        this.shadow = this.shadows.get().retain(
+          SMFPreparedMesh.of(
+            this.layout,
+            this.header.vertexCount(),
+            this.header.triangleCount(),
+            this.index_type,
+            this.vertex_data,
+            this.index_data,
+            this.index_range,
+            this.cache_statistics,
+            this.dequantization),
+          this.configuration);
+      }
+      this.vertex_data = null;
+      this.index_data = null;
+    }
+
+    private void uploadDeduplicated(
+      final SMFBufferDeduplicatorType dedup,
+      final JCGLArrayBuffersType g_ab,
+      final JCGLIndexBuffersType g_ib)
+    {
+      final long time_start = System.nanoTime();
+      final long vertex_count = this.header.vertexCount();
+      for (final SMFArrayStreamLayout stream : this.layout.streams()) {
+        this.array_buffers = this.array_buffers.append(dedup.arrayBufferFor(
+          g_ab,
+          SMFArrayStreams.data(this.vertex_data, stream, vertex_count),
+          this.configuration.streamUsage(stream.name())));
+      }
+
+      final ByteBuffer indices = this.index_data.duplicate();
+      indices.clear();
+      this.index_buffer = dedup.indexBufferFor(
+        g_ib,
+        indices,
+        Math.multiplyExact(this.header.triangleCount(), 3L),
+        this.index_type,
+        this.configuration.indexBufferUsage());
+      this.allocation_nanos =
+        this.allocation_nanos + (System.nanoTime() - time_start);
+
+      this.array_object_builder.setIndexBuffer(this.index_buffer);
+      SMFArrayAttributeBindings.bindStreams(
+        this.array_object_builder, this.layout, this.array_buffers);
     }
 
     @Override
     public void onHeaderParsed(
       final SMFHeader in_header)
     {
-      this.determineMappings(in_header);
+      if (this.aborted) {
+        return;
+      }
 
+      final SMFArrayLayout layout =
+        SMFArrayLayouts.layoutFor(this.configuration, in_header);
+      final JCGLUnsignedType index_type =
+        SMFArrayLayouts.indexTypeFor(this.configuration, in_header);
+
+      final long vertex_count = in_header.vertexCount();
+      final int vertex_size = Math.toIntExact(
+        Math.multiplyExact((long) layout.vertexSize(), vertex_count));
+      final int index_size = Math.toIntExact(
+        Math.multiplyExact(
+          Math.multiplyExact(in_header.triangleCount(), 3L),
+          (long) index_type.getSizeBytes()));
+
+      this.vertex_staging = stagingFor(this.vertex_staging, vertex_size);
+      this.index_staging = stagingFor(this.index_staging, index_size);
+      final ByteBuffer vertex_data =
+        stagingView(this.vertex_staging, vertex_size);
+
+      this.header = in_header;
+      this.layout = layout;
+      this.index_type = index_type;
+      this.vertex_data = vertex_data;
+      this.index_data = stagingView(this.index_staging, index_size);
+
+      if (this.deduplicator.isPresent()) {
+        this.mesh_packer = new SMFMeshPacker(
+          layout, index_type, vertex_count, vertex_data, this.index_data);
+        return;
+      }
+
+      final long time_start = System.nanoTime();
       final JCGLArrayBuffersType g_ab = this.g.getArrayBuffers();
-      this.array_buffer =
-        g_ab.arrayBufferAllocate(
-          this.array_buffer_size, this.configuration.arrayBufferUsage());
-      this.array_update =
-        JCGLBufferUpdates.newUpdateReplacingAll(this.array_buffer);
+      this.array_buffers = SMFArrayStreams.allocate(
+        this.allocator, g_ab, this.configuration, layout, vertex_count);
+      this.array_updates = SMFArrayStreams.updates(
+        this.array_buffers, layout, vertex_data, vertex_count);
 
       final JCGLIndexBuffersType g_ib = this.g.getIndexBuffers();
       this.index_buffer =
-        g_ib.indexBufferAllocate(
+        this.allocator.indexBufferAllocate(
+          g_ib,
           Math.multiplyExact(in_header.triangleCount(), 3L),
-          this.index_type,
+          index_type,
           this.configuration.indexBufferUsage());
-      this.index_stride =
-        Math.multiplyExact(this.index_type.getSizeBytes(), 3);
+      this.allocation_nanos =
+        this.allocation_nanos + (System.nanoTime() - time_start);
       this.index_update =
-        JCGLBufferUpdates.newUpdateReplacingAll(this.index_buffer);
-
-      this.array_object_builder.setIndexBuffer(this.index_buffer);
-      for (final Integer in_index : this.attributes_by_index.keySet()) {
-        final Attribute attr = this.attributes_by_index.get(in_index);
-        switch (attr.type) {
-          case TYPE_UNSIGNED_INT:
-          case TYPE_UNSIGNED_SHORT:
-          case TYPE_UNSIGNED_BYTE:
-          case TYPE_INT:
-          case TYPE_SHORT:
-          case TYPE_BYTE: {
-            this.array_object_builder.setAttributeIntegral(
-              in_index.intValue(),
-              this.array_buffer,
-              attr.count,
-              JCGLScalarIntegralType.fromScalar(attr.type),
-              this.vertex_size,
-              attr.offset);
-            break;
-          }
-          case TYPE_FLOAT:
-          case TYPE_HALF_FLOAT: {
-            this.array_object_builder.setAttributeFloatingPoint(
-              in_index.intValue(),
-              this.array_buffer,
-              attr.count,
-              attr.type,
-              this.vertex_size,
-              attr.offset,
-              false);
-            break;
-          }
-        }
-      }
-    }
-
-    private void determineMappings(
-      final SMFHeader in_header)
-    {
-      final Map<SMFAttributeName, SMFArrayAttributeMapping> required_attributes =
-        this.configuration.mappings();
-      final Map<SMFAttributeName, SMFAttribute> received_attributes =
-        in_header.attributesByName();
-
-      for (final SMFAttributeName name : required_attributes.keySet()) {
-        final SMFArrayAttributeMapping required_attribute =
-          required_attributes.get(name).get();
-
-        if (received_attributes.containsKey(name)) {
-          final SMFAttribute received_attribute =
-            received_attributes.get(name).get();
-
-          final JCGLScalarType decided =
-            determineComponentType(
-              required_attribute.componentType(),
-              received_attribute.componentType());
-
-          if (decided == null) {
-            throw incompatibleType(
-              name, required_attribute, received_attribute);
-          }
-
-          final Attribute attr =
-            new Attribute(received_attribute.componentCount(), decided);
-          final Integer b_index =
-            Integer.valueOf(required_attribute.index());
-          this.attributes_by_index.put(b_index, attr);
-          this.attributes_by_name.put(name.value(), attr);
-        }
-      }
+        SMFBufferUpdate.replacingAll(this.index_buffer, this.index_data);
 
-      for (final Integer a_index : this.attributes_by_index.keySet()) {
-        final Attribute a = this.attributes_by_index.get(a_index);
-        a.offset = this.vertex_size;
-        final int size = Math.multiplyExact(a.count, a.type.getSizeBytes());
-        this.vertex_size = Math.addExact(this.vertex_size, size);
-      }
+      this.mesh_packer = new SMFMeshPacker(
+        layout,
+        index_type,
+        vertex_count,
+        vertex_data,
+        this.index_data);
 
-      this.array_buffer_size = Math.multiplyExact(
-        this.vertex_size, in_header.vertexCount());
-      this.index_type = determineIndexType(
-        in_header.triangleIndexSizeBits());
+      this.array_object_builder.setIndexBuffer(this.index_buffer);
+      SMFArrayAttributeBindings.bindStreams(
+        this.array_object_builder, layout, this.array_buffers);
     }
 
     @Override
@@ -416,17 +645,10 @@ public final class SMFArrayLoaders
     public void onDataAttributeStart(
       final SMFAttribute attribute)
     {
-      final String name = attribute.name().value();
-      if (this.attributes_by_name.containsKey(name)) {
-        final Attribute attr = this.attributes_by_name.get(name);
-        this.packer = new SMFByteBufferPacker(
-          this.array_update.getData(),
-          attr.type,
-          (int) attr.offset,
-          this.vertex_size);
-      } else {
-        this.packer = null;
+      if (this.aborted) {
+        return;
       }
+      this.packer = this.mesh_packer.packerFor(attribute);
     }
 
     @Override
@@ -555,10 +777,26 @@ public final class SMFArrayLoaders
       }
     }
 
+    @Override
+    public boolean onDataAttributeBulk(
+      final SMFAttribute attribute,
+      final ByteBuffer data)
+    {
+      NullCheck.notNull(attribute, "Attribute");
+      NullCheck.notNull(data, "Data");
+      if (this.aborted) {
+        return true;
+      }
+      return this.mesh_packer.copyBulk(attribute, data);
+    }
+
     @Override
     public void onDataAttributeFinish(
       final SMFAttribute attribute)
     {
+      if (!this.aborted) {
+        this.mesh_packer.finishAttribute(attribute);
+      }
       this.packer = null;
     }
 
@@ -574,37 +812,64 @@ public final class SMFArrayLoaders
       final long v1,
       final long v2)
     {
-      final ByteBuffer buffer = this.index_update.getData();
+      final SMFMeshPacker p = this.mesh_packer;
+      if (p != null && !p.triangle(v0, v1, v2)) {
+        this.onError(p.rejected(1L));
+      }
+    }
 
-      switch (this.index_type) {
-        case TYPE_UNSIGNED_BYTE: {
-          Unsigned8.packToBuffer((int) v0, buffer, this.index_position);
-          Unsigned8.packToBuffer((int) v1, buffer, this.index_position + 1);
-          Unsigned8.packToBuffer((int) v2, buffer, this.index_position + 2);
-          break;
-        }
-        case TYPE_UNSIGNED_INT: {
-          Unsigned32.packToBuffer(v0, buffer, this.index_position);
-          Unsigned32.packToBuffer(v1, buffer, this.index_position + 4);
-          Unsigned32.packToBuffer(v2, buffer, this.index_position + 8);
-          break;
-        }
-        case TYPE_UNSIGNED_SHORT: {
-          Unsigned16.packToBuffer((int) v0, buffer, this.index_position);
-          Unsigned16.packToBuffer((int) v1, buffer, this.index_position + 2);
-          Unsigned16.packToBuffer((int) v2, buffer, this.index_position + 4);
-          break;
+    @Override
+    public void onDataTrianglesBulk(
+      final long[] indices,
+      final int offset,
+      final int count)
+    {
+      NullCheck.notNull(indices, "Indices");
+      final SMFMeshPacker p = this.mesh_packer;
+      if (p != null) {
+        final int rejected = p.triangles(indices, offset, count);
+        if (rejected > 0) {
+          this.onError(p.rejected((long) rejected));
         }
       }
+    }
 
-      this.index_position =
-        Math.addExact(this.index_position, this.index_stride);
+    @Override
+    public void onDataTrianglesBulk(
+      final int[] indices,
+      final int offset,
+      final int count)
+    {
+      NullCheck.notNull(indices, "Indices");
+      final SMFMeshPacker p = this.mesh_packer;
+      if (p != null) {
+        final int rejected = p.triangles(indices, offset, count);
+        if (rejected > 0) {
+          this.onError(p.rejected((long) rejected));
+        }
+      }
     }
 
     @Override
     public void onDataTrianglesFinish()
     {
+      if (this.aborted) {
+        return;
+      }
 
+      if (this.errors.isEmpty()) {
+        this.cache_statistics =
+          this.mesh_packer.optimizeTriangles(this.configuration);
+        this.cache_statistics.ifPresent(stats -> LOG.debug(
+          "vertex cache: {} triangles, ACMR {} -> {}",
+          Long.valueOf(stats.triangleCount()),
+          Double.valueOf(stats.acmrBefore()),
+          Double.valueOf(stats.acmrAfter())));
+        this.mesh_packer.remapVertices(
+          this.configuration.vertexRemapPolicy());
+      }
+      this.index_range = this.mesh_packer.indexRange();
+      this.dequantization = this.mesh_packer.dequantization();
     }
 
     @Override
@@ -632,7 +897,18 @@ public final class SMFArrayLoaders
         throw new IllegalStateException("Array loading has failed");
       }
 
-      return this.array_buffer;
+      return this.array_buffers.get(0);
+    }
+
+    @Override
+    public List<JCGLArrayBufferType> arrayBuffers()
+      throws IllegalStateException
+    {
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Array loading has failed");
+      }
+
+      return this.array_buffers;
     }
 
     @Override
@@ -646,20 +922,54 @@ public final class SMFArrayLoaders
       return this.index_buffer;
     }
 
-    private static final class Attribute
+    @Override
+    public Optional<RangeInclusiveL> indexRange()
+      throws IllegalStateException
+    {
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Array loading has failed");
+      }
+
+      return this.index_range;
+    }
+
+    @Override
+    public Optional<SMFVertexCacheStatistics> vertexCacheStatistics()
+      throws IllegalStateException
+    {
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Array loading has failed");
+      }
+
+      return this.cache_statistics;
+    }
+
+    @Override
+    public Map<SMFAttributeName, SMFAttributeDequantization> dequantization()
+      throws IllegalStateException
     {
-      private final int count;
-      private final JCGLScalarType type;
-      private long offset;
-      private boolean uploaded;
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Array loading has failed");
+      }
+
+      return this.dequantization;
+    }
 
-      Attribute(
-        final int in_count,
-        final JCGLScalarType in_type)
-      {
-        this.count = in_count;
-        this.type = in_type;
+    @Override
+    public Optional<SMFShadowMeshType> shadow()
+      throws IllegalStateException
+    {
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Array loading has failed");
       }
+
+      return this.shadow;
+    }
+
+    @Override
+    public long bufferAllocationNanos()
+    {
+      return this.allocation_nanos;
     }
   }
 }
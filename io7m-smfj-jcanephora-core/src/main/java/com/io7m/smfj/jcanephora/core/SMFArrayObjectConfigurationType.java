@@ -25,15 +25,18 @@ import org.immutables.value.Value;
 
 import java.util.HashMap;
 import java.util.Objects;
+import java.util.Optional;
 
 /**
  * A mapping from a set of SMF attributes to a set of <tt>jcanephora</tt>
- * array attributes.
+ * array attributes. The hash code of a configuration is computed once, on
+ * construction, as configurations are used as keys by
+ * {@link SMFArrayLayoutPlans}.
  */
 
 @SMFImmutableStyleType
 @JavaslangEncodingEnabled
-@Value.Immutable
+@Value.Immutable(prehash = true)
 public interface SMFArrayObjectConfigurationType
 {
   /**
@@ -54,6 +57,33 @@ public interface SMFArrayObjectConfigurationType
     return JCGLUsageHint.USAGE_STATIC_DRAW;
   }
 
+  /**
+   * @return The usage hints for the array buffers of named vertex streams.
+   * Streams without a usage hint, and the default stream, use
+   * {@link #arrayBufferUsage()}.
+   *
+   * @see SMFArrayAttributeMappingType#stream()
+   */
+
+  Map<String, JCGLUsageHint> streamUsages();
+
+  /**
+   * @param stream The name of a stream, or nothing for the default stream
+   *
+   * @return The usage hint for the array buffer of the given stream
+   */
+
+  default JCGLUsageHint streamUsage(
+    final Optional<String> stream)
+  {
+    if (stream.isPresent()) {
+      return this.streamUsages()
+        .get(stream.get())
+        .getOrElse(this.arrayBufferUsage());
+    }
+    return this.arrayBufferUsage();
+  }
+
   /**
    * @return The usage hint for the index buffer
    */
@@ -65,6 +95,86 @@ public interface SMFArrayObjectConfigurationType
     return JCGLUsageHint.USAGE_STATIC_DRAW;
   }
 
+  /**
+   * @return The policy used to choose the type of triangle indices
+   */
+
+  @Value.Default
+  default SMFIndexTypePolicy indexTypePolicy()
+  {
+    return SMFIndexTypePolicy.INDEX_TYPE_POLICY_FROM_HEADER;
+  }
+
+  /**
+   * @return {@code true} iff 8-bit triangle indices may be used. If
+   * {@code false}, 16-bit indices are used wherever 8-bit indices would
+   * otherwise have been chosen. Many drivers handle 8-bit indices on slow
+   * paths.
+   */
+
+  @Value.Default
+  default boolean indexTypeAllowByte()
+  {
+    return true;
+  }
+
+  /**
+   * @return {@code true} iff triangles should be reordered for efficient use
+   * of the post-transform vertex cache before the index buffer is uploaded.
+   * This is worthwhile for meshes with essentially random triangle orders,
+   * such as scanned or exported meshes, but requires that all triangles are
+   * held in memory at once, and so is not supported by streaming loaders.
+   *
+   * @see SMFVertexCacheOptimization
+   */
+
+  @Value.Default
+  default boolean vertexCacheOptimization()
+  {
+    return false;
+  }
+
+  /**
+   * @return The configuration of the overdraw-reducing triangle ordering pass,
+   * if enabled. The pass runs after vertex cache optimization, if that is
+   * also enabled. Layout decisions fail for meshes that lack a usable
+   * position attribute; see
+   * {@link SMFOverdrawConfigurationType#positionAttribute()}. As with vertex
+   * cache optimization, it is not supported by streaming loaders.
+   *
+   * @see SMFOverdrawOptimization
+   */
+
+  Optional<SMFOverdrawConfiguration> overdrawOptimization();
+
+  /**
+   * @return The policy used to renumber vertices in order of first use by the
+   * final triangle order. Remapping runs after any triangle reordering passes
+   * and, like them, is not supported by streaming loaders.
+   *
+   * @see SMFVertexRemapping
+   */
+
+  @Value.Default
+  default SMFVertexRemapPolicy vertexRemapPolicy()
+  {
+    return SMFVertexRemapPolicy.VERTEX_REMAP_POLICY_NONE;
+  }
+
+  /**
+   * @return The policy used by array loaders to handle parse errors.
+   * Streaming loaders upload data as it arrives, and mesh preparers hold no
+   * GL objects, so both always behave as if the policy was
+   * {@link SMFErrorPolicy#ERROR_POLICY_CONTINUE}. No loader allocates an
+   * array object for a mesh that produced errors.
+   */
+
+  @Value.Default
+  default SMFErrorPolicy errorPolicy()
+  {
+    return SMFErrorPolicy.ERROR_POLICY_CONTINUE;
+  }
+
   /**
    * Check preconditions for the type.
    */
@@ -104,5 +214,24 @@ public interface SMFArrayObjectConfigurationType
 
       by_index.put(b_index, mapping);
     }
+
+    for (final String stream : this.streamUsages().keySet()) {
+      final boolean used = m.values().exists(
+        mapping -> mapping.stream().equals(Optional.of(stream)));
+      if (!used) {
+        throw new IllegalArgumentException(
+          "Stream " + stream + " has a usage hint but no attributes");
+      }
+    }
+
+    final Optional<SMFOverdrawConfiguration> overdraw =
+      this.overdrawOptimization();
+    if (overdraw.isPresent()) {
+      final SMFAttributeName position = overdraw.get().positionAttribute();
+      if (!m.containsKey(position)) {
+        throw new IllegalArgumentException(
+          "Overdraw position attribute " + position + " must be mapped");
+      }
+    }
   }
 }
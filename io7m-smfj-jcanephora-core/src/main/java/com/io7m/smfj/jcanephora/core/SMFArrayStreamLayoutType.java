@@ -0,0 +1,72 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * The layout of a single vertex stream. A stream is a contiguous block of
+ * {@code stride * vertexCount} bytes of packed vertex data, holding the
+ * attributes assigned to the stream, that is uploaded to its own array
+ * buffer.
+ *
+ * @see SMFArrayAttributeMappingType#stream()
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFArrayStreamLayoutType
+{
+  /**
+   * @return The name of the stream, or nothing for the default stream
+   */
+
+  @Value.Parameter
+  Optional<String> name();
+
+  /**
+   * @return The offset in bytes of the start of the stream within the packed
+   * vertex data
+   */
+
+  @Value.Parameter
+  long offset();
+
+  /**
+   * @return The size in bytes of the attributes of a single vertex within the
+   * stream
+   */
+
+  @Value.Parameter
+  int stride();
+
+  /**
+   * @param vertex_count The number of vertices
+   *
+   * @return The size in bytes of the stream
+   */
+
+  default long sizeBytes(
+    final long vertex_count)
+  {
+    return Math.multiplyExact((long) this.stride(), vertex_count);
+  }
+}
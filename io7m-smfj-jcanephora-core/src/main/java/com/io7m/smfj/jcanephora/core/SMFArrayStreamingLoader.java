@@ -0,0 +1,737 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectBuilderType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * <p>An array loader that uploads data through a fixed-size window rather
+ * than staging the entire mesh in memory.</p>
+ *
+ * <p>Vertices are stored using a planar layout (see
+ * {@link SMFArrayLayouts#planarLayoutFor(SMFArrayObjectConfiguration,
+ * SMFHeader)}) so that the elements of each attribute, which the parser
+ * delivers consecutively, occupy a contiguous range of the array buffer. The
+ * window is flushed to the array buffer each time it fills, and is then reused
+ * for the next range. The same window is reused for triangle indices once all
+ * attributes have been received.</p>
+ */
+
+final class SMFArrayStreamingLoader implements SMFArrayLoaderType
+{
+  /**
+   * The smallest permitted window: large enough to hold a single element of
+   * four 32-bit components.
+   */
+
+  static final int MINIMUM_WINDOW_SIZE = 16;
+
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SMFArrayStreamingLoader.class);
+  }
+
+  private final JCGLInterfaceGL33Type g;
+  private final SMFArrayObjectConfiguration configuration;
+  private final SMFParserEventsMetaType meta;
+  private final SMFBufferAllocatorType allocator;
+  private final ByteBuffer window;
+  private List<SMFParseError> errors;
+  private JCGLArrayObjectBuilderType array_object_builder;
+  private JCGLArrayObjectType array_object;
+  private JCGLArrayBufferType array_buffer;
+  private JCGLIndexBufferType index_buffer;
+  private Map<String, SMFArrayAttributeLayout> attributes_by_name;
+  private JCGLUnsignedType index_type;
+  private @Nullable SMFArrayAttributeLayout attribute;
+  private @Nullable SMFByteBufferPackerType packer;
+  private @Nullable SMFIndexWriter index_writer;
+  private Optional<RangeInclusiveL> index_range;
+  private long vertex_count;
+  private int window_used;
+  private long flushed;
+  private boolean finished;
+  private long allocation_nanos;
+
+  SMFArrayStreamingLoader(
+    final JCGLInterfaceGL33Type in_g,
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration in_configuration,
+    final int in_window_size,
+    final SMFBufferAllocatorType in_allocator)
+  {
+    this.g = NullCheck.notNull(in_g, "GL");
+    this.configuration = NullCheck.notNull(in_configuration, "Configuration");
+    this.meta = NullCheck.notNull(in_meta, "Meta");
+    this.allocator = NullCheck.notNull(in_allocator, "Allocator");
+
+    if (in_window_size < MINIMUM_WINDOW_SIZE) {
+      throw new IllegalArgumentException(
+        "Window size must be at least " + MINIMUM_WINDOW_SIZE + " bytes");
+    }
+    if (in_configuration.vertexCacheOptimization()
+      || in_configuration.overdrawOptimization().isPresent()) {
+      throw new IllegalArgumentException(
+        "Triangle reordering is not supported by streaming loaders");
+    }
+    if (in_configuration.vertexRemapPolicy()
+      != SMFVertexRemapPolicy.VERTEX_REMAP_POLICY_NONE) {
+      throw new IllegalArgumentException(
+        "Vertex remapping is not supported by streaming loaders");
+    }
+    for (final SMFArrayAttributeMapping mapping
+      : in_configuration.mappings().values()) {
+      if (mapping.encoding()
+        == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_QTANGENT) {
+        throw new IllegalArgumentException(
+          "QTangent encoding is not supported by streaming loaders");
+      }
+      if (mapping.encoding()
+        == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED) {
+        throw new IllegalArgumentException(
+          "Range normalization is not supported by streaming loaders");
+      }
+      if (mapping.stream().isPresent()) {
+        throw new IllegalArgumentException(
+          "Named vertex streams are not supported by streaming loaders");
+      }
+    }
+
+    this.window = ByteBuffer.allocateDirect(in_window_size);
+    this.window.order(ByteOrder.nativeOrder());
+    this.errors = List.empty();
+    this.index_range = Optional.empty();
+  }
+
+  @Override
+  public void onError(
+    final SMFParseError e)
+  {
+    final LexicalPosition<Path> lex = e.lexical();
+    LOG.error(
+      "parse error: {}:{}:{}: {}",
+      lex.file(),
+      Integer.valueOf(lex.line()),
+      Integer.valueOf(lex.column()),
+      e.message());
+
+    this.errors = this.errors.append(e);
+  }
+
+  @Override
+  public void reset()
+  {
+    if (!this.finished) {
+      this.releaseBuffers();
+    }
+    if (this.array_object_builder != null) {
+      this.array_object_builder.reset();
+    }
+
+    this.finished = false;
+    this.errors = List.empty();
+    this.array_object = null;
+    this.array_buffer = null;
+    this.index_buffer = null;
+    this.attributes_by_name = null;
+    this.index_type = null;
+    this.attribute = null;
+    this.packer = null;
+    this.index_writer = null;
+    this.index_range = Optional.empty();
+    this.vertex_count = 0L;
+    this.window_used = 0;
+    this.flushed = 0L;
+    this.allocation_nanos = 0L;
+  }
+
+  private void releaseBuffers()
+  {
+    if (this.array_buffer != null) {
+      this.allocator.arrayBufferRelease(
+        this.g.getArrayBuffers(), this.array_buffer);
+      this.array_buffer = null;
+    }
+    if (this.index_buffer != null) {
+      this.allocator.indexBufferRelease(
+        this.g.getIndexBuffers(), this.index_buffer);
+      this.index_buffer = null;
+    }
+  }
+
+  @Override
+  public void onStart()
+  {
+    if (this.array_object_builder == null) {
+      this.array_object_builder =
+        this.g.getArrayObjects().arrayObjectNewBuilder();
+    }
+  }
+
+  @Override
+  public void onVersionReceived(
+    final SMFFormatVersion version)
+  {
+
+  }
+
+  @Override
+  public void onFinish()
+  {
+    this.finished = true;
+    if (!this.errors.isEmpty()) {
+      this.releaseBuffers();
+      return;
+    }
+
+    this.array_object =
+      this.g.getArrayObjects().arrayObjectAllocate(this.array_object_builder);
+  }
+
+  @Override
+  public void onHeaderParsed(
+    final SMFHeader in_header)
+  {
+    final SMFArrayLayout layout =
+      SMFArrayLayouts.planarLayoutFor(this.configuration, in_header);
+    this.index_type =
+      SMFArrayLayouts.indexTypeFor(this.configuration, in_header);
+    this.vertex_count = in_header.vertexCount();
+
+    this.attributes_by_name = new HashMap<>(layout.attributes().size());
+    for (final SMFArrayAttributeLayout attr : layout.attributes()) {
+      this.attributes_by_name.put(attr.name().value(), attr);
+    }
+
+    final long time_start = System.nanoTime();
+    final JCGLArrayBuffersType g_ab = this.g.getArrayBuffers();
+    this.array_buffer =
+      this.allocator.arrayBufferAllocate(
+        g_ab,
+        Math.multiplyExact((long) layout.vertexSize(), in_header.vertexCount()),
+        this.configuration.arrayBufferUsage());
+
+    final JCGLIndexBuffersType g_ib = this.g.getIndexBuffers();
+    this.index_buffer =
+      this.allocator.indexBufferAllocate(
+        g_ib,
+        Math.multiplyExact(in_header.triangleCount(), 3L),
+        this.index_type,
+        this.configuration.indexBufferUsage());
+    this.allocation_nanos =
+      this.allocation_nanos + (System.nanoTime() - time_start);
+
+    this.array_object_builder.setIndexBuffer(this.index_buffer);
+    SMFArrayAttributeBindings.bind(
+      this.array_object_builder, layout, this.array_buffer);
+  }
+
+  @Override
+  public boolean onMeta(
+    final long vendor,
+    final long schema,
+    final long length)
+  {
+    return this.meta.onMeta(vendor, schema, length);
+  }
+
+  @Override
+  public void onMetaData(
+    final long vendor,
+    final long schema,
+    final byte[] data)
+  {
+    this.meta.onMetaData(vendor, schema, data);
+  }
+
+  @Override
+  public void onDataAttributeStart(
+    final SMFAttribute in_attribute)
+  {
+    final String name = in_attribute.name().value();
+    this.attribute = this.attributes_by_name.get(name);
+    this.packer = null;
+    this.window_used = 0;
+    this.flushed = 0L;
+  }
+
+  /**
+   * Reserve space in the window for the next element of the current
+   * attribute, flushing the window first if it is full.
+   *
+   * @return A packer that will write the next element, or {@code null} if the
+   * current attribute is not being loaded
+   */
+
+  private @Nullable SMFByteBufferPackerType nextElement()
+  {
+    final SMFArrayAttributeLayout attr = this.attribute;
+    if (attr == null) {
+      return null;
+    }
+
+    final int size = attr.sizeBytes();
+    if (this.packer == null
+      || this.window_used + size > this.window.capacity()) {
+      this.flushVertices();
+      this.packer =
+        SMFByteBufferPackers.createPackerFor(this.window, attr, 0, size);
+    }
+
+    this.window_used = this.window_used + size;
+    return this.packer;
+  }
+
+  private void flushVertices()
+  {
+    final SMFArrayAttributeLayout attr = this.attribute;
+    if (attr != null && this.window_used > 0) {
+      final ByteBuffer data = this.window.duplicate();
+      data.position(0);
+      data.limit(this.window_used);
+
+      final long offset = Math.addExact(attr.offset(), this.flushed);
+      this.g.getArrayBuffers().arrayBufferUpdate(
+        SMFBufferUpdate.replacingRange(this.array_buffer, data, offset));
+
+      this.flushed = Math.addExact(this.flushed, (long) this.window_used);
+      this.window_used = 0;
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned1(
+    final long x)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerSigned1(x);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned2(
+    final long x,
+    final long y)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerSigned2(x, y);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerSigned3(x, y, z);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerSigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerSigned4(x, y, z, w);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned1(
+    final long x)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerUnsigned1(x);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned2(
+    final long x,
+    final long y)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerUnsigned2(x, y);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerUnsigned3(x, y, z);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueIntegerUnsigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueIntegerUnsigned4(x, y, z, w);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueFloat1(
+    final double x)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueFloat1(x);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueFloat2(
+    final double x,
+    final double y)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueFloat2(x, y);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueFloat3(
+    final double x,
+    final double y,
+    final double z)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueFloat3(x, y, z);
+    }
+  }
+
+  @Override
+  public void onDataAttributeValueFloat4(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    final SMFByteBufferPackerType p = this.nextElement();
+    if (p != null) {
+      p.onDataAttributeValueFloat4(x, y, z, w);
+    }
+  }
+
+  @Override
+  public boolean onDataAttributeBulk(
+    final SMFAttribute in_attribute,
+    final ByteBuffer data)
+  {
+    NullCheck.notNull(in_attribute, "Attribute");
+    NullCheck.notNull(data, "Data");
+
+    final SMFArrayAttributeLayout attr =
+      this.attributes_by_name.get(in_attribute.name().value());
+    if (attr == null) {
+      return true;
+    }
+    if (!SMFArrayLayouts.copyable(in_attribute, attr)) {
+      return false;
+    }
+
+    final int size = attr.sizeBytes();
+    final int count = SMFBulkCopies.elementCount(data, size);
+    final int per_window = this.window.capacity() / size;
+
+    this.attribute = attr;
+    this.window_used = 0;
+    this.flushed = 0L;
+
+    final ByteBuffer source = data.slice();
+    source.order(data.order());
+    for (int base = 0; base < count; base = base + per_window) {
+      final int elements = Math.min(per_window, count - base);
+      source.position(base * size);
+      SMFBulkCopies.copy(
+        source, attr.componentType(), elements, size, this.window, 0, size);
+      this.window_used = elements * size;
+      this.flushVertices();
+    }
+
+    this.attribute = null;
+    return true;
+  }
+
+  @Override
+  public void onDataAttributeFinish(
+    final SMFAttribute in_attribute)
+  {
+    this.flushVertices();
+    this.attribute = null;
+    this.packer = null;
+  }
+
+  @Override
+  public void onDataTrianglesStart()
+  {
+    this.index_writer =
+      SMFIndexWriters.create(this.index_type, this.window, this.vertex_count);
+    this.flushed = 0L;
+  }
+
+  @Override
+  public void onDataTriangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    final SMFIndexWriter w = this.index_writer;
+    if (w.position() + w.stride() > this.window.capacity()) {
+      this.flushIndices();
+    }
+    if (!w.triangle(v0, v1, v2)) {
+      this.onError(SMFIndexWriters.rejected(
+        1L, this.vertex_count, this.index_type));
+    }
+  }
+
+  @Override
+  public void onDataTrianglesBulk(
+    final long[] indices,
+    final int offset,
+    final int count)
+  {
+    NullCheck.notNull(indices, "Indices");
+
+    final SMFIndexWriter w = this.index_writer;
+    int rejected = 0;
+    int done = 0;
+    while (done < count) {
+      final int space = (this.window.capacity() - w.position()) / w.stride();
+      if (space == 0) {
+        this.flushIndices();
+      } else {
+        final int batch = Math.min(space, count - done);
+        rejected = rejected + w.triangles(indices, offset + done * 3, batch);
+        done = done + batch;
+      }
+    }
+
+    if (rejected > 0) {
+      this.onError(
+        SMFIndexWriters.rejected(
+          (long) rejected, this.vertex_count, this.index_type));
+    }
+  }
+
+  @Override
+  public void onDataTrianglesBulk(
+    final int[] indices,
+    final int offset,
+    final int count)
+  {
+    NullCheck.notNull(indices, "Indices");
+
+    final SMFIndexWriter w = this.index_writer;
+    int rejected = 0;
+    int done = 0;
+    while (done < count) {
+      final int space = (this.window.capacity() - w.position()) / w.stride();
+      if (space == 0) {
+        this.flushIndices();
+      } else {
+        final int batch = Math.min(space, count - done);
+        rejected = rejected + w.triangles(indices, offset + done * 3, batch);
+        done = done + batch;
+      }
+    }
+
+    if (rejected > 0) {
+      this.onError(
+        SMFIndexWriters.rejected(
+          (long) rejected, this.vertex_count, this.index_type));
+    }
+  }
+
+  private void flushIndices()
+  {
+    final SMFIndexWriter w = this.index_writer;
+    if (w.position() > 0) {
+      final ByteBuffer data = this.window.duplicate();
+      data.position(0);
+      data.limit(w.position());
+
+      this.g.getIndexBuffers().indexBufferUpdate(
+        SMFBufferUpdate.replacingRange(this.index_buffer, data, this.flushed));
+
+      this.flushed = Math.addExact(this.flushed, (long) w.position());
+      w.reset();
+    }
+  }
+
+  @Override
+  public void onDataTrianglesFinish()
+  {
+    this.flushIndices();
+    this.index_range = this.index_writer.range();
+    this.index_writer = null;
+  }
+
+  @Override
+  public List<SMFParseError> errors()
+  {
+    return this.errors;
+  }
+
+  @Override
+  public JCGLArrayObjectType arrayObject()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return this.array_object;
+  }
+
+  @Override
+  public JCGLArrayBufferType arrayBuffer()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return this.array_buffer;
+  }
+
+  @Override
+  public List<JCGLArrayBufferType> arrayBuffers()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return List.of(this.array_buffer);
+  }
+
+  @Override
+  public JCGLIndexBufferType indexBuffer()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return this.index_buffer;
+  }
+
+  @Override
+  public Optional<RangeInclusiveL> indexRange()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return this.index_range;
+  }
+
+  @Override
+  public Optional<SMFVertexCacheStatistics> vertexCacheStatistics()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return Optional.empty();
+  }
+
+  @Override
+  public javaslang.collection.Map<SMFAttributeName, SMFAttributeDequantization>
+  dequantization()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return javaslang.collection.HashMap.empty();
+  }
+
+  @Override
+  public Optional<SMFShadowMeshType> shadow()
+    throws IllegalStateException
+  {
+    if (!this.errors.isEmpty()) {
+      throw new IllegalStateException("Array loading has failed");
+    }
+
+    return Optional.empty();
+  }
+
+  @Override
+  public long bufferAllocationNanos()
+  {
+    return this.allocation_nanos;
+  }
+}
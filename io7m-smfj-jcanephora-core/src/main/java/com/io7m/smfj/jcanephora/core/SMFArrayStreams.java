@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLBufferUpdateType;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.List;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Functions to allocate and upload the array buffers of vertex streams.
+ */
+
+final class SMFArrayStreams
+{
+  private SMFArrayStreams()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Allocate one array buffer for each stream of {@code layout}.
+   *
+   * @param allocator     The buffer allocator
+   * @param g_ab          The array buffer interface
+   * @param configuration The array object configuration, which supplies the
+   *                      usage hints of streams
+   * @param layout        The vertex layout
+   * @param vertex_count  The number of vertices
+   *
+   * @return The allocated array buffers, in stream order
+   */
+
+  static List<JCGLArrayBufferType> allocate(
+    final SMFBufferAllocatorType allocator,
+    final JCGLArrayBuffersType g_ab,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFArrayLayout layout,
+    final long vertex_count)
+  {
+    List<JCGLArrayBufferType> buffers = List.empty();
+    for (final SMFArrayStreamLayout stream : layout.streams()) {
+      buffers = buffers.append(allocator.arrayBufferAllocate(
+        g_ab,
+        stream.sizeBytes(vertex_count),
+        configuration.streamUsage(stream.name())));
+    }
+    return buffers;
+  }
+
+  /**
+   * Release the given array buffers.
+   *
+   * @param allocator The buffer allocator that allocated the buffers
+   * @param g_ab      The array buffer interface
+   * @param buffers   The array buffers
+   */
+
+  static void release(
+    final SMFBufferAllocatorType allocator,
+    final JCGLArrayBuffersType g_ab,
+    final List<JCGLArrayBufferType> buffers)
+  {
+    for (final JCGLArrayBufferType buffer : buffers) {
+      allocator.arrayBufferRelease(g_ab, buffer);
+    }
+  }
+
+  /**
+   * @param vertex_data  The packed vertex data of all streams
+   * @param stream       A stream
+   * @param vertex_count The number of vertices
+   *
+   * @return A slice of {@code vertex_data} holding the data of
+   * {@code stream}, in the same byte order
+   */
+
+  static ByteBuffer data(
+    final ByteBuffer vertex_data,
+    final SMFArrayStreamLayout stream,
+    final long vertex_count)
+  {
+    final int offset = Math.toIntExact(stream.offset());
+    final int size = Math.toIntExact(stream.sizeBytes(vertex_count));
+    final ByteBuffer d = vertex_data.duplicate();
+    d.limit(Math.addExact(offset, size));
+    d.position(offset);
+    final ByteBuffer slice = d.slice();
+    slice.order(vertex_data.order());
+    return slice;
+  }
+
+  /**
+   * Create updates that replace the contents of each of {@code buffers} with
+   * the data of the corresponding stream.
+   *
+   * @param buffers      The array buffers, in stream order
+   * @param layout       The vertex layout
+   * @param vertex_data  The packed vertex data of all streams
+   * @param vertex_count The number of vertices
+   *
+   * @return The updates, in stream order
+   */
+
+  static List<JCGLBufferUpdateType<JCGLArrayBufferType>> updates(
+    final List<JCGLArrayBufferType> buffers,
+    final SMFArrayLayout layout,
+    final ByteBuffer vertex_data,
+    final long vertex_count)
+  {
+    final List<SMFArrayStreamLayout> streams = layout.streams();
+    List<JCGLBufferUpdateType<JCGLArrayBufferType>> updates = List.empty();
+    for (int index = 0; index < streams.size(); index = index + 1) {
+      updates = updates.append(SMFBufferUpdate.replacingAll(
+        buffers.get(index),
+        data(vertex_data, streams.get(index), vertex_count)));
+    }
+    return updates;
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.List;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+/**
+ * <p>The information required to recover the original values of an
+ * attribute packed with
+ * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED}.</p>
+ *
+ * <p>Given a normalized component value {@code n} in the range
+ * {@code [0, 1]}, the original component value {@code c} at index {@code i}
+ * is {@code offset[i] + (n * scale[i])}.</p>
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFAttributeDequantizationType
+{
+  /**
+   * @return The name of the attribute
+   */
+
+  @Value.Parameter
+  SMFAttributeName name();
+
+  /**
+   * @return The per-component offsets (the minimum component values)
+   */
+
+  @Value.Parameter
+  List<Double> offsets();
+
+  /**
+   * @return The per-component scales (the extents of the component values)
+   */
+
+  @Value.Parameter
+  List<Double> scales();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    final int count = this.offsets().size();
+    if (count < 1 || count > 4) {
+      throw new IllegalArgumentException(
+        "Component count must be in the range [1, 4]");
+    }
+    if (this.scales().size() != count) {
+      throw new IllegalArgumentException(
+        "Offset and scale counts must match");
+    }
+  }
+}
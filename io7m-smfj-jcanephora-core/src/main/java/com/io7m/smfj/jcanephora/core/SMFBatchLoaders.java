@@ -0,0 +1,367 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * <p>Functions to load many meshes at once.</p>
+ *
+ * <p>Meshes are parsed and packed in parallel on an executor, using the
+ * GL-free preparers provided by {@link SMFMeshPreparers}. The prepared meshes
+ * are uploaded on the calling thread as each one becomes available, so the
+ * calling thread must be the thread that owns the GL context. The number of
+ * meshes that are being prepared or are waiting to be uploaded is bounded,
+ * so the heap memory held by prepared meshes does not grow with the size of
+ * the batch.</p>
+ */
+
+public final class SMFBatchLoaders
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SMFBatchLoaders.class);
+  }
+
+  private SMFBatchLoaders()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Load all of the given meshes, preparing them on the common fork/join
+   * pool.
+   *
+   * @param g             A GL interface
+   * @param parsers       A parser provider
+   * @param meta          A function that yields a metadata listener for each
+   *                      path
+   * @param configuration An array object configuration
+   * @param paths         The meshes to load
+   *
+   * @return One result per path, in the order that the paths were given
+   *
+   * @throws InterruptedException If the calling thread is interrupted whilst
+   *                              waiting for meshes to be prepared
+   * @see #loadAll(JCGLInterfaceGL33Type, ExecutorService,
+   * SMFParserProviderType, Function, SMFArrayObjectConfiguration, List)
+   */
+
+  public static List<SMFBatchResult> loadAll(
+    final JCGLInterfaceGL33Type g,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFArrayObjectConfiguration configuration,
+    final List<Path> paths)
+    throws InterruptedException
+  {
+    return loadAll(
+      g, ForkJoinPool.commonPool(), parsers, meta, configuration, paths);
+  }
+
+  /**
+   * <p>Load all of the given meshes, preparing them on the given executor.</p>
+   *
+   * <p>The metadata listeners returned by {@code meta} are called from the
+   * executor threads. A mesh that cannot be read or parsed yields a result
+   * containing the errors encountered; other meshes in the batch are not
+   * affected. The caller owns the GL objects of every successful result.</p>
+   *
+   * <p>At most twice as many meshes as there are available processors are
+   * prepared or waiting to be uploaded at any one time.</p>
+   *
+   * @param g             A GL interface
+   * @param executor      The executor used to prepare meshes
+   * @param parsers       A parser provider
+   * @param meta          A function that yields a metadata listener for each
+   *                      path
+   * @param configuration An array object configuration
+   * @param paths         The meshes to load
+   *
+   * @return One result per path, in the order that the paths were given
+   *
+   * @throws InterruptedException If the calling thread is interrupted whilst
+   *                              waiting for meshes to be prepared
+   * @see #loadAll(JCGLInterfaceGL33Type, ExecutorService,
+   * SMFParserProviderType, Function, SMFArrayObjectConfiguration, List, int)
+   */
+
+  public static List<SMFBatchResult> loadAll(
+    final JCGLInterfaceGL33Type g,
+    final ExecutorService executor,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFArrayObjectConfiguration configuration,
+    final List<Path> paths)
+    throws InterruptedException
+  {
+    return loadAll(
+      g,
+      executor,
+      parsers,
+      meta,
+      configuration,
+      paths,
+      Math.multiplyExact(2, Runtime.getRuntime().availableProcessors()));
+  }
+
+  /**
+   * <p>Load all of the given meshes, preparing them on the given executor,
+   * with at most {@code maximum_pending} meshes being prepared or waiting to
+   * be uploaded at any one time.</p>
+   *
+   * <p>The metadata listeners returned by {@code meta} are called from the
+   * executor threads. A mesh that cannot be read or parsed, or whose
+   * preparation fails with an exception, yields a result containing the
+   * errors encountered; other meshes in the batch are not affected. The
+   * caller owns the GL objects of every successful result. If uploading a
+   * mesh fails, or the calling thread is interrupted, the meshes of the batch
+   * that have already been uploaded are deleted, preparation of the remaining
+   * meshes is cancelled, and the exception is propagated.</p>
+   *
+   * @param g               A GL interface
+   * @param executor        The executor used to prepare meshes
+   * @param parsers         A parser provider
+   * @param meta            A function that yields a metadata listener for
+   *                        each path
+   * @param configuration   An array object configuration
+   * @param paths           The meshes to load
+   * @param maximum_pending The maximum number of meshes that may be prepared
+   *                        or waiting to be uploaded at any one time
+   *
+   * @return One result per path, in the order that the paths were given
+   *
+   * @throws InterruptedException     If the calling thread is interrupted
+   *                                  whilst waiting for meshes to be
+   *                                  prepared
+   * @throws IllegalArgumentException If {@code maximum_pending} is not
+   *                                  positive
+   */
+
+  public static List<SMFBatchResult> loadAll(
+    final JCGLInterfaceGL33Type g,
+    final ExecutorService executor,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFArrayObjectConfiguration configuration,
+    final List<Path> paths,
+    final int maximum_pending)
+    throws InterruptedException, IllegalArgumentException
+  {
+    NullCheck.notNull(g, "GL");
+    NullCheck.notNull(executor, "Executor");
+    NullCheck.notNull(parsers, "Parsers");
+    NullCheck.notNull(meta, "Meta");
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(paths, "Paths");
+
+    if (maximum_pending <= 0) {
+      throw new IllegalArgumentException(
+        "Maximum pending meshes must be positive");
+    }
+
+    final CompletionService<Prepared> completion =
+      new ExecutorCompletionService<>(executor);
+    final Map<Future<Prepared>, Integer> pending =
+      new IdentityHashMap<>(maximum_pending);
+    final SMFBatchResult[] results = new SMFBatchResult[paths.size()];
+
+    try {
+      int next = 0;
+      while (next < results.length && next < maximum_pending) {
+        submit(completion, pending, next, paths, parsers, meta, configuration);
+        next = next + 1;
+      }
+
+      for (int count = 0; count < results.length; count = count + 1) {
+        final Prepared prepared = takeNext(completion, pending, paths);
+        results[prepared.index] = upload(g, configuration, prepared);
+        if (next < results.length) {
+          submit(
+            completion, pending, next, paths, parsers, meta, configuration);
+          next = next + 1;
+        }
+      }
+    } catch (final InterruptedException | RuntimeException | Error e) {
+      for (final Future<Prepared> future : pending.keySet()) {
+        future.cancel(true);
+      }
+      deleteUploaded(g, results);
+      throw e;
+    }
+
+    LOG.debug("loaded {} meshes", Integer.valueOf(results.length));
+    return List.of(results);
+  }
+
+  private static void submit(
+    final CompletionService<Prepared> completion,
+    final Map<Future<Prepared>, Integer> pending,
+    final int index,
+    final List<Path> paths,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFArrayObjectConfiguration configuration)
+  {
+    final Path path = paths.get(index);
+    pending.put(
+      completion.submit(
+        () -> prepare(index, path, parsers, meta, configuration)),
+      Integer.valueOf(index));
+  }
+
+  private static Prepared takeNext(
+    final CompletionService<Prepared> completion,
+    final Map<Future<Prepared>, Integer> pending,
+    final List<Path> paths)
+    throws InterruptedException
+  {
+    final Future<Prepared> future = completion.take();
+    final int index = pending.remove(future).intValue();
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      final Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        return failed(index, paths.get(index), (Exception) cause);
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  private static void deleteUploaded(
+    final JCGLInterfaceGL33Type g,
+    final SMFBatchResult[] results)
+  {
+    final SMFBufferAllocatorType allocator = SMFBufferAllocators.direct();
+    for (final SMFBatchResult result : results) {
+      if (result != null && result.mesh().isPresent()) {
+        final SMFUploadedMesh mesh = result.mesh().get();
+        g.getArrayObjects().arrayObjectDelete(mesh.arrayObject());
+        SMFArrayStreams.release(
+          allocator, g.getArrayBuffers(), mesh.arrayBuffers());
+        allocator.indexBufferRelease(g.getIndexBuffers(), mesh.indexBuffer());
+      }
+    }
+  }
+
+  private static Prepared failed(
+    final int index,
+    final Path path,
+    final Exception e)
+  {
+    LOG.error("failed to prepare {}: ", path, e);
+    final SMFParseError error = SMFParseError.of(
+      LexicalPosition.of(0, 0, Optional.of(path)),
+      e.getMessage() == null ? e.getClass().getName() : e.getMessage(),
+      Optional.of(e));
+    return new Prepared(index, path, null, List.of(error));
+  }
+
+  private static SMFBatchResult upload(
+    final JCGLInterfaceGL33Type g,
+    final SMFArrayObjectConfiguration configuration,
+    final Prepared prepared)
+  {
+    if (!prepared.errors.isEmpty()) {
+      return SMFBatchResult.of(
+        prepared.path, Optional.empty(), prepared.errors);
+    }
+
+    final SMFUploadedMesh mesh =
+      SMFPreparedMeshUploads.upload(g, prepared.mesh, configuration);
+    return SMFBatchResult.of(prepared.path, Optional.of(mesh), List.empty());
+  }
+
+  private static Prepared prepare(
+    final int index,
+    final Path path,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFArrayObjectConfiguration configuration)
+  {
+    try {
+      final SMFMeshPreparerType preparer =
+        SMFMeshPreparers.newPreparer(meta.apply(path), configuration);
+
+      try (final InputStream stream = Files.newInputStream(path)) {
+        try (final SMFParserSequentialType parser =
+               parsers.parserCreateSequential(preparer, path, stream)) {
+          parser.parseHeader();
+          parser.parseData();
+        }
+      }
+
+      if (!preparer.errors().isEmpty()) {
+        return new Prepared(index, path, null, preparer.errors());
+      }
+      return new Prepared(index, path, preparer.preparedMesh(), List.empty());
+    } catch (final IOException | RuntimeException e) {
+      return failed(index, path, e);
+    }
+  }
+
+  private static final class Prepared
+  {
+    private final int index;
+    private final Path path;
+    private final @Nullable SMFPreparedMesh mesh;
+    private final List<SMFParseError> errors;
+
+    Prepared(
+      final int in_index,
+      final Path in_path,
+      final @Nullable SMFPreparedMesh in_mesh,
+      final List<SMFParseError> in_errors)
+    {
+      this.index = in_index;
+      this.path = in_path;
+      this.mesh = in_mesh;
+      this.errors = in_errors;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+
+/**
+ * <p>The type of buffer allocators used by loaders.</p>
+ *
+ * <p>An allocator may return array buffers that are larger than the
+ * requested size; only the first {@code size} bytes of such a buffer are
+ * written and referenced by loaded array objects. Index buffers always hold
+ * exactly the requested number of indices, because draw calls consume every
+ * index in the bound index buffer.</p>
+ *
+ * <p>Buffers obtained from an allocator must be released to the same
+ * allocator rather than deleted directly.</p>
+ *
+ * @see SMFBufferAllocators
+ * @see SMFBufferPools
+ */
+
+public interface SMFBufferAllocatorType
+{
+  /**
+   * Allocate an array buffer.
+   *
+   * @param g_ab  The array buffer interface
+   * @param size  The required size in bytes
+   * @param usage The usage hint
+   *
+   * @return An array buffer of at least {@code size} bytes
+   */
+
+  JCGLArrayBufferType arrayBufferAllocate(
+    JCGLArrayBuffersType g_ab,
+    long size,
+    JCGLUsageHint usage);
+
+  /**
+   * Release an array buffer that was allocated by this allocator.
+   *
+   * @param g_ab   The array buffer interface
+   * @param buffer The array buffer
+   *
+   * @throws IllegalArgumentException If the buffer was not allocated by this
+   *                                  allocator, or has already been released
+   */
+
+  void arrayBufferRelease(
+    JCGLArrayBuffersType g_ab,
+    JCGLArrayBufferType buffer)
+    throws IllegalArgumentException;
+
+  /**
+   * Allocate an index buffer.
+   *
+   * @param g_ib    The index buffer interface
+   * @param indices The number of indices
+   * @param type    The type of indices
+   * @param usage   The usage hint
+   *
+   * @return An index buffer of exactly {@code indices} indices
+   */
+
+  JCGLIndexBufferType indexBufferAllocate(
+    JCGLIndexBuffersType g_ib,
+    long indices,
+    JCGLUnsignedType type,
+    JCGLUsageHint usage);
+
+  /**
+   * Release an index buffer that was allocated by this allocator.
+   *
+   * @param g_ib   The index buffer interface
+   * @param buffer The index buffer
+   *
+   * @throws IllegalArgumentException If the buffer was not allocated by this
+   *                                  allocator, or has already been released
+   */
+
+  void indexBufferRelease(
+    JCGLIndexBuffersType g_ib,
+    JCGLIndexBufferType buffer)
+    throws IllegalArgumentException;
+}
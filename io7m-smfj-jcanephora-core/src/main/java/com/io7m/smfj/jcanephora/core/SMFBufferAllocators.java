@@ -0,0 +1,102 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * The default provider of {@link SMFBufferAllocatorType} values.
+ */
+
+public final class SMFBufferAllocators
+{
+  private static final SMFBufferAllocatorType DIRECT;
+
+  static {
+    DIRECT = new Direct();
+  }
+
+  private SMFBufferAllocators()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @return An allocator that allocates buffers of exactly the requested
+   * size, and deletes buffers when they are released
+   */
+
+  public static SMFBufferAllocatorType direct()
+  {
+    return DIRECT;
+  }
+
+  private static final class Direct implements SMFBufferAllocatorType
+  {
+    Direct()
+    {
+
+    }
+
+    @Override
+    public JCGLArrayBufferType arrayBufferAllocate(
+      final JCGLArrayBuffersType g_ab,
+      final long size,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      return g_ab.arrayBufferAllocate(size, usage);
+    }
+
+    @Override
+    public void arrayBufferRelease(
+      final JCGLArrayBuffersType g_ab,
+      final JCGLArrayBufferType buffer)
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      g_ab.arrayBufferDelete(buffer);
+    }
+
+    @Override
+    public JCGLIndexBufferType indexBufferAllocate(
+      final JCGLIndexBuffersType g_ib,
+      final long indices,
+      final JCGLUnsignedType type,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      return g_ib.indexBufferAllocate(indices, type, usage);
+    }
+
+    @Override
+    public void indexBufferRelease(
+      final JCGLIndexBuffersType g_ib,
+      final JCGLIndexBufferType buffer)
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      g_ib.indexBufferDelete(buffer);
+    }
+  }
+}
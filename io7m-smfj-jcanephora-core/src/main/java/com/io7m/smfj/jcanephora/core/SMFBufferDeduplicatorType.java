@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The type of buffer deduplicators.</p>
+ *
+ * <p>A deduplicator tracks the live buffers that it has uploaded, keyed by
+ * a 128-bit fingerprint of their contents (two {@link SMFContentHashes
+ * hashes} with different seeds) together with their size, usage hint, and
+ * (for index buffers) index type. A request to upload data that matches a
+ * live buffer returns the existing buffer and increments its reference
+ * count, instead of uploading a duplicate. Buffers are obtained from, and
+ * finally released to, an underlying {@link SMFBufferAllocatorType}.</p>
+ *
+ * <p>By default, matching fingerprints are taken to imply equal contents,
+ * and the deduplicator retains no copies of buffer contents. The chance of
+ * two distinct buffers sharing a fingerprint is negligible, but the hashes
+ * are not cryptographic, and so must not be relied upon where an adversary
+ * controls the data. A verifying deduplicator (see
+ * {@link SMFBufferDeduplicators#newVerifyingDeduplicator}) additionally
+ * compares contents byte-for-byte
+ * before reusing a buffer, so buffers with different contents are never
+ * shared. To make this comparison possible, it retains a heap copy of the
+ * contents of every live buffer, and therefore holds as much heap memory as
+ * the GPU memory of the buffers it tracks.</p>
+ *
+ * <p>Deduplicators are not thread-safe, and all methods must be called on
+ * the thread that owns the GL context.</p>
+ */
+
+public interface SMFBufferDeduplicatorType
+{
+  /**
+   * Obtain an array buffer holding exactly {@code data}, reusing a live
+   * buffer if one has identical contents.
+   *
+   * @param g_ab  The array buffer interface
+   * @param data  The remaining bytes of this buffer are the required contents
+   * @param usage The usage hint
+   *
+   * @return An array buffer
+   */
+
+  JCGLArrayBufferType arrayBufferFor(
+    JCGLArrayBuffersType g_ab,
+    ByteBuffer data,
+    JCGLUsageHint usage);
+
+  /**
+   * Obtain an index buffer holding exactly {@code data}, reusing a live
+   * buffer if one has identical contents.
+   *
+   * @param g_ib    The index buffer interface
+   * @param data    The remaining bytes of this buffer are the required
+   *                contents
+   * @param indices The number of indices
+   * @param type    The type of indices
+   * @param usage   The usage hint
+   *
+   * @return An index buffer
+   */
+
+  JCGLIndexBufferType indexBufferFor(
+    JCGLIndexBuffersType g_ib,
+    ByteBuffer data,
+    long indices,
+    JCGLUnsignedType type,
+    JCGLUsageHint usage);
+
+  /**
+   * Release one reference to an array buffer. The buffer is released to the
+   * underlying allocator when no references remain.
+   *
+   * @param g_ab   The array buffer interface
+   * @param buffer An array buffer obtained from this deduplicator
+   *
+   * @throws IllegalArgumentException If the buffer is not live
+   */
+
+  void arrayBufferRelease(
+    JCGLArrayBuffersType g_ab,
+    JCGLArrayBufferType buffer)
+    throws IllegalArgumentException;
+
+  /**
+   * Release one reference to an index buffer. The buffer is released to the
+   * underlying allocator when no references remain.
+   *
+   * @param g_ib   The index buffer interface
+   * @param buffer An index buffer obtained from this deduplicator
+   *
+   * @throws IllegalArgumentException If the buffer is not live
+   */
+
+  void indexBufferRelease(
+    JCGLIndexBuffersType g_ib,
+    JCGLIndexBufferType buffer)
+    throws IllegalArgumentException;
+
+  /**
+   * @return The number of array buffer requests satisfied by a live buffer
+   */
+
+  long arrayBuffersReused();
+
+  /**
+   * @return The number of index buffer requests satisfied by a live buffer
+   */
+
+  long indexBuffersReused();
+
+  /**
+   * @return The total size in bytes of the uploads avoided by reusing live
+   * buffers
+   */
+
+  long bytesReused();
+
+  /**
+   * @return The number of distinct live buffers
+   */
+
+  int liveBuffers();
+}
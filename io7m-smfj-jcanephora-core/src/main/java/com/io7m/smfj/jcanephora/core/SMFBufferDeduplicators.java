@@ -0,0 +1,391 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The default provider of {@link SMFBufferDeduplicatorType} values.
+ */
+
+public final class SMFBufferDeduplicators
+{
+  private static final long HASH_SEED_LOW = 0L;
+  private static final long HASH_SEED_HIGH = 0x9e3779b97f4a7c15L;
+
+  private SMFBufferDeduplicators()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new deduplicator with no live buffers. Buffers are shared when
+   * their 128-bit content fingerprints match, and no copies of their
+   * contents are retained.
+   *
+   * @param allocator The allocator from which buffers are obtained
+   *
+   * @return A new deduplicator
+   */
+
+  public static SMFBufferDeduplicatorType newDeduplicator(
+    final SMFBufferAllocatorType allocator)
+  {
+    return new Deduplicator(allocator, false);
+  }
+
+  /**
+   * Create a new deduplicator with no live buffers. Buffers are shared only
+   * when their contents are equal byte-for-byte, at the cost of retaining a
+   * heap copy of the contents of every live buffer.
+   *
+   * @param allocator The allocator from which buffers are obtained
+   *
+   * @return A new deduplicator
+   */
+
+  public static SMFBufferDeduplicatorType newVerifyingDeduplicator(
+    final SMFBufferAllocatorType allocator)
+  {
+    return new Deduplicator(allocator, true);
+  }
+
+  private static Key keyFor(
+    final JCGLUsageHint usage,
+    final @Nullable JCGLUnsignedType type,
+    final ByteBuffer data)
+  {
+    return new Key(
+      usage,
+      type,
+      (long) data.remaining(),
+      SMFContentHashes.hash64(data, HASH_SEED_LOW),
+      SMFContentHashes.hash64(data, HASH_SEED_HIGH));
+  }
+
+  private static final class Key
+  {
+    private final JCGLUsageHint usage;
+    private final @Nullable JCGLUnsignedType type;
+    private final long size;
+    private final long hash_low;
+    private final long hash_high;
+
+    Key(
+      final JCGLUsageHint in_usage,
+      final @Nullable JCGLUnsignedType in_type,
+      final long in_size,
+      final long in_hash_low,
+      final long in_hash_high)
+    {
+      this.usage = NullCheck.notNull(in_usage, "Usage");
+      this.type = in_type;
+      this.size = in_size;
+      this.hash_low = in_hash_low;
+      this.hash_high = in_hash_high;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+      final Key other = (Key) o;
+      return this.size == other.size
+        && this.hash_low == other.hash_low
+        && this.hash_high == other.hash_high
+        && this.usage == other.usage
+        && this.type == other.type;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(
+        this.usage,
+        this.type,
+        Long.valueOf(this.size),
+        Long.valueOf(this.hash_low),
+        Long.valueOf(this.hash_high));
+    }
+  }
+
+  private static final class Shared<T>
+  {
+    private final Key key;
+    private final T buffer;
+    private final @Nullable ByteBuffer contents;
+    private int references;
+
+    Shared(
+      final Key in_key,
+      final T in_buffer,
+      final ByteBuffer in_data,
+      final boolean verify)
+    {
+      this.key = NullCheck.notNull(in_key, "Key");
+      this.buffer = NullCheck.notNull(in_buffer, "Buffer");
+      if (verify) {
+        this.contents = ByteBuffer.allocate(in_data.remaining());
+        this.contents.put(in_data.duplicate());
+        this.contents.flip();
+      } else {
+        this.contents = null;
+      }
+      this.references = 1;
+    }
+
+    boolean holds(
+      final ByteBuffer data)
+    {
+      return this.contents == null || this.contents.equals(data);
+    }
+  }
+
+  private static <T> Shared<T> find(
+    final Map<Key, List<Shared<T>>> shared,
+    final Key key,
+    final ByteBuffer data)
+  {
+    final List<Shared<T>> candidates = shared.get(key);
+    if (candidates != null) {
+      for (final Shared<T> candidate : candidates) {
+        if (candidate.holds(data)) {
+          return candidate;
+        }
+      }
+    }
+    return null;
+  }
+
+  private static <T> void insert(
+    final Map<Key, List<Shared<T>>> shared,
+    final Shared<T> entry)
+  {
+    shared.computeIfAbsent(entry.key, k -> new ArrayList<>(1)).add(entry);
+  }
+
+  private static <T> void remove(
+    final Map<Key, List<Shared<T>>> shared,
+    final Shared<T> entry)
+  {
+    final List<Shared<T>> candidates = shared.get(entry.key);
+    candidates.remove(entry);
+    if (candidates.isEmpty()) {
+      shared.remove(entry.key);
+    }
+  }
+
+  private static final class Deduplicator implements SMFBufferDeduplicatorType
+  {
+    private final SMFBufferAllocatorType allocator;
+    private final boolean verify;
+    private final Map<Key, List<Shared<JCGLArrayBufferType>>> array_shared;
+    private final Map<Key, List<Shared<JCGLIndexBufferType>>> index_shared;
+    private final Map<JCGLArrayBufferType, Shared<JCGLArrayBufferType>>
+      array_live;
+    private final Map<JCGLIndexBufferType, Shared<JCGLIndexBufferType>>
+      index_live;
+    private long arrays_reused;
+    private long indices_reused;
+    private long bytes_reused;
+
+    Deduplicator(
+      final SMFBufferAllocatorType in_allocator,
+      final boolean in_verify)
+    {
+      this.allocator = NullCheck.notNull(in_allocator, "Allocator");
+      this.verify = in_verify;
+      this.array_shared = new HashMap<>();
+      this.index_shared = new HashMap<>();
+      this.array_live = new IdentityHashMap<>();
+      this.index_live = new IdentityHashMap<>();
+      this.arrays_reused = 0L;
+      this.indices_reused = 0L;
+      this.bytes_reused = 0L;
+    }
+
+    @Override
+    public JCGLArrayBufferType arrayBufferFor(
+      final JCGLArrayBuffersType g_ab,
+      final ByteBuffer data,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      NullCheck.notNull(data, "Data");
+      NullCheck.notNull(usage, "Usage");
+
+      final long size = (long) data.remaining();
+      final Key key = keyFor(usage, null, data);
+
+      final Shared<JCGLArrayBufferType> existing =
+        find(this.array_shared, key, data);
+      if (existing != null) {
+        existing.references = existing.references + 1;
+        this.arrays_reused = this.arrays_reused + 1L;
+        this.bytes_reused = this.bytes_reused + size;
+        return existing.buffer;
+      }
+
+      final JCGLArrayBufferType buffer =
+        this.allocator.arrayBufferAllocate(g_ab, size, usage);
+      if (size > 0L) {
+        g_ab.arrayBufferUpdate(
+          SMFBufferUpdate.replacingRange(buffer, data, 0L));
+      }
+
+      final Shared<JCGLArrayBufferType> shared =
+        new Shared<>(key, buffer, data, this.verify);
+      insert(this.array_shared, shared);
+      this.array_live.put(buffer, shared);
+      return buffer;
+    }
+
+    @Override
+    public JCGLIndexBufferType indexBufferFor(
+      final JCGLIndexBuffersType g_ib,
+      final ByteBuffer data,
+      final long indices,
+      final JCGLUnsignedType type,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      NullCheck.notNull(data, "Data");
+      NullCheck.notNull(type, "Type");
+      NullCheck.notNull(usage, "Usage");
+
+      final long size = (long) data.remaining();
+      if (size != Math.multiplyExact(indices, (long) type.getSizeBytes())) {
+        throw new IllegalArgumentException(
+          "Data size does not match the number and type of indices");
+      }
+
+      final Key key = keyFor(usage, type, data);
+
+      final Shared<JCGLIndexBufferType> existing =
+        find(this.index_shared, key, data);
+      if (existing != null) {
+        existing.references = existing.references + 1;
+        this.indices_reused = this.indices_reused + 1L;
+        this.bytes_reused = this.bytes_reused + size;
+        return existing.buffer;
+      }
+
+      final JCGLIndexBufferType buffer =
+        this.allocator.indexBufferAllocate(g_ib, indices, type, usage);
+      if (size > 0L) {
+        g_ib.indexBufferUpdate(
+          SMFBufferUpdate.replacingRange(buffer, data, 0L));
+      }
+
+      final Shared<JCGLIndexBufferType> shared =
+        new Shared<>(key, buffer, data, this.verify);
+      insert(this.index_shared, shared);
+      this.index_live.put(buffer, shared);
+      return buffer;
+    }
+
+    @Override
+    public void arrayBufferRelease(
+      final JCGLArrayBuffersType g_ab,
+      final JCGLArrayBufferType buffer)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      NullCheck.notNull(buffer, "Buffer");
+
+      final Shared<JCGLArrayBufferType> shared = this.array_live.get(buffer);
+      if (shared == null) {
+        throw new IllegalArgumentException("Array buffer is not live");
+      }
+
+      shared.references = shared.references - 1;
+      if (shared.references == 0) {
+        this.array_live.remove(buffer);
+        remove(this.array_shared, shared);
+        this.allocator.arrayBufferRelease(g_ab, buffer);
+      }
+    }
+
+    @Override
+    public void indexBufferRelease(
+      final JCGLIndexBuffersType g_ib,
+      final JCGLIndexBufferType buffer)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      NullCheck.notNull(buffer, "Buffer");
+
+      final Shared<JCGLIndexBufferType> shared = this.index_live.get(buffer);
+      if (shared == null) {
+        throw new IllegalArgumentException("Index buffer is not live");
+      }
+
+      shared.references = shared.references - 1;
+      if (shared.references == 0) {
+        this.index_live.remove(buffer);
+        remove(this.index_shared, shared);
+        this.allocator.indexBufferRelease(g_ib, buffer);
+      }
+    }
+
+    @Override
+    public long arrayBuffersReused()
+    {
+      return this.arrays_reused;
+    }
+
+    @Override
+    public long indexBuffersReused()
+    {
+      return this.indices_reused;
+    }
+
+    @Override
+    public long bytesReused()
+    {
+      return this.bytes_reused;
+    }
+
+    @Override
+    public int liveBuffers()
+    {
+      return this.array_live.size() + this.index_live.size();
+    }
+  }
+}
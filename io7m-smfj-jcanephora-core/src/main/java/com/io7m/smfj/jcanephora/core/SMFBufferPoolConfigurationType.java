@@ -0,0 +1,114 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.List;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+/**
+ * <p>The configuration of a buffer pool.</p>
+ *
+ * <p>Array buffer allocations are rounded up to a size class, so that a
+ * released buffer can satisfy any later request that falls within the same
+ * class. If no size classes are specified, the size classes are the powers
+ * of two. Requests larger than the largest specified size class are
+ * allocated at their exact size.</p>
+ *
+ * @see SMFBufferPools
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFBufferPoolConfigurationType
+{
+  /**
+   * @return The maximum number of bytes held by released buffers awaiting
+   * reuse; buffers released beyond this limit are deleted
+   */
+
+  @Value.Parameter
+  long maximumPooledBytes();
+
+  /**
+   * @return The array buffer size classes in bytes, in strictly ascending
+   * order, or an empty list to use powers of two
+   */
+
+  @Value.Parameter
+  @Value.Default
+  default List<Long> sizeClasses()
+  {
+    return List.empty();
+  }
+
+  /**
+   * @param size A requested size in bytes
+   *
+   * @return The size in bytes of the buffer that will be allocated for the
+   * request
+   */
+
+  default long sizeClassFor(
+    final long size)
+  {
+    if (size < 0L) {
+      throw new IllegalArgumentException("Size must be non-negative");
+    }
+
+    final List<Long> classes = this.sizeClasses();
+    if (classes.isEmpty()) {
+      if (size <= 1L) {
+        return 1L;
+      }
+      final long high = Long.highestOneBit(size);
+      return high == size ? size : Math.multiplyExact(high, 2L);
+    }
+
+    for (final Long size_class : classes) {
+      if (size_class.longValue() >= size) {
+        return size_class.longValue();
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.maximumPooledBytes() < 0L) {
+      throw new IllegalArgumentException(
+        "Maximum pooled bytes must be non-negative");
+    }
+
+    long previous = 0L;
+    for (final Long size_class : this.sizeClasses()) {
+      if (size_class.longValue() <= previous) {
+        throw new IllegalArgumentException(
+          "Size classes must be positive and strictly ascending");
+      }
+      previous = size_class.longValue();
+    }
+  }
+}
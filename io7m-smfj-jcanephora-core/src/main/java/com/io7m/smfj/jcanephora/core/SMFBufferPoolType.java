@@ -0,0 +1,69 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+
+/**
+ * <p>The type of buffer pools.</p>
+ *
+ * <p>A buffer pool is an allocator that recycles released buffers instead
+ * of deleting them. Released buffers are held in free lists keyed by usage
+ * hint and size class (and, for index buffers, by index type and count),
+ * and are returned by later allocations that fall into the same class.
+ * The total size of held buffers is bounded by
+ * {@link SMFBufferPoolConfigurationType#maximumPooledBytes()}.</p>
+ *
+ * <p>Pools are not thread-safe, and all methods must be called on the
+ * thread that owns the GL context.</p>
+ */
+
+public interface SMFBufferPoolType extends SMFBufferAllocatorType
+{
+  /**
+   * @return The pool configuration
+   */
+
+  SMFBufferPoolConfiguration configuration();
+
+  /**
+   * @return The total size in bytes of released buffers held for reuse
+   */
+
+  long pooledBytes();
+
+  /**
+   * @return The number of allocations that have been satisfied by reusing a
+   * released buffer
+   */
+
+  long recycledCount();
+
+  /**
+   * Delete all released buffers held for reuse. Buffers that are currently
+   * allocated are not affected.
+   *
+   * @param g_ab The array buffer interface
+   * @param g_ib The index buffer interface
+   */
+
+  void clear(
+    JCGLArrayBuffersType g_ab,
+    JCGLIndexBuffersType g_ib);
+}
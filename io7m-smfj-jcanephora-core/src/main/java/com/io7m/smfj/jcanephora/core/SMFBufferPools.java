@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.ArrayDeque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The default provider of {@link SMFBufferPoolType} values.
+ */
+
+public final class SMFBufferPools
+{
+  private SMFBufferPools()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new, empty buffer pool.
+   *
+   * @param configuration The pool configuration
+   *
+   * @return A new buffer pool
+   */
+
+  public static SMFBufferPoolType newPool(
+    final SMFBufferPoolConfiguration configuration)
+  {
+    return new Pool(configuration);
+  }
+
+  private static final class IndexKey
+  {
+    private final JCGLUsageHint usage;
+    private final JCGLUnsignedType type;
+    private final long indices;
+
+    IndexKey(
+      final JCGLUsageHint in_usage,
+      final JCGLUnsignedType in_type,
+      final long in_indices)
+    {
+      this.usage = NullCheck.notNull(in_usage, "Usage");
+      this.type = NullCheck.notNull(in_type, "Type");
+      this.indices = in_indices;
+    }
+
+    @Override
+    public boolean equals(final Object o)
+    {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || this.getClass() != o.getClass()) {
+        return false;
+      }
+      final IndexKey other = (IndexKey) o;
+      return this.indices == other.indices
+        && this.type == other.type
+        && this.usage == other.usage;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return Objects.hash(this.usage, this.type, Long.valueOf(this.indices));
+    }
+  }
+
+  private static final class Pool implements SMFBufferPoolType
+  {
+    private final SMFBufferPoolConfiguration configuration;
+    private final Map<JCGLUsageHint, Map<Long, ArrayDeque<JCGLArrayBufferType>>>
+      array_free;
+    private final Map<IndexKey, ArrayDeque<JCGLIndexBufferType>> index_free;
+    private final IdentityHashMap<JCGLArrayBufferType, JCGLUsageHint>
+      array_live;
+    private final IdentityHashMap<JCGLIndexBufferType, IndexKey> index_live;
+    private long pooled;
+    private long recycled;
+
+    Pool(
+      final SMFBufferPoolConfiguration in_configuration)
+    {
+      this.configuration =
+        NullCheck.notNull(in_configuration, "Configuration");
+      this.array_free = new EnumMap<>(JCGLUsageHint.class);
+      this.index_free = new HashMap<>();
+      this.array_live = new IdentityHashMap<>();
+      this.index_live = new IdentityHashMap<>();
+      this.pooled = 0L;
+      this.recycled = 0L;
+    }
+
+    private static long indexSize(
+      final JCGLIndexBufferType buffer)
+    {
+      return buffer.getRange().getInterval();
+    }
+
+    @Override
+    public SMFBufferPoolConfiguration configuration()
+    {
+      return this.configuration;
+    }
+
+    @Override
+    public long pooledBytes()
+    {
+      return this.pooled;
+    }
+
+    @Override
+    public long recycledCount()
+    {
+      return this.recycled;
+    }
+
+    @Override
+    public JCGLArrayBufferType arrayBufferAllocate(
+      final JCGLArrayBuffersType g_ab,
+      final long size,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      NullCheck.notNull(usage, "Usage");
+
+      final long size_class = this.configuration.sizeClassFor(size);
+      final ArrayDeque<JCGLArrayBufferType> free =
+        this.array_free
+          .computeIfAbsent(usage, k -> new HashMap<>())
+          .get(Long.valueOf(size_class));
+
+      final JCGLArrayBufferType buffer;
+      if (free != null && !free.isEmpty()) {
+        buffer = free.pop();
+        this.pooled = this.pooled - size_class;
+        this.recycled = this.recycled + 1L;
+      } else {
+        buffer = g_ab.arrayBufferAllocate(size_class, usage);
+      }
+
+      this.array_live.put(buffer, usage);
+      return buffer;
+    }
+
+    @Override
+    public void arrayBufferRelease(
+      final JCGLArrayBuffersType g_ab,
+      final JCGLArrayBufferType buffer)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      NullCheck.notNull(buffer, "Buffer");
+
+      final JCGLUsageHint usage = this.array_live.remove(buffer);
+      if (usage == null) {
+        throw new IllegalArgumentException(
+          "Array buffer is not allocated by this pool");
+      }
+
+      final long size = buffer.getRange().getInterval();
+      if (!this.admit(size)) {
+        g_ab.arrayBufferDelete(buffer);
+        return;
+      }
+
+      this.array_free
+        .computeIfAbsent(usage, k -> new HashMap<>())
+        .computeIfAbsent(Long.valueOf(size), k -> new ArrayDeque<>())
+        .push(buffer);
+    }
+
+    @Override
+    public JCGLIndexBufferType indexBufferAllocate(
+      final JCGLIndexBuffersType g_ib,
+      final long indices,
+      final JCGLUnsignedType type,
+      final JCGLUsageHint usage)
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      NullCheck.notNull(type, "Type");
+      NullCheck.notNull(usage, "Usage");
+
+      final IndexKey key = new IndexKey(usage, type, indices);
+      final ArrayDeque<JCGLIndexBufferType> free = this.index_free.get(key);
+
+      final JCGLIndexBufferType buffer;
+      if (free != null && !free.isEmpty()) {
+        buffer = free.pop();
+        this.pooled = this.pooled - indexSize(buffer);
+        this.recycled = this.recycled + 1L;
+      } else {
+        buffer = g_ib.indexBufferAllocate(indices, type, usage);
+      }
+
+      this.index_live.put(buffer, key);
+      return buffer;
+    }
+
+    @Override
+    public void indexBufferRelease(
+      final JCGLIndexBuffersType g_ib,
+      final JCGLIndexBufferType buffer)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(g_ib, "Index buffers");
+      NullCheck.notNull(buffer, "Buffer");
+
+      final IndexKey key = this.index_live.remove(buffer);
+      if (key == null) {
+        throw new IllegalArgumentException(
+          "Index buffer is not allocated by this pool");
+      }
+
+      if (!this.admit(indexSize(buffer))) {
+        g_ib.indexBufferDelete(buffer);
+        return;
+      }
+
+      this.index_free
+        .computeIfAbsent(key, k -> new ArrayDeque<>())
+        .push(buffer);
+    }
+
+    private boolean admit(
+      final long size)
+    {
+      final long total = Math.addExact(this.pooled, size);
+      if (total > this.configuration.maximumPooledBytes()) {
+        return false;
+      }
+      this.pooled = total;
+      return true;
+    }
+
+    @Override
+    public void clear(
+      final JCGLArrayBuffersType g_ab,
+      final JCGLIndexBuffersType g_ib)
+    {
+      NullCheck.notNull(g_ab, "Array buffers");
+      NullCheck.notNull(g_ib, "Index buffers");
+
+      for (final Map<Long, ArrayDeque<JCGLArrayBufferType>> by_size
+        : this.array_free.values()) {
+        for (final ArrayDeque<JCGLArrayBufferType> free : by_size.values()) {
+          for (final JCGLArrayBufferType buffer : free) {
+            g_ab.arrayBufferDelete(buffer);
+          }
+        }
+      }
+      for (final ArrayDeque<JCGLIndexBufferType> free
+        : this.index_free.values()) {
+        for (final JCGLIndexBufferType buffer : free) {
+          g_ib.indexBufferDelete(buffer);
+        }
+      }
+
+      this.array_free.clear();
+      this.index_free.clear();
+      this.pooled = 0L;
+    }
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLBufferUpdateType;
+import com.io7m.jcanephora.core.JCGLBufferWritableType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A buffer update that uses caller-provided data rather than allocating a
+ * fresh staging buffer.
+ *
+ * @param <T> The type of updated buffer
+ */
+
+final class SMFBufferUpdate<T extends JCGLBufferWritableType>
+  implements JCGLBufferUpdateType<T>
+{
+  private final T buffer;
+  private final ByteBuffer data;
+  private final RangeInclusiveL range;
+
+  private SMFBufferUpdate(
+    final T in_buffer,
+    final ByteBuffer in_data,
+    final RangeInclusiveL in_range)
+  {
+    this.buffer = NullCheck.notNull(in_buffer, "Buffer");
+    this.data = NullCheck.notNull(in_data, "Data");
+    this.range = NullCheck.notNull(in_range, "Range");
+  }
+
+  /**
+   * Create an update that replaces the first {@code data.capacity()} bytes of
+   * {@code buffer} with the contents of {@code data}. The update holds a
+   * rewound duplicate of {@code data}, so the position and limit of the
+   * original buffer are not affected.
+   *
+   * @param buffer The updated buffer
+   * @param data   The data
+   * @param <T>    The type of updated buffer
+   *
+   * @return An update
+   */
+
+  static <T extends JCGLBufferWritableType> SMFBufferUpdate<T> replacingAll(
+    final T buffer,
+    final ByteBuffer data)
+  {
+    final ByteBuffer d = data.duplicate();
+    d.rewind();
+    return new SMFBufferUpdate<>(
+      buffer, d, new RangeInclusiveL(0L, (long) d.capacity() - 1L));
+  }
+
+  /**
+   * Create an update that replaces the bytes of {@code buffer} starting at
+   * {@code offset} with the remaining bytes of {@code data}. The update holds
+   * a duplicate of {@code data}, so the position and limit of the original
+   * buffer are not affected.
+   *
+   * @param buffer The updated buffer
+   * @param data   The data
+   * @param offset The offset in bytes of the first replaced byte
+   * @param <T>    The type of updated buffer
+   *
+   * @return An update
+   */
+
+  static <T extends JCGLBufferWritableType> SMFBufferUpdate<T> replacingRange(
+    final T buffer,
+    final ByteBuffer data,
+    final long offset)
+  {
+    final ByteBuffer d = data.slice();
+    return new SMFBufferUpdate<>(
+      buffer,
+      d,
+      new RangeInclusiveL(offset, offset + (long) d.capacity() - 1L));
+  }
+
+  @Override
+  public T getBuffer()
+  {
+    return this.buffer;
+  }
+
+  @Override
+  public ByteBuffer getData()
+  {
+    return this.data;
+  }
+
+  @Override
+  public RangeInclusiveL getDataUpdateRange()
+  {
+    return this.range;
+  }
+}
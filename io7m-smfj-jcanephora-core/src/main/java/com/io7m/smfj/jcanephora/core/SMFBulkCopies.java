@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Functions to copy blocks of packed attribute elements into array buffer
+ * staging memory.
+ */
+
+final class SMFBulkCopies
+{
+  private SMFBulkCopies()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Determine the number of elements in a block of packed attribute data.
+   *
+   * @param data The data
+   * @param size The size in bytes of an element
+   *
+   * @return The number of elements
+   *
+   * @throws IllegalArgumentException If the size of the data is not a
+   *                                  multiple of the element size
+   */
+
+  static int elementCount(
+    final ByteBuffer data,
+    final int size)
+    throws IllegalArgumentException
+  {
+    final int remaining = data.remaining();
+    if (remaining % size != 0) {
+      throw new IllegalArgumentException(
+        "Size of attribute data " + remaining
+          + " is not a multiple of the element size " + size);
+    }
+    return remaining / size;
+  }
+
+  /**
+   * Copy {@code count} elements, each of {@code size} bytes, from the packed
+   * {@code source} into {@code target}. The first element is written at
+   * {@code offset} and consecutive elements are {@code stride} bytes apart.
+   * Components are converted from the byte order of {@code source} to the
+   * byte order of {@code target} if the two differ. The positions of both
+   * buffers are not modified.
+   *
+   * @param source The packed source elements
+   * @param type   The type of the components
+   * @param count  The number of elements
+   * @param size   The size in bytes of an element
+   * @param target The target buffer
+   * @param offset The offset of the first element in {@code target}
+   * @param stride The distance in bytes between elements in {@code target}
+   */
+
+  static void copy(
+    final ByteBuffer source,
+    final JCGLScalarType type,
+    final int count,
+    final int size,
+    final ByteBuffer target,
+    final int offset,
+    final int stride)
+  {
+    final int component_size = type.getSizeBytes();
+    final ByteBuffer src = source.slice();
+    src.order(source.order());
+    src.limit(Math.multiplyExact(count, size));
+
+    final boolean same_order =
+      component_size == 1 || source.order() == target.order();
+
+    if (same_order && stride == size) {
+      final ByteBuffer dst = target.duplicate();
+      dst.position(offset);
+      dst.put(src);
+      return;
+    }
+
+    if (same_order) {
+      copyStrided(src, count, size, target, offset, stride);
+      return;
+    }
+
+    copySwapped(src, component_size, count, size, target, offset, stride);
+  }
+
+  private static void copyStrided(
+    final ByteBuffer src,
+    final int count,
+    final int size,
+    final ByteBuffer target,
+    final int offset,
+    final int stride)
+  {
+    final ByteBuffer dst = target.duplicate();
+    final byte[] element = new byte[size];
+    int position = offset;
+    for (int index = 0; index < count; index = index + 1) {
+      src.get(element);
+      dst.position(position);
+      dst.put(element);
+      position = position + stride;
+    }
+  }
+
+  private static void copySwapped(
+    final ByteBuffer src,
+    final int component_size,
+    final int count,
+    final int size,
+    final ByteBuffer target,
+    final int offset,
+    final int stride)
+  {
+    int position = offset;
+    for (int index = 0; index < count; index = index + 1) {
+      final int base = index * size;
+      for (int c = 0; c < size; c = c + component_size) {
+        if (component_size == 2) {
+          target.putShort(position + c, src.getShort(base + c));
+        } else {
+          target.putInt(position + c, src.getInt(base + c));
+        }
+      }
+      position = position + stride;
+    }
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFAttribute;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>The type of receivers that can accept the values of an attribute in a
+ * single block.</p>
+ *
+ * <p>Some sources, such as memory-mapped binary SMF files, already hold the
+ * values of an attribute as a packed array. Delivering such values through
+ * the per-value callbacks of
+ * {@link com.io7m.smfj.parser.api.SMFParserEventsDataType} decodes and then
+ * re-encodes every component. A bulk receiver instead copies the block
+ * directly when the encoding of the attribute matches the encoding required
+ * by the receiver. Triangles may similarly be delivered in blocks.</p>
+ */
+
+public interface SMFBulkDataReceiverType
+{
+  /**
+   * <p>Receive the values of {@code attribute} for every vertex of the mesh.
+   * The values are read from {@code data}, between its position and limit,
+   * as a tightly packed sequence of elements, with each element encoded
+   * exactly as declared by the attribute (component type, component count,
+   * and component size) in the byte order of {@code data}. The position of
+   * {@code data} is not modified.</p>
+   *
+   * <p>If the receiver cannot accept the values without converting them, it
+   * returns {@code false} and the caller must instead deliver the attribute
+   * through the ordinary attribute events. Attributes that the receiver is
+   * not interested in are accepted and ignored.</p>
+   *
+   * <p>This method must not be called between the start and end events of
+   * another attribute.</p>
+   *
+   * @param attribute The attribute
+   * @param data      The packed attribute values
+   *
+   * @return {@code true} iff the values were accepted
+   *
+   * @throws IllegalArgumentException If the size of {@code data} is not a
+   *                                  multiple of the element size of the
+   *                                  attribute
+   */
+
+  boolean onDataAttributeBulk(
+    SMFAttribute attribute,
+    ByteBuffer data)
+    throws IllegalArgumentException;
+
+  /**
+   * <p>Receive {@code count} triangles at once. Each triangle occupies three
+   * consecutive elements of {@code indices}, starting at {@code offset}.</p>
+   *
+   * <p>This method may be called any number of times between the start and
+   * end events for triangles, interleaved with ordinary triangle events.</p>
+   *
+   * @param indices The vertex indices
+   * @param offset  The index of the first element
+   * @param count   The number of triangles
+   */
+
+  void onDataTrianglesBulk(
+    long[] indices,
+    int offset,
+    int count);
+
+  /**
+   * <p>Receive {@code count} triangles at once. Each triangle occupies three
+   * consecutive elements of {@code indices}, starting at {@code offset}. The
+   * elements are interpreted as unsigned values.</p>
+   *
+   * <p>This method may be called any number of times between the start and
+   * end events for triangles, interleaved with ordinary triangle events.</p>
+   *
+   * @param indices The vertex indices
+   * @param offset  The index of the first element
+   * @param count   The number of triangles
+   */
+
+  void onDataTrianglesBulk(
+    int[] indices,
+    int offset,
+    int count);
+}
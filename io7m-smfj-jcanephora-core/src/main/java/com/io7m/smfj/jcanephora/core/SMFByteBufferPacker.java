@@ -25,15 +25,20 @@ import com.io7m.jnull.NullCheck;
 import com.io7m.junreachable.UnreachableCodeException;
 import com.io7m.smfj.core.SMFAttribute;
 import com.io7m.smfj.parser.api.SMFParseError;
-import com.io7m.smfj.parser.api.SMFParserEventsDataType;
 
 import java.nio.ByteBuffer;
 
 /**
- * An event listener that packs data into a given {@link ByteBuffer}.
+ * <p>An event listener that packs data into a given {@link ByteBuffer}.</p>
+ *
+ * <p>This packer accepts values of any component type and count, selecting
+ * the encoding on every value. It is used by the loaders for directly
+ * encoded attributes. The packers returned by
+ * {@link SMFByteBufferPackers#createPacker(ByteBuffer, JCGLScalarType, int,
+ * int, int)} are specialized for a single type and count.</p>
  */
 
-public final class SMFByteBufferPacker implements SMFParserEventsDataType
+public final class SMFByteBufferPacker implements SMFByteBufferPackerType
 {
   private final int stride;
   private final ByteBuffer buffer;
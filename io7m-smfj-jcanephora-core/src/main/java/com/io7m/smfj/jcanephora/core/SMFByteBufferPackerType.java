@@ -0,0 +1,180 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsDataType;
+
+/**
+ * <p>The type of packers that write attribute values into byte buffers.</p>
+ *
+ * <p>A packer is created for a single attribute of a known type and
+ * component count, and therefore only accepts the one value callback that
+ * matches that attribute. All other callbacks raise
+ * {@link UnreachableCodeException}.</p>
+ *
+ * @see SMFByteBufferPackers
+ */
+
+public interface SMFByteBufferPackerType extends SMFParserEventsDataType
+{
+  @Override
+  default void onDataAttributeStart(
+    final SMFAttribute attribute)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerSigned1(
+    final long x)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerSigned2(
+    final long x,
+    final long y)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerSigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerSigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerUnsigned1(
+    final long x)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerUnsigned2(
+    final long x,
+    final long y)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerUnsigned3(
+    final long x,
+    final long y,
+    final long z)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueIntegerUnsigned4(
+    final long x,
+    final long y,
+    final long z,
+    final long w)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueFloat1(
+    final double x)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueFloat2(
+    final double x,
+    final double y)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueFloat3(
+    final double x,
+    final double y,
+    final double z)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeValueFloat4(
+    final double x,
+    final double y,
+    final double z,
+    final double w)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataAttributeFinish(
+    final SMFAttribute attribute)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataTrianglesStart()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataTriangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onDataTrianglesFinish()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  @Override
+  default void onError(
+    final SMFParseError e)
+  {
+    throw new UnreachableCodeException();
+  }
+}
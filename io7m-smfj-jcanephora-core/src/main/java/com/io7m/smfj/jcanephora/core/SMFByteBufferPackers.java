@@ -0,0 +1,185 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * <p>Functions to create packers specialized for a single component type and
+ * component count.</p>
+ *
+ * <p>The component type and count of an attribute are known when the
+ * attribute begins, so the choice of packer is made once per attribute rather
+ * than once per value. Each returned packer performs a fixed sequence of
+ * stores for every value. See {@code SMFByteBufferPackerBenchmark} and
+ * {@code SMFByteBufferPackerMixedBenchmark} for comparisons with the generic
+ * {@link SMFByteBufferPacker} at monomorphic and megamorphic call
+ * sites.</p>
+ */
+
+public final class SMFByteBufferPackers
+{
+  private SMFByteBufferPackers()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a packer.
+   *
+   * @param buffer          The byte buffer
+   * @param type            The type of packed components
+   * @param component_count The number of components in each element, in the
+   *                        range {@code [1, 4]}
+   * @param offset          The initial offset
+   * @param stride          The distance in bytes between consecutive elements
+   *
+   * @return A new packer
+   *
+   * @throws IllegalArgumentException If the component count is out of range
+   */
+
+  public static SMFByteBufferPackerType createPacker(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+    throws IllegalArgumentException
+  {
+    NullCheck.notNull(buffer, "Buffer");
+    NullCheck.notNull(type, "Type");
+
+    if (component_count < 1 || component_count > 4) {
+      throw new IllegalArgumentException(
+        "Component count must be in the range [1, 4]");
+    }
+
+    switch (type) {
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT:
+        return SMFByteBufferPackersSigned.create(
+          buffer, type, component_count, offset, stride);
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT:
+        return SMFByteBufferPackersUnsigned.create(
+          buffer, type, component_count, offset, stride);
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        return SMFByteBufferPackersFloating.create(
+          buffer, type, component_count, offset, stride);
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a packer that quantizes floating point values to normalized
+   * integers.
+   *
+   * @param buffer          The byte buffer
+   * @param type            The type of packed components, which must be an
+   *                        integer type
+   * @param component_count The number of components in each element, in the
+   *                        range {@code [1, 4]}
+   * @param offset          The initial offset
+   * @param stride          The distance in bytes between consecutive elements
+   *
+   * @return A new packer
+   *
+   * @throws IllegalArgumentException If the component count is out of range,
+   *                                  or the type is not an integer type
+   * @see SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_NORMALIZED
+   */
+
+  public static SMFByteBufferPackerType createNormalizedPacker(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+    throws IllegalArgumentException
+  {
+    NullCheck.notNull(buffer, "Buffer");
+    NullCheck.notNull(type, "Type");
+
+    if (component_count < 1 || component_count > 4) {
+      throw new IllegalArgumentException(
+        "Component count must be in the range [1, 4]");
+    }
+
+    return SMFByteBufferPackersNormalized.create(
+      buffer, type, component_count, offset, stride);
+  }
+
+  /**
+   * Create a packer for the given attribute, according to its encoding.
+   * Attributes encoded as QTangents depend on a second attribute, and so
+   * cannot be packed by a packer returned by this method. Directly encoded
+   * attributes are packed by the generic {@link SMFByteBufferPacker}, as
+   * loaders deliver every attribute through a single call site, and the
+   * specialized packers have not been shown to be faster there.
+   *
+   * @param buffer    The byte buffer
+   * @param attribute The attribute layout
+   * @param offset    The initial offset
+   * @param stride    The distance in bytes between consecutive elements
+   *
+   * @return A new packer
+   *
+   * @throws IllegalArgumentException If the attribute is encoded as QTangents
+   *                                  or is range-normalized
+   */
+
+  static SMFByteBufferPackerType createPackerFor(
+    final ByteBuffer buffer,
+    final SMFArrayAttributeLayout attribute,
+    final int offset,
+    final int stride)
+  {
+    switch (attribute.encoding()) {
+      case ATTRIBUTE_ENCODING_DIRECT:
+        return new SMFByteBufferPacker(
+          buffer, attribute.componentType(), offset, stride);
+      case ATTRIBUTE_ENCODING_NORMALIZED:
+        return createNormalizedPacker(
+          buffer,
+          attribute.componentType(),
+          attribute.componentCount(),
+          offset,
+          stride);
+      case ATTRIBUTE_ENCODING_OCTAHEDRAL:
+        return SMFByteBufferPackersFrames.createOctahedral(
+          buffer, attribute.componentType(), offset, stride);
+      case ATTRIBUTE_ENCODING_QTANGENT:
+        throw new IllegalArgumentException(
+          "QTangent attributes cannot be packed in isolation");
+      case ATTRIBUTE_ENCODING_RANGE_NORMALIZED:
+        throw new IllegalArgumentException(
+          "Range-normalized attributes cannot be packed before their range "
+            + "is known");
+    }
+
+    throw new UnreachableCodeException();
+  }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.ieee754b16.Binary16;
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packers specialized for each floating point component type and component
+ * count.
+ */
+
+final class SMFByteBufferPackersFloating
+{
+  private SMFByteBufferPackersFloating()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  static SMFByteBufferPackerType create(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+  {
+    switch (type) {
+      case TYPE_HALF_FLOAT: {
+        switch (component_count) {
+          case 1:
+            return new Half1(buffer, offset, stride);
+          case 2:
+            return new Half2(buffer, offset, stride);
+          case 3:
+            return new Half3(buffer, offset, stride);
+          case 4:
+            return new Half4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_FLOAT: {
+        switch (component_count) {
+          case 1:
+            return new Float1(buffer, offset, stride);
+          case 2:
+            return new Float2(buffer, offset, stride);
+          case 3:
+            return new Float3(buffer, offset, stride);
+          case 4:
+            return new Float4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT:
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT:
+        break;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static final class Half1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Half1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, Binary16.packDouble(x));
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Half2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Half2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, Binary16.packDouble(x));
+      this.buffer.putChar(i + 2, Binary16.packDouble(y));
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Half3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Half3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, Binary16.packDouble(x));
+      this.buffer.putChar(i + 2, Binary16.packDouble(y));
+      this.buffer.putChar(i + 4, Binary16.packDouble(z));
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Half4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Half4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, Binary16.packDouble(x));
+      this.buffer.putChar(i + 2, Binary16.packDouble(y));
+      this.buffer.putChar(i + 4, Binary16.packDouble(z));
+      this.buffer.putChar(i + 6, Binary16.packDouble(w));
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Float1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Float1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      final int i = this.index;
+      this.buffer.putFloat(i, (float) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Float2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Float2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      final int i = this.index;
+      this.buffer.putFloat(i, (float) x);
+      this.buffer.putFloat(i + 4, (float) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Float3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Float3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final int i = this.index;
+      this.buffer.putFloat(i, (float) x);
+      this.buffer.putFloat(i + 4, (float) y);
+      this.buffer.putFloat(i + 8, (float) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Float4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Float4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      final int i = this.index;
+      this.buffer.putFloat(i, (float) x);
+      this.buffer.putFloat(i + 4, (float) y);
+      this.buffer.putFloat(i + 8, (float) z);
+      this.buffer.putFloat(i + 12, (float) w);
+      this.index = i + this.stride;
+    }
+  }
+}
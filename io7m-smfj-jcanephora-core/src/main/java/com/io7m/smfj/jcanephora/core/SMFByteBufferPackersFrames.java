@@ -0,0 +1,303 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packers that encode normals and tangent frames.
+ *
+ * @see SMFFrameEncodings
+ */
+
+final class SMFByteBufferPackersFrames
+{
+  private SMFByteBufferPackersFrames()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param buffer The byte buffer
+   * @param type   The type of packed components
+   * @param offset The initial offset
+   * @param stride The distance in bytes between consecutive elements
+   *
+   * @return A packer that encodes unit vectors as octahedral snorm pairs
+   */
+
+  static SMFByteBufferPackerType createOctahedral(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int offset,
+    final int stride)
+  {
+    final SMFByteBufferPackersNormalized.Quantizer q =
+      SMFByteBufferPackersNormalized.quantizerFor(type);
+    return new Octahedral(buffer, q, offset, stride);
+  }
+
+  /**
+   * @param target The array that will receive values
+   * @param width  The number of array elements reserved for each element,
+   *               in the range {@code [1, 4]}; excess components are
+   *               discarded
+   *
+   * @return A packer that records floating point elements in an array
+   */
+
+  static SMFByteBufferPackerType createCapture(
+    final double[] target,
+    final int width)
+  {
+    return new Capture(target, width);
+  }
+
+  /**
+   * @param first  The first packer
+   * @param second The second packer
+   *
+   * @return A packer that passes floating point elements to both packers
+   */
+
+  static SMFByteBufferPackerType createTee(
+    final SMFByteBufferPackerType first,
+    final SMFByteBufferPackerType second)
+  {
+    return new Tee(first, second);
+  }
+
+  /**
+   * Encode and store QTangents.
+   *
+   * @param buffer    The byte buffer
+   * @param attribute The layout of the QTangent attribute
+   * @param normals   The normals, three elements per vertex
+   * @param tangents  The tangents and bitangent signs, four elements per
+   *                  vertex
+   * @param count     The number of vertices
+   */
+
+  static void storeQTangents(
+    final ByteBuffer buffer,
+    final SMFArrayAttributeLayout attribute,
+    final double[] normals,
+    final double[] tangents,
+    final int count)
+  {
+    final SMFByteBufferPackersNormalized.Quantizer q =
+      SMFByteBufferPackersNormalized.quantizerFor(attribute.componentType());
+    final int size = q.size();
+    final double bias = attribute.componentType() == JCGLScalarType.TYPE_BYTE
+      ? 1.0 / 127.0 : 1.0 / 32767.0;
+
+    final double[] out = new double[4];
+    int index = Math.toIntExact(attribute.offset());
+    for (int v = 0; v < count; v = v + 1) {
+      final int n = v * 3;
+      final int t = v * 4;
+      SMFFrameEncodings.qTangent(
+        normals[n],
+        normals[n + 1],
+        normals[n + 2],
+        tangents[t],
+        tangents[t + 1],
+        tangents[t + 2],
+        tangents[t + 3],
+        bias,
+        out);
+
+      q.store(buffer, index, out[0]);
+      q.store(buffer, index + size, out[1]);
+      q.store(buffer, index + size + size, out[2]);
+      q.store(buffer, index + size + size + size, out[3]);
+      index = index + attribute.stride();
+    }
+  }
+
+  private static final class Octahedral implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final SMFByteBufferPackersNormalized.Quantizer quantizer;
+    private final int size;
+    private final int stride;
+    private final double[] out;
+    private int index;
+
+    Octahedral(
+      final ByteBuffer in_buffer,
+      final SMFByteBufferPackersNormalized.Quantizer in_quantizer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.quantizer = in_quantizer;
+      this.size = in_quantizer.size();
+      this.index = in_offset;
+      this.stride = in_stride;
+      this.out = new double[2];
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final int i = this.index;
+      SMFFrameEncodings.octahedral(x, y, z, this.out);
+      this.quantizer.store(this.buffer, i, this.out[0]);
+      this.quantizer.store(this.buffer, i + this.size, this.out[1]);
+      this.index = i + this.stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.onDataAttributeValueFloat3(x, y, z);
+    }
+  }
+
+  private static final class Capture implements SMFByteBufferPackerType
+  {
+    private final double[] target;
+    private final int width;
+    private int index;
+
+    Capture(
+      final double[] in_target,
+      final int in_width)
+    {
+      this.target = in_target;
+      this.width = in_width;
+    }
+
+    private void put(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      final int i = this.index;
+      final int n = this.width;
+      this.target[i] = x;
+      if (n > 1) {
+        this.target[i + 1] = y;
+      }
+      if (n > 2) {
+        this.target[i + 2] = z;
+      }
+      if (n > 3) {
+        this.target[i + 3] = w;
+      }
+      this.index = i + n;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      this.put(x, 0.0, 0.0, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      this.put(x, y, 0.0, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      this.put(x, y, z, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.put(x, y, z, w);
+    }
+  }
+
+  private static final class Tee implements SMFByteBufferPackerType
+  {
+    private final SMFByteBufferPackerType first;
+    private final SMFByteBufferPackerType second;
+
+    Tee(
+      final SMFByteBufferPackerType in_first,
+      final SMFByteBufferPackerType in_second)
+    {
+      this.first = in_first;
+      this.second = in_second;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      this.first.onDataAttributeValueFloat1(x);
+      this.second.onDataAttributeValueFloat1(x);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      this.first.onDataAttributeValueFloat2(x, y);
+      this.second.onDataAttributeValueFloat2(x, y);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      this.first.onDataAttributeValueFloat3(x, y, z);
+      this.second.onDataAttributeValueFloat3(x, y, z);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.first.onDataAttributeValueFloat4(x, y, z, w);
+      this.second.onDataAttributeValueFloat4(x, y, z, w);
+    }
+  }
+}
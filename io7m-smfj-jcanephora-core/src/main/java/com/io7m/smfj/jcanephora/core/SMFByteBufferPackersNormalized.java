@@ -0,0 +1,400 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packers that quantize floating point values to normalized integers.
+ *
+ * @see SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_NORMALIZED
+ */
+
+final class SMFByteBufferPackersNormalized
+{
+  private SMFByteBufferPackersNormalized()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  static SMFByteBufferPackerType create(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+  {
+    final Quantizer q = quantizerFor(type);
+    switch (component_count) {
+      case 1:
+        return new Normalized1(buffer, q, offset, stride);
+      case 2:
+        return new Normalized2(buffer, q, offset, stride);
+      case 3:
+        return new Normalized3(buffer, q, offset, stride);
+      case 4:
+        return new Normalized4(buffer, q, offset, stride);
+      default:
+        throw new UnreachableCodeException();
+    }
+  }
+
+  /**
+   * @param type An integer component type
+   *
+   * @return A quantizer for the given type
+   *
+   * @throws IllegalArgumentException If the type is not an integer type
+   */
+
+  static Quantizer quantizerFor(
+    final JCGLScalarType type)
+    throws IllegalArgumentException
+  {
+    switch (type) {
+      case TYPE_BYTE:
+        return new Snorm8();
+      case TYPE_SHORT:
+        return new Snorm16();
+      case TYPE_INT:
+        return new Snorm32();
+      case TYPE_UNSIGNED_BYTE:
+        return new Unorm8();
+      case TYPE_UNSIGNED_SHORT:
+        return new Unorm16();
+      case TYPE_UNSIGNED_INT:
+        return new Unorm32();
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        break;
+    }
+
+    throw new IllegalArgumentException(
+      "Normalized values must be packed as integers (received " + type + ")");
+  }
+
+  /**
+   * @param x   A value
+   * @param max The largest value of the target signed type
+   *
+   * @return {@code x} clamped to {@code [-1, 1]} and scaled to
+   * {@code [-max, max]}
+   */
+
+  static long snorm(
+    final double x,
+    final double max)
+  {
+    final double c = Math.max(-1.0, Math.min(1.0, x));
+    return Math.round(c * max);
+  }
+
+  /**
+   * @param x   A value
+   * @param max The largest value of the target unsigned type
+   *
+   * @return {@code x} clamped to {@code [0, 1]} and scaled to
+   * {@code [0, max]}
+   */
+
+  static long unorm(
+    final double x,
+    final double max)
+  {
+    final double c = Math.max(0.0, Math.min(1.0, x));
+    return Math.round(c * max);
+  }
+
+  /**
+   * A function that quantizes and stores a single component.
+   */
+
+  abstract static class Quantizer
+  {
+    private final int size;
+
+    Quantizer(
+      final int in_size)
+    {
+      this.size = in_size;
+    }
+
+    /**
+     * @return The size in bytes of a stored component
+     */
+
+    final int size()
+    {
+      return this.size;
+    }
+
+    /**
+     * Quantize and store {@code x} at {@code p}.
+     *
+     * @param b The target buffer
+     * @param p The absolute target position
+     * @param x The value
+     */
+
+    abstract void store(
+      ByteBuffer b,
+      int p,
+      double x);
+  }
+
+  private static final class Snorm8 extends Quantizer
+  {
+    Snorm8()
+    {
+      super(1);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.put(p, (byte) snorm(x, 127.0));
+    }
+  }
+
+  private static final class Snorm16 extends Quantizer
+  {
+    Snorm16()
+    {
+      super(2);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.putShort(p, (short) snorm(x, 32767.0));
+    }
+  }
+
+  private static final class Snorm32 extends Quantizer
+  {
+    Snorm32()
+    {
+      super(4);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.putInt(p, (int) snorm(x, 2147483647.0));
+    }
+  }
+
+  private static final class Unorm8 extends Quantizer
+  {
+    Unorm8()
+    {
+      super(1);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.put(p, (byte) unorm(x, 255.0));
+    }
+  }
+
+  private static final class Unorm16 extends Quantizer
+  {
+    Unorm16()
+    {
+      super(2);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.putChar(p, (char) unorm(x, 65535.0));
+    }
+  }
+
+  private static final class Unorm32 extends Quantizer
+  {
+    Unorm32()
+    {
+      super(4);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final double x)
+    {
+      b.putInt(p, (int) unorm(x, 4294967295.0));
+    }
+  }
+
+  private static final class Normalized1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final Quantizer quantizer;
+    private final int stride;
+    private int index;
+
+    Normalized1(
+      final ByteBuffer in_buffer,
+      final Quantizer in_quantizer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.quantizer = in_quantizer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      final int i = this.index;
+      this.quantizer.store(this.buffer, i, x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Normalized2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final Quantizer quantizer;
+    private final int size;
+    private final int stride;
+    private int index;
+
+    Normalized2(
+      final ByteBuffer in_buffer,
+      final Quantizer in_quantizer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.quantizer = in_quantizer;
+      this.size = in_quantizer.size();
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      final int i = this.index;
+      final int s = this.size;
+      this.quantizer.store(this.buffer, i, x);
+      this.quantizer.store(this.buffer, i + s, y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Normalized3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final Quantizer quantizer;
+    private final int size;
+    private final int stride;
+    private int index;
+
+    Normalized3(
+      final ByteBuffer in_buffer,
+      final Quantizer in_quantizer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.quantizer = in_quantizer;
+      this.size = in_quantizer.size();
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      final int i = this.index;
+      final int s = this.size;
+      this.quantizer.store(this.buffer, i, x);
+      this.quantizer.store(this.buffer, i + s, y);
+      this.quantizer.store(this.buffer, i + s + s, z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Normalized4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final Quantizer quantizer;
+    private final int size;
+    private final int stride;
+    private int index;
+
+    Normalized4(
+      final ByteBuffer in_buffer,
+      final Quantizer in_quantizer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.quantizer = in_quantizer;
+      this.size = in_quantizer.size();
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      final int i = this.index;
+      final int s = this.size;
+      this.quantizer.store(this.buffer, i, x);
+      this.quantizer.store(this.buffer, i + s, y);
+      this.quantizer.store(this.buffer, i + s + s, z);
+      this.quantizer.store(this.buffer, i + s + s + s, w);
+      this.index = i + this.stride;
+    }
+  }
+}
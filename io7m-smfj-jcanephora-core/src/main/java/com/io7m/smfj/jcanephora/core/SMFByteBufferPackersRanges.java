@@ -0,0 +1,270 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.ieee754b16.Binary16;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFComponentType;
+import javaslang.collection.List;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Functions to pack attributes relative to their per-mesh ranges.
+ *
+ * @see SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED
+ */
+
+final class SMFByteBufferPackersRanges
+{
+  private SMFByteBufferPackersRanges()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param target The array that will receive values
+   * @param width  The number of array elements reserved for each element,
+   *               in the range {@code [1, 4]}; excess components are
+   *               discarded
+   *
+   * @return A packer that records floating point elements in an array
+   */
+
+  static SMFByteBufferPackerType createCapture(
+    final float[] target,
+    final int width)
+  {
+    return new Capture(target, width);
+  }
+
+  /**
+   * Quantize and store captured values relative to their range.
+   *
+   * @param buffer    The byte buffer
+   * @param attribute The layout of the attribute
+   * @param values    The captured values, {@code
+   *                  attribute.componentCount()} elements per vertex
+   * @param count     The number of vertices
+   *
+   * @return The values required to dequantize the attribute
+   */
+
+  static SMFAttributeDequantization store(
+    final ByteBuffer buffer,
+    final SMFArrayAttributeLayout attribute,
+    final float[] values,
+    final int count)
+  {
+    final int width = attribute.componentCount();
+    return storeFrom(
+      buffer, attribute, count, (v, c) -> (double) values[v * width + c]);
+  }
+
+  /**
+   * Quantize and store packed floating point values relative to their
+   * range. The values are read twice: once to determine the range, and once
+   * to quantize them.
+   *
+   * @param buffer    The byte buffer
+   * @param attribute The layout of the attribute
+   * @param source    The received attribute
+   * @param data      The packed attribute values, in the byte order of
+   *                  {@code data}
+   *
+   * @return The values required to dequantize the attribute
+   *
+   * @throws IllegalArgumentException If the received attribute is not of a
+   *                                  floating point type
+   */
+
+  static SMFAttributeDequantization storeBulk(
+    final ByteBuffer buffer,
+    final SMFArrayAttributeLayout attribute,
+    final SMFAttribute source,
+    final ByteBuffer data)
+    throws IllegalArgumentException
+  {
+    if (source.componentType() != SMFComponentType.ELEMENT_TYPE_FLOATING) {
+      throw new IllegalArgumentException(
+        "Range normalization requires floating point values");
+    }
+
+    final int bits = source.componentSizeBits();
+    final int component_size = bits / 8;
+    final int size = Math.multiplyExact(
+      component_size, source.componentCount());
+    final int count = SMFBulkCopies.elementCount(data, size);
+    final int base = data.position();
+
+    final ComponentSourceType reader;
+    switch (bits) {
+      case 16: {
+        reader = (v, c) -> Binary16.unpackDouble(
+          data.getChar(base + v * size + c * component_size));
+        break;
+      }
+      case 32: {
+        reader = (v, c) -> (double) data.getFloat(
+          base + v * size + c * component_size);
+        break;
+      }
+      case 64: {
+        reader = (v, c) -> data.getDouble(
+          base + v * size + c * component_size);
+        break;
+      }
+      default: {
+        throw new IllegalArgumentException(
+          "Unsupported component size: " + bits);
+      }
+    }
+
+    return storeFrom(buffer, attribute, count, reader);
+  }
+
+  private static SMFAttributeDequantization storeFrom(
+    final ByteBuffer buffer,
+    final SMFArrayAttributeLayout attribute,
+    final int count,
+    final ComponentSourceType values)
+  {
+    final int width = attribute.componentCount();
+    final double[] minimum = new double[width];
+    final double[] maximum = new double[width];
+    for (int c = 0; c < width; c = c + 1) {
+      minimum[c] = Double.POSITIVE_INFINITY;
+      maximum[c] = Double.NEGATIVE_INFINITY;
+    }
+
+    for (int v = 0; v < count; v = v + 1) {
+      for (int c = 0; c < width; c = c + 1) {
+        final double x = values.get(v, c);
+        minimum[c] = Math.min(minimum[c], x);
+        maximum[c] = Math.max(maximum[c], x);
+      }
+    }
+
+    final double[] inverse = new double[width];
+    List<Double> offsets = List.empty();
+    List<Double> scales = List.empty();
+    for (int c = 0; c < width; c = c + 1) {
+      if (count == 0) {
+        minimum[c] = 0.0;
+        maximum[c] = 0.0;
+      }
+      final double extent = maximum[c] - minimum[c];
+      inverse[c] = extent > 0.0 ? 1.0 / extent : 0.0;
+      offsets = offsets.append(Double.valueOf(minimum[c]));
+      scales = scales.append(Double.valueOf(extent));
+    }
+
+    final SMFByteBufferPackersNormalized.Quantizer q =
+      SMFByteBufferPackersNormalized.quantizerFor(attribute.componentType());
+    final int size = q.size();
+
+    int index = Math.toIntExact(attribute.offset());
+    for (int v = 0; v < count; v = v + 1) {
+      for (int c = 0; c < width; c = c + 1) {
+        final double x = values.get(v, c);
+        q.store(buffer, index + c * size, (x - minimum[c]) * inverse[c]);
+      }
+      index = index + attribute.stride();
+    }
+
+    return SMFAttributeDequantization.of(attribute.name(), offsets, scales);
+  }
+
+  private interface ComponentSourceType
+  {
+    double get(
+      int vertex,
+      int component);
+  }
+
+  private static final class Capture implements SMFByteBufferPackerType
+  {
+    private final float[] target;
+    private final int width;
+    private int index;
+
+    Capture(
+      final float[] in_target,
+      final int in_width)
+    {
+      this.target = in_target;
+      this.width = in_width;
+    }
+
+    private void put(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      final int i = this.index;
+      final int n = this.width;
+      this.target[i] = (float) x;
+      if (n > 1) {
+        this.target[i + 1] = (float) y;
+      }
+      if (n > 2) {
+        this.target[i + 2] = (float) z;
+      }
+      if (n > 3) {
+        this.target[i + 3] = (float) w;
+      }
+      this.index = i + n;
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      this.put(x, 0.0, 0.0, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      this.put(x, y, 0.0, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      this.put(x, y, z, 1.0);
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      this.put(x, y, z, w);
+    }
+  }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packers specialized for each signed integer component type and component
+ * count.
+ */
+
+final class SMFByteBufferPackersSigned
+{
+  private SMFByteBufferPackersSigned()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  static SMFByteBufferPackerType create(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+  {
+    switch (type) {
+      case TYPE_BYTE: {
+        switch (component_count) {
+          case 1:
+            return new Byte1(buffer, offset, stride);
+          case 2:
+            return new Byte2(buffer, offset, stride);
+          case 3:
+            return new Byte3(buffer, offset, stride);
+          case 4:
+            return new Byte4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_SHORT: {
+        switch (component_count) {
+          case 1:
+            return new Short1(buffer, offset, stride);
+          case 2:
+            return new Short2(buffer, offset, stride);
+          case 3:
+            return new Short3(buffer, offset, stride);
+          case 4:
+            return new Short4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_INT: {
+        switch (component_count) {
+          case 1:
+            return new Int1(buffer, offset, stride);
+          case 2:
+            return new Int2(buffer, offset, stride);
+          case 3:
+            return new Int3(buffer, offset, stride);
+          case 4:
+            return new Int4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT:
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        break;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static final class Byte1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Byte1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Byte2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Byte2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Byte3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Byte3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.buffer.put(i + 2, (byte) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Byte4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Byte4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.buffer.put(i + 2, (byte) z);
+      this.buffer.put(i + 3, (byte) w);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Short1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Short1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.putShort(i, (short) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Short2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Short2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.putShort(i, (short) x);
+      this.buffer.putShort(i + 2, (short) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Short3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Short3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.putShort(i, (short) x);
+      this.buffer.putShort(i + 2, (short) y);
+      this.buffer.putShort(i + 4, (short) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Short4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Short4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.putShort(i, (short) x);
+      this.buffer.putShort(i + 2, (short) y);
+      this.buffer.putShort(i + 4, (short) z);
+      this.buffer.putShort(i + 6, (short) w);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Int1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Int1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Int2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Int2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Int3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Int3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.buffer.putInt(i + 8, (int) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class Int4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    Int4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.buffer.putInt(i + 8, (int) z);
+      this.buffer.putInt(i + 12, (int) w);
+      this.index = i + this.stride;
+    }
+  }
+}
@@ -0,0 +1,444 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Packers specialized for each unsigned integer component type and component
+ * count.
+ */
+
+final class SMFByteBufferPackersUnsigned
+{
+  private SMFByteBufferPackersUnsigned()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  static SMFByteBufferPackerType create(
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int offset,
+    final int stride)
+  {
+    switch (type) {
+      case TYPE_UNSIGNED_BYTE: {
+        switch (component_count) {
+          case 1:
+            return new UnsignedByte1(buffer, offset, stride);
+          case 2:
+            return new UnsignedByte2(buffer, offset, stride);
+          case 3:
+            return new UnsignedByte3(buffer, offset, stride);
+          case 4:
+            return new UnsignedByte4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_UNSIGNED_SHORT: {
+        switch (component_count) {
+          case 1:
+            return new UnsignedShort1(buffer, offset, stride);
+          case 2:
+            return new UnsignedShort2(buffer, offset, stride);
+          case 3:
+            return new UnsignedShort3(buffer, offset, stride);
+          case 4:
+            return new UnsignedShort4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_UNSIGNED_INT: {
+        switch (component_count) {
+          case 1:
+            return new UnsignedInt1(buffer, offset, stride);
+          case 2:
+            return new UnsignedInt2(buffer, offset, stride);
+          case 3:
+            return new UnsignedInt3(buffer, offset, stride);
+          case 4:
+            return new UnsignedInt4(buffer, offset, stride);
+          default:
+            throw new UnreachableCodeException();
+        }
+      }
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT:
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT:
+        break;
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static final class UnsignedByte1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedByte1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedByte2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedByte2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedByte3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedByte3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.buffer.put(i + 2, (byte) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedByte4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedByte4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.put(i, (byte) x);
+      this.buffer.put(i + 1, (byte) y);
+      this.buffer.put(i + 2, (byte) z);
+      this.buffer.put(i + 3, (byte) w);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedShort1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedShort1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, (char) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedShort2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedShort2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, (char) x);
+      this.buffer.putChar(i + 2, (char) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedShort3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedShort3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, (char) x);
+      this.buffer.putChar(i + 2, (char) y);
+      this.buffer.putChar(i + 4, (char) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedShort4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedShort4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.putChar(i, (char) x);
+      this.buffer.putChar(i + 2, (char) y);
+      this.buffer.putChar(i + 4, (char) z);
+      this.buffer.putChar(i + 6, (char) w);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedInt1 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedInt1(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedInt2 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedInt2(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedInt3 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedInt3(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.buffer.putInt(i + 8, (int) z);
+      this.index = i + this.stride;
+    }
+  }
+
+  private static final class UnsignedInt4 implements SMFByteBufferPackerType
+  {
+    private final ByteBuffer buffer;
+    private final int stride;
+    private int index;
+
+    UnsignedInt4(
+      final ByteBuffer in_buffer,
+      final int in_offset,
+      final int in_stride)
+    {
+      this.buffer = in_buffer;
+      this.index = in_offset;
+      this.stride = in_stride;
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      final int i = this.index;
+      this.buffer.putInt(i, (int) x);
+      this.buffer.putInt(i + 4, (int) y);
+      this.buffer.putInt(i + 8, (int) z);
+      this.buffer.putInt(i + 12, (int) w);
+      this.index = i + this.stride;
+    }
+  }
+}
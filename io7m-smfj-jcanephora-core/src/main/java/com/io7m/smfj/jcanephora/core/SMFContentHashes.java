@@ -0,0 +1,115 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * <p>Functions to compute fast, non-cryptographic hashes of packed data.</p>
+ *
+ * <p>The hash consumes eight bytes at a time using the mixing steps of
+ * MurmurHash3. It is suitable for detecting identical buffers, but must not
+ * be relied upon where an adversary controls the data.</p>
+ */
+
+public final class SMFContentHashes
+{
+  private static final long C1 = 0x87c37b91114253d5L;
+  private static final long C2 = 0x4cf5ad432745937fL;
+
+  private SMFContentHashes()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static long mixK(
+    final long k)
+  {
+    return Long.rotateLeft(k * C1, 31) * C2;
+  }
+
+  private static long fmix(
+    final long k)
+  {
+    long x = k;
+    x = x ^ (x >>> 33);
+    x = x * 0xff51afd7ed558ccdL;
+    x = x ^ (x >>> 33);
+    x = x * 0xc4ceb9fe1a85ec53L;
+    x = x ^ (x >>> 33);
+    return x;
+  }
+
+  /**
+   * Hash the remaining bytes of {@code data}. The position, limit, and byte
+   * order of {@code data} are not affected.
+   *
+   * @param data The data
+   *
+   * @return A 64-bit hash of the data
+   */
+
+  public static long hash64(
+    final ByteBuffer data)
+  {
+    return hash64(data, 0L);
+  }
+
+  /**
+   * Hash the remaining bytes of {@code data}, starting from the given seed.
+   * Hashes of the same data computed with different seeds are effectively
+   * independent, and so two seeds may be combined to obtain a wider
+   * fingerprint. The position, limit, and byte order of {@code data} are not
+   * affected.
+   *
+   * @param data The data
+   * @param seed The seed
+   *
+   * @return A 64-bit hash of the data
+   */
+
+  public static long hash64(
+    final ByteBuffer data,
+    final long seed)
+  {
+    NullCheck.notNull(data, "Data");
+
+    final ByteBuffer d = data.duplicate();
+    d.order(ByteOrder.LITTLE_ENDIAN);
+
+    final long length = (long) d.remaining();
+    long h = seed ^ (length * C2);
+    while (d.remaining() >= 8) {
+      h = h ^ mixK(d.getLong());
+      h = Long.rotateLeft(h, 27) * 5L + 0x52dce729L;
+    }
+
+    long tail = 0L;
+    int shift = 0;
+    while (d.hasRemaining()) {
+      tail = tail | ((long) (d.get() & 0xff) << shift);
+      shift = shift + 8;
+    }
+    h = h ^ mixK(tail);
+    return fmix(h ^ length);
+  }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * Policies for handling parse errors during loading.
+ */
+
+public enum SMFErrorPolicy
+{
+  /**
+   * Record every error and continue packing the remaining data, so that all
+   * errors in a mesh are reported in one pass. No GL objects are retained
+   * for a mesh that produced errors, but the work of packing it is still
+   * performed.
+   */
+
+  ERROR_POLICY_CONTINUE,
+
+  /**
+   * Treat loading as a transaction that is aborted by the first error: all
+   * GL buffers allocated so far are released immediately, the remaining
+   * data is ignored, and no array object is ever allocated. Errors reported
+   * by the parser after the first are still recorded, but errors that the
+   * loader itself would have detected in the ignored data, such as
+   * out-of-range triangle indices, are not. Rejecting a corrupt mesh is
+   * therefore cheap, as none of the remaining data is packed or uploaded.
+   */
+
+  ERROR_POLICY_FAIL_FAST
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+/**
+ * Functions to encode normals and tangent frames compactly.
+ */
+
+public final class SMFFrameEncodings
+{
+  private SMFFrameEncodings()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static double signNotZero(
+    final double x)
+  {
+    return x >= 0.0 ? 1.0 : -1.0;
+  }
+
+  /**
+   * <p>Encode a unit vector using the octahedral mapping. The vector is
+   * projected onto the octahedron {@code |x| + |y| + |z| = 1}, and the lower
+   * hemisphere is folded over the upper, yielding two values in the range
+   * {@code [-1, 1]}.</p>
+   *
+   * <p>The encoding is decoded by: {@code n = (x, y, 1 - |x| - |y|)}; if
+   * {@code n.z < 0}, {@code n.xy = (1 - |n.yx|) * sign(n.xy)}; and
+   * {@code n = normalize(n)}.</p>
+   *
+   * @param x   The x component
+   * @param y   The y component
+   * @param z   The z component
+   * @param out An array of at least two elements that will receive the
+   *            encoded values
+   */
+
+  public static void octahedral(
+    final double x,
+    final double y,
+    final double z,
+    final double[] out)
+  {
+    NullCheck.notNull(out, "Output");
+
+    final double length = Math.abs(x) + Math.abs(y) + Math.abs(z);
+    if (length == 0.0) {
+      out[0] = 0.0;
+      out[1] = 0.0;
+      return;
+    }
+
+    final double px = x / length;
+    final double py = y / length;
+    if (z >= 0.0) {
+      out[0] = px;
+      out[1] = py;
+    } else {
+      out[0] = (1.0 - Math.abs(py)) * signNotZero(px);
+      out[1] = (1.0 - Math.abs(px)) * signNotZero(py);
+    }
+  }
+
+  /**
+   * <p>Encode a tangent frame as a single quaternion (a <i>QTangent</i>).</p>
+   *
+   * <p>The tangent is orthogonalized against the normal, and the quaternion
+   * represents the rotation whose matrix has the columns {@code T},
+   * {@code cross(N, T)}, and {@code N}. The quaternion is negated as
+   * necessary so that the sign of its {@code w} component equals the sign of
+   * the bitangent, and {@code |w|} is kept at least {@code bias} so that the
+   * sign survives quantization. The bitangent is decoded as
+   * {@code cross(N, T) * sign(w)}.</p>
+   *
+   * @param nx   The x component of the normal
+   * @param ny   The y component of the normal
+   * @param nz   The z component of the normal
+   * @param tx   The x component of the tangent
+   * @param ty   The y component of the tangent
+   * @param tz   The z component of the tangent
+   * @param sign The sign of the bitangent
+   * @param bias The smallest permitted magnitude of the {@code w} component,
+   *             typically the reciprocal of the largest value of the
+   *             quantized type
+   * @param out  An array of at least four elements that will receive the
+   *             {@code x}, {@code y}, {@code z}, and {@code w} components
+   */
+
+  public static void qTangent(
+    final double nx,
+    final double ny,
+    final double nz,
+    final double tx,
+    final double ty,
+    final double tz,
+    final double sign,
+    final double bias,
+    final double[] out)
+  {
+    NullCheck.notNull(out, "Output");
+
+    final double[] n = {nx, ny, nz};
+    if (!normalize(n)) {
+      n[0] = 0.0;
+      n[1] = 0.0;
+      n[2] = 1.0;
+    }
+
+    final double d = n[0] * tx + n[1] * ty + n[2] * tz;
+    final double[] t = {tx - n[0] * d, ty - n[1] * d, tz - n[2] * d};
+    if (!normalize(t)) {
+      perpendicular(n, t);
+    }
+
+    final double[] b = {
+      n[1] * t[2] - n[2] * t[1],
+      n[2] * t[0] - n[0] * t[2],
+      n[0] * t[1] - n[1] * t[0],
+    };
+
+    quaternion(t, b, n, out);
+
+    if (out[3] < 0.0) {
+      out[0] = -out[0];
+      out[1] = -out[1];
+      out[2] = -out[2];
+      out[3] = -out[3];
+    }
+
+    if (out[3] < bias) {
+      final double xyz = Math.sqrt(
+        out[0] * out[0] + out[1] * out[1] + out[2] * out[2]);
+      final double scale = Math.sqrt(1.0 - bias * bias) / xyz;
+      out[0] = out[0] * scale;
+      out[1] = out[1] * scale;
+      out[2] = out[2] * scale;
+      out[3] = bias;
+    }
+
+    if (sign < 0.0) {
+      out[0] = -out[0];
+      out[1] = -out[1];
+      out[2] = -out[2];
+      out[3] = -out[3];
+    }
+  }
+
+  private static boolean normalize(
+    final double[] v)
+  {
+    final double length = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+    if (length < 1.0e-12) {
+      return false;
+    }
+    v[0] = v[0] / length;
+    v[1] = v[1] / length;
+    v[2] = v[2] / length;
+    return true;
+  }
+
+  private static void perpendicular(
+    final double[] n,
+    final double[] out)
+  {
+    if (Math.abs(n[0]) < 0.9) {
+      out[0] = 0.0;
+      out[1] = n[2];
+      out[2] = -n[1];
+    } else {
+      out[0] = -n[2];
+      out[1] = 0.0;
+      out[2] = n[0];
+    }
+    normalize(out);
+  }
+
+  private static void quaternion(
+    final double[] c0,
+    final double[] c1,
+    final double[] c2,
+    final double[] out)
+  {
+    final double m00 = c0[0];
+    final double m10 = c0[1];
+    final double m20 = c0[2];
+    final double m01 = c1[0];
+    final double m11 = c1[1];
+    final double m21 = c1[2];
+    final double m02 = c2[0];
+    final double m12 = c2[1];
+    final double m22 = c2[2];
+
+    final double trace = m00 + m11 + m22;
+    if (trace > 0.0) {
+      final double s = 0.5 / Math.sqrt(trace + 1.0);
+      out[3] = 0.25 / s;
+      out[0] = (m21 - m12) * s;
+      out[1] = (m02 - m20) * s;
+      out[2] = (m10 - m01) * s;
+    } else if (m00 > m11 && m00 > m22) {
+      final double s = 2.0 * Math.sqrt(1.0 + m00 - m11 - m22);
+      out[3] = (m21 - m12) / s;
+      out[0] = 0.25 * s;
+      out[1] = (m01 + m10) / s;
+      out[2] = (m02 + m20) / s;
+    } else if (m11 > m22) {
+      final double s = 2.0 * Math.sqrt(1.0 + m11 - m00 - m22);
+      out[3] = (m02 - m20) / s;
+      out[0] = (m01 + m10) / s;
+      out[1] = 0.25 * s;
+      out[2] = (m12 + m21) / s;
+    } else {
+      final double s = 2.0 * Math.sqrt(1.0 + m22 - m00 - m11);
+      out[3] = (m10 - m01) / s;
+      out[0] = (m02 + m20) / s;
+      out[1] = (m12 + m21) / s;
+      out[2] = 0.25 * s;
+    }
+
+    final double length = Math.sqrt(
+      out[0] * out[0] + out[1] * out[1] + out[2] * out[2] + out[3] * out[3]);
+    out[0] = out[0] / length;
+    out[1] = out[1] / length;
+    out[2] = out[2] / length;
+    out[3] = out[3] / length;
+  }
+}
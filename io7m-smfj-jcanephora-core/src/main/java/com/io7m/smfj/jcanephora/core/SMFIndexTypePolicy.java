@@ -0,0 +1,38 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * Policies for choosing the type of triangle indices in index buffers.
+ */
+
+public enum SMFIndexTypePolicy
+{
+  /**
+   * Use the index size declared by the SMF header, widened if necessary so
+   * that every vertex of the mesh can be addressed.
+   */
+
+  INDEX_TYPE_POLICY_FROM_HEADER,
+
+  /**
+   * Use the smallest index type that can address every vertex of the mesh,
+   * regardless of the index size declared by the SMF header.
+   */
+
+  INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT
+}
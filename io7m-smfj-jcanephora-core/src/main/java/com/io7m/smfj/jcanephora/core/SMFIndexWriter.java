@@ -0,0 +1,205 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jranges.RangeInclusiveL;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * <p>Writes triangles into a byte buffer as consecutive triples of indices,
+ * rejecting triangles that refer to nonexistent vertices or to vertices whose
+ * indices cannot be represented by the index type, and tracking the range of
+ * vertex indices written.</p>
+ *
+ * <p>Subclasses are specialized for a single index type; see
+ * {@link SMFIndexWriters}.</p>
+ */
+
+abstract class SMFIndexWriter
+{
+  private final ByteBuffer buffer;
+  private final int stride;
+  private final long vertex_count;
+  private final long index_maximum;
+  private int position;
+  private long minimum;
+  private long maximum;
+
+  SMFIndexWriter(
+    final ByteBuffer in_buffer,
+    final int in_index_size,
+    final long in_index_maximum,
+    final long in_vertex_count)
+  {
+    this.buffer = in_buffer;
+    this.stride = in_index_size * 3;
+    this.index_maximum = in_index_maximum;
+    this.vertex_count = in_vertex_count;
+    this.minimum = Long.MAX_VALUE;
+    this.maximum = Long.MIN_VALUE;
+  }
+
+  /**
+   * Store a triangle.
+   *
+   * @param b  The target buffer
+   * @param p  The offset of the first index
+   * @param v0 The first vertex index
+   * @param v1 The second vertex index
+   * @param v2 The third vertex index
+   */
+
+  abstract void store(
+    ByteBuffer b,
+    int p,
+    long v0,
+    long v1,
+    long v2);
+
+  /**
+   * @return The size in bytes of a single packed triangle
+   */
+
+  final int stride()
+  {
+    return this.stride;
+  }
+
+  /**
+   * @return The number of bytes written since creation or the last reset
+   */
+
+  final int position()
+  {
+    return this.position;
+  }
+
+  /**
+   * Start writing at the beginning of the buffer again. The tracked index
+   * range is not affected.
+   */
+
+  final void reset()
+  {
+    this.position = 0;
+  }
+
+  /**
+   * @return The range of vertex indices written so far, if any triangles have
+   * been written
+   */
+
+  final Optional<RangeInclusiveL> range()
+  {
+    if (this.minimum > this.maximum) {
+      return Optional.empty();
+    }
+    return Optional.of(new RangeInclusiveL(this.minimum, this.maximum));
+  }
+
+  /**
+   * Write a triangle, unless it refers to a vertex that does not exist or
+   * whose index is larger than the index type can represent.
+   *
+   * @param v0 The first vertex index
+   * @param v1 The second vertex index
+   * @param v2 The third vertex index
+   *
+   * @return {@code false} iff the triangle was rejected
+   */
+
+  final boolean triangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    final long lo = Math.min(v0, Math.min(v1, v2));
+    final long hi = Math.max(v0, Math.max(v1, v2));
+    if (lo < 0L || hi >= this.vertex_count || hi > this.index_maximum) {
+      return false;
+    }
+
+    this.minimum = Math.min(this.minimum, lo);
+    this.maximum = Math.max(this.maximum, hi);
+
+    final int p = this.position;
+    this.store(this.buffer, p, v0, v1, v2);
+    this.position = p + this.stride;
+    return true;
+  }
+
+  /**
+   * Write {@code count} triangles from {@code indices}, starting at
+   * {@code offset}. Each triangle occupies three consecutive elements.
+   *
+   * @param indices The vertex indices
+   * @param offset  The index of the first element
+   * @param count   The number of triangles
+   *
+   * @return The number of triangles rejected
+   */
+
+  final int triangles(
+    final long[] indices,
+    final int offset,
+    final int count)
+  {
+    int rejected = 0;
+    int i = offset;
+    for (int t = 0; t < count; t = t + 1) {
+      if (!this.triangle(indices[i], indices[i + 1], indices[i + 2])) {
+        rejected = rejected + 1;
+      }
+      i = i + 3;
+    }
+    return rejected;
+  }
+
+  /**
+   * Write {@code count} triangles from {@code indices}, starting at
+   * {@code offset}. Each triangle occupies three consecutive elements, which
+   * are interpreted as unsigned values.
+   *
+   * @param indices The vertex indices
+   * @param offset  The index of the first element
+   * @param count   The number of triangles
+   *
+   * @return The number of triangles rejected
+   */
+
+  final int triangles(
+    final int[] indices,
+    final int offset,
+    final int count)
+  {
+    int rejected = 0;
+    int i = offset;
+    for (int t = 0; t < count; t = t + 1) {
+      final boolean ok = this.triangle(
+        Integer.toUnsignedLong(indices[i]),
+        Integer.toUnsignedLong(indices[i + 1]),
+        Integer.toUnsignedLong(indices[i + 2]));
+      if (!ok) {
+        rejected = rejected + 1;
+      }
+      i = i + 3;
+    }
+    return rejected;
+  }
+}
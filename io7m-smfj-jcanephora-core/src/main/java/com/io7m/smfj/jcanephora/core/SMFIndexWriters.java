@@ -0,0 +1,251 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.parser.api.SMFParseError;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Functions to create index writers specialized for each index type.
+ */
+
+final class SMFIndexWriters
+{
+  private SMFIndexWriters()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create an index writer.
+   *
+   * @param type         The index type
+   * @param buffer       The target buffer
+   * @param vertex_count The number of vertices in the mesh
+   *
+   * @return A new index writer
+   */
+
+  static SMFIndexWriter create(
+    final JCGLUnsignedType type,
+    final ByteBuffer buffer,
+    final long vertex_count)
+  {
+    NullCheck.notNull(type, "Type");
+    NullCheck.notNull(buffer, "Buffer");
+
+    switch (type) {
+      case TYPE_UNSIGNED_BYTE:
+        return new Writer8(buffer, vertex_count);
+      case TYPE_UNSIGNED_SHORT:
+        return new Writer16(buffer, vertex_count);
+      case TYPE_UNSIGNED_INT:
+        return new Writer32(buffer, vertex_count);
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Read packed triangle indices.
+   *
+   * @param type   The index type
+   * @param buffer The source buffer
+   * @param count  The number of indices
+   *
+   * @return The indices
+   */
+
+  static int[] read(
+    final JCGLUnsignedType type,
+    final ByteBuffer buffer,
+    final int count)
+  {
+    final int[] indices = new int[count];
+    switch (type) {
+      case TYPE_UNSIGNED_BYTE: {
+        for (int index = 0; index < count; index = index + 1) {
+          indices[index] = (int) buffer.get(index) & 0xff;
+        }
+        return indices;
+      }
+      case TYPE_UNSIGNED_SHORT: {
+        for (int index = 0; index < count; index = index + 1) {
+          indices[index] = (int) buffer.getChar(index * 2);
+        }
+        return indices;
+      }
+      case TYPE_UNSIGNED_INT: {
+        for (int index = 0; index < count; index = index + 1) {
+          indices[index] = buffer.getInt(index * 4);
+        }
+        return indices;
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Write packed triangle indices, replacing those at the start of
+   * {@code buffer}.
+   *
+   * @param type    The index type
+   * @param buffer  The target buffer
+   * @param indices The indices
+   */
+
+  static void write(
+    final JCGLUnsignedType type,
+    final ByteBuffer buffer,
+    final int[] indices)
+  {
+    switch (type) {
+      case TYPE_UNSIGNED_BYTE: {
+        for (int index = 0; index < indices.length; index = index + 1) {
+          buffer.put(index, (byte) indices[index]);
+        }
+        return;
+      }
+      case TYPE_UNSIGNED_SHORT: {
+        for (int index = 0; index < indices.length; index = index + 1) {
+          buffer.putChar(index * 2, (char) indices[index]);
+        }
+        return;
+      }
+      case TYPE_UNSIGNED_INT: {
+        for (int index = 0; index < indices.length; index = index + 1) {
+          buffer.putInt(index * 4, indices[index]);
+        }
+        return;
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Construct an error describing triangles that were rejected because they
+   * referred to vertices that do not exist, or to vertices whose indices
+   * cannot be represented by the index type.
+   *
+   * @param rejected     The number of rejected triangles
+   * @param vertex_count The number of vertices in the mesh
+   * @param type         The index type
+   *
+   * @return An error
+   */
+
+  static SMFParseError rejected(
+    final long rejected,
+    final long vertex_count,
+    final JCGLUnsignedType type)
+  {
+    final StringBuilder sb = new StringBuilder(128);
+    sb.append(
+      "Triangles refer to nonexistent or unrepresentable vertex indices.");
+    sb.append(System.lineSeparator());
+    sb.append("  Rejected triangles: ");
+    sb.append(rejected);
+    sb.append(System.lineSeparator());
+    sb.append("  Vertex count: ");
+    sb.append(vertex_count);
+    sb.append(System.lineSeparator());
+    sb.append("  Index type: ");
+    sb.append(type);
+    sb.append(System.lineSeparator());
+    return SMFParseError.of(
+      LexicalPosition.of(0, 0, Optional.empty()),
+      sb.toString(),
+      Optional.empty());
+  }
+
+  private static final class Writer8 extends SMFIndexWriter
+  {
+    Writer8(
+      final ByteBuffer in_buffer,
+      final long in_vertex_count)
+    {
+      super(in_buffer, 1, 0xffL, in_vertex_count);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      b.put(p, (byte) v0);
+      b.put(p + 1, (byte) v1);
+      b.put(p + 2, (byte) v2);
+    }
+  }
+
+  private static final class Writer16 extends SMFIndexWriter
+  {
+    Writer16(
+      final ByteBuffer in_buffer,
+      final long in_vertex_count)
+    {
+      super(in_buffer, 2, 0xffffL, in_vertex_count);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      b.putChar(p, (char) v0);
+      b.putChar(p + 2, (char) v1);
+      b.putChar(p + 4, (char) v2);
+    }
+  }
+
+  private static final class Writer32 extends SMFIndexWriter
+  {
+    Writer32(
+      final ByteBuffer in_buffer,
+      final long in_vertex_count)
+    {
+      super(in_buffer, 4, 0xffffffffL, in_vertex_count);
+    }
+
+    @Override
+    void store(
+      final ByteBuffer b,
+      final int p,
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      b.putInt(p, (int) v0);
+      b.putInt(p + 4, (int) v1);
+      b.putInt(p + 8, (int) v2);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Functions to map files into memory, for use with
+ * {@link SMFBulkDataReceiverType}.
+ */
+
+public final class SMFMappedFiles
+{
+  private SMFMappedFiles()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Map the given file into memory. The returned buffer is read-only and has
+   * big-endian byte order, which is the byte order of binary SMF files. The
+   * mapping remains valid after this method returns, and is released when the
+   * buffer is garbage collected.
+   *
+   * @param path The file
+   *
+   * @return A read-only view of the file
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static ByteBuffer mapReadOnly(
+    final Path path)
+    throws IOException
+  {
+    NullCheck.notNull(path, "Path");
+
+    try (final FileChannel channel =
+           FileChannel.open(path, StandardOpenOption.READ)) {
+      final MappedByteBuffer map =
+        channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+      return map;
+    }
+  }
+}
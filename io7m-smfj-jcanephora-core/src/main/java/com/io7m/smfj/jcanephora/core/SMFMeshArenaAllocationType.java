@@ -0,0 +1,75 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * A mesh allocated within a shared mesh arena.
+ *
+ * @see SMFMeshArenaType
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFMeshArenaAllocationType
+{
+  /**
+   * @return The index of the first vertex of the mesh within the arena's
+   * array buffer
+   */
+
+  @Value.Parameter
+  long baseVertex();
+
+  /**
+   * @return The number of vertices
+   */
+
+  @Value.Parameter
+  long vertexCount();
+
+  /**
+   * @return The position of the first index of the mesh within the arena's
+   * index buffer, in units of indices
+   */
+
+  @Value.Parameter
+  long firstIndex();
+
+  /**
+   * @return The number of indices
+   */
+
+  @Value.Parameter
+  long indexCount();
+
+  /**
+   * @return The inclusive range of vertex indices referenced by the mesh's
+   * triangles, or nothing if the mesh has no triangles. As indices are
+   * stored relative to the start of the arena, the range lies within
+   * {@code [baseVertex, baseVertex + vertexCount)}.
+   */
+
+  @Value.Parameter
+  Optional<RangeInclusiveL> indexRange();
+}
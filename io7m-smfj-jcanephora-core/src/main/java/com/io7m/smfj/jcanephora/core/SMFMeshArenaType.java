@@ -0,0 +1,157 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+
+import java.util.Optional;
+
+/**
+ * <p>The type of shared mesh arenas.</p>
+ *
+ * <p>An arena holds many meshes of the same vertex layout within a single
+ * array buffer and a single index buffer, bound to a single array object.
+ * Meshes are inserted as {@link SMFPreparedMesh} values, and each insertion
+ * yields an {@link SMFMeshArenaAllocation} describing the ranges of vertices
+ * and indices that the mesh occupies. Indices are stored relative to the
+ * start of the arena, so meshes may be drawn with ordinary range-limited
+ * draw calls without requiring base vertex support. Released allocations are
+ * returned to free lists and their space is reused by later
+ * insertions.</p>
+ *
+ * <p>Arenas are not thread-safe, and all methods must be called on the
+ * thread that owns the GL context. Meshes may be prepared on any thread.</p>
+ */
+
+public interface SMFMeshArenaType
+{
+  /**
+   * @return The vertex layout shared by all meshes in the arena
+   */
+
+  SMFArrayLayout layout();
+
+  /**
+   * @return The type of indices in the arena's index buffer
+   */
+
+  JCGLUnsignedType indexType();
+
+  /**
+   * @return The array object binding the arena's buffers
+   *
+   * @throws IllegalStateException If the arena has been deleted
+   */
+
+  JCGLArrayObjectType arrayObject()
+    throws IllegalStateException;
+
+  /**
+   * @return The arena's array buffer
+   *
+   * @throws IllegalStateException If the arena has been deleted
+   */
+
+  JCGLArrayBufferType arrayBuffer()
+    throws IllegalStateException;
+
+  /**
+   * @return The arena's index buffer
+   *
+   * @throws IllegalStateException If the arena has been deleted
+   */
+
+  JCGLIndexBufferType indexBuffer()
+    throws IllegalStateException;
+
+  /**
+   * @return The capacity of the arena in vertices
+   */
+
+  long vertexCapacity();
+
+  /**
+   * @return The capacity of the arena in indices
+   */
+
+  long indexCapacity();
+
+  /**
+   * @return The number of vertices not currently allocated
+   */
+
+  long verticesAvailable();
+
+  /**
+   * @return The number of indices not currently allocated
+   */
+
+  long indicesAvailable();
+
+  /**
+   * Insert a mesh into the arena, uploading its vertices and indices into
+   * free ranges of the arena's buffers.
+   *
+   * @param mesh A prepared mesh
+   *
+   * @return The allocation holding the mesh, or nothing if the arena does
+   * not have enough contiguous free space for the mesh
+   *
+   * @throws IllegalArgumentException If the layout of the mesh does not
+   *                                  match that of the arena
+   * @throws IllegalStateException    If the arena has been deleted
+   */
+
+  Optional<SMFMeshArenaAllocation> insert(
+    SMFPreparedMesh mesh)
+    throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Release an allocation, making its ranges available to later insertions.
+   * The contents of the arena's buffers within the released ranges are not
+   * modified until they are reused.
+   *
+   * @param allocation An allocation returned by
+   *                   {@link #insert(SMFPreparedMesh)}
+   *
+   * @throws IllegalArgumentException If the allocation is not live within
+   *                                  this arena; allocations are compared
+   *                                  by identity
+   * @throws IllegalStateException    If the arena has been deleted
+   */
+
+  void release(
+    SMFMeshArenaAllocation allocation)
+    throws IllegalArgumentException, IllegalStateException;
+
+  /**
+   * Delete the arena's array object and buffers. All allocations become
+   * invalid.
+   */
+
+  void delete();
+
+  /**
+   * @return {@code true} iff {@link #delete()} has been called
+   */
+
+  boolean isDeleted();
+}
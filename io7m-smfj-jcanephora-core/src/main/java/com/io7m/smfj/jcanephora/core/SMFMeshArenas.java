@@ -0,0 +1,346 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectBuilderType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.api.JCGLArrayObjectsType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.Set;
+
+/**
+ * The default provider of {@link SMFMeshArenaType} values.
+ */
+
+public final class SMFMeshArenas
+{
+  private SMFMeshArenas()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new arena. The arena's index type is the smallest type that can
+   * address {@code vertex_capacity} vertices, subject to
+   * {@link SMFArrayObjectConfigurationType#indexTypeAllowByte()}.
+   *
+   * @param g               A GL interface
+   * @param configuration   An array object configuration, which supplies the
+   *                        buffer usage hints
+   * @param layout          The vertex layout shared by all meshes, which
+   *                        must have exactly one stream
+   * @param vertex_capacity The capacity of the arena in vertices
+   * @param index_capacity  The capacity of the arena in indices
+   *
+   * @return A new arena
+   *
+   * @throws IllegalArgumentException If the layout has more than one stream,
+   *                                  or a capacity is negative or too large
+   */
+
+  public static SMFMeshArenaType newArena(
+    final JCGLInterfaceGL33Type g,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFArrayLayout layout,
+    final long vertex_capacity,
+    final long index_capacity)
+    throws IllegalArgumentException
+  {
+    NullCheck.notNull(g, "GL");
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(layout, "Layout");
+
+    if (layout.streams().size() != 1) {
+      throw new IllegalArgumentException(
+        "Arena layouts must have exactly one stream");
+    }
+    if (vertex_capacity < 0L || vertex_capacity > 0xffffffffL) {
+      throw new IllegalArgumentException(
+        "Vertex capacity must be in the range [0, 2^32)");
+    }
+    if (index_capacity < 0L) {
+      throw new IllegalArgumentException(
+        "Index capacity must be non-negative");
+    }
+
+    return new Arena(g, configuration, layout, vertex_capacity, index_capacity);
+  }
+
+  private static final class Arena implements SMFMeshArenaType
+  {
+    private final JCGLInterfaceGL33Type g;
+    private final SMFArrayLayout layout;
+    private final JCGLUnsignedType index_type;
+    private final SMFRangeAllocator vertices;
+    private final SMFRangeAllocator indices;
+    private final Set<SMFMeshArenaAllocation> live;
+    private final JCGLArrayBufferType array_buffer;
+    private final JCGLIndexBufferType index_buffer;
+    private final JCGLArrayObjectType array_object;
+    private boolean deleted;
+
+    Arena(
+      final JCGLInterfaceGL33Type in_g,
+      final SMFArrayObjectConfiguration in_configuration,
+      final SMFArrayLayout in_layout,
+      final long in_vertex_capacity,
+      final long in_index_capacity)
+    {
+      this.g = in_g;
+      this.layout = in_layout;
+      this.vertices = new SMFRangeAllocator(in_vertex_capacity);
+      this.indices = new SMFRangeAllocator(in_index_capacity);
+      this.live = Collections.newSetFromMap(new IdentityHashMap<>(16));
+      this.index_type = SMFArrayLayouts.indexTypeFor(
+        SMFIndexTypePolicy.INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT,
+        in_configuration.indexTypeAllowByte(),
+        32L,
+        in_vertex_capacity);
+
+      this.array_buffer =
+        in_g.getArrayBuffers().arrayBufferAllocate(
+          Math.multiplyExact(
+            (long) in_layout.vertexSize(), in_vertex_capacity),
+          in_configuration.arrayBufferUsage());
+      this.index_buffer =
+        in_g.getIndexBuffers().indexBufferAllocate(
+          in_index_capacity,
+          this.index_type,
+          in_configuration.indexBufferUsage());
+
+      final JCGLArrayObjectsType g_ao = in_g.getArrayObjects();
+      final JCGLArrayObjectBuilderType builder = g_ao.arrayObjectNewBuilder();
+      builder.setIndexBuffer(this.index_buffer);
+      SMFArrayAttributeBindings.bind(builder, in_layout, this.array_buffer);
+      this.array_object = g_ao.arrayObjectAllocate(builder);
+    }
+
+    private void checkNotDeleted()
+    {
+      if (this.deleted) {
+        throw new IllegalStateException("Arena has been deleted");
+      }
+    }
+
+    @Override
+    public SMFArrayLayout layout()
+    {
+      return this.layout;
+    }
+
+    @Override
+    public JCGLUnsignedType indexType()
+    {
+      return this.index_type;
+    }
+
+    @Override
+    public JCGLArrayObjectType arrayObject()
+      throws IllegalStateException
+    {
+      this.checkNotDeleted();
+      return this.array_object;
+    }
+
+    @Override
+    public JCGLArrayBufferType arrayBuffer()
+      throws IllegalStateException
+    {
+      this.checkNotDeleted();
+      return this.array_buffer;
+    }
+
+    @Override
+    public JCGLIndexBufferType indexBuffer()
+      throws IllegalStateException
+    {
+      this.checkNotDeleted();
+      return this.index_buffer;
+    }
+
+    @Override
+    public long vertexCapacity()
+    {
+      return this.vertices.capacity();
+    }
+
+    @Override
+    public long indexCapacity()
+    {
+      return this.indices.capacity();
+    }
+
+    @Override
+    public long verticesAvailable()
+    {
+      return this.vertices.available();
+    }
+
+    @Override
+    public long indicesAvailable()
+    {
+      return this.indices.available();
+    }
+
+    @Override
+    public Optional<SMFMeshArenaAllocation> insert(
+      final SMFPreparedMesh mesh)
+      throws IllegalArgumentException, IllegalStateException
+    {
+      NullCheck.notNull(mesh, "Mesh");
+      this.checkNotDeleted();
+
+      if (!mesh.layout().equals(this.layout)) {
+        final StringBuilder sb = new StringBuilder(128);
+        sb.append("Mesh layout does not match the arena layout.");
+        sb.append(System.lineSeparator());
+        sb.append("  Arena layout: ");
+        sb.append(this.layout);
+        sb.append(System.lineSeparator());
+        sb.append("  Mesh layout:  ");
+        sb.append(mesh.layout());
+        sb.append(System.lineSeparator());
+        throw new IllegalArgumentException(sb.toString());
+      }
+
+      final long vertex_count = mesh.vertexCount();
+      final long index_count = Math.multiplyExact(mesh.triangleCount(), 3L);
+
+      final OptionalLong base_opt = this.vertices.allocate(vertex_count);
+      if (!base_opt.isPresent()) {
+        return Optional.empty();
+      }
+      final long base = base_opt.getAsLong();
+
+      final OptionalLong first_opt = this.indices.allocate(index_count);
+      if (!first_opt.isPresent()) {
+        this.vertices.release(base, vertex_count);
+        return Optional.empty();
+      }
+      final long first = first_opt.getAsLong();
+
+      this.uploadVertices(mesh, base);
+      this.uploadIndices(mesh, base, first, index_count);
+
+      final SMFMeshArenaAllocation allocation =
+        SMFMeshArenaAllocation.of(
+          base,
+          vertex_count,
+          first,
+          index_count,
+          mesh.indexRange().map(r -> new RangeInclusiveL(
+            r.getLower() + base, r.getUpper() + base)));
+      this.live.add(allocation);
+      return Optional.of(allocation);
+    }
+
+    private void uploadVertices(
+      final SMFPreparedMesh mesh,
+      final long base)
+    {
+      final ByteBuffer data = mesh.vertexData().duplicate();
+      data.rewind();
+      if (data.capacity() > 0) {
+        this.g.getArrayBuffers().arrayBufferUpdate(
+          SMFBufferUpdate.replacingRange(
+            this.array_buffer,
+            data,
+            Math.multiplyExact(base, (long) this.layout.vertexSize())));
+      }
+    }
+
+    private void uploadIndices(
+      final SMFPreparedMesh mesh,
+      final long base,
+      final long first,
+      final long index_count)
+    {
+      final int count = Math.toIntExact(index_count);
+      if (count == 0) {
+        return;
+      }
+
+      final int[] values =
+        SMFIndexWriters.read(mesh.indexType(), mesh.indexData(), count);
+      final int offset = (int) base;
+      for (int index = 0; index < count; index = index + 1) {
+        values[index] = values[index] + offset;
+      }
+
+      final int size = this.index_type.getSizeBytes();
+      final ByteBuffer data =
+        ByteBuffer.allocateDirect(Math.multiplyExact(count, size));
+      data.order(ByteOrder.nativeOrder());
+      SMFIndexWriters.write(this.index_type, data, values);
+
+      this.g.getIndexBuffers().indexBufferUpdate(
+        SMFBufferUpdate.replacingRange(
+          this.index_buffer,
+          data,
+          Math.multiplyExact(first, (long) size)));
+    }
+
+    @Override
+    public void release(
+      final SMFMeshArenaAllocation allocation)
+      throws IllegalArgumentException, IllegalStateException
+    {
+      NullCheck.notNull(allocation, "Allocation");
+      this.checkNotDeleted();
+
+      if (!this.live.remove(allocation)) {
+        throw new IllegalArgumentException(
+          "Allocation is not live within this arena: " + allocation);
+      }
+
+      this.vertices.release(allocation.baseVertex(), allocation.vertexCount());
+      this.indices.release(allocation.firstIndex(), allocation.indexCount());
+    }
+
+    @Override
+    public void delete()
+    {
+      if (!this.deleted) {
+        this.g.getArrayObjects().arrayObjectDelete(this.array_object);
+        this.g.getArrayBuffers().arrayBufferDelete(this.array_buffer);
+        this.g.getIndexBuffers().indexBufferDelete(this.index_buffer);
+        this.live.clear();
+        this.deleted = true;
+      }
+    }
+
+    @Override
+    public boolean isDeleted()
+    {
+      return this.deleted;
+    }
+  }
+}
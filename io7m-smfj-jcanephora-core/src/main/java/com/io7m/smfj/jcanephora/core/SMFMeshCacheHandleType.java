@@ -0,0 +1,58 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * <p>A counted reference to a mesh held in an {@link SMFMeshCacheType}.</p>
+ *
+ * <p>A cached mesh cannot be evicted while any handle to it remains
+ * unreleased. Each handle must be released exactly once.</p>
+ */
+
+public interface SMFMeshCacheHandleType
+{
+  /**
+   * @return The key of the mesh
+   */
+
+  SMFMeshCacheKey key();
+
+  /**
+   * @return The cached mesh
+   *
+   * @throws IllegalStateException If the handle has been released
+   */
+
+  SMFUploadedMesh mesh()
+    throws IllegalStateException;
+
+  /**
+   * Release the handle.
+   *
+   * @throws IllegalStateException If the handle has already been released
+   */
+
+  void release()
+    throws IllegalStateException;
+
+  /**
+   * @return {@code true} iff the handle has been released
+   */
+
+  boolean isReleased();
+}
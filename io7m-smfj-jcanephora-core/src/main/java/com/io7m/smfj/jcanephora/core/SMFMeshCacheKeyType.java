@@ -0,0 +1,48 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * <p>The key of a mesh in an {@link SMFMeshCacheType}.</p>
+ *
+ * <p>The source identifies the mesh data, and is typically a file path or
+ * a hash of the file contents. Meshes with the same source that are loaded
+ * with different configurations are cached separately.</p>
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFMeshCacheKeyType
+{
+  /**
+   * @return The source of the mesh
+   */
+
+  @Value.Parameter
+  String source();
+
+  /**
+   * @return The configuration with which the mesh is loaded
+   */
+
+  @Value.Parameter
+  SMFArrayObjectConfiguration configuration();
+}
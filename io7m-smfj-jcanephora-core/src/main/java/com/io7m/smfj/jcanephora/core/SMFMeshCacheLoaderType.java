@@ -0,0 +1,51 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+
+/**
+ * The type of functions that load meshes on behalf of an
+ * {@link SMFMeshCacheType}.
+ *
+ * @see SMFMeshCaches#pathLoader(
+ * com.io7m.smfj.parser.api.SMFParserProviderType,
+ * java.util.function.Function)
+ */
+
+@FunctionalInterface
+public interface SMFMeshCacheLoaderType
+{
+  /**
+   * Load the mesh with the given key. The loader must obtain buffers from
+   * {@code allocator}, because the cache releases the buffers of evicted
+   * meshes to it. If loading fails, the loader must release any buffers
+   * that it obtained.
+   *
+   * @param g         A GL interface
+   * @param allocator A buffer allocator
+   * @param key       The key of the mesh
+   *
+   * @return The result of loading
+   */
+
+  SMFMeshCacheLoadResult load(
+    JCGLInterfaceGL33Type g,
+    SMFBufferAllocatorType allocator,
+    SMFMeshCacheKey key);
+}
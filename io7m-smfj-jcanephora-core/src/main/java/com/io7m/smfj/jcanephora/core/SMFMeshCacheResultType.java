@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import com.io7m.smfj.parser.api.SMFParseError;
+import javaslang.collection.List;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * The result of acquiring a mesh from an {@link SMFMeshCacheType}.
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFMeshCacheResultType
+{
+  /**
+   * @return The key of the mesh
+   */
+
+  @Value.Parameter
+  SMFMeshCacheKey key();
+
+  /**
+   * @return A handle to the cached mesh, if loading succeeded
+   */
+
+  @Value.Parameter
+  Optional<SMFMeshCacheHandleType> handle();
+
+  /**
+   * @return The errors encountered, if loading failed
+   */
+
+  @Value.Parameter
+  List<SMFParseError> errors();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.handle().isPresent() == !this.errors().isEmpty()) {
+      throw new IllegalArgumentException(
+        "Exactly one of a handle or a non-empty error list must be provided");
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * <p>The type of mesh caches.</p>
+ *
+ * <p>A mesh cache loads each distinct {@link SMFMeshCacheKey} at most once
+ * while it remains resident, and hands out reference-counted handles to the
+ * loaded mesh. When the total size of the buffers of resident meshes
+ * exceeds the cache's byte budget, unreferenced meshes are evicted in
+ * least-recently-used order. Meshes that are referenced are never evicted,
+ * so the budget may be exceeded while they remain referenced.</p>
+ *
+ * <p>Caches are not thread-safe, and all methods (including those of
+ * handles) must be called on the thread that owns the GL context.</p>
+ */
+
+public interface SMFMeshCacheType
+{
+  /**
+   * @return The total size in bytes of resident meshes above which
+   * unreferenced meshes are evicted
+   */
+
+  long budget();
+
+  /**
+   * @return The total size in bytes of the buffers of resident meshes
+   */
+
+  long residentBytes();
+
+  /**
+   * @return The number of resident meshes
+   */
+
+  int residentCount();
+
+  /**
+   * @return The number of acquisitions satisfied by a resident mesh
+   */
+
+  long hits();
+
+  /**
+   * @return The number of acquisitions that required a mesh to be loaded
+   */
+
+  long misses();
+
+  /**
+   * @return The number of meshes that have been evicted
+   */
+
+  long evictions();
+
+  /**
+   * Acquire a handle to the mesh with the given key, loading the mesh if it
+   * is not resident.
+   *
+   * @param key The key of the mesh
+   *
+   * @return A handle, or the errors encountered whilst loading
+   */
+
+  SMFMeshCacheResult acquire(
+    SMFMeshCacheKey key);
+
+  /**
+   * Evict all unreferenced meshes, regardless of the budget.
+   */
+
+  void evictUnreferenced();
+}
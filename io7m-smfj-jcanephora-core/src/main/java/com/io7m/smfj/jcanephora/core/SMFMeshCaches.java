@@ -0,0 +1,368 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * The default provider of {@link SMFMeshCacheType} values.
+ */
+
+public final class SMFMeshCaches
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SMFMeshCaches.class);
+  }
+
+  private SMFMeshCaches()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new, empty mesh cache.
+   *
+   * @param g         A GL interface
+   * @param loader    The function used to load meshes that are not resident
+   * @param allocator The allocator from which buffers are obtained, and to
+   *                  which the buffers of evicted meshes are released
+   * @param budget    The total size in bytes of resident meshes above
+   *                  which unreferenced meshes are evicted
+   *
+   * @return A new mesh cache
+   */
+
+  public static SMFMeshCacheType newCache(
+    final JCGLInterfaceGL33Type g,
+    final SMFMeshCacheLoaderType loader,
+    final SMFBufferAllocatorType allocator,
+    final long budget)
+  {
+    return new Cache(g, loader, allocator, budget);
+  }
+
+  /**
+   * Create a loader that interprets the source of each key as a file path,
+   * and loads the file using {@link SMFArrayLoaders}.
+   *
+   * @param parsers A parser provider
+   * @param meta    A function that yields a metadata listener for each path
+   *
+   * @return A mesh loader
+   */
+
+  public static SMFMeshCacheLoaderType pathLoader(
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta)
+  {
+    NullCheck.notNull(parsers, "Parsers");
+    NullCheck.notNull(meta, "Meta");
+    return (g, allocator, key) -> loadPath(g, allocator, parsers, meta, key);
+  }
+
+  private static SMFMeshCacheLoadResult loadPath(
+    final JCGLInterfaceGL33Type g,
+    final SMFBufferAllocatorType allocator,
+    final SMFParserProviderType parsers,
+    final Function<Path, SMFParserEventsMetaType> meta,
+    final SMFMeshCacheKey key)
+  {
+    final Path path = Paths.get(key.source());
+    try {
+      final SMFArrayLoaderType loader =
+        SMFArrayLoaders.newLoader(
+          g, meta.apply(path), key.configuration(), allocator);
+
+      try (final InputStream stream = Files.newInputStream(path)) {
+        try (final SMFParserSequentialType parser =
+               parsers.parserCreateSequential(loader, path, stream)) {
+          parser.parseHeader();
+          parser.parseData();
+        }
+      }
+
+      if (!loader.errors().isEmpty()) {
+        return SMFMeshCacheLoadResult.of(Optional.empty(), loader.errors());
+      }
+
+      return SMFMeshCacheLoadResult.of(
+        Optional.of(SMFUploadedMesh.of(
+          loader.arrayObject(),
+          loader.arrayBuffers(),
+          loader.indexBuffer(),
+          loader.indexRange(),
+          loader.dequantization())),
+        List.empty());
+    } catch (final IOException | RuntimeException e) {
+      LOG.error("failed to load {}: ", path, e);
+      final SMFParseError error = SMFParseError.of(
+        LexicalPosition.of(0, 0, Optional.of(path)),
+        e.getMessage() == null ? e.getClass().getName() : e.getMessage(),
+        Optional.of(e));
+      return SMFMeshCacheLoadResult.of(Optional.empty(), List.of(error));
+    }
+  }
+
+  private static long sizeOf(
+    final SMFUploadedMesh mesh)
+  {
+    long size = mesh.indexBuffer().getRange().getInterval();
+    for (final JCGLArrayBufferType buffer : mesh.arrayBuffers()) {
+      size = Math.addExact(size, buffer.getRange().getInterval());
+    }
+    return size;
+  }
+
+  private static final class Entry
+  {
+    private final SMFMeshCacheKey key;
+    private final SMFUploadedMesh mesh;
+    private final long size;
+    private int references;
+
+    Entry(
+      final SMFMeshCacheKey in_key,
+      final SMFUploadedMesh in_mesh)
+    {
+      this.key = NullCheck.notNull(in_key, "Key");
+      this.mesh = NullCheck.notNull(in_mesh, "Mesh");
+      this.size = sizeOf(in_mesh);
+      this.references = 0;
+    }
+  }
+
+  private static final class Handle implements SMFMeshCacheHandleType
+  {
+    private final Cache cache;
+    private final Entry entry;
+    private boolean released;
+
+    Handle(
+      final Cache in_cache,
+      final Entry in_entry)
+    {
+      this.cache = NullCheck.notNull(in_cache, "Cache");
+      this.entry = NullCheck.notNull(in_entry, "Entry");
+      this.released = false;
+    }
+
+    @Override
+    public SMFMeshCacheKey key()
+    {
+      return this.entry.key;
+    }
+
+    @Override
+    public SMFUploadedMesh mesh()
+      throws IllegalStateException
+    {
+      if (this.released) {
+        throw new IllegalStateException("Handle has been released");
+      }
+      return this.entry.mesh;
+    }
+
+    @Override
+    public void release()
+      throws IllegalStateException
+    {
+      if (this.released) {
+        throw new IllegalStateException("Handle has already been released");
+      }
+      this.released = true;
+      this.cache.release(this.entry);
+    }
+
+    @Override
+    public boolean isReleased()
+    {
+      return this.released;
+    }
+  }
+
+  private static final class Cache implements SMFMeshCacheType
+  {
+    private final JCGLInterfaceGL33Type g;
+    private final SMFMeshCacheLoaderType loader;
+    private final SMFBufferAllocatorType allocator;
+    private final long budget;
+    private final LinkedHashMap<SMFMeshCacheKey, Entry> entries;
+    private long resident;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    Cache(
+      final JCGLInterfaceGL33Type in_g,
+      final SMFMeshCacheLoaderType in_loader,
+      final SMFBufferAllocatorType in_allocator,
+      final long in_budget)
+    {
+      this.g = NullCheck.notNull(in_g, "GL");
+      this.loader = NullCheck.notNull(in_loader, "Loader");
+      this.allocator = NullCheck.notNull(in_allocator, "Allocator");
+
+      if (in_budget < 0L) {
+        throw new IllegalArgumentException("Budget must be non-negative");
+      }
+
+      this.budget = in_budget;
+      this.entries = new LinkedHashMap<>(16, 0.75f, true);
+      this.resident = 0L;
+      this.hits = 0L;
+      this.misses = 0L;
+      this.evictions = 0L;
+    }
+
+    @Override
+    public long budget()
+    {
+      return this.budget;
+    }
+
+    @Override
+    public long residentBytes()
+    {
+      return this.resident;
+    }
+
+    @Override
+    public int residentCount()
+    {
+      return this.entries.size();
+    }
+
+    @Override
+    public long hits()
+    {
+      return this.hits;
+    }
+
+    @Override
+    public long misses()
+    {
+      return this.misses;
+    }
+
+    @Override
+    public long evictions()
+    {
+      return this.evictions;
+    }
+
+    @Override
+    public SMFMeshCacheResult acquire(
+      final SMFMeshCacheKey key)
+    {
+      NullCheck.notNull(key, "Key");
+
+      final Entry existing = this.entries.get(key);
+      if (existing != null) {
+        this.hits = this.hits + 1L;
+        existing.references = existing.references + 1;
+        return SMFMeshCacheResult.of(
+          key, Optional.of(new Handle(this, existing)), List.empty());
+      }
+
+      this.misses = this.misses + 1L;
+      final SMFMeshCacheLoadResult result =
+        NullCheck.notNull(
+          this.loader.load(this.g, this.allocator, key), "Load result");
+
+      if (!result.mesh().isPresent()) {
+        return SMFMeshCacheResult.of(key, Optional.empty(), result.errors());
+      }
+
+      final Entry entry = new Entry(key, result.mesh().get());
+      entry.references = 1;
+      this.entries.put(key, entry);
+      this.resident = Math.addExact(this.resident, entry.size);
+      this.evict(this.budget);
+      return SMFMeshCacheResult.of(
+        key, Optional.of(new Handle(this, entry)), List.empty());
+    }
+
+    @Override
+    public void evictUnreferenced()
+    {
+      this.evict(0L);
+    }
+
+    private void release(
+      final Entry entry)
+    {
+      entry.references = entry.references - 1;
+      if (entry.references == 0) {
+        this.evict(this.budget);
+      }
+    }
+
+    private void evict(
+      final long limit)
+    {
+      final Iterator<Entry> iter = this.entries.values().iterator();
+      while (this.resident > limit && iter.hasNext()) {
+        final Entry entry = iter.next();
+        if (entry.references == 0) {
+          iter.remove();
+          this.delete(entry);
+        }
+      }
+    }
+
+    private void delete(
+      final Entry entry)
+    {
+      LOG.debug(
+        "evicting {} ({} bytes)", entry.key.source(), Long.valueOf(entry.size));
+
+      final SMFUploadedMesh mesh = entry.mesh;
+      this.g.getArrayObjects().arrayObjectDelete(mesh.arrayObject());
+      SMFArrayStreams.release(
+        this.allocator, this.g.getArrayBuffers(), mesh.arrayBuffers());
+      this.allocator.indexBufferRelease(
+        this.g.getIndexBuffers(), mesh.indexBuffer());
+
+      this.resident = this.resident - entry.size;
+      this.evictions = this.evictions + 1L;
+    }
+  }
+}
@@ -0,0 +1,569 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.ieee754b16.Binary16;
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.parser.api.SMFParseError;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Packs the vertices and triangles of a single mesh into a pair of byte
+ * buffers according to a given vertex layout. Shared by the array loaders,
+ * which pack directly into GL staging buffers, and by the mesh preparers,
+ * which pack into buffers that they own.
+ */
+
+final class SMFMeshPacker
+{
+  private final SMFArrayLayout layout;
+  private final Map<String, SMFArrayAttributeLayout> attributes_by_name;
+  private final Map<String, Frame> frames_by_tangent;
+  private final Map<String, List<Frame>> frames_by_normal;
+  private final Map<String, float[]> ranges_by_name;
+  private final ByteBuffer vertex_data;
+  private final SMFIndexWriter index_writer;
+  private final JCGLUnsignedType index_type;
+  private final ByteBuffer index_data;
+  private final long vertex_count;
+  private Optional<RangeInclusiveL> remapped_range;
+  private boolean remapped;
+  private javaslang.collection.Map<SMFAttributeName, SMFAttributeDequantization>
+    dequantization;
+
+  SMFMeshPacker(
+    final SMFArrayLayout in_layout,
+    final JCGLUnsignedType in_index_type,
+    final long in_vertex_count,
+    final ByteBuffer in_vertex_data,
+    final ByteBuffer in_index_data)
+  {
+    this.layout = NullCheck.notNull(in_layout, "Layout");
+    this.vertex_data = NullCheck.notNull(in_vertex_data, "Vertex data");
+    this.vertex_count = in_vertex_count;
+    this.index_type = NullCheck.notNull(in_index_type, "Index type");
+    this.index_data = NullCheck.notNull(in_index_data, "Index data");
+    this.remapped_range = Optional.empty();
+    this.dequantization = javaslang.collection.HashMap.empty();
+    this.index_writer =
+      SMFIndexWriters.create(in_index_type, in_index_data, in_vertex_count);
+
+    final int size = this.layout.attributes().size();
+    this.attributes_by_name = new HashMap<>(size);
+    this.frames_by_tangent = new HashMap<>(size);
+    this.frames_by_normal = new HashMap<>(size);
+    this.ranges_by_name = new HashMap<>(size);
+    for (final SMFArrayAttributeLayout attr : this.layout.attributes()) {
+      this.attributes_by_name.put(attr.name().value(), attr);
+      if (attr.encoding()
+        == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_QTANGENT) {
+        final Frame frame = new Frame(attr);
+        final String normal = attr.frameNormal().get().value();
+        this.frames_by_tangent.put(attr.name().value(), frame);
+        this.frames_by_normal
+          .computeIfAbsent(normal, k -> new ArrayList<>(1))
+          .add(frame);
+      }
+    }
+  }
+
+  /**
+   * @param attribute An SMF attribute
+   *
+   * @return A packer for the given attribute, or {@code null} if the attribute
+   * is not part of the layout
+   */
+
+  @Nullable
+  SMFByteBufferPackerType packerFor(
+    final SMFAttribute attribute)
+  {
+    final String name = attribute.name().value();
+    final int count = Math.toIntExact(this.vertex_count);
+
+    SMFByteBufferPackerType packer = null;
+    if (this.frames_by_tangent.containsKey(name)) {
+      packer = this.frames_by_tangent.get(name).captureTangents(count);
+    } else if (this.attributes_by_name.containsKey(name)) {
+      final SMFArrayAttributeLayout attr = this.attributes_by_name.get(name);
+      packer = this.isRangeNormalized(attr)
+        ? this.captureRange(attr, count)
+        : SMFByteBufferPackers.createPackerFor(
+        this.vertex_data,
+        attr,
+        Math.toIntExact(attr.offset()),
+        attr.stride());
+    }
+
+    if (this.frames_by_normal.containsKey(name)) {
+      for (final Frame frame : this.frames_by_normal.get(name)) {
+        final SMFByteBufferPackerType capture = frame.captureNormals(count);
+        if (packer == null) {
+          packer = capture;
+        } else {
+          packer = SMFByteBufferPackersFrames.createTee(packer, capture);
+        }
+      }
+    }
+
+    return packer;
+  }
+
+  private boolean isRangeNormalized(
+    final SMFArrayAttributeLayout attr)
+  {
+    return attr.encoding()
+      == SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED;
+  }
+
+  /**
+   * Capture the values of a range-normalized attribute. The values cannot be
+   * quantized until the range is known, and the staging slot of a small
+   * unsigned type cannot hold them, so they are held in a scratch array of
+   * {@code count * componentCount} floats until the attribute finishes.
+   *
+   * @see SMFArrayLoadEstimates
+   */
+
+  private SMFByteBufferPackerType captureRange(
+    final SMFArrayAttributeLayout attr,
+    final int count)
+  {
+    final int width = attr.componentCount();
+    final float[] values = new float[Math.multiplyExact(count, width)];
+    this.ranges_by_name.put(attr.name().value(), values);
+    return SMFByteBufferPackersRanges.createCapture(values, width);
+  }
+
+  /**
+   * Indicate that all values of an attribute have been packed. Attributes
+   * encoded as QTangents are stored when both the tangents and the normals
+   * that they depend upon have been received. Range-normalized attributes
+   * are stored once their ranges are known.
+   *
+   * @param attribute An SMF attribute
+   */
+
+  void finishAttribute(
+    final SMFAttribute attribute)
+  {
+    final String name = attribute.name().value();
+    if (this.ranges_by_name.containsKey(name)) {
+      final float[] values = this.ranges_by_name.remove(name);
+      this.addDequantization(SMFByteBufferPackersRanges.store(
+        this.vertex_data,
+        this.attributes_by_name.get(name),
+        values,
+        Math.toIntExact(this.vertex_count)));
+    }
+
+    if (this.frames_by_tangent.containsKey(name)) {
+      final Frame frame = this.frames_by_tangent.get(name);
+      frame.tangents_done = true;
+      this.completeFrame(frame);
+    }
+
+    if (this.frames_by_normal.containsKey(name)) {
+      for (final Frame frame : this.frames_by_normal.get(name)) {
+        frame.normals_done = true;
+        this.completeFrame(frame);
+      }
+    }
+  }
+
+  private void completeFrame(
+    final Frame frame)
+  {
+    if (frame.normals_done && frame.tangents_done) {
+      SMFByteBufferPackersFrames.storeQTangents(
+        this.vertex_data,
+        frame.attribute,
+        frame.normals,
+        frame.tangents,
+        Math.toIntExact(this.vertex_count));
+      frame.normals = null;
+      frame.tangents = null;
+    }
+  }
+
+  private void addDequantization(
+    final SMFAttributeDequantization d)
+  {
+    this.dequantization = this.dequantization.put(d.name(), d);
+  }
+
+  /**
+   * @return The dequantization information for all range-normalized
+   * attributes packed so far
+   */
+
+  javaslang.collection.Map<SMFAttributeName, SMFAttributeDequantization>
+  dequantization()
+  {
+    return this.dequantization;
+  }
+
+  /**
+   * Copy the values of an attribute directly from packed data, if the
+   * attribute requires no conversion. Range-normalized attributes are
+   * quantized directly from the packed data.
+   *
+   * @param attribute An SMF attribute
+   * @param data      The packed attribute values
+   *
+   * @return {@code true} iff the values were copied or the attribute is not
+   * part of the layout
+   *
+   * @see SMFBulkDataReceiverType#onDataAttributeBulk(SMFAttribute, ByteBuffer)
+   */
+
+  boolean copyBulk(
+    final SMFAttribute attribute,
+    final ByteBuffer data)
+  {
+    final String name = attribute.name().value();
+    if (this.frames_by_normal.containsKey(name)) {
+      return false;
+    }
+    if (!this.attributes_by_name.containsKey(name)) {
+      return true;
+    }
+
+    final SMFArrayAttributeLayout attr = this.attributes_by_name.get(name);
+    if (this.isRangeNormalized(attr)) {
+      this.addDequantization(SMFByteBufferPackersRanges.storeBulk(
+        this.vertex_data, attr, attribute, data));
+      return true;
+    }
+    if (!SMFArrayLayouts.copyable(attribute, attr)) {
+      return false;
+    }
+
+    final int size = attr.sizeBytes();
+    SMFBulkCopies.copy(
+      data,
+      attr.componentType(),
+      SMFBulkCopies.elementCount(data, size),
+      size,
+      this.vertex_data,
+      Math.toIntExact(attr.offset()),
+      attr.stride());
+    return true;
+  }
+
+  /**
+   * Pack a triangle.
+   *
+   * @param v0 The first vertex index
+   * @param v1 The second vertex index
+   * @param v2 The third vertex index
+   *
+   * @return {@code false} iff the triangle was rejected because it refers to
+   * a nonexistent vertex
+   */
+
+  boolean triangle(
+    final long v0,
+    final long v1,
+    final long v2)
+  {
+    return this.index_writer.triangle(v0, v1, v2);
+  }
+
+  /**
+   * Pack {@code count} triangles.
+   *
+   * @param indices The vertex indices, three per triangle
+   * @param offset  The index of the first element of {@code indices}
+   * @param count   The number of triangles
+   *
+   * @return The number of triangles rejected
+   */
+
+  int triangles(
+    final long[] indices,
+    final int offset,
+    final int count)
+  {
+    return this.index_writer.triangles(indices, offset, count);
+  }
+
+  /**
+   * Pack {@code count} triangles.
+   *
+   * @param indices The vertex indices, three per triangle, interpreted as
+   *                unsigned values
+   * @param offset  The index of the first element of {@code indices}
+   * @param count   The number of triangles
+   *
+   * @return The number of triangles rejected
+   */
+
+  int triangles(
+    final int[] indices,
+    final int offset,
+    final int count)
+  {
+    return this.index_writer.triangles(indices, offset, count);
+  }
+
+  /**
+   * @return The range of vertex indices packed so far, if any
+   */
+
+  Optional<RangeInclusiveL> indexRange()
+  {
+    if (this.remapped) {
+      return this.remapped_range;
+    }
+    return this.index_writer.range();
+  }
+
+  /**
+   * Renumber vertices in order of first reference by the triangles packed so
+   * far, and permute the packed vertex data to match.
+   *
+   * @param policy The remapping policy
+   *
+   * @see SMFVertexRemapping
+   */
+
+  void remapVertices(
+    final SMFVertexRemapPolicy policy)
+  {
+    NullCheck.notNull(policy, "Policy");
+    if (policy == SMFVertexRemapPolicy.VERTEX_REMAP_POLICY_NONE) {
+      return;
+    }
+
+    final int count = Math.multiplyExact(
+      this.index_writer.position() / this.index_writer.stride(), 3);
+    final int vertices = Math.toIntExact(this.vertex_count);
+    final int[] indices =
+      SMFIndexWriters.read(this.index_type, this.index_data, count);
+    final int[] table = SMFVertexRemapping.table(indices, vertices);
+    SMFVertexRemapping.remapIndices(indices, table);
+    SMFIndexWriters.write(this.index_type, this.index_data, indices);
+
+    for (final SMFArrayStreamLayout stream : this.layout.streams()) {
+      final int record_size = stream.stride();
+      if (record_size == 0) {
+        continue;
+      }
+
+      final ByteBuffer data =
+        SMFArrayStreams.data(this.vertex_data, stream, this.vertex_count);
+      switch (policy) {
+        case VERTEX_REMAP_POLICY_NONE: {
+          throw new UnreachableCodeException();
+        }
+        case VERTEX_REMAP_POLICY_IN_PLACE: {
+          SMFVertexRemapping.permuteInPlace(data, record_size, table);
+          break;
+        }
+        case VERTEX_REMAP_POLICY_SCRATCH_COPY: {
+          SMFVertexRemapping.permuteScratchCopy(data, record_size, table);
+          break;
+        }
+      }
+    }
+
+    int referenced = 0;
+    for (int index = 0; index < count; index = index + 1) {
+      referenced = Math.max(referenced, indices[index] + 1);
+    }
+    this.remapped = true;
+    this.remapped_range = referenced > 0
+      ? Optional.of(new RangeInclusiveL(0L, (long) (referenced - 1)))
+      : Optional.empty();
+  }
+
+  /**
+   * Reorder the triangles packed so far according to the optimization passes
+   * enabled in the given configuration: first for efficient use of the
+   * post-transform vertex cache, and then to reduce overdraw.
+   *
+   * @param configuration The array object configuration
+   *
+   * @return Statistics describing the reordering, or nothing if no passes
+   * are enabled
+   *
+   * @see SMFVertexCacheOptimization
+   * @see SMFOverdrawOptimization
+   */
+
+  Optional<SMFVertexCacheStatistics> optimizeTriangles(
+    final SMFArrayObjectConfiguration configuration)
+  {
+    final boolean cache = configuration.vertexCacheOptimization();
+    final Optional<SMFOverdrawConfiguration> overdraw =
+      configuration.overdrawOptimization();
+    if (!cache && !overdraw.isPresent()) {
+      return Optional.empty();
+    }
+
+    final int triangles =
+      this.index_writer.position() / this.index_writer.stride();
+    final int vertices = Math.toIntExact(this.vertex_count);
+    final int[] original =
+      SMFIndexWriters.read(this.index_type, this.index_data, triangles * 3);
+
+    int[] result = original;
+    if (cache) {
+      result = SMFVertexCacheOptimization.optimize(result, vertices);
+    }
+    if (overdraw.isPresent()) {
+      final SMFOverdrawConfiguration o = overdraw.get();
+      final double[] positions = this.positions(o.positionAttribute());
+      if (positions == null) {
+        // The layout decision rejects configurations without the attribute
+        throw new IllegalStateException(
+          "Overdraw position attribute is not part of the layout: "
+            + o.positionAttribute().value());
+      }
+      result = SMFOverdrawOptimization.optimize(
+        result, positions, vertices, o.threshold());
+    }
+
+    SMFIndexWriters.write(this.index_type, this.index_data, result);
+
+    final int size = SMFVertexCacheOptimization.CACHE_SIZE;
+    return Optional.of(SMFVertexCacheStatistics.of(
+      size,
+      (long) triangles,
+      SMFVertexCacheOptimization.acmr(original, vertices, size),
+      SMFVertexCacheOptimization.acmr(result, vertices, size)));
+  }
+
+  /**
+   * Read back the packed values of an attribute as three-component
+   * positions. Missing components are zero.
+   *
+   * @param name The attribute name
+   *
+   * @return The positions, or {@code null} if the attribute is not part of
+   * the layout
+   */
+
+  @Nullable
+  private double[] positions(
+    final SMFAttributeName name)
+  {
+    final String key = name.value();
+    if (!this.attributes_by_name.containsKey(key)) {
+      return null;
+    }
+
+    final SMFArrayAttributeLayout attr = this.attributes_by_name.get(key);
+    final JCGLScalarType type = attr.componentType();
+    final int components = Math.min(attr.componentCount(), 3);
+    final int size = type.getSizeBytes();
+    final int offset = Math.toIntExact(attr.offset());
+    final int count = Math.toIntExact(this.vertex_count);
+
+    final double[] positions = new double[count * 3];
+    for (int vertex = 0; vertex < count; vertex = vertex + 1) {
+      final int base = offset + vertex * attr.stride();
+      for (int c = 0; c < components; c = c + 1) {
+        positions[vertex * 3 + c] =
+          this.component(type, base + c * size);
+      }
+    }
+    return positions;
+  }
+
+  private double component(
+    final JCGLScalarType type,
+    final int position)
+  {
+    final ByteBuffer b = this.vertex_data;
+    switch (type) {
+      case TYPE_BYTE:
+        return (double) b.get(position);
+      case TYPE_UNSIGNED_BYTE:
+        return (double) ((int) b.get(position) & 0xff);
+      case TYPE_SHORT:
+        return (double) b.getShort(position);
+      case TYPE_UNSIGNED_SHORT:
+        return (double) b.getChar(position);
+      case TYPE_INT:
+        return (double) b.getInt(position);
+      case TYPE_UNSIGNED_INT:
+        return (double) ((long) b.getInt(position) & 0xffffffffL);
+      case TYPE_HALF_FLOAT:
+        return Binary16.unpackDouble(b.getChar(position));
+      case TYPE_FLOAT:
+        return (double) b.getFloat(position);
+    }
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * @param count The number of rejected triangles
+   *
+   * @return An error describing rejected triangles
+   */
+
+  SMFParseError rejected(
+    final long count)
+  {
+    return SMFIndexWriters.rejected(
+      count, this.vertex_count, this.index_type);
+  }
+
+  private static final class Frame
+  {
+    private final SMFArrayAttributeLayout attribute;
+    private @Nullable double[] normals;
+    private @Nullable double[] tangents;
+    private boolean normals_done;
+    private boolean tangents_done;
+
+    Frame(
+      final SMFArrayAttributeLayout in_attribute)
+    {
+      this.attribute = in_attribute;
+    }
+
+    SMFByteBufferPackerType captureNormals(
+      final int count)
+    {
+      this.normals = new double[Math.multiplyExact(count, 3)];
+      return SMFByteBufferPackersFrames.createCapture(this.normals, 3);
+    }
+
+    SMFByteBufferPackerType captureTangents(
+      final int count)
+    {
+      this.tangents = new double[Math.multiplyExact(count, 4)];
+      return SMFByteBufferPackersFrames.createCapture(this.tangents, 4);
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import javaslang.collection.List;
+
+/**
+ * <p>The type of mesh preparers.</p>
+ *
+ * <p>A mesh preparer packs parsed SMF data into CPU-side buffers using the
+ * same layout rules as {@link SMFArrayLoaderType}, but does not require a GL
+ * interface. Preparers may therefore run on any thread; the resulting
+ * {@link SMFPreparedMesh} is uploaded separately with
+ * {@link SMFPreparedMeshUploads}.</p>
+ *
+ * <p>A mesh preparer has <i>failed</i> if {@link #errors()} is non-empty.
+ * Preparers are single-use and must not be accessed by multiple threads
+ * concurrently.</p>
+ */
+
+public interface SMFMeshPreparerType
+  extends SMFParserEventsType, SMFBulkDataReceiverType
+{
+  /**
+   * @return The list of errors encountered during parsing, if any
+   */
+
+  List<SMFParseError> errors();
+
+  /**
+   * @return The prepared mesh
+   *
+   * @throws IllegalStateException Iff {@link #errors()} is non-empty, or
+   *                               parsing has not finished
+   */
+
+  SMFPreparedMesh preparedMesh()
+    throws IllegalStateException;
+}
@@ -0,0 +1,427 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jnull.NullCheck;
+import com.io7m.jnull.Nullable;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFFormatVersion;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import javaslang.collection.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * The default provider of {@link SMFMeshPreparerType} values.
+ */
+
+public final class SMFMeshPreparers
+{
+  private static final Logger LOG;
+
+  static {
+    LOG = LoggerFactory.getLogger(SMFMeshPreparers.class);
+  }
+
+  private SMFMeshPreparers()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Construct a new mesh preparer.
+   *
+   * @param in_meta       A metadata listener
+   * @param configuration An array object configuration
+   *
+   * @return A new mesh preparer
+   */
+
+  public static SMFMeshPreparerType newPreparer(
+    final SMFParserEventsMetaType in_meta,
+    final SMFArrayObjectConfiguration configuration)
+  {
+    return new Preparer(in_meta, configuration);
+  }
+
+  private static ByteBuffer allocate(
+    final long size)
+  {
+    final ByteBuffer b = ByteBuffer.allocateDirect(Math.toIntExact(size));
+    b.order(ByteOrder.nativeOrder());
+    return b;
+  }
+
+  private static ByteBuffer readOnly(
+    final ByteBuffer data)
+  {
+    final ByteBuffer view = data.asReadOnlyBuffer();
+    view.order(data.order());
+    view.rewind();
+    return view;
+  }
+
+  private static final class Preparer implements SMFMeshPreparerType
+  {
+    private final SMFArrayObjectConfiguration configuration;
+    private final SMFParserEventsMetaType meta;
+    private List<SMFParseError> errors;
+    private @Nullable SMFHeader header;
+    private @Nullable SMFArrayLayout layout;
+    private @Nullable JCGLUnsignedType index_type;
+    private @Nullable ByteBuffer vertex_data;
+    private @Nullable ByteBuffer index_data;
+    private @Nullable SMFMeshPacker mesh_packer;
+    private @Nullable SMFByteBufferPackerType packer;
+    private @Nullable SMFPreparedMesh prepared;
+    private Optional<SMFVertexCacheStatistics> cache_statistics;
+
+    Preparer(
+      final SMFParserEventsMetaType in_meta,
+      final SMFArrayObjectConfiguration in_configuration)
+    {
+      this.configuration = NullCheck.notNull(in_configuration, "Configuration");
+      this.meta = NullCheck.notNull(in_meta, "Meta");
+      this.errors = List.empty();
+      this.cache_statistics = Optional.empty();
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      final LexicalPosition<Path> lex = e.lexical();
+      LOG.error(
+        "parse error: {}:{}:{}: {}",
+        lex.file(),
+        Integer.valueOf(lex.line()),
+        Integer.valueOf(lex.column()),
+        e.message());
+
+      this.errors = this.errors.append(e);
+    }
+
+    @Override
+    public void onStart()
+    {
+
+    }
+
+    @Override
+    public void onVersionReceived(
+      final SMFFormatVersion version)
+    {
+
+    }
+
+    @Override
+    public void onFinish()
+    {
+      if (this.errors.isEmpty() && this.vertex_data != null) {
+        this.prepared = SMFPreparedMesh.of(
+          this.layout,
+          this.header.vertexCount(),
+          this.header.triangleCount(),
+          this.index_type,
+          readOnly(this.vertex_data),
+          readOnly(this.index_data),
+          this.mesh_packer.indexRange(),
+          this.cache_statistics,
+          this.mesh_packer.dequantization());
+      }
+
+      this.mesh_packer = null;
+      this.vertex_data = null;
+      this.index_data = null;
+    }
+
+    @Override
+    public void onHeaderParsed(
+      final SMFHeader in_header)
+    {
+      this.header = NullCheck.notNull(in_header, "Header");
+      this.layout = SMFArrayLayouts.layoutFor(this.configuration, in_header);
+      this.index_type =
+        SMFArrayLayouts.indexTypeFor(this.configuration, in_header);
+
+      this.vertex_data = allocate(Math.multiplyExact(
+        (long) this.layout.vertexSize(), in_header.vertexCount()));
+      this.index_data = allocate(Math.multiplyExact(
+        Math.multiplyExact(in_header.triangleCount(), 3L),
+        (long) this.index_type.getSizeBytes()));
+
+      this.mesh_packer = new SMFMeshPacker(
+        this.layout,
+        this.index_type,
+        in_header.vertexCount(),
+        this.vertex_data,
+        this.index_data);
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      return this.meta.onMeta(vendor, schema, length);
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      this.meta.onMetaData(vendor, schema, data);
+    }
+
+    @Override
+    public void onDataAttributeStart(
+      final SMFAttribute attribute)
+    {
+      this.packer = this.mesh_packer.packerFor(attribute);
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned1(
+      final long x)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerSigned1(x);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned2(
+      final long x,
+      final long y)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerSigned2(x, y);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerSigned3(x, y, z);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerSigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerSigned4(x, y, z, w);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned1(
+      final long x)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerUnsigned1(x);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned2(
+      final long x,
+      final long y)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerUnsigned2(x, y);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned3(
+      final long x,
+      final long y,
+      final long z)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerUnsigned3(x, y, z);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueIntegerUnsigned4(
+      final long x,
+      final long y,
+      final long z,
+      final long w)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueIntegerUnsigned4(x, y, z, w);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueFloat1(
+      final double x)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueFloat1(x);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueFloat2(
+      final double x,
+      final double y)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueFloat2(x, y);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueFloat3(
+      final double x,
+      final double y,
+      final double z)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueFloat3(x, y, z);
+      }
+    }
+
+    @Override
+    public void onDataAttributeValueFloat4(
+      final double x,
+      final double y,
+      final double z,
+      final double w)
+    {
+      if (this.packer != null) {
+        this.packer.onDataAttributeValueFloat4(x, y, z, w);
+      }
+    }
+
+    @Override
+    public boolean onDataAttributeBulk(
+      final SMFAttribute attribute,
+      final ByteBuffer data)
+    {
+      NullCheck.notNull(attribute, "Attribute");
+      NullCheck.notNull(data, "Data");
+      return this.mesh_packer.copyBulk(attribute, data);
+    }
+
+    @Override
+    public void onDataAttributeFinish(
+      final SMFAttribute attribute)
+    {
+      this.mesh_packer.finishAttribute(attribute);
+      this.packer = null;
+    }
+
+    @Override
+    public void onDataTrianglesStart()
+    {
+
+    }
+
+    @Override
+    public void onDataTriangle(
+      final long v0,
+      final long v1,
+      final long v2)
+    {
+      if (!this.mesh_packer.triangle(v0, v1, v2)) {
+        this.onError(this.mesh_packer.rejected(1L));
+      }
+    }
+
+    @Override
+    public void onDataTrianglesBulk(
+      final long[] indices,
+      final int offset,
+      final int count)
+    {
+      NullCheck.notNull(indices, "Indices");
+      final int rejected = this.mesh_packer.triangles(indices, offset, count);
+      if (rejected > 0) {
+        this.onError(this.mesh_packer.rejected((long) rejected));
+      }
+    }
+
+    @Override
+    public void onDataTrianglesBulk(
+      final int[] indices,
+      final int offset,
+      final int count)
+    {
+      NullCheck.notNull(indices, "Indices");
+      final int rejected = this.mesh_packer.triangles(indices, offset, count);
+      if (rejected > 0) {
+        this.onError(this.mesh_packer.rejected((long) rejected));
+      }
+    }
+
+    @Override
+    public void onDataTrianglesFinish()
+    {
+      if (this.errors.isEmpty() && this.mesh_packer != null) {
+        this.cache_statistics =
+          this.mesh_packer.optimizeTriangles(this.configuration);
+        this.mesh_packer.remapVertices(
+          this.configuration.vertexRemapPolicy());
+      }
+    }
+
+    @Override
+    public List<SMFParseError> errors()
+    {
+      return this.errors;
+    }
+
+    @Override
+    public SMFPreparedMesh preparedMesh()
+      throws IllegalStateException
+    {
+      if (!this.errors.isEmpty()) {
+        throw new IllegalStateException("Mesh preparation has failed");
+      }
+      if (this.prepared == null) {
+        throw new IllegalStateException("Mesh preparation has not finished");
+      }
+      return this.prepared;
+    }
+  }
+}
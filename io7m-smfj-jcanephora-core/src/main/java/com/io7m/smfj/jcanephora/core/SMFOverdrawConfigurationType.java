@@ -0,0 +1,70 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Configuration for the overdraw-reducing triangle ordering pass.
+ *
+ * @see SMFOverdrawOptimization
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFOverdrawConfigurationType
+{
+  /**
+   * @return The name of the attribute holding vertex positions. The attribute
+   * must be mapped by the array object configuration with
+   * {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_DIRECT}, and must be
+   * present in the header of each loaded mesh with three floating point
+   * components; otherwise, the layout decision fails.
+   */
+
+  @Value.Parameter
+  SMFAttributeName positionAttribute();
+
+  /**
+   * @return The largest permitted ratio between the vertex cache miss ratio
+   * of a cluster and that of the hard cluster containing it. Larger values
+   * produce smaller clusters, reducing overdraw at the cost of vertex cache
+   * efficiency.
+   */
+
+  @Value.Parameter
+  @Value.Default
+  default double threshold()
+  {
+    return 1.05;
+  }
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (!(this.threshold() >= 1.0)) {
+      throw new IllegalArgumentException(
+        "Overdraw threshold must be at least 1.0");
+    }
+  }
+}
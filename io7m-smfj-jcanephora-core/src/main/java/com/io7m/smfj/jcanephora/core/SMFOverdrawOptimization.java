@@ -0,0 +1,294 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * <p>Functions to reorder triangles so that those likely to occlude others
+ * are drawn first, reducing overdraw.</p>
+ *
+ * <p>The ordering follows Sander, Nehab and Barczak, <i>Fast Triangle
+ * Reordering for Vertex Locality and Reduced Overdraw</i>. The triangle list
+ * is split into clusters at points where the simulated vertex cache is
+ * entirely cold (<i>hard</i> boundaries), and each such cluster is split
+ * further wherever the cache miss ratio of the triangles so far falls within
+ * a threshold of that of the whole cluster (<i>soft</i> boundaries). Clusters
+ * are then sorted so that those facing away from the centroid of the mesh are
+ * drawn first. The order of triangles within each cluster, and so most of the
+ * locality produced by {@link SMFVertexCacheOptimization}, is preserved.</p>
+ */
+
+public final class SMFOverdrawOptimization
+{
+  private SMFOverdrawOptimization()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Reorder the given triangles to reduce overdraw.
+   *
+   * @param indices      The vertex indices, three per triangle
+   * @param positions    The vertex positions, three components per vertex
+   * @param vertex_count The number of vertices; all indices must be less than
+   *                     this value
+   * @param threshold    The cache miss ratio threshold, at least {@code 1.0}
+   *
+   * @return The reordered vertex indices
+   *
+   * @see SMFOverdrawConfiguration#threshold()
+   */
+
+  public static int[] optimize(
+    final int[] indices,
+    final double[] positions,
+    final int vertex_count,
+    final double threshold)
+  {
+    NullCheck.notNull(indices, "Indices");
+    NullCheck.notNull(positions, "Positions");
+
+    if (!(threshold >= 1.0)) {
+      throw new IllegalArgumentException(
+        "Overdraw threshold must be at least 1.0");
+    }
+
+    final int triangles = indices.length / 3;
+    if (triangles == 0) {
+      return indices.clone();
+    }
+
+    final Cache cache = new Cache(vertex_count);
+    final int[] hard = hardBoundaries(indices, triangles, cache);
+    final int[] soft = softBoundaries(indices, hard, threshold, cache);
+    final int clusters = soft.length - 1;
+
+    final double[] keys = sortKeys(indices, positions, soft);
+    final Integer[] order = new Integer[clusters];
+    for (int index = 0; index < clusters; index = index + 1) {
+      order[index] = Integer.valueOf(index);
+    }
+    Arrays.sort(
+      order,
+      Comparator.comparingDouble((Integer c) -> keys[c.intValue()])
+        .reversed());
+
+    final int[] output = new int[triangles * 3];
+    int out = 0;
+    for (int index = 0; index < clusters; index = index + 1) {
+      final int c = order[index].intValue();
+      final int start = soft[c] * 3;
+      final int length = (soft[c + 1] * 3) - start;
+      System.arraycopy(indices, start, output, out, length);
+      out = out + length;
+    }
+    return output;
+  }
+
+  private static int[] hardBoundaries(
+    final int[] indices,
+    final int triangles,
+    final Cache cache)
+  {
+    final int[] boundaries = new int[triangles + 1];
+    int count = 0;
+
+    cache.reset();
+    for (int t = 0; t < triangles; t = t + 1) {
+      final int misses = cache.triangle(indices, t);
+      if (t == 0 || misses == 3) {
+        boundaries[count] = t;
+        count = count + 1;
+      }
+    }
+
+    boundaries[count] = triangles;
+    return Arrays.copyOf(boundaries, count + 1);
+  }
+
+  private static int[] softBoundaries(
+    final int[] indices,
+    final int[] hard,
+    final double threshold,
+    final Cache cache)
+  {
+    final int triangles = hard[hard.length - 1];
+    final int[] boundaries = new int[triangles + 1];
+    int count = 0;
+
+    for (int c = 0; c + 1 < hard.length; c = c + 1) {
+      final int start = hard[c];
+      final int end = hard[c + 1];
+
+      cache.reset();
+      int cluster_misses = 0;
+      for (int t = start; t < end; t = t + 1) {
+        cluster_misses = cluster_misses + cache.triangle(indices, t);
+      }
+
+      final double target =
+        threshold * ((double) cluster_misses / (double) (end - start));
+
+      boundaries[count] = start;
+      count = count + 1;
+
+      cache.reset();
+      int running_misses = 0;
+      int running_triangles = 0;
+      for (int t = start; t < end; t = t + 1) {
+        running_misses = running_misses + cache.triangle(indices, t);
+        running_triangles = running_triangles + 1;
+
+        final double ratio =
+          (double) running_misses / (double) running_triangles;
+        if (ratio <= target) {
+          boundaries[count] = t + 1;
+          count = count + 1;
+          cache.reset();
+          running_misses = 0;
+          running_triangles = 0;
+        }
+      }
+
+      /*
+       * The last cluster is usually a poor remainder; merge it with the
+       * preceding cluster. If the last boundary coincides with the end of
+       * the hard cluster, this removes the resulting empty cluster instead.
+       */
+
+      if (boundaries[count - 1] != start) {
+        count = count - 1;
+      }
+    }
+
+    boundaries[count] = triangles;
+    return Arrays.copyOf(boundaries, count + 1);
+  }
+
+  private static double[] sortKeys(
+    final int[] indices,
+    final double[] positions,
+    final int[] clusters)
+  {
+    double mx = 0.0;
+    double my = 0.0;
+    double mz = 0.0;
+    for (int index = 0; index < indices.length; index = index + 1) {
+      final int p = indices[index] * 3;
+      mx = mx + positions[p];
+      my = my + positions[p + 1];
+      mz = mz + positions[p + 2];
+    }
+    mx = mx / (double) indices.length;
+    my = my / (double) indices.length;
+    mz = mz / (double) indices.length;
+
+    final double[] keys = new double[clusters.length - 1];
+    for (int c = 0; c < keys.length; c = c + 1) {
+      double area = 0.0;
+      double cx = 0.0;
+      double cy = 0.0;
+      double cz = 0.0;
+      double nx = 0.0;
+      double ny = 0.0;
+      double nz = 0.0;
+
+      for (int t = clusters[c]; t < clusters[c + 1]; t = t + 1) {
+        final int p0 = indices[t * 3] * 3;
+        final int p1 = indices[t * 3 + 1] * 3;
+        final int p2 = indices[t * 3 + 2] * 3;
+
+        final double ax = positions[p1] - positions[p0];
+        final double ay = positions[p1 + 1] - positions[p0 + 1];
+        final double az = positions[p1 + 2] - positions[p0 + 2];
+        final double bx = positions[p2] - positions[p0];
+        final double by = positions[p2 + 1] - positions[p0 + 1];
+        final double bz = positions[p2 + 2] - positions[p0 + 2];
+
+        final double tx = ay * bz - az * by;
+        final double ty = az * bx - ax * bz;
+        final double tz = ax * by - ay * bx;
+        final double t_area = Math.sqrt(tx * tx + ty * ty + tz * tz);
+        final double weight = t_area / 3.0;
+
+        cx = cx + (positions[p0] + positions[p1] + positions[p2]) * weight;
+        cy = cy + (positions[p0 + 1] + positions[p1 + 1] + positions[p2 + 1])
+          * weight;
+        cz = cz + (positions[p0 + 2] + positions[p1 + 2] + positions[p2 + 2])
+          * weight;
+        nx = nx + tx;
+        ny = ny + ty;
+        nz = nz + tz;
+        area = area + t_area;
+      }
+
+      final double inv_area = area > 0.0 ? 1.0 / area : 0.0;
+      final double n_length = Math.sqrt(nx * nx + ny * ny + nz * nz);
+      final double inv_length = n_length > 0.0 ? 1.0 / n_length : 0.0;
+
+      keys[c] =
+        (cx * inv_area - mx) * nx * inv_length
+          + (cy * inv_area - my) * ny * inv_length
+          + (cz * inv_area - mz) * nz * inv_length;
+    }
+    return keys;
+  }
+
+  private static final class Cache
+  {
+    private final int[] stamps;
+    private int time;
+
+    Cache(
+      final int vertex_count)
+    {
+      this.stamps = new int[vertex_count];
+      this.time = SMFVertexCacheOptimization.CACHE_SIZE + 1;
+    }
+
+    void reset()
+    {
+      this.time = this.time + SMFVertexCacheOptimization.CACHE_SIZE + 1;
+    }
+
+    int triangle(
+      final int[] indices,
+      final int t)
+    {
+      final int base = t * 3;
+      return this.vertex(indices[base])
+        + this.vertex(indices[base + 1])
+        + this.vertex(indices[base + 2]);
+    }
+
+    private int vertex(
+      final int v)
+    {
+      if (this.time - this.stamps[v] > SMFVertexCacheOptimization.CACHE_SIZE) {
+        this.stamps[v] = this.time;
+        this.time = this.time + 1;
+        return 1;
+      }
+      return 0;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.Map;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * <p>A mesh that has been parsed and packed into CPU-side buffers, but not
+ * yet uploaded to the GPU.</p>
+ *
+ * <p>The buffers are read-only. Callers that wish to change the position or
+ * limit of a buffer should work on a {@link ByteBuffer#duplicate()} so that
+ * the mesh can be shared safely between threads.</p>
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFPreparedMeshType
+{
+  /**
+   * @return The layout of the packed vertices
+   */
+
+  @Value.Parameter
+  SMFArrayLayout layout();
+
+  /**
+   * @return The number of vertices
+   */
+
+  @Value.Parameter
+  long vertexCount();
+
+  /**
+   * @return The number of triangles
+   */
+
+  @Value.Parameter
+  long triangleCount();
+
+  /**
+   * @return The type of triangle indices
+   */
+
+  @Value.Parameter
+  JCGLUnsignedType indexType();
+
+  /**
+   * @return The packed vertices, laid out according to {@link #layout()}
+   */
+
+  @Value.Parameter
+  ByteBuffer vertexData();
+
+  /**
+   * @return The packed triangle indices, of type {@link #indexType()}
+   */
+
+  @Value.Parameter
+  ByteBuffer indexData();
+
+  /**
+   * @return The inclusive range of vertex indices referenced by triangles, or
+   * nothing if the mesh has no triangles
+   */
+
+  @Value.Parameter
+  Optional<RangeInclusiveL> indexRange();
+
+  /**
+   * @return Statistics describing the triangle reordering passes, or nothing
+   * if no passes were enabled by the configuration
+   */
+
+  @Value.Parameter
+  Optional<SMFVertexCacheStatistics> vertexCacheStatistics();
+
+  /**
+   * @return The information required to dequantize each attribute packed
+   * with {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED}
+   */
+
+  @Value.Parameter
+  Map<SMFAttributeName, SMFAttributeDequantization> dequantization();
+}
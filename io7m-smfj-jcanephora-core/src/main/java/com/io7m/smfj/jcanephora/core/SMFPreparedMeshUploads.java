@@ -0,0 +1,194 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectBuilderType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLBufferUpdateType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
+import com.io7m.jcanephora.core.api.JCGLArrayObjectsType;
+import com.io7m.jcanephora.core.api.JCGLIndexBuffersType;
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import javaslang.collection.List;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Functions to upload prepared meshes to the GPU.
+ */
+
+public final class SMFPreparedMeshUploads
+{
+  private SMFPreparedMeshUploads()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Upload a prepared mesh. This must be called on the thread that owns the
+   * GL context, but performs no parsing or packing: the packed data is
+   * transferred directly from the buffers of the prepared mesh.
+   *
+   * @param g             A GL interface
+   * @param mesh          A prepared mesh
+   * @param configuration The array object configuration used to prepare the
+   *                      mesh, which supplies the buffer usage hints
+   *
+   * @return The uploaded mesh
+   */
+
+  public static SMFUploadedMesh upload(
+    final JCGLInterfaceGL33Type g,
+    final SMFPreparedMesh mesh,
+    final SMFArrayObjectConfiguration configuration)
+  {
+    return upload(g, mesh, configuration, SMFBufferAllocators.direct());
+  }
+
+  /**
+   * Upload a prepared mesh, obtaining buffers from the given allocator. The
+   * buffers of the uploaded mesh should be released to the same allocator
+   * when they are no longer needed.
+   *
+   * @param g             A GL interface
+   * @param mesh          A prepared mesh
+   * @param configuration The array object configuration used to prepare the
+   *                      mesh, which supplies the buffer usage hints
+   * @param allocator     A buffer allocator
+   *
+   * @return The uploaded mesh
+   *
+   * @see SMFBufferPools
+   */
+
+  public static SMFUploadedMesh upload(
+    final JCGLInterfaceGL33Type g,
+    final SMFPreparedMesh mesh,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFBufferAllocatorType allocator)
+  {
+    NullCheck.notNull(g, "GL");
+    NullCheck.notNull(mesh, "Mesh");
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(allocator, "Allocator");
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+
+    final SMFArrayLayout layout = mesh.layout();
+    final List<JCGLArrayBufferType> array_buffers =
+      SMFArrayStreams.allocate(
+        allocator, g_ab, configuration, layout, mesh.vertexCount());
+    final List<JCGLBufferUpdateType<JCGLArrayBufferType>> array_updates =
+      SMFArrayStreams.updates(
+        array_buffers, layout, mesh.vertexData(), mesh.vertexCount());
+    for (final JCGLBufferUpdateType<JCGLArrayBufferType> update
+      : array_updates) {
+      g_ab.arrayBufferUpdate(update);
+    }
+
+    final JCGLIndexBufferType index_buffer =
+      allocator.indexBufferAllocate(
+        g_ib,
+        Math.multiplyExact(mesh.triangleCount(), 3L),
+        mesh.indexType(),
+        configuration.indexBufferUsage());
+    g_ib.indexBufferUpdate(
+      SMFBufferUpdate.replacingAll(index_buffer, mesh.indexData()));
+
+    final JCGLArrayObjectBuilderType builder = g_ao.arrayObjectNewBuilder();
+    builder.setIndexBuffer(index_buffer);
+    SMFArrayAttributeBindings.bindStreams(builder, layout, array_buffers);
+
+    final JCGLArrayObjectType array_object = g_ao.arrayObjectAllocate(builder);
+    return SMFUploadedMesh.of(
+      array_object,
+      array_buffers,
+      index_buffer,
+      mesh.indexRange(),
+      mesh.dequantization());
+  }
+
+  /**
+   * Upload a prepared mesh, reusing live buffers of the given deduplicator
+   * that have identical contents to the packed vertex streams or indices.
+   * The buffers of the uploaded mesh may be shared with other meshes, and
+   * must be released to {@code deduplicator} rather than deleted.
+   *
+   * @param g             A GL interface
+   * @param mesh          A prepared mesh
+   * @param configuration The array object configuration used to prepare the
+   *                      mesh, which supplies the buffer usage hints
+   * @param deduplicator  A buffer deduplicator
+   *
+   * @return The uploaded mesh
+   *
+   * @see SMFBufferDeduplicators
+   */
+
+  public static SMFUploadedMesh uploadDeduplicated(
+    final JCGLInterfaceGL33Type g,
+    final SMFPreparedMesh mesh,
+    final SMFArrayObjectConfiguration configuration,
+    final SMFBufferDeduplicatorType deduplicator)
+  {
+    NullCheck.notNull(g, "GL");
+    NullCheck.notNull(mesh, "Mesh");
+    NullCheck.notNull(configuration, "Configuration");
+    NullCheck.notNull(deduplicator, "Deduplicator");
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+
+    final SMFArrayLayout layout = mesh.layout();
+    List<JCGLArrayBufferType> array_buffers = List.empty();
+    for (final SMFArrayStreamLayout stream : layout.streams()) {
+      array_buffers = array_buffers.append(deduplicator.arrayBufferFor(
+        g_ab,
+        SMFArrayStreams.data(mesh.vertexData(), stream, mesh.vertexCount()),
+        configuration.streamUsage(stream.name())));
+    }
+
+    final ByteBuffer indices = mesh.indexData().duplicate();
+    indices.clear();
+    final JCGLIndexBufferType index_buffer =
+      deduplicator.indexBufferFor(
+        g_ib,
+        indices,
+        Math.multiplyExact(mesh.triangleCount(), 3L),
+        mesh.indexType(),
+        configuration.indexBufferUsage());
+
+    final JCGLArrayObjectBuilderType builder = g_ao.arrayObjectNewBuilder();
+    builder.setIndexBuffer(index_buffer);
+    SMFArrayAttributeBindings.bindStreams(builder, layout, array_buffers);
+
+    final JCGLArrayObjectType array_object = g_ao.arrayObjectAllocate(builder);
+    return SMFUploadedMesh.of(
+      array_object,
+      array_buffers,
+      index_buffer,
+      mesh.indexRange(),
+      mesh.dequantization());
+  }
+}
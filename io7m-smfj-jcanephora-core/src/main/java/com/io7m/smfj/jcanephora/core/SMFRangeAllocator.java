@@ -0,0 +1,189 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+
+/**
+ * <p>A first-fit allocator of ranges within a fixed capacity, such as ranges
+ * of vertices or indices within a shared buffer.</p>
+ *
+ * <p>Free ranges are held in a list ordered by offset. Released ranges are
+ * merged with adjacent free ranges, so that repeatedly allocating and
+ * releasing ranges of varying sizes does not fragment the capacity more
+ * than is necessary.</p>
+ *
+ * <p>Allocators are not thread-safe.</p>
+ */
+
+public final class SMFRangeAllocator
+{
+  private final long capacity;
+  private final TreeMap<Long, Long> free;
+  private long available;
+
+  /**
+   * Construct an allocator.
+   *
+   * @param in_capacity The total capacity
+   */
+
+  public SMFRangeAllocator(
+    final long in_capacity)
+  {
+    if (in_capacity < 0L) {
+      throw new IllegalArgumentException("Capacity must be non-negative");
+    }
+
+    this.capacity = in_capacity;
+    this.available = in_capacity;
+    this.free = new TreeMap<>();
+    if (in_capacity > 0L) {
+      this.free.put(Long.valueOf(0L), Long.valueOf(in_capacity));
+    }
+  }
+
+  /**
+   * @return The total capacity
+   */
+
+  public long capacity()
+  {
+    return this.capacity;
+  }
+
+  /**
+   * @return The total size of all free ranges
+   */
+
+  public long available()
+  {
+    return this.available;
+  }
+
+  /**
+   * Allocate a range of {@code size} units. Ranges of size {@code 0} are
+   * always allocated at offset {@code 0} and do not consume capacity.
+   *
+   * @param size The size of the range
+   *
+   * @return The offset of the allocated range, or nothing if no free range
+   * is large enough
+   */
+
+  public OptionalLong allocate(
+    final long size)
+  {
+    if (size < 0L) {
+      throw new IllegalArgumentException("Size must be non-negative");
+    }
+    if (size == 0L) {
+      return OptionalLong.of(0L);
+    }
+
+    for (final Map.Entry<Long, Long> e : this.free.entrySet()) {
+      final long offset = e.getKey().longValue();
+      final long range = e.getValue().longValue();
+      if (range >= size) {
+        this.free.remove(e.getKey());
+        if (range > size) {
+          this.free.put(
+            Long.valueOf(offset + size), Long.valueOf(range - size));
+        }
+        this.available = this.available - size;
+        return OptionalLong.of(offset);
+      }
+    }
+
+    return OptionalLong.empty();
+  }
+
+  /**
+   * Release a range previously returned by {@link #allocate(long)}.
+   *
+   * @param offset The offset of the range
+   * @param size   The size of the range
+   *
+   * @throws IllegalArgumentException If the range lies outside of the
+   *                                  capacity, or overlaps a free range
+   */
+
+  public void release(
+    final long offset,
+    final long size)
+    throws IllegalArgumentException
+  {
+    if (size == 0L) {
+      return;
+    }
+    if (offset < 0L || size < 0L || offset > this.capacity - size) {
+      throw new IllegalArgumentException(
+        "Range [" + offset + ", +" + size + ") lies outside of the capacity "
+          + this.capacity);
+    }
+
+    final Map.Entry<Long, Long> before =
+      this.free.floorEntry(Long.valueOf(offset));
+    final Map.Entry<Long, Long> after =
+      this.free.ceilingEntry(Long.valueOf(offset));
+
+    long start = offset;
+    long end = offset + size;
+
+    if (before != null) {
+      final long b_end =
+        before.getKey().longValue() + before.getValue().longValue();
+      if (b_end > start) {
+        throw overlap(offset, size);
+      }
+    }
+    if (after != null) {
+      if (after.getKey().longValue() < end) {
+        throw overlap(offset, size);
+      }
+    }
+
+    if (before != null) {
+      final long b_end =
+        before.getKey().longValue() + before.getValue().longValue();
+      if (b_end == start) {
+        start = before.getKey().longValue();
+        this.free.remove(before.getKey());
+      }
+    }
+    if (after != null) {
+      if (after.getKey().longValue() == end) {
+        end = end + after.getValue().longValue();
+        this.free.remove(after.getKey());
+      }
+    }
+
+    this.free.put(Long.valueOf(start), Long.valueOf(end - start));
+    this.available = this.available + size;
+  }
+
+  private static IllegalArgumentException overlap(
+    final long offset,
+    final long size)
+  {
+    return new IllegalArgumentException(
+      "Range [" + offset + ", +" + size + ") overlaps a free range");
+  }
+}
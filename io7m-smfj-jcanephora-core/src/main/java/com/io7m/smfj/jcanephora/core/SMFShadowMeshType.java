@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type;
+
+/**
+ * <p>A CPU-side shadow copy of the packed data of a mesh, held in an
+ * {@link SMFShadowStoreType}.</p>
+ *
+ * <p>A shadow copy may be uploaded to any number of GL contexts without
+ * parsing the original mesh again; for example, to recover from the loss of
+ * a context, or to display the same mesh in several contexts.</p>
+ */
+
+public interface SMFShadowMeshType
+{
+  /**
+   * @return The size in bytes of the shadow copy
+   */
+
+  long sizeBytes();
+
+  /**
+   * @return The configuration with which the mesh was packed
+   */
+
+  SMFArrayObjectConfiguration configuration();
+
+  /**
+   * @return The packed mesh
+   *
+   * @throws IllegalStateException If the shadow copy has been released
+   */
+
+  SMFPreparedMesh mesh()
+    throws IllegalStateException;
+
+  /**
+   * Upload the packed mesh to the given context.
+   *
+   * @param g         A GL interface
+   * @param allocator A buffer allocator
+   *
+   * @return The uploaded mesh
+   *
+   * @throws IllegalStateException If the shadow copy has been released
+   * @see SMFPreparedMeshUploads#upload(JCGLInterfaceGL33Type,
+   * SMFPreparedMesh, SMFArrayObjectConfiguration, SMFBufferAllocatorType)
+   */
+
+  default SMFUploadedMesh upload(
+    final JCGLInterfaceGL33Type g,
+    final SMFBufferAllocatorType allocator)
+    throws IllegalStateException
+  {
+    return SMFPreparedMeshUploads.upload(
+      g, this.mesh(), this.configuration(), allocator);
+  }
+
+  /**
+   * Upload the packed mesh to the given context.
+   *
+   * @param g A GL interface
+   *
+   * @return The uploaded mesh
+   *
+   * @throws IllegalStateException If the shadow copy has been released
+   */
+
+  default SMFUploadedMesh upload(
+    final JCGLInterfaceGL33Type g)
+    throws IllegalStateException
+  {
+    return this.upload(g, SMFBufferAllocators.direct());
+  }
+
+  /**
+   * @return {@code true} iff the shadow copy has been released
+   */
+
+  boolean isReleased();
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import java.util.Optional;
+
+/**
+ * <p>The type of shadow stores.</p>
+ *
+ * <p>A shadow store holds compact off-heap copies of packed meshes, so that
+ * the meshes can be uploaded again without parsing. The total size of held
+ * copies is bounded by a byte budget; requests to retain meshes that would
+ * exceed the budget are refused.</p>
+ *
+ * <p>Shadow stores are thread-safe.</p>
+ *
+ * @see SMFArrayLoaders#newLoader(
+ * com.io7m.jcanephora.core.api.JCGLInterfaceGL33Type,
+ * com.io7m.smfj.parser.api.SMFParserEventsMetaType,
+ * SMFArrayObjectConfiguration, SMFBufferAllocatorType, SMFShadowStoreType)
+ */
+
+public interface SMFShadowStoreType
+{
+  /**
+   * @return The maximum total size in bytes of held shadow copies
+   */
+
+  long budget();
+
+  /**
+   * @return The total size in bytes of held shadow copies
+   */
+
+  long usedBytes();
+
+  /**
+   * Copy the packed data of {@code mesh} into the store. The mesh itself is
+   * not retained, and its buffers may be discarded after this method
+   * returns.
+   *
+   * @param mesh          A packed mesh
+   * @param configuration The configuration with which the mesh was packed
+   *
+   * @return A shadow copy, or nothing if the copy would exceed the budget
+   */
+
+  Optional<SMFShadowMeshType> retain(
+    SMFPreparedMesh mesh,
+    SMFArrayObjectConfiguration configuration);
+
+  /**
+   * Release a shadow copy, returning its size to the budget.
+   *
+   * @param shadow A shadow copy held by this store
+   *
+   * @throws IllegalArgumentException If the shadow copy is not held by this
+   *                                  store, or has already been released
+   */
+
+  void release(
+    SMFShadowMeshType shadow)
+    throws IllegalArgumentException;
+}
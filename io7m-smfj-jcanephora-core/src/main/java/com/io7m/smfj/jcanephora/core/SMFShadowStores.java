@@ -0,0 +1,213 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The default provider of {@link SMFShadowStoreType} values.
+ */
+
+public final class SMFShadowStores
+{
+  private SMFShadowStores()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Create a new, empty shadow store.
+   *
+   * @param budget The maximum total size in bytes of held shadow copies
+   *
+   * @return A new shadow store
+   */
+
+  public static SMFShadowStoreType newStore(
+    final long budget)
+  {
+    if (budget < 0L) {
+      throw new IllegalArgumentException("Budget must be non-negative");
+    }
+    return new Store(budget);
+  }
+
+  private static ByteBuffer view(
+    final ByteBuffer data,
+    final int offset,
+    final int size,
+    final ByteOrder order)
+  {
+    final ByteBuffer d = data.duplicate();
+    d.limit(offset + size);
+    d.position(offset);
+    final ByteBuffer view = d.slice().asReadOnlyBuffer();
+    view.order(order);
+    return view;
+  }
+
+  private static ByteBuffer rewound(
+    final ByteBuffer data)
+  {
+    final ByteBuffer d = data.duplicate();
+    d.clear();
+    return d;
+  }
+
+  private static final class Shadow implements SMFShadowMeshType
+  {
+    private final SMFArrayObjectConfiguration configuration;
+    private final long size;
+    private volatile SMFPreparedMesh mesh;
+
+    Shadow(
+      final SMFArrayObjectConfiguration in_configuration,
+      final SMFPreparedMesh in_mesh,
+      final long in_size)
+    {
+      this.configuration =
+        NullCheck.notNull(in_configuration, "Configuration");
+      this.mesh = NullCheck.notNull(in_mesh, "Mesh");
+      this.size = in_size;
+    }
+
+    @Override
+    public long sizeBytes()
+    {
+      return this.size;
+    }
+
+    @Override
+    public SMFArrayObjectConfiguration configuration()
+    {
+      return this.configuration;
+    }
+
+    @Override
+    public SMFPreparedMesh mesh()
+      throws IllegalStateException
+    {
+      final SMFPreparedMesh m = this.mesh;
+      if (m == null) {
+        throw new IllegalStateException("Shadow copy has been released");
+      }
+      return m;
+    }
+
+    @Override
+    public boolean isReleased()
+    {
+      return this.mesh == null;
+    }
+  }
+
+  private static final class Store implements SMFShadowStoreType
+  {
+    private final long budget;
+    private final Set<Shadow> live;
+    private long used;
+
+    Store(
+      final long in_budget)
+    {
+      this.budget = in_budget;
+      this.live = Collections.newSetFromMap(new IdentityHashMap<>());
+      this.used = 0L;
+    }
+
+    @Override
+    public long budget()
+    {
+      return this.budget;
+    }
+
+    @Override
+    public synchronized long usedBytes()
+    {
+      return this.used;
+    }
+
+    @Override
+    public Optional<SMFShadowMeshType> retain(
+      final SMFPreparedMesh mesh,
+      final SMFArrayObjectConfiguration configuration)
+    {
+      NullCheck.notNull(mesh, "Mesh");
+      NullCheck.notNull(configuration, "Configuration");
+
+      final ByteBuffer vertices = rewound(mesh.vertexData());
+      final ByteBuffer indices = rewound(mesh.indexData());
+      final int vertex_size = vertices.remaining();
+      final int index_size = indices.remaining();
+      final long size = (long) vertex_size + (long) index_size;
+
+      synchronized (this) {
+        if (Math.addExact(this.used, size) > this.budget) {
+          return Optional.empty();
+        }
+        this.used = this.used + size;
+      }
+
+      final ByteBuffer data = ByteBuffer.allocateDirect(Math.toIntExact(size));
+      data.put(vertices);
+      data.put(indices);
+
+      final SMFPreparedMesh copy = SMFPreparedMesh.of(
+        mesh.layout(),
+        mesh.vertexCount(),
+        mesh.triangleCount(),
+        mesh.indexType(),
+        view(data, 0, vertex_size, mesh.vertexData().order()),
+        view(data, vertex_size, index_size, mesh.indexData().order()),
+        mesh.indexRange(),
+        mesh.vertexCacheStatistics(),
+        mesh.dequantization());
+
+      final Shadow shadow = new Shadow(configuration, copy, size);
+      synchronized (this) {
+        this.live.add(shadow);
+      }
+      return Optional.of(shadow);
+    }
+
+    @Override
+    public synchronized void release(
+      final SMFShadowMeshType shadow)
+      throws IllegalArgumentException
+    {
+      NullCheck.notNull(shadow, "Shadow");
+
+      if (!this.live.remove(shadow)) {
+        throw new IllegalArgumentException(
+          "Shadow copy is not held by this store");
+      }
+
+      final Shadow s = (Shadow) shadow;
+      s.mesh = null;
+      this.used = this.used - s.size;
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jcanephora.core.JCGLArrayBufferType;
+import com.io7m.jcanephora.core.JCGLArrayObjectType;
+import com.io7m.jcanephora.core.JCGLIndexBufferType;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import javaslang.collection.List;
+import javaslang.collection.Map;
+import org.immutables.javaslang.encodings.JavaslangEncodingEnabled;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * The GL objects created by uploading a mesh. The caller owns the objects
+ * and is responsible for deleting them when they are no longer being used.
+ */
+
+@SMFImmutableStyleType
+@JavaslangEncodingEnabled
+@Value.Immutable
+public interface SMFUploadedMeshType
+{
+  /**
+   * @return The array object
+   */
+
+  @Value.Parameter
+  JCGLArrayObjectType arrayObject();
+
+  /**
+   * @return The array buffers, one per vertex stream, in the order of
+   * {@link SMFArrayLayoutType#streams()}
+   */
+
+  @Value.Parameter
+  List<JCGLArrayBufferType> arrayBuffers();
+
+  /**
+   * @return The array buffer of the first vertex stream
+   */
+
+  default JCGLArrayBufferType arrayBuffer()
+  {
+    return this.arrayBuffers().get(0);
+  }
+
+  /**
+   * @return The index buffer
+   */
+
+  @Value.Parameter
+  JCGLIndexBufferType indexBuffer();
+
+  /**
+   * @return The inclusive range of vertex indices referenced by triangles, or
+   * nothing if the mesh has no triangles
+   */
+
+  @Value.Parameter
+  Optional<RangeInclusiveL> indexRange();
+
+  /**
+   * @return The information required to dequantize each attribute packed
+   * with {@link SMFArrayAttributeEncoding#ATTRIBUTE_ENCODING_RANGE_NORMALIZED}
+   */
+
+  @Value.Parameter
+  Map<SMFAttributeName, SMFAttributeDequantization> dequantization();
+
+  /**
+   * Check preconditions for the type.
+   */
+
+  @Value.Check
+  default void checkPreconditions()
+  {
+    if (this.arrayBuffers().isEmpty()) {
+      throw new IllegalArgumentException(
+        "At least one array buffer must be provided");
+    }
+  }
+}
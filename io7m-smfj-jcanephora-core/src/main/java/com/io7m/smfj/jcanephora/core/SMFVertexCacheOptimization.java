@@ -0,0 +1,370 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.util.Arrays;
+
+/**
+ * <p>Functions to reorder triangles for efficient use of the post-transform
+ * vertex cache.</p>
+ *
+ * <p>The reordering uses Tom Forsyth's <i>Linear-Speed Vertex Cache
+ * Optimisation</i>: triangles are emitted greedily, each step choosing the
+ * triangle whose vertices score highest given their position in a simulated
+ * cache and the number of triangles that still use them. The vertex indices
+ * themselves, and the winding of each triangle, are preserved.</p>
+ *
+ * <p>Results are measured as the <i>average cache miss ratio</i> (ACMR): the
+ * number of vertices transformed per triangle, assuming a FIFO cache of a
+ * given size. An ACMR of {@code 0.5} is the practical optimum for large
+ * regular meshes, and {@code 3.0} is the worst case.</p>
+ */
+
+public final class SMFVertexCacheOptimization
+{
+  /**
+   * The size of the cache used when scoring vertices.
+   */
+
+  public static final int CACHE_SIZE = 32;
+
+  private static final float CACHE_DECAY_POWER = 1.5f;
+  private static final float LAST_TRIANGLE_SCORE = 0.75f;
+  private static final float VALENCE_BOOST_SCALE = 2.0f;
+  private static final float VALENCE_BOOST_POWER = 0.5f;
+  private static final int VALENCE_TABLE_SIZE = 64;
+
+  private static final float[] CACHE_SCORES;
+  private static final float[] VALENCE_SCORES;
+
+  static {
+    CACHE_SCORES = new float[CACHE_SIZE];
+    for (int index = 0; index < CACHE_SIZE; index = index + 1) {
+      if (index < 3) {
+        CACHE_SCORES[index] = LAST_TRIANGLE_SCORE;
+      } else {
+        final double scaled =
+          1.0 - (double) (index - 3) / (double) (CACHE_SIZE - 3);
+        CACHE_SCORES[index] =
+          (float) Math.pow(scaled, (double) CACHE_DECAY_POWER);
+      }
+    }
+
+    VALENCE_SCORES = new float[VALENCE_TABLE_SIZE];
+    for (int index = 1; index < VALENCE_TABLE_SIZE; index = index + 1) {
+      VALENCE_SCORES[index] = valenceScoreOf(index);
+    }
+  }
+
+  private SMFVertexCacheOptimization()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static float valenceScoreOf(
+    final int remaining)
+  {
+    return VALENCE_BOOST_SCALE
+      * (float) Math.pow((double) remaining, (double) -VALENCE_BOOST_POWER);
+  }
+
+  private static float vertexScore(
+    final int cache_position,
+    final int remaining)
+  {
+    if (remaining == 0) {
+      return -1.0f;
+    }
+
+    float score = 0.0f;
+    if (cache_position >= 0) {
+      score = CACHE_SCORES[cache_position];
+    }
+
+    if (remaining < VALENCE_TABLE_SIZE) {
+      return score + VALENCE_SCORES[remaining];
+    }
+    return score + valenceScoreOf(remaining);
+  }
+
+  /**
+   * Calculate the average cache miss ratio for the given triangles.
+   *
+   * @param indices      The vertex indices, three per triangle
+   * @param vertex_count The number of vertices
+   * @param cache_size   The size of the simulated FIFO cache
+   *
+   * @return The number of vertex transformations per triangle
+   */
+
+  public static double acmr(
+    final int[] indices,
+    final int vertex_count,
+    final int cache_size)
+  {
+    NullCheck.notNull(indices, "Indices");
+
+    final int triangles = indices.length / 3;
+    if (triangles == 0) {
+      return 0.0;
+    }
+
+    final int[] stamps = new int[vertex_count];
+    int time = cache_size + 1;
+    int misses = 0;
+    for (int index = 0; index < triangles * 3; index = index + 1) {
+      final int v = indices[index];
+      if (time - stamps[v] > cache_size) {
+        stamps[v] = time;
+        time = time + 1;
+        misses = misses + 1;
+      }
+    }
+
+    return (double) misses / (double) triangles;
+  }
+
+  /**
+   * Reorder the given triangles for efficient use of the vertex cache.
+   *
+   * @param indices      The vertex indices, three per triangle
+   * @param vertex_count The number of vertices; all indices must be less than
+   *                     this value
+   *
+   * @return The reordered vertex indices
+   */
+
+  public static int[] optimize(
+    final int[] indices,
+    final int vertex_count)
+  {
+    NullCheck.notNull(indices, "Indices");
+    return new Forsyth(indices, vertex_count).run();
+  }
+
+  private static final class Forsyth
+  {
+    private final int[] indices;
+    private final int triangle_count;
+    private final int[] adjacency_offsets;
+    private final int[] adjacency;
+    private final int[] remaining;
+    private final int[] cache_positions;
+    private final float[] vertex_scores;
+    private final float[] triangle_scores;
+    private final boolean[] emitted;
+    private int[] cache;
+    private int[] cache_next;
+    private int cache_count;
+    private int scan_cursor;
+
+    Forsyth(
+      final int[] in_indices,
+      final int vertex_count)
+    {
+      this.indices = in_indices;
+      this.triangle_count = in_indices.length / 3;
+
+      final int[] valence = new int[vertex_count];
+      for (int index = 0; index < this.triangle_count * 3; index = index + 1) {
+        final int v = in_indices[index];
+        valence[v] = valence[v] + 1;
+      }
+
+      this.adjacency_offsets = new int[vertex_count + 1];
+      for (int v = 0; v < vertex_count; v = v + 1) {
+        this.adjacency_offsets[v + 1] = this.adjacency_offsets[v] + valence[v];
+      }
+
+      this.remaining = new int[vertex_count];
+      this.adjacency = new int[this.triangle_count * 3];
+      for (int index = 0; index < this.triangle_count * 3; index = index + 1) {
+        final int v = in_indices[index];
+        final int slot = this.adjacency_offsets[v] + this.remaining[v];
+        this.adjacency[slot] = index / 3;
+        this.remaining[v] = this.remaining[v] + 1;
+      }
+
+      this.cache_positions = new int[vertex_count];
+      Arrays.fill(this.cache_positions, -1);
+
+      this.vertex_scores = new float[vertex_count];
+      for (int v = 0; v < vertex_count; v = v + 1) {
+        this.vertex_scores[v] = vertexScore(-1, this.remaining[v]);
+      }
+
+      this.triangle_scores = new float[this.triangle_count];
+      for (int t = 0; t < this.triangle_count; t = t + 1) {
+        this.triangle_scores[t] = this.triangleScore(t);
+      }
+
+      this.emitted = new boolean[this.triangle_count];
+      this.cache = new int[CACHE_SIZE + 3];
+      this.cache_next = new int[CACHE_SIZE + 3];
+    }
+
+    private float triangleScore(
+      final int t)
+    {
+      final int base = t * 3;
+      return this.vertex_scores[this.indices[base]]
+        + this.vertex_scores[this.indices[base + 1]]
+        + this.vertex_scores[this.indices[base + 2]];
+    }
+
+    int[] run()
+    {
+      final int[] output = new int[this.triangle_count * 3];
+
+      int best = this.bestOverall();
+      for (int out = 0; out < this.triangle_count; out = out + 1) {
+        if (best < 0) {
+          best = this.nextUnemitted();
+        }
+
+        final int base = best * 3;
+        final int v0 = this.indices[base];
+        final int v1 = this.indices[base + 1];
+        final int v2 = this.indices[base + 2];
+        output[out * 3] = v0;
+        output[out * 3 + 1] = v1;
+        output[out * 3 + 2] = v2;
+
+        this.emitted[best] = true;
+        this.removeAdjacent(v0, best);
+        this.removeAdjacent(v1, best);
+        this.removeAdjacent(v2, best);
+        this.updateCache(v0, v1, v2);
+        best = this.bestInCache();
+      }
+
+      return output;
+    }
+
+    private int bestOverall()
+    {
+      int best = -1;
+      float best_score = -1.0f;
+      for (int t = 0; t < this.triangle_count; t = t + 1) {
+        if (this.triangle_scores[t] > best_score) {
+          best = t;
+          best_score = this.triangle_scores[t];
+        }
+      }
+      return best;
+    }
+
+    private int nextUnemitted()
+    {
+      while (this.emitted[this.scan_cursor]) {
+        this.scan_cursor = this.scan_cursor + 1;
+      }
+      return this.scan_cursor;
+    }
+
+    private void removeAdjacent(
+      final int v,
+      final int t)
+    {
+      final int start = this.adjacency_offsets[v];
+      final int last = start + this.remaining[v] - 1;
+      for (int slot = start; slot <= last; slot = slot + 1) {
+        if (this.adjacency[slot] == t) {
+          this.adjacency[slot] = this.adjacency[last];
+          this.adjacency[last] = t;
+          this.remaining[v] = this.remaining[v] - 1;
+          return;
+        }
+      }
+    }
+
+    private void updateCache(
+      final int v0,
+      final int v1,
+      final int v2)
+    {
+      int count = 0;
+      this.cache_next[count] = v0;
+      count = count + 1;
+      if (v1 != v0) {
+        this.cache_next[count] = v1;
+        count = count + 1;
+      }
+      if (v2 != v0 && v2 != v1) {
+        this.cache_next[count] = v2;
+        count = count + 1;
+      }
+
+      for (int index = 0; index < this.cache_count; index = index + 1) {
+        final int v = this.cache[index];
+        if (v != v0 && v != v1 && v != v2) {
+          this.cache_next[count] = v;
+          count = count + 1;
+        }
+      }
+
+      for (int index = 0; index < count; index = index + 1) {
+        final int v = this.cache_next[index];
+        final int position = index < CACHE_SIZE ? index : -1;
+        this.cache_positions[v] = position;
+        this.vertex_scores[v] = vertexScore(position, this.remaining[v]);
+      }
+
+      for (int index = 0; index < count; index = index + 1) {
+        this.rescoreTriangles(this.cache_next[index]);
+      }
+
+      final int[] swap = this.cache;
+      this.cache = this.cache_next;
+      this.cache_next = swap;
+      this.cache_count = Math.min(count, CACHE_SIZE);
+    }
+
+    private void rescoreTriangles(
+      final int v)
+    {
+      final int start = this.adjacency_offsets[v];
+      final int end = start + this.remaining[v];
+      for (int slot = start; slot < end; slot = slot + 1) {
+        final int t = this.adjacency[slot];
+        this.triangle_scores[t] = this.triangleScore(t);
+      }
+    }
+
+    private int bestInCache()
+    {
+      int best = -1;
+      float best_score = -1.0f;
+      for (int index = 0; index < this.cache_count; index = index + 1) {
+        final int v = this.cache[index];
+        final int start = this.adjacency_offsets[v];
+        final int end = start + this.remaining[v];
+        for (int slot = start; slot < end; slot = slot + 1) {
+          final int t = this.adjacency[slot];
+          if (this.triangle_scores[t] > best_score) {
+            best = t;
+            best_score = this.triangle_scores[t];
+          }
+        }
+      }
+      return best;
+    }
+  }
+}
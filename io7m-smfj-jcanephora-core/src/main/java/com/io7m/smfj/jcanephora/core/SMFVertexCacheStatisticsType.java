@@ -0,0 +1,59 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.smfj.core.SMFImmutableStyleType;
+import org.immutables.value.Value;
+
+/**
+ * Statistics describing a vertex cache optimization pass.
+ *
+ * @see SMFVertexCacheOptimization
+ */
+
+@SMFImmutableStyleType
+@Value.Immutable
+public interface SMFVertexCacheStatisticsType
+{
+  /**
+   * @return The size of the simulated FIFO cache
+   */
+
+  @Value.Parameter
+  int cacheSize();
+
+  /**
+   * @return The number of triangles
+   */
+
+  @Value.Parameter
+  long triangleCount();
+
+  /**
+   * @return The average cache miss ratio before optimization
+   */
+
+  @Value.Parameter
+  double acmrBefore();
+
+  /**
+   * @return The average cache miss ratio after optimization
+   */
+
+  @Value.Parameter
+  double acmrAfter();
+}
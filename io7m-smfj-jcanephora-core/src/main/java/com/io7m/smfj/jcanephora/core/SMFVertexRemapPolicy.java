@@ -0,0 +1,49 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+/**
+ * Policies for renumbering vertices after triangles have been loaded.
+ */
+
+public enum SMFVertexRemapPolicy
+{
+  /**
+   * Leave vertices in the order in which they were declared.
+   */
+
+  VERTEX_REMAP_POLICY_NONE,
+
+  /**
+   * Renumber vertices in order of first reference by the final triangle
+   * order, permuting the packed vertex data in place by following the cycles
+   * of the permutation. This requires no memory proportional to the size of
+   * the vertex data beyond one bit per vertex, but touches vertices in an
+   * order that is unfriendly to the CPU cache.
+   */
+
+  VERTEX_REMAP_POLICY_IN_PLACE,
+
+  /**
+   * Renumber vertices in order of first reference by the final triangle
+   * order, permuting the packed vertex data by way of a scratch copy of the
+   * entire vertex data. This is faster than permuting in place, but
+   * temporarily doubles the memory required for vertex data.
+   */
+
+  VERTEX_REMAP_POLICY_SCRATCH_COPY
+}
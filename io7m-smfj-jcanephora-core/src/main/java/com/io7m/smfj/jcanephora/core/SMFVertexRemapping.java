@@ -0,0 +1,183 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.core;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * <p>Functions to renumber vertices in order of first use by a list of
+ * triangles.</p>
+ *
+ * <p>After triangles have been reordered for the post-transform vertex cache,
+ * consecutive triangles tend to refer to vertices that are far apart in the
+ * vertex data. Renumbering the vertices in order of first reference, and
+ * permuting the vertex data to match, makes vertex fetches close to
+ * sequential.</p>
+ */
+
+public final class SMFVertexRemapping
+{
+  private SMFVertexRemapping()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Calculate a vertex remapping table. Vertex {@code v} becomes vertex
+   * {@code table[v]}. Vertices are numbered in order of first reference by
+   * {@code indices}, and vertices that are not referenced at all are placed
+   * after all referenced vertices in their original order.
+   *
+   * @param indices      The vertex indices, three per triangle
+   * @param vertex_count The number of vertices
+   *
+   * @return A remapping table
+   */
+
+  public static int[] table(
+    final int[] indices,
+    final int vertex_count)
+  {
+    NullCheck.notNull(indices, "Indices");
+
+    final int[] table = new int[vertex_count];
+    Arrays.fill(table, -1);
+
+    int next = 0;
+    for (int index = 0; index < indices.length; index = index + 1) {
+      final int v = indices[index];
+      if (table[v] == -1) {
+        table[v] = next;
+        next = next + 1;
+      }
+    }
+
+    for (int v = 0; v < vertex_count; v = v + 1) {
+      if (table[v] == -1) {
+        table[v] = next;
+        next = next + 1;
+      }
+    }
+
+    return table;
+  }
+
+  /**
+   * Replace each of the given indices with its remapped value.
+   *
+   * @param indices The vertex indices
+   * @param table   A remapping table
+   */
+
+  public static void remapIndices(
+    final int[] indices,
+    final int[] table)
+  {
+    NullCheck.notNull(indices, "Indices");
+    NullCheck.notNull(table, "Table");
+
+    for (int index = 0; index < indices.length; index = index + 1) {
+      indices[index] = table[indices[index]];
+    }
+  }
+
+  /**
+   * Permute {@code table.length} records of {@code record_size} bytes,
+   * starting at offset {@code 0} in {@code data}, in place.
+   *
+   * @param data        The vertex data
+   * @param record_size The size in bytes of each vertex
+   * @param table       A remapping table
+   *
+   * @see SMFVertexRemapPolicy#VERTEX_REMAP_POLICY_IN_PLACE
+   */
+
+  public static void permuteInPlace(
+    final ByteBuffer data,
+    final int record_size,
+    final int[] table)
+  {
+    NullCheck.notNull(data, "Data");
+    NullCheck.notNull(table, "Table");
+
+    final ByteBuffer view = data.duplicate();
+    final BitSet done = new BitSet(table.length);
+    byte[] carry = new byte[record_size];
+    byte[] swap = new byte[record_size];
+
+    for (int start = 0; start < table.length; start = start + 1) {
+      if (done.get(start)) {
+        continue;
+      }
+
+      view.position(start * record_size);
+      view.get(carry);
+
+      int current = start;
+      do {
+        final int target = table[current];
+        done.set(current);
+
+        view.position(target * record_size);
+        view.get(swap);
+        view.position(target * record_size);
+        view.put(carry);
+
+        final byte[] temporary = carry;
+        carry = swap;
+        swap = temporary;
+        current = target;
+      } while (current != start);
+    }
+  }
+
+  /**
+   * Permute {@code table.length} records of {@code record_size} bytes,
+   * starting at offset {@code 0} in {@code data}, by way of a scratch copy.
+   *
+   * @param data        The vertex data
+   * @param record_size The size in bytes of each vertex
+   * @param table       A remapping table
+   *
+   * @see SMFVertexRemapPolicy#VERTEX_REMAP_POLICY_SCRATCH_COPY
+   */
+
+  public static void permuteScratchCopy(
+    final ByteBuffer data,
+    final int record_size,
+    final int[] table)
+  {
+    NullCheck.notNull(data, "Data");
+    NullCheck.notNull(table, "Table");
+
+    final int size = Math.multiplyExact(table.length, record_size);
+    final byte[] scratch = new byte[size];
+    final ByteBuffer view = data.duplicate();
+    view.position(0);
+    view.get(scratch, 0, size);
+
+    for (int v = 0; v < table.length; v = v + 1) {
+      view.position(table[v] * record_size);
+      view.put(scratch, v * record_size, record_size);
+    }
+  }
+}
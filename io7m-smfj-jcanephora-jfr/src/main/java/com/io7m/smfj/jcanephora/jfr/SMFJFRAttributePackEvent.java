@@ -0,0 +1,71 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.jfr;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.smfj.core.SMFAttributeName;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An event recorded for each attribute of each completed mesh load.
+ */
+
+@Name("com.io7m.smfj.jcanephora.AttributePack")
+@Label("Mesh Attribute Pack")
+@Category({"SMF", "jcanephora"})
+@Description("An attribute of a mesh was parsed and packed")
+@StackTrace(false)
+public final class SMFJFRAttributePackEvent extends Event
+{
+  @Label("Attribute")
+  private String attribute;
+
+  @Label("Pack Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long pack;
+
+  /**
+   * Construct an event.
+   */
+
+  public SMFJFRAttributePackEvent()
+  {
+    this.attribute = "";
+  }
+
+  /**
+   * Set the fields of the event.
+   *
+   * @param name  The attribute name
+   * @param nanos The time in nanoseconds spent packing the attribute
+   */
+
+  public void fill(
+    final SMFAttributeName name,
+    final long nanos)
+  {
+    this.attribute = NullCheck.notNull(name, "Name").value();
+    this.pack = nanos;
+  }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.jfr;
+
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadStatistics;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoaderListenerType;
+import jdk.jfr.EventType;
+
+/**
+ * Loader listeners that record JDK Flight Recorder events.
+ */
+
+public final class SMFJFRListeners
+{
+  private static final EventType LOAD_TYPE;
+  private static final EventType ATTRIBUTE_PACK_TYPE;
+
+  static {
+    LOAD_TYPE = EventType.getEventType(SMFJFRLoadEvent.class);
+    ATTRIBUTE_PACK_TYPE =
+      EventType.getEventType(SMFJFRAttributePackEvent.class);
+  }
+
+  private SMFJFRListeners()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * <p>Return a listener that records a {@link SMFJFRLoadEvent} for each
+   * load, and a {@link SMFJFRAttributePackEvent} for each attribute of each
+   * load.</p>
+   *
+   * <p>Events are only constructed if their event type is enabled in a
+   * running recording, so the listener allocates nothing when no recording
+   * is active.</p>
+   *
+   * @return A listener
+   *
+   * @see com.io7m.smfj.jcanephora.core.SMFArrayLoaders#instrumented
+   */
+
+  public static SMFArrayLoaderListenerType listener()
+  {
+    return SMFJFRListeners::record;
+  }
+
+  private static void record(
+    final SMFArrayLoadStatistics statistics)
+  {
+    NullCheck.notNull(statistics, "Statistics");
+
+    if (LOAD_TYPE.isEnabled()) {
+      final SMFJFRLoadEvent load = new SMFJFRLoadEvent();
+      if (load.shouldCommit()) {
+        load.fill(statistics);
+        load.commit();
+      }
+    }
+
+    if (!ATTRIBUTE_PACK_TYPE.isEnabled()) {
+      return;
+    }
+
+    statistics.attributePackNanos().forEach((name, nanos) -> {
+      final SMFJFRAttributePackEvent pack = new SMFJFRAttributePackEvent();
+      if (pack.shouldCommit()) {
+        pack.fill(name, nanos.longValue());
+        pack.commit();
+      }
+    });
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.jfr;
+
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadStatistics;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An event recorded for each completed mesh load.
+ */
+
+@Name("com.io7m.smfj.jcanephora.Load")
+@Label("Mesh Load")
+@Category({"SMF", "jcanephora"})
+@Description("A mesh was loaded into a GL array object")
+@StackTrace(false)
+public final class SMFJFRLoadEvent extends Event
+{
+  @Label("Succeeded")
+  private boolean succeeded;
+
+  @Label("Vertex Count")
+  private long vertex_count;
+
+  @Label("Triangle Count")
+  private long triangle_count;
+
+  @Label("Vertex Stride")
+  @DataAmount(DataAmount.BYTES)
+  private int vertex_stride;
+
+  @Label("Vertex Bytes")
+  @DataAmount(DataAmount.BYTES)
+  private long vertex_bytes;
+
+  @Label("Index Bytes")
+  @DataAmount(DataAmount.BYTES)
+  private long index_bytes;
+
+  @Label("Index Type")
+  private String index_type;
+
+  @Label("Header Parse Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long header_parse;
+
+  @Label("Allocation Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long allocate;
+
+  @Label("Triangle Pack Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long triangle_pack;
+
+  @Label("Upload Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long upload;
+
+  @Label("Total Time")
+  @Timespan(Timespan.NANOSECONDS)
+  private long total;
+
+  /**
+   * Construct an event.
+   */
+
+  public SMFJFRLoadEvent()
+  {
+    this.index_type = "";
+  }
+
+  /**
+   * Set the fields of the event from the given statistics.
+   *
+   * @param s The load statistics
+   */
+
+  public void fill(
+    final SMFArrayLoadStatistics s)
+  {
+    this.succeeded = s.succeeded();
+    this.vertex_count = s.vertexCount();
+    this.triangle_count = s.triangleCount();
+    this.vertex_stride = s.vertexStride();
+    this.vertex_bytes = s.vertexBytes();
+    this.index_bytes = s.indexBytes();
+    this.index_type = s.indexType().map(Enum::name).orElse("");
+    this.header_parse = s.headerParseNanos();
+    this.allocate = s.allocateNanos();
+    this.triangle_pack = s.trianglePackNanos();
+    this.upload = s.uploadNanos();
+    this.total = s.totalNanos();
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jnull.NullCheck;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFComponentType;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.parser.api.SMFParserEventsDataType;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+
+/**
+ * Functions to measure the heap allocation performed by the current thread.
+ * The loaders must not allocate per vertex or per triangle, so the tests
+ * deliver large numbers of elements and require the measured allocation to
+ * stay below a small constant that is independent of the element count.
+ */
+
+public final class SMFAllocationBudgets
+{
+  /**
+   * The number of bytes that a measured sequence of per-element events may
+   * allocate in total. The allowance absorbs the constant cost of the
+   * measurement itself; any allocation per element would exceed it by
+   * orders of magnitude.
+   */
+
+  public static final long STEADY_STATE_BYTES = 4096L;
+
+  /**
+   * The number of bytes that a complete load may allocate, excluding the
+   * header and the staging buffers allocated in response to it.
+   */
+
+  public static final long LOAD_BYTES = 65536L;
+
+  /**
+   * The name of the single attribute declared by generated headers.
+   */
+
+  public static final SMFAttributeName ATTRIBUTE = SMFAttributeName.of("x");
+
+  private SMFAllocationBudgets()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  private static com.sun.management.ThreadMXBean threads()
+  {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      return (com.sun.management.ThreadMXBean) bean;
+    }
+    throw new UnsupportedOperationException(
+      "Thread allocation counters are not supported");
+  }
+
+  /**
+   * @return {@code true} iff the JVM can count the bytes allocated by a
+   * thread
+   */
+
+  public static boolean isSupported()
+  {
+    final ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean) {
+      final com.sun.management.ThreadMXBean sun_bean =
+        (com.sun.management.ThreadMXBean) bean;
+      if (sun_bean.isThreadAllocatedMemorySupported()) {
+        sun_bean.setThreadAllocatedMemoryEnabled(true);
+        return sun_bean.isThreadAllocatedMemoryEnabled();
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return The total number of heap bytes allocated by the current thread
+   */
+
+  public static long allocatedBytes()
+  {
+    return threads().getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  /**
+   * @return The attribute declared by generated headers
+   */
+
+  public static SMFAttribute attribute()
+  {
+    return SMFAttribute.of(
+      ATTRIBUTE, SMFComponentType.ELEMENT_TYPE_FLOATING, 3, 32);
+  }
+
+  /**
+   * Generate a text mesh header declaring {@code vertices} vertices with a
+   * single 3-component 32-bit floating point attribute named
+   * {@link #ATTRIBUTE}, and {@code triangles} triangles with 32-bit indices,
+   * and deliver it to {@code events}.
+   *
+   * @param events    The receiver of parse events
+   * @param vertices  The number of vertices
+   * @param triangles The number of triangles
+   *
+   * @throws IOException On I/O errors
+   */
+
+  public static void parseHeader(
+    final SMFParserEventsType events,
+    final long vertices,
+    final long triangles)
+    throws IOException
+  {
+    NullCheck.notNull(events, "Events");
+
+    final StringBuilder text = new StringBuilder(128);
+    text.append("smf 1 0\n");
+    text.append("vertices ").append(vertices).append('\n');
+    text.append("triangles ").append(triangles).append(" 32\n");
+    text.append("coordinates +x +y -z counter-clockwise\n");
+    text.append("attribute \"x\" float 3 32\n");
+    text.append("data\n");
+
+    final byte[] bytes = text.toString().getBytes(StandardCharsets.UTF_8);
+    try (final InputStream stream = new ByteArrayInputStream(bytes)) {
+      final SMFParserProviderType fmt = new SMFFormatText();
+      try (final SMFParserSequentialType parser =
+             fmt.parserCreateSequential(
+               events, Paths.get("generated.smft"), stream)) {
+        parser.parseHeader();
+      }
+    }
+  }
+
+  /**
+   * Deliver {@code count} 3-component floating point vertices to
+   * {@code events}.
+   *
+   * @param events The receiver of parse events
+   * @param count  The number of vertices
+   */
+
+  public static void sendVertices(
+    final SMFParserEventsDataType events,
+    final long count)
+  {
+    for (long index = 0L; index < count; index = index + 1L) {
+      final double x = (double) index * 0.5;
+      events.onDataAttributeValueFloat3(x, -x, x);
+    }
+  }
+
+  /**
+   * Deliver {@code count} triangles referring to the first {@code vertices}
+   * vertices to {@code events}.
+   *
+   * @param events   The receiver of parse events
+   * @param count    The number of triangles
+   * @param vertices The number of vertices
+   */
+
+  public static void sendTriangles(
+    final SMFParserEventsDataType events,
+    final long count,
+    final long vertices)
+  {
+    for (long index = 0L; index < count; index = index + 1L) {
+      events.onDataTriangle(
+        index % vertices,
+        (index + 1L) % vertices,
+        (index + 2L) % vertices);
+    }
+  }
+
+  /**
+   * Deliver {@code count} vertices of the given component type and count to
+   * {@code events}. The delivered values are representable by every type.
+   *
+   * @param events          The receiver of parse events
+   * @param type            The component type
+   * @param component_count The component count
+   * @param count           The number of vertices
+   */
+
+  public static void sendValues(
+    final SMFParserEventsDataType events,
+    final JCGLScalarType type,
+    final int component_count,
+    final int count)
+  {
+    switch (type) {
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT: {
+        sendSigned(events, component_count, count);
+        return;
+      }
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT: {
+        sendUnsigned(events, component_count, count);
+        return;
+      }
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT: {
+        sendFloat(events, component_count, count);
+        return;
+      }
+    }
+
+    throw new UnreachableCodeException();
+  }
+
+  private static void sendSigned(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int count)
+  {
+    for (int index = 0; index < count; index = index + 1) {
+      final long x = (long) ((index & 0x7f) - 64);
+      switch (component_count) {
+        case 1:
+          p.onDataAttributeValueIntegerSigned1(x);
+          break;
+        case 2:
+          p.onDataAttributeValueIntegerSigned2(x, -x);
+          break;
+        case 3:
+          p.onDataAttributeValueIntegerSigned3(x, -x, x);
+          break;
+        default:
+          p.onDataAttributeValueIntegerSigned4(x, -x, x, -x);
+          break;
+      }
+    }
+  }
+
+  private static void sendUnsigned(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int count)
+  {
+    for (int index = 0; index < count; index = index + 1) {
+      final long x = (long) (index & 0x7f);
+      switch (component_count) {
+        case 1:
+          p.onDataAttributeValueIntegerUnsigned1(x);
+          break;
+        case 2:
+          p.onDataAttributeValueIntegerUnsigned2(x, x);
+          break;
+        case 3:
+          p.onDataAttributeValueIntegerUnsigned3(x, x, x);
+          break;
+        default:
+          p.onDataAttributeValueIntegerUnsigned4(x, x, x, x);
+          break;
+      }
+    }
+  }
+
+  private static void sendFloat(
+    final SMFParserEventsDataType p,
+    final int component_count,
+    final int count)
+  {
+    for (int index = 0; index < count; index = index + 1) {
+      final double x = (double) index * 0.5;
+      switch (component_count) {
+        case 1:
+          p.onDataAttributeValueFloat1(x);
+          break;
+        case 2:
+          p.onDataAttributeValueFloat2(x, -x);
+          break;
+        case 3:
+          p.onDataAttributeValueFloat3(x, -x, x);
+          break;
+        default:
+          p.onDataAttributeValueFloat4(x, -x, x, 1.0);
+          break;
+      }
+    }
+  }
+}
@@ -22,6 +22,7 @@ import com.io7m.jcanephora.core.JCGLArrayBufferUsableType;
 import com.io7m.jcanephora.core.JCGLArrayObjectType;
 import com.io7m.jcanephora.core.JCGLIndexBufferType;
 import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
 import com.io7m.jcanephora.core.JCGLUsageHint;
 import com.io7m.jcanephora.core.api.JCGLArrayBuffersType;
 import com.io7m.jcanephora.core.api.JCGLArrayObjectsType;
@@ -33,31 +34,71 @@ import com.io7m.jintegers.Signed32;
 import com.io7m.jintegers.Unsigned16;
 import com.io7m.jintegers.Unsigned32;
 import com.io7m.jintegers.Unsigned8;
+import com.io7m.jlexing.core.LexicalPosition;
+import com.io7m.jranges.RangeInclusiveL;
 import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
 import com.io7m.smfj.core.SMFAttributeName;
 import com.io7m.smfj.format.text.SMFFormatText;
 import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadStatistics;
 import com.io7m.smfj.jcanephora.core.SMFArrayLoaderType;
 import com.io7m.smfj.jcanephora.core.SMFArrayLoaders;
 import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFBatchLoaders;
+import com.io7m.smfj.jcanephora.core.SMFBatchResult;
+import com.io7m.smfj.jcanephora.core.SMFBufferAllocatorType;
+import com.io7m.smfj.jcanephora.core.SMFBufferAllocators;
+import com.io7m.smfj.jcanephora.core.SMFBufferDeduplicatorType;
+import com.io7m.smfj.jcanephora.core.SMFBufferDeduplicators;
+import com.io7m.smfj.jcanephora.core.SMFBufferPoolConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFBufferPoolType;
+import com.io7m.smfj.jcanephora.core.SMFBufferPools;
+import com.io7m.smfj.jcanephora.core.SMFErrorPolicy;
+import com.io7m.smfj.jcanephora.core.SMFMeshArenaAllocation;
+import com.io7m.smfj.jcanephora.core.SMFMeshArenaType;
+import com.io7m.smfj.jcanephora.core.SMFMeshArenas;
+import com.io7m.smfj.jcanephora.core.SMFMeshCacheHandleType;
+import com.io7m.smfj.jcanephora.core.SMFMeshCacheKey;
+import com.io7m.smfj.jcanephora.core.SMFMeshCacheLoadResult;
+import com.io7m.smfj.jcanephora.core.SMFMeshCacheType;
+import com.io7m.smfj.jcanephora.core.SMFMeshCaches;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparerType;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparers;
+import com.io7m.smfj.jcanephora.core.SMFPreparedMesh;
+import com.io7m.smfj.jcanephora.core.SMFShadowMeshType;
+import com.io7m.smfj.jcanephora.core.SMFShadowStoreType;
+import com.io7m.smfj.jcanephora.core.SMFShadowStores;
+import com.io7m.smfj.jcanephora.core.SMFUploadedMesh;
 import com.io7m.smfj.parser.api.SMFParseError;
 import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
 import com.io7m.smfj.parser.api.SMFParserEventsType;
 import com.io7m.smfj.parser.api.SMFParserProviderType;
 import com.io7m.smfj.parser.api.SMFParserSequentialType;
 import javaslang.collection.HashMap;
+import javaslang.collection.List;
 import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
 
 public abstract class SMFArrayLoaderContract
 {
+  @Rule public ExpectedException expected = ExpectedException.none();
+
   private static ByteBuffer copyHeap(final ByteBuffer original)
   {
     final ByteBuffer clone = ByteBuffer.allocate(original.capacity());
@@ -1440,59 +1481,1222 @@ public abstract class SMFArrayLoaderContract
     this.check(g, type, component_count, vertex_count, name);
   }
 
-  private void check(
-    final JCGLInterfaceGL33Type g,
-    final JCGLScalarType type,
-    final int component_count,
-    final int vertex_count,
-    final String name)
-    throws IOException
+  @Test
+  public final void testStreamingLoadFloat32_3()
+    throws Exception
   {
-    final SMFArrayAttributeMapping attr =
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final JCGLScalarType type = JCGLScalarType.TYPE_FLOAT;
+    final int component_count = 3;
+    final int vertex_count = 3;
+    final String name = "float32_3.smft";
+
+    this.check(
+      g,
+      type,
+      component_count,
+      vertex_count,
+      name,
+      config -> SMFArrayLoaders.newStreamingLoader(g, new Meta(), config, 16));
+  }
+
+  @Test
+  public final void testStreamingLoadIntegerSigned8_1()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final JCGLScalarType type = JCGLScalarType.TYPE_BYTE;
+    final int component_count = 1;
+    final int vertex_count = 3;
+    final String name = "integer8_1.smft";
+
+    this.check(
+      g,
+      type,
+      component_count,
+      vertex_count,
+      name,
+      config -> SMFArrayLoaders.newStreamingLoader(g, new Meta(), config, 16));
+  }
+
+  @Test
+  public final void testStreamingLoadIntegerUnsigned16_4()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final JCGLScalarType type = JCGLScalarType.TYPE_UNSIGNED_SHORT;
+    final int component_count = 4;
+    final int vertex_count = 3;
+    final String name = "unsigned16_4.smft";
+
+    this.check(
+      g,
+      type,
+      component_count,
+      vertex_count,
+      name,
+      config -> SMFArrayLoaders.newStreamingLoader(g, new Meta(), config, 16));
+  }
+
+  @Test
+  public final void testStreamingLoadFloat16_2()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final JCGLScalarType type = JCGLScalarType.TYPE_HALF_FLOAT;
+    final int component_count = 2;
+    final int vertex_count = 3;
+    final String name = "float16_2.smft";
+
+    this.check(
+      g,
+      type,
+      component_count,
+      vertex_count,
+      name,
+      config -> SMFArrayLoaders.newStreamingLoader(g, new Meta(), config, 16));
+  }
+
+  @Test
+  public final void testStreamingWindowTooSmall()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setMappings(HashMap.empty())
+        .build();
+
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayLoaders.newStreamingLoader(g, new Meta(), config, 15);
+  }
+
+  @Test
+  public final void testLoadStreams()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayAttributeMapping p =
       SMFArrayAttributeMapping.builder()
-        .setComponentCount(component_count)
-        .setComponentType(type)
+        .setComponentCount(3)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
         .setIndex(0)
-        .setName(SMFAttributeName.of("x"))
+        .setName(SMFAttributeName.of("p"))
+        .setStream("position")
+        .build();
+    final SMFArrayAttributeMapping uv =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(2)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
+        .setIndex(1)
+        .setName(SMFAttributeName.of("uv"))
         .build();
 
     final SMFArrayObjectConfiguration config =
       SMFArrayObjectConfiguration.builder()
-        .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
-        .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
-        .setMappings(HashMap.of(attr.name(), attr))
+        .setMappings(HashMap.of(p.name(), p).put(uv.name(), uv))
         .build();
 
     final SMFArrayLoaderType loader =
       SMFArrayLoaders.newLoader(g, new Meta(), config);
-
     try (final SMFParserSequentialType parser =
-           createParser(loader, name)) {
+           createParser(loader, "streams.smft")) {
       // Nothing
     }
 
     Assert.assertTrue(loader.errors().isEmpty());
 
-    final JCGLArrayBufferType array_buffer = loader.arrayBuffer();
+    final List<JCGLArrayBufferType> buffers = loader.arrayBuffers();
     final JCGLArrayObjectType array_object = loader.arrayObject();
-    final JCGLIndexBufferType index_buffer = loader.indexBuffer();
+    Assert.assertEquals(2L, (long) buffers.size());
+    Assert.assertEquals(buffers.get(0), loader.arrayBuffer());
+    Assert.assertEquals(24L, buffers.get(0).getRange().getInterval());
+    Assert.assertEquals(36L, buffers.get(1).getRange().getInterval());
     Assert.assertEquals(
-      (long) (type.getSizeBytes() * component_count * vertex_count),
-      array_buffer.getRange().getInterval());
+      buffers.get(1), array_object.getAttributeAt(0).get().getArrayBuffer());
     Assert.assertEquals(
-      3L, index_buffer.getRange().getInterval());
+      buffers.get(0), array_object.getAttributeAt(1).get().getArrayBuffer());
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    g.getArrayObjects().arrayObjectDelete(array_object);
+    buffers.forEach(g_ab::arrayBufferDelete);
+    g.getIndexBuffers().indexBufferDelete(loader.indexBuffer());
+  }
+
+  private SMFPreparedMesh prepare(
+    final SMFArrayObjectConfiguration config,
+    final String name)
+    throws IOException
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(new Meta(), config);
+    try (final SMFParserSequentialType parser =
+           createParser(preparer, name)) {
+      // Nothing
+    }
+    return preparer.preparedMesh();
+  }
+
+  private static SMFArrayObjectConfiguration float32Configuration(
+    final int component_count)
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(component_count)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
+        .setIndex(0)
+        .setName(SMFAttributeName.of("x"))
+        .build();
+
+    return SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(attr.name(), attr))
+      .build();
+  }
+
+  @Test
+  public final void testArenaInsertRelease()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final SMFPreparedMesh mesh = this.prepare(config, "float32_3.smft");
+    final SMFMeshArenaType arena =
+      SMFMeshArenas.newArena(g, config, mesh.layout(), 7L, 9L);
+
+    Assert.assertEquals(84L, arena.arrayBuffer().getRange().getInterval());
+    Assert.assertEquals(9L, arena.indexBuffer().getRange().getInterval());
+
+    final SMFMeshArenaAllocation a0 = arena.insert(mesh).get();
+    final SMFMeshArenaAllocation a1 = arena.insert(mesh).get();
+    Assert.assertEquals(0L, a0.baseVertex());
+    Assert.assertEquals(0L, a0.firstIndex());
+    Assert.assertEquals(3L, a1.baseVertex());
+    Assert.assertEquals(3L, a1.firstIndex());
+    Assert.assertEquals(3L, a1.indexCount());
     Assert.assertEquals(
-      array_buffer, array_object.getAttributeAt(0).get().getArrayBuffer());
+      Optional.of(new RangeInclusiveL(3L, 5L)), a1.indexRange());
+
+    Assert.assertEquals(1L, arena.verticesAvailable());
+    Assert.assertFalse(arena.insert(mesh).isPresent());
+    Assert.assertEquals(1L, arena.verticesAvailable());
+    Assert.assertEquals(3L, arena.indicesAvailable());
+
+    arena.release(a0);
+    final SMFMeshArenaAllocation a2 = arena.insert(mesh).get();
+    Assert.assertEquals(0L, a2.baseVertex());
+    Assert.assertEquals(0L, a2.firstIndex());
+
+    arena.delete();
+    Assert.assertTrue(arena.isDeleted());
+  }
 
+  @Test
+  public final void testArenaReleaseTwice()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final SMFPreparedMesh mesh = this.prepare(config, "float32_3.smft");
+    final SMFMeshArenaType arena =
+      SMFMeshArenas.newArena(g, config, mesh.layout(), 3L, 3L);
+
+    final SMFMeshArenaAllocation a0 = arena.insert(mesh).get();
+    arena.release(a0);
+
+    this.expected.expect(IllegalArgumentException.class);
+    arena.release(a0);
+  }
+
+  @Test
+  public final void testArenaLayoutMismatch()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFPreparedMesh mesh3 =
+      this.prepare(float32Configuration(3), "float32_3.smft");
+    final SMFPreparedMesh mesh4 =
+      this.prepare(float32Configuration(4), "float32_4.smft");
+    final SMFMeshArenaType arena =
+      SMFMeshArenas.newArena(
+        g, float32Configuration(3), mesh3.layout(), 30L, 30L);
+
+    this.expected.expect(IllegalArgumentException.class);
+    arena.insert(mesh4);
+  }
+
+  @Test
+  public final void testPoolRecyclesBuffers()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFBufferPoolType pool =
+      SMFBufferPools.newPool(
+        SMFBufferPoolConfiguration.builder()
+          .setMaximumPooledBytes(1024L)
+          .build());
+
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final SMFArrayLoaderType loader0 =
+      SMFArrayLoaders.newLoader(g, new Meta(), config, pool);
+    try (final SMFParserSequentialType parser =
+           createParser(loader0, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader0.errors().isEmpty());
+    final JCGLArrayBufferType array0 = loader0.arrayBuffer();
+    final JCGLIndexBufferType index0 = loader0.indexBuffer();
+    Assert.assertEquals(64L, array0.getRange().getInterval());
+    Assert.assertEquals(3L, index0.getRange().getInterval());
+
+    g.getArrayObjects().arrayObjectDelete(loader0.arrayObject());
+    pool.arrayBufferRelease(g.getArrayBuffers(), array0);
+    pool.indexBufferRelease(g.getIndexBuffers(), index0);
+    Assert.assertEquals(67L, pool.pooledBytes());
+
+    final SMFArrayLoaderType loader1 =
+      SMFArrayLoaders.newLoader(g, new Meta(), config, pool);
+    try (final SMFParserSequentialType parser =
+           createParser(loader1, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader1.errors().isEmpty());
+    Assert.assertSame(array0, loader1.arrayBuffer());
+    Assert.assertSame(index0, loader1.indexBuffer());
+    Assert.assertEquals(2L, pool.recycledCount());
+    Assert.assertEquals(0L, pool.pooledBytes());
+  }
+
+  @Test
+  public final void testPoolMaximumBytes()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
     final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
-    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
-    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
 
-    checkType(type, component_count, array_buffer, g_ab);
+    final SMFBufferPoolType pool =
+      SMFBufferPools.newPool(
+        SMFBufferPoolConfiguration.builder()
+          .setMaximumPooledBytes(100L)
+          .build());
+
+    final JCGLArrayBufferType a0 =
+      pool.arrayBufferAllocate(g_ab, 60L, JCGLUsageHint.USAGE_STATIC_DRAW);
+    final JCGLArrayBufferType a1 =
+      pool.arrayBufferAllocate(g_ab, 60L, JCGLUsageHint.USAGE_STATIC_DRAW);
+    Assert.assertEquals(64L, a0.getRange().getInterval());
+
+    pool.arrayBufferRelease(g_ab, a0);
+    pool.arrayBufferRelease(g_ab, a1);
+    Assert.assertEquals(64L, pool.pooledBytes());
+
+    final JCGLArrayBufferType a2 =
+      pool.arrayBufferAllocate(g_ab, 60L, JCGLUsageHint.USAGE_DYNAMIC_DRAW);
+    Assert.assertNotSame(a0, a2);
+    final JCGLArrayBufferType a3 =
+      pool.arrayBufferAllocate(g_ab, 33L, JCGLUsageHint.USAGE_STATIC_DRAW);
+    Assert.assertSame(a0, a3);
+    Assert.assertEquals(0L, pool.pooledBytes());
+
+    pool.arrayBufferRelease(g_ab, a3);
+    pool.clear(g_ab, g.getIndexBuffers());
+    Assert.assertEquals(0L, pool.pooledBytes());
+  }
 
-    g_ab.arrayBufferDelete(array_buffer);
-    g_ib.indexBufferDelete(index_buffer);
-    g_ao.arrayObjectDelete(array_object);
+  @Test
+  public final void testPoolReleaseUnknown()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+
+    final SMFBufferPoolType pool =
+      SMFBufferPools.newPool(
+        SMFBufferPoolConfiguration.builder()
+          .setMaximumPooledBytes(100L)
+          .build());
+
+    final JCGLArrayBufferType a0 =
+      g_ab.arrayBufferAllocate(64L, JCGLUsageHint.USAGE_STATIC_DRAW);
+
+    this.expected.expect(IllegalArgumentException.class);
+    pool.arrayBufferRelease(g_ab, a0);
+  }
+
+  @Test
+  public final void testShadowReupload()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFShadowStoreType store = SMFShadowStores.newStore(1024L);
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(
+        g, new Meta(), config, SMFBufferAllocators.direct(), store);
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    final SMFShadowMeshType shadow = loader.shadow().get();
+    Assert.assertEquals(39L, store.usedBytes());
+
+    final SMFUploadedMesh mesh = shadow.upload(g);
+    Assert.assertNotSame(loader.arrayBuffer(), mesh.arrayBuffer());
+    Assert.assertEquals(36L, mesh.arrayBuffer().getRange().getInterval());
+    Assert.assertEquals(3L, mesh.indexBuffer().getRange().getInterval());
+    Assert.assertEquals(loader.indexRange(), mesh.indexRange());
+
+    store.release(shadow);
+    Assert.assertEquals(0L, store.usedBytes());
+  }
+
+  @Test
+  public final void testShadowBudgetExhausted()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFShadowStoreType store = SMFShadowStores.newStore(16L);
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(
+        g,
+        new Meta(),
+        float32Configuration(3),
+        SMFBufferAllocators.direct(),
+        store);
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertFalse(loader.shadow().isPresent());
+    Assert.assertEquals(0L, store.usedBytes());
+  }
+
+  private SMFMeshCacheLoadResult loadResource(
+    final JCGLInterfaceGL33Type g,
+    final SMFBufferAllocatorType allocator,
+    final SMFMeshCacheKey key)
+  {
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(g, new Meta(), key.configuration(), allocator);
+    try (final SMFParserSequentialType parser =
+           createParser(loader, key.source())) {
+      // Nothing
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    if (!loader.errors().isEmpty()) {
+      return SMFMeshCacheLoadResult.of(Optional.empty(), loader.errors());
+    }
+    return SMFMeshCacheLoadResult.of(
+      Optional.of(SMFUploadedMesh.of(
+        loader.arrayObject(),
+        loader.arrayBuffers(),
+        loader.indexBuffer(),
+        loader.indexRange(),
+        loader.dequantization())),
+      List.empty());
+  }
+
+  @Test
+  public final void testMeshCacheEviction()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFMeshCacheType cache =
+      SMFMeshCaches.newCache(
+        g, this::loadResource, SMFBufferAllocators.direct(), 50L);
+
+    final SMFMeshCacheKey key3 =
+      SMFMeshCacheKey.of("float32_3.smft", float32Configuration(3));
+    final SMFMeshCacheKey key4 =
+      SMFMeshCacheKey.of("float32_4.smft", float32Configuration(4));
+
+    final SMFMeshCacheHandleType h0 = cache.acquire(key3).handle().get();
+    final SMFMeshCacheHandleType h1 = cache.acquire(key3).handle().get();
+    Assert.assertSame(h0.mesh(), h1.mesh());
+    Assert.assertEquals(1L, cache.misses());
+    Assert.assertEquals(1L, cache.hits());
+    Assert.assertEquals(39L, cache.residentBytes());
+
+    h0.release();
+    h1.release();
+    Assert.assertTrue(h0.isReleased());
+    Assert.assertEquals(1L, (long) cache.residentCount());
+    Assert.assertEquals(0L, cache.evictions());
+
+    final SMFMeshCacheHandleType h2 = cache.acquire(key4).handle().get();
+    Assert.assertEquals(1L, cache.evictions());
+    Assert.assertEquals(51L, cache.residentBytes());
+    Assert.assertEquals(1L, (long) cache.residentCount());
+
+    final SMFMeshCacheHandleType h3 = cache.acquire(key3).handle().get();
+    Assert.assertEquals(3L, cache.misses());
+    Assert.assertEquals(90L, cache.residentBytes());
+
+    h2.release();
+    Assert.assertEquals(2L, cache.evictions());
+    Assert.assertEquals(39L, cache.residentBytes());
+
+    h3.release();
+    cache.evictUnreferenced();
+    Assert.assertEquals(0L, cache.residentBytes());
+    Assert.assertEquals(0L, (long) cache.residentCount());
+  }
+
+  @Test
+  public final void testMeshCacheReleaseTwice()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFMeshCacheType cache =
+      SMFMeshCaches.newCache(
+        g, this::loadResource, SMFBufferAllocators.direct(), 1024L);
+
+    final SMFMeshCacheHandleType h0 =
+      cache.acquire(SMFMeshCacheKey.of(
+        "float32_3.smft", float32Configuration(3))).handle().get();
+    h0.release();
+
+    this.expected.expect(IllegalStateException.class);
+    h0.release();
+  }
+
+  private SMFArrayLoaderType loadDeduplicated(
+    final JCGLInterfaceGL33Type g,
+    final SMFBufferDeduplicatorType dedup,
+    final int component_count,
+    final String name)
+    throws IOException
+  {
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newDeduplicatingLoader(
+        g, new Meta(), float32Configuration(component_count), dedup);
+    try (final SMFParserSequentialType parser = createParser(loader, name)) {
+      // Nothing
+    }
+    Assert.assertTrue(loader.errors().isEmpty());
+    return loader;
+  }
+
+  @Test
+  public final void testDeduplicatingLoader()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+
+    final SMFBufferDeduplicatorType dedup =
+      SMFBufferDeduplicators.newDeduplicator(SMFBufferAllocators.direct());
+
+    final SMFArrayLoaderType l0 =
+      this.loadDeduplicated(g, dedup, 3, "float32_3.smft");
+    final SMFArrayLoaderType l1 =
+      this.loadDeduplicated(g, dedup, 3, "float32_3.smft");
+
+    Assert.assertEquals(36L, l0.arrayBuffer().getRange().getInterval());
+    Assert.assertSame(l0.arrayBuffer(), l1.arrayBuffer());
+    Assert.assertSame(l0.indexBuffer(), l1.indexBuffer());
+    Assert.assertNotSame(l0.arrayObject(), l1.arrayObject());
+    Assert.assertEquals(1L, dedup.arrayBuffersReused());
+    Assert.assertEquals(1L, dedup.indexBuffersReused());
+    Assert.assertEquals(39L, dedup.bytesReused());
+    Assert.assertEquals(2L, (long) dedup.liveBuffers());
+
+    final SMFArrayLoaderType l2 =
+      this.loadDeduplicated(g, dedup, 4, "float32_4.smft");
+    Assert.assertNotSame(l0.arrayBuffer(), l2.arrayBuffer());
+    Assert.assertSame(l0.indexBuffer(), l2.indexBuffer());
+    Assert.assertEquals(1L, dedup.arrayBuffersReused());
+    Assert.assertEquals(2L, dedup.indexBuffersReused());
+    Assert.assertEquals(3L, (long) dedup.liveBuffers());
+
+    dedup.arrayBufferRelease(g_ab, l0.arrayBuffer());
+    Assert.assertEquals(3L, (long) dedup.liveBuffers());
+    dedup.arrayBufferRelease(g_ab, l1.arrayBuffer());
+    Assert.assertEquals(2L, (long) dedup.liveBuffers());
+
+    dedup.indexBufferRelease(g_ib, l0.indexBuffer());
+    dedup.indexBufferRelease(g_ib, l1.indexBuffer());
+    dedup.indexBufferRelease(g_ib, l2.indexBuffer());
+    Assert.assertEquals(1L, (long) dedup.liveBuffers());
+
+    this.expected.expect(IllegalArgumentException.class);
+    dedup.indexBufferRelease(g_ib, l2.indexBuffer());
+  }
+
+  @Test
+  public final void testVerifyingDeduplicatingLoader()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+
+    final SMFBufferDeduplicatorType dedup =
+      SMFBufferDeduplicators.newVerifyingDeduplicator(
+        SMFBufferAllocators.direct());
+
+    final SMFArrayLoaderType l0 =
+      this.loadDeduplicated(g, dedup, 3, "float32_3.smft");
+    final SMFArrayLoaderType l1 =
+      this.loadDeduplicated(g, dedup, 3, "float32_3.smft");
+    final SMFArrayLoaderType l2 =
+      this.loadDeduplicated(g, dedup, 4, "float32_4.smft");
+
+    Assert.assertSame(l0.arrayBuffer(), l1.arrayBuffer());
+    Assert.assertNotSame(l0.arrayBuffer(), l2.arrayBuffer());
+    Assert.assertEquals(1L, dedup.arrayBuffersReused());
+    Assert.assertEquals(2L, dedup.indexBuffersReused());
+    Assert.assertEquals(3L, (long) dedup.liveBuffers());
+
+    dedup.arrayBufferRelease(g_ab, l0.arrayBuffer());
+    dedup.arrayBufferRelease(g_ab, l1.arrayBuffer());
+    Assert.assertEquals(2L, (long) dedup.liveBuffers());
+  }
+
+  @Test
+  public final void testInstrumentedLoader()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final java.util.List<SMFArrayLoadStatistics> received =
+      new java.util.ArrayList<>();
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.instrumented(
+        SMFArrayLoaders.newLoader(g, new Meta(), config),
+        config,
+        received::add);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertEquals(1L, (long) received.size());
+
+    final SMFArrayLoadStatistics stats = received.get(0);
+    Assert.assertTrue(stats.succeeded());
+    Assert.assertEquals(3L, stats.vertexCount());
+    Assert.assertEquals(1L, stats.triangleCount());
+    Assert.assertEquals(12L, (long) stats.vertexStride());
+    Assert.assertEquals(36L, stats.vertexBytes());
+    Assert.assertEquals(3L, stats.indexBytes());
+    Assert.assertEquals(
+      Optional.of(JCGLUnsignedType.TYPE_UNSIGNED_BYTE), stats.indexType());
+    Assert.assertTrue(
+      stats.attributePackNanos().containsKey(SMFAttributeName.of("x")));
+    Assert.assertTrue(stats.totalNanos() >= stats.uploadNanos());
+  }
+
+  @Test
+  public final void testInstrumentedDeduplicatingLoader()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final SMFArrayObjectConfiguration config = float32Configuration(3);
+    final SMFBufferDeduplicatorType dedup =
+      SMFBufferDeduplicators.newDeduplicator(SMFBufferAllocators.direct());
+    final SMFArrayLoaderType delegate =
+      SMFArrayLoaders.newDeduplicatingLoader(g, new Meta(), config, dedup);
+    final java.util.List<SMFArrayLoadStatistics> received =
+      new java.util.ArrayList<>();
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.instrumented(delegate, config, received::add);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertEquals(1L, (long) received.size());
+
+    final SMFArrayLoadStatistics stats = received.get(0);
+    final long allocated = delegate.bufferAllocationNanos();
+    Assert.assertTrue(allocated > 0L);
+    Assert.assertEquals(allocated, loader.bufferAllocationNanos());
+    Assert.assertTrue(stats.allocateNanos() >= allocated);
+    Assert.assertTrue(stats.uploadNanos() >= 0L);
+
+    loader.reset();
+    Assert.assertEquals(0L, loader.bufferAllocationNanos());
+  }
+
+  @Test
+  public final void testLoaderAllocationBudget()
+    throws Exception
+  {
+    Assume.assumeTrue(SMFAllocationBudgets.isSupported());
+
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+
+    final long vertices = 65536L;
+    final long triangles = 65536L;
+
+    for (int pass = 0; pass < 2; pass = pass + 1) {
+      final SMFArrayLoaderType loader =
+        SMFArrayLoaders.newLoader(g, new Meta(), float32Configuration(3));
+      SMFAllocationBudgets.parseHeader(loader, vertices, triangles);
+
+      final SMFAttribute attribute = SMFAllocationBudgets.attribute();
+      loader.onDataAttributeStart(attribute);
+      final long vertices_before = SMFAllocationBudgets.allocatedBytes();
+      SMFAllocationBudgets.sendVertices(loader, vertices);
+      final long vertices_allocated =
+        SMFAllocationBudgets.allocatedBytes() - vertices_before;
+      loader.onDataAttributeFinish(attribute);
+
+      loader.onDataTrianglesStart();
+      final long triangles_before = SMFAllocationBudgets.allocatedBytes();
+      SMFAllocationBudgets.sendTriangles(loader, triangles, vertices);
+      final long triangles_allocated =
+        SMFAllocationBudgets.allocatedBytes() - triangles_before;
+      loader.onDataTrianglesFinish();
+      loader.onFinish();
+
+      Assert.assertTrue(loader.errors().isEmpty());
+      Assert.assertTrue(
+        "Vertices allocated " + vertices_allocated + " bytes",
+        vertices_allocated <= SMFAllocationBudgets.STEADY_STATE_BYTES);
+      Assert.assertTrue(
+        "Triangles allocated " + triangles_allocated + " bytes",
+        triangles_allocated <= SMFAllocationBudgets.STEADY_STATE_BYTES);
+
+      g_ao.arrayObjectDelete(loader.arrayObject());
+      g_ab.arrayBufferDelete(loader.arrayBuffer());
+      g_ib.indexBufferDelete(loader.indexBuffer());
+    }
+  }
+
+  private SMFArrayLoaderType loadInvalidTriangles(
+    final JCGLInterfaceGL33Type g,
+    final SMFErrorPolicy policy,
+    final CountingAllocator allocator)
+    throws IOException
+  {
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(
+        g,
+        new Meta(),
+        float32Configuration(3).withErrorPolicy(policy),
+        allocator);
+
+    SMFAllocationBudgets.parseHeader(loader, 3L, 3L);
+    Assert.assertEquals(2L, (long) allocator.allocated);
+
+    final SMFAttribute attribute = SMFAllocationBudgets.attribute();
+    loader.onDataAttributeStart(attribute);
+    SMFAllocationBudgets.sendVertices(loader, 3L);
+    loader.onDataAttributeFinish(attribute);
+
+    loader.onDataTrianglesStart();
+    loader.onDataTriangle(0L, 1L, 99L);
+    loader.onDataTriangle(0L, 1L, 2L);
+    loader.onDataTriangle(0L, 1L, 100L);
+    loader.onDataTrianglesFinish();
+    loader.onFinish();
+
+    Assert.assertEquals(2L, (long) allocator.released);
+    return loader;
+  }
+
+  @Test
+  public final void testErrorPolicyContinue()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final CountingAllocator allocator = new CountingAllocator();
+    final SMFArrayLoaderType loader =
+      this.loadInvalidTriangles(
+        g, SMFErrorPolicy.ERROR_POLICY_CONTINUE, allocator);
+
+    Assert.assertEquals(2L, (long) loader.errors().size());
+    this.expected.expect(IllegalStateException.class);
+    loader.arrayObject();
+  }
+
+  @Test
+  public final void testErrorPolicyFailFast()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final CountingAllocator allocator = new CountingAllocator();
+    final SMFArrayLoaderType loader =
+      this.loadInvalidTriangles(
+        g, SMFErrorPolicy.ERROR_POLICY_FAIL_FAST, allocator);
+
+    Assert.assertEquals(1L, (long) loader.errors().size());
+    this.expected.expect(IllegalStateException.class);
+    loader.arrayObject();
+  }
+
+  @Test
+  public final void testErrorPolicyFailFastBeforeHeader()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final CountingAllocator allocator = new CountingAllocator();
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(
+        g,
+        new Meta(),
+        float32Configuration(3)
+          .withErrorPolicy(SMFErrorPolicy.ERROR_POLICY_FAIL_FAST),
+        allocator);
+
+    loader.onError(SMFParseError.of(
+      LexicalPosition.of(0, 0, Optional.empty()),
+      "Corrupt",
+      Optional.empty()));
+    SMFAllocationBudgets.parseHeader(loader, 3L, 1L);
+    loader.onFinish();
+
+    Assert.assertEquals(0L, (long) allocator.allocated);
+    Assert.assertEquals(1L, (long) loader.errors().size());
+  }
+
+  @Test
+  public final void testLoaderReset()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(g, new Meta(), float32Configuration(3));
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    final JCGLArrayObjectType array_object_0 = loader.arrayObject();
+    final JCGLArrayBufferType array_buffer_0 = loader.arrayBuffer();
+    checkType(JCGLScalarType.TYPE_FLOAT, 3, array_buffer_0, g_ab);
+
+    loader.reset();
+    Assert.assertTrue(loader.errors().isEmpty());
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    final JCGLArrayObjectType array_object_1 = loader.arrayObject();
+    final JCGLArrayBufferType array_buffer_1 = loader.arrayBuffer();
+    Assert.assertNotEquals(array_object_0, array_object_1);
+    Assert.assertNotEquals(array_buffer_0, array_buffer_1);
+    checkType(JCGLScalarType.TYPE_FLOAT, 3, array_buffer_1, g_ab);
+  }
+
+  @Test
+  public final void testLoaderResetUnfinished()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final CountingAllocator allocator = new CountingAllocator();
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newLoader(
+        g, new Meta(), float32Configuration(3), allocator);
+
+    SMFAllocationBudgets.parseHeader(loader, 3L, 1L);
+    Assert.assertEquals(2L, (long) allocator.allocated);
+    loader.reset();
+    Assert.assertEquals(2L, (long) allocator.released);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertEquals(4L, (long) allocator.allocated);
+    Assert.assertEquals(2L, (long) allocator.released);
+  }
+
+  @Test
+  public final void testLoaderResetFailed()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final CountingAllocator allocator = new CountingAllocator();
+    final SMFArrayLoaderType loader =
+      this.loadInvalidTriangles(
+        g, SMFErrorPolicy.ERROR_POLICY_FAIL_FAST, allocator);
+
+    Assert.assertEquals(1L, (long) loader.errors().size());
+    loader.reset();
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertEquals(2L, (long) allocator.released);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    Assert.assertEquals(2L, (long) allocator.released);
+    checkType(
+      JCGLScalarType.TYPE_FLOAT, 3, loader.arrayBuffer(), g.getArrayBuffers());
+  }
+
+  @Test
+  public final void testStreamingLoaderReset()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+
+    final SMFArrayLoaderType loader =
+      SMFArrayLoaders.newStreamingLoader(
+        g, new Meta(), float32Configuration(3), 16);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    final JCGLArrayBufferType array_buffer_0 = loader.arrayBuffer();
+    checkType(JCGLScalarType.TYPE_FLOAT, 3, array_buffer_0, g_ab);
+
+    loader.reset();
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, "float32_3.smft")) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+    final JCGLArrayBufferType array_buffer_1 = loader.arrayBuffer();
+    Assert.assertNotEquals(array_buffer_0, array_buffer_1);
+    checkType(JCGLScalarType.TYPE_FLOAT, 3, array_buffer_1, g_ab);
+  }
+
+  @Test
+  public final void testBatchLoad()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final Path directory = Files.createTempDirectory("smfj-jcanephora-batch");
+    final Path good = directory.resolve("float32_3.smft");
+    final Path missing = directory.resolve("missing.smft");
+    try (final InputStream stream = SMFArrayLoaderContract.class.getResourceAsStream(
+      "/com/io7m/smfj/jcanephora/tests/float32_3.smft")) {
+      Files.copy(stream, good);
+    }
+
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(3)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
+        .setIndex(0)
+        .setName(SMFAttributeName.of("x"))
+        .build();
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setMappings(HashMap.of(attr.name(), attr))
+        .build();
+
+    final List<SMFBatchResult> results =
+      SMFBatchLoaders.loadAll(
+        g,
+        new SMFFormatText(),
+        path -> new Meta(),
+        config,
+        List.of(good, missing, good));
+
+    Assert.assertEquals(3L, (long) results.size());
+    Assert.assertEquals(good, results.get(0).path());
+    Assert.assertEquals(missing, results.get(1).path());
+    Assert.assertEquals(good, results.get(2).path());
+    Assert.assertFalse(results.get(1).mesh().isPresent());
+    Assert.assertFalse(results.get(1).errors().isEmpty());
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+
+    for (final int index : new int[]{0, 2}) {
+      final SMFUploadedMesh mesh = results.get(index).mesh().get();
+      Assert.assertTrue(results.get(index).errors().isEmpty());
+      Assert.assertEquals(36L, mesh.arrayBuffer().getRange().getInterval());
+      Assert.assertEquals(3L, mesh.indexBuffer().getRange().getInterval());
+      checkType(JCGLScalarType.TYPE_FLOAT, 3, mesh.arrayBuffer(), g_ab);
+      g_ao.arrayObjectDelete(mesh.arrayObject());
+      g_ab.arrayBufferDelete(mesh.arrayBuffer());
+      g_ib.indexBufferDelete(mesh.indexBuffer());
+    }
+
+    Files.delete(good);
+    Files.delete(directory);
+  }
+
+  @Test
+  public final void testBatchLoadBounded()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    final Path directory = Files.createTempDirectory("smfj-jcanephora-batch");
+    final Path good = directory.resolve("float32_3.smft");
+    final Path broken = directory.resolve("broken.smft");
+    try (final InputStream stream =
+           SMFArrayLoaderContract.class.getResourceAsStream(
+             "/com/io7m/smfj/jcanephora/tests/float32_3.smft")) {
+      Files.copy(stream, good);
+    }
+    Files.copy(good, broken);
+
+    final List<SMFBatchResult> results =
+      SMFBatchLoaders.loadAll(
+        g,
+        ForkJoinPool.commonPool(),
+        new SMFFormatText(),
+        path -> {
+          if (path.equals(broken)) {
+            throw new IllegalStateException("Broken listener");
+          }
+          return new Meta();
+        },
+        float32Configuration(3),
+        List.of(good, broken, good, good),
+        1);
+
+    Assert.assertEquals(4L, (long) results.size());
+    Assert.assertFalse(results.get(1).mesh().isPresent());
+    Assert.assertEquals(
+      "Broken listener", results.get(1).errors().get(0).message());
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+
+    for (final int index : new int[]{0, 2, 3}) {
+      final SMFUploadedMesh mesh = results.get(index).mesh().get();
+      checkType(JCGLScalarType.TYPE_FLOAT, 3, mesh.arrayBuffer(), g_ab);
+      g_ao.arrayObjectDelete(mesh.arrayObject());
+      g_ab.arrayBufferDelete(mesh.arrayBuffer());
+      g_ib.indexBufferDelete(mesh.indexBuffer());
+    }
+
+    Files.delete(good);
+    Files.delete(broken);
+    Files.delete(directory);
+  }
+
+  @Test
+  public final void testBatchLoadPendingInvalid()
+    throws Exception
+  {
+    final JCGLContextType c = this.newContext("main", 24, 8);
+    final JCGLInterfaceGL33Type g = c.contextGetGL33();
+
+    this.expected.expect(IllegalArgumentException.class);
+    SMFBatchLoaders.loadAll(
+      g,
+      ForkJoinPool.commonPool(),
+      new SMFFormatText(),
+      path -> new Meta(),
+      float32Configuration(3),
+      List.empty(),
+      0);
+  }
+
+  private void check(
+    final JCGLInterfaceGL33Type g,
+    final JCGLScalarType type,
+    final int component_count,
+    final int vertex_count,
+    final String name)
+    throws IOException
+  {
+    this.check(
+      g,
+      type,
+      component_count,
+      vertex_count,
+      name,
+      config -> SMFArrayLoaders.newLoader(g, new Meta(), config));
+  }
+
+  private void check(
+    final JCGLInterfaceGL33Type g,
+    final JCGLScalarType type,
+    final int component_count,
+    final int vertex_count,
+    final String name,
+    final Function<SMFArrayObjectConfiguration, SMFArrayLoaderType> loaders)
+    throws IOException
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(component_count)
+        .setComponentType(type)
+        .setIndex(0)
+        .setName(SMFAttributeName.of("x"))
+        .build();
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setMappings(HashMap.of(attr.name(), attr))
+        .build();
+
+    final SMFArrayLoaderType loader = loaders.apply(config);
+
+    try (final SMFParserSequentialType parser =
+           createParser(loader, name)) {
+      // Nothing
+    }
+
+    Assert.assertTrue(loader.errors().isEmpty());
+
+    final JCGLArrayBufferType array_buffer = loader.arrayBuffer();
+    final JCGLArrayObjectType array_object = loader.arrayObject();
+    final JCGLIndexBufferType index_buffer = loader.indexBuffer();
+    Assert.assertEquals(
+      Optional.of(new RangeInclusiveL(0L, 2L)), loader.indexRange());
+    Assert.assertEquals(
+      (long) (type.getSizeBytes() * component_count * vertex_count),
+      array_buffer.getRange().getInterval());
+    Assert.assertEquals(
+      3L, index_buffer.getRange().getInterval());
+    Assert.assertEquals(
+      array_buffer, array_object.getAttributeAt(0).get().getArrayBuffer());
+
+    final JCGLArrayBuffersType g_ab = g.getArrayBuffers();
+    final JCGLIndexBuffersType g_ib = g.getIndexBuffers();
+    final JCGLArrayObjectsType g_ao = g.getArrayObjects();
+
+    checkType(type, component_count, array_buffer, g_ab);
+
+    g_ab.arrayBufferDelete(array_buffer);
+    g_ib.indexBufferDelete(index_buffer);
+    g_ao.arrayObjectDelete(array_object);
+  }
+
+  private static final class CountingAllocator
+    implements SMFBufferAllocatorType
+  {
+    private final SMFBufferAllocatorType delegate;
+    private int allocated;
+    private int released;
+
+    CountingAllocator()
+    {
+      this.delegate = SMFBufferAllocators.direct();
+    }
+
+    @Override
+    public JCGLArrayBufferType arrayBufferAllocate(
+      final JCGLArrayBuffersType g_ab,
+      final long size,
+      final JCGLUsageHint usage)
+    {
+      this.allocated = this.allocated + 1;
+      return this.delegate.arrayBufferAllocate(g_ab, size, usage);
+    }
+
+    @Override
+    public void arrayBufferRelease(
+      final JCGLArrayBuffersType g_ab,
+      final JCGLArrayBufferType buffer)
+    {
+      this.released = this.released + 1;
+      this.delegate.arrayBufferRelease(g_ab, buffer);
+    }
+
+    @Override
+    public JCGLIndexBufferType indexBufferAllocate(
+      final JCGLIndexBuffersType g_ib,
+      final long indices,
+      final JCGLUnsignedType type,
+      final JCGLUsageHint usage)
+    {
+      this.allocated = this.allocated + 1;
+      return this.delegate.indexBufferAllocate(g_ib, indices, type, usage);
+    }
+
+    @Override
+    public void indexBufferRelease(
+      final JCGLIndexBuffersType g_ib,
+      final JCGLIndexBufferType buffer)
+    {
+      this.released = this.released + 1;
+      this.delegate.indexBufferRelease(g_ib, buffer);
+    }
   }
 
   private final class Meta implements SMFParserEventsMetaType
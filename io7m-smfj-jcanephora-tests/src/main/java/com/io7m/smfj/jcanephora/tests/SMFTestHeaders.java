@@ -0,0 +1,149 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Functions to read the headers of test meshes.
+ */
+
+public final class SMFTestHeaders
+{
+  private SMFTestHeaders()
+  {
+    throw new UnreachableCodeException();
+  }
+
+  /**
+   * Read only the header of the given test mesh resource.
+   *
+   * @param name The name of the resource
+   *
+   * @return The parsed header
+   *
+   * @throws IOException On I/O errors, or if the header could not be parsed
+   */
+
+  public static SMFHeader resource(
+    final String name)
+    throws IOException
+  {
+    final AtomicReference<SMFHeader> header = new AtomicReference<>();
+    final SMFParserEventsType events = capture(header);
+
+    final String rpath = "/com/io7m/smfj/jcanephora/tests/" + name;
+    try (final InputStream stream =
+           SMFTestHeaders.class.getResourceAsStream(rpath)) {
+      final SMFParserProviderType fmt = new SMFFormatText();
+      try (final SMFParserSequentialType parser =
+             fmt.parserCreateSequential(events, Paths.get(rpath), stream)) {
+        parser.parseHeader();
+      }
+    }
+
+    return check(header, name);
+  }
+
+  /**
+   * Generate and parse a header as
+   * {@link SMFAllocationBudgets#parseHeader(SMFParserEventsType, long, long)}
+   * does.
+   *
+   * @param vertices  The number of vertices
+   * @param triangles The number of triangles
+   *
+   * @return The parsed header
+   *
+   * @throws IOException On I/O errors, or if the header could not be parsed
+   */
+
+  public static SMFHeader generated(
+    final long vertices,
+    final long triangles)
+    throws IOException
+  {
+    final AtomicReference<SMFHeader> header = new AtomicReference<>();
+    SMFAllocationBudgets.parseHeader(capture(header), vertices, triangles);
+    return check(header, "generated");
+  }
+
+  private static SMFHeader check(
+    final AtomicReference<SMFHeader> header,
+    final String name)
+    throws IOException
+  {
+    final SMFHeader result = header.get();
+    if (result == null) {
+      throw new IOException("No header could be parsed from " + name);
+    }
+    return result;
+  }
+
+  /**
+   * @return A receiver that stores the parsed header in {@code header},
+   * fails on errors, and ignores all other events
+   */
+
+  private static SMFParserEventsType capture(
+    final AtomicReference<SMFHeader> header)
+  {
+    return (SMFParserEventsType) Proxy.newProxyInstance(
+      SMFTestHeaders.class.getClassLoader(),
+      new Class<?>[]{SMFParserEventsType.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "onHeaderParsed": {
+            header.set((SMFHeader) args[0]);
+            return null;
+          }
+          case "onError": {
+            throw new IllegalStateException(
+              ((SMFParseError) args[0]).message());
+          }
+          case "onMeta": {
+            return Boolean.FALSE;
+          }
+          case "equals": {
+            return Boolean.valueOf(proxy == args[0]);
+          }
+          case "hashCode": {
+            return Integer.valueOf(System.identityHashCode(proxy));
+          }
+          case "toString": {
+            return "header capture";
+          }
+          default: {
+            return null;
+          }
+        }
+      });
+  }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPacker;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackers;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparerType;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparers;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsDataType;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import javaslang.collection.HashMap;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Optional;
+
+public final class SMFAllocationBudgetTest
+{
+  private static final int VERTICES = 65536;
+  private static final int TRIANGLES = 65536;
+
+  private static ByteBuffer allocate(
+    final int size)
+  {
+    final ByteBuffer b = ByteBuffer.allocateDirect(size);
+    b.order(ByteOrder.nativeOrder());
+    return b;
+  }
+
+  private static SMFArrayObjectConfiguration configuration()
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAllocationBudgets.ATTRIBUTE,
+        0,
+        Optional.of(JCGLScalarType.TYPE_FLOAT),
+        3);
+
+    return SMFArrayObjectConfiguration.builder()
+      .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setMappings(HashMap.of(attr.name(), attr))
+      .build();
+  }
+
+  private static SMFParserEventsDataType packer(
+    final boolean specialized,
+    final ByteBuffer buffer,
+    final JCGLScalarType type,
+    final int component_count,
+    final int stride)
+  {
+    if (specialized) {
+      return SMFByteBufferPackers.createPacker(
+        buffer, type, component_count, 0, stride);
+    }
+    return new SMFByteBufferPacker(buffer, type, 0, stride);
+  }
+
+  private static long prepare(
+    final long vertices,
+    final long triangles)
+    throws IOException
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(new Meta(), configuration());
+    SMFAllocationBudgets.parseHeader(preparer, vertices, triangles);
+
+    final SMFAttribute attribute = SMFAllocationBudgets.attribute();
+    final long before = SMFAllocationBudgets.allocatedBytes();
+    preparer.onDataAttributeStart(attribute);
+    SMFAllocationBudgets.sendVertices(preparer, vertices);
+    preparer.onDataAttributeFinish(attribute);
+    preparer.onDataTrianglesStart();
+    SMFAllocationBudgets.sendTriangles(preparer, triangles, vertices);
+    preparer.onDataTrianglesFinish();
+    preparer.onFinish();
+    final long after = SMFAllocationBudgets.allocatedBytes();
+
+    Assert.assertTrue(preparer.errors().isEmpty());
+    return after - before;
+  }
+
+  @Before
+  public void setup()
+  {
+    Assume.assumeTrue(SMFAllocationBudgets.isSupported());
+  }
+
+  @Test
+  public void testPackersSteadyState()
+  {
+    for (final JCGLScalarType type : JCGLScalarType.values()) {
+      for (int count = 1; count <= 4; count = count + 1) {
+        final int stride = Math.multiplyExact(count, type.getSizeBytes());
+        final ByteBuffer buffer =
+          allocate(Math.multiplyExact(stride, VERTICES));
+
+        for (final boolean specialized : new boolean[]{false, true}) {
+          SMFAllocationBudgets.sendValues(
+            packer(specialized, buffer, type, count, stride),
+            type,
+            count,
+            VERTICES);
+
+          final SMFParserEventsDataType p =
+            packer(specialized, buffer, type, count, stride);
+          final long before = SMFAllocationBudgets.allocatedBytes();
+          SMFAllocationBudgets.sendValues(p, type, count, VERTICES);
+          final long allocated =
+            SMFAllocationBudgets.allocatedBytes() - before;
+
+          Assert.assertTrue(
+            String.format(
+              "%s %d (specialized %s) allocated %d bytes",
+              type,
+              Integer.valueOf(count),
+              Boolean.valueOf(specialized),
+              Long.valueOf(allocated)),
+            allocated <= SMFAllocationBudgets.STEADY_STATE_BYTES);
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testPreparerTrianglesSteadyState()
+    throws Exception
+  {
+    for (int pass = 0; pass < 2; pass = pass + 1) {
+      final SMFMeshPreparerType preparer =
+        SMFMeshPreparers.newPreparer(new Meta(), configuration());
+      SMFAllocationBudgets.parseHeader(
+        preparer, (long) VERTICES, (long) TRIANGLES);
+
+      final SMFAttribute attribute = SMFAllocationBudgets.attribute();
+      preparer.onDataAttributeStart(attribute);
+      SMFAllocationBudgets.sendVertices(preparer, (long) VERTICES);
+      preparer.onDataAttributeFinish(attribute);
+      preparer.onDataTrianglesStart();
+
+      final long before = SMFAllocationBudgets.allocatedBytes();
+      SMFAllocationBudgets.sendTriangles(
+        preparer, (long) TRIANGLES, (long) VERTICES);
+      final long allocated = SMFAllocationBudgets.allocatedBytes() - before;
+
+      preparer.onDataTrianglesFinish();
+      preparer.onFinish();
+      Assert.assertTrue(preparer.errors().isEmpty());
+      Assert.assertTrue(
+        "Triangles allocated " + allocated + " bytes",
+        allocated <= SMFAllocationBudgets.STEADY_STATE_BYTES);
+    }
+  }
+
+  @Test
+  public void testPreparerLoadBounded()
+    throws Exception
+  {
+    prepare((long) VERTICES, (long) TRIANGLES);
+
+    final long small = prepare(3L, 1L);
+    final long large = prepare((long) VERTICES * 4L, (long) TRIANGLES * 4L);
+
+    Assert.assertTrue(
+      "Small load allocated " + small + " bytes",
+      small <= SMFAllocationBudgets.LOAD_BYTES);
+    Assert.assertTrue(
+      "Large load allocated " + large + " bytes",
+      large <= SMFAllocationBudgets.LOAD_BYTES);
+    Assert.assertTrue(
+      "Large load allocated " + (large - small) + " more bytes",
+      large - small <= SMFAllocationBudgets.STEADY_STATE_BYTES);
+  }
+
+  private static final class Meta implements SMFParserEventsMetaType
+  {
+    Meta()
+    {
+
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      throw new UnreachableCodeException();
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      throw new UnreachableCodeException();
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      throw new UnreachableCodeException();
+    }
+  }
+}
@@ -0,0 +1,309 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeEncoding;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayout;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayoutPlan;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayoutPlanCacheType;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayoutPlans;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayouts;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadEstimate;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadEstimateResult;
+import com.io7m.smfj.jcanephora.core.SMFArrayLoadEstimates;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFArrayStreamLayout;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+public final class SMFArrayLayoutPlansTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static SMFArrayObjectConfiguration float32Configuration(
+    final int component_count)
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAllocationBudgets.ATTRIBUTE,
+        0,
+        Optional.of(JCGLScalarType.TYPE_FLOAT),
+        component_count);
+
+    return SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(attr.name(), attr))
+      .build();
+  }
+
+  private static SMFArrayObjectConfiguration streamsConfiguration()
+  {
+    final SMFArrayAttributeMapping p =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(3)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
+        .setIndex(0)
+        .setName(SMFAttributeName.of("p"))
+        .setStream("position")
+        .build();
+    final SMFArrayAttributeMapping uv =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(2)
+        .setComponentType(JCGLScalarType.TYPE_FLOAT)
+        .setIndex(1)
+        .setName(SMFAttributeName.of("uv"))
+        .build();
+
+    return SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(p.name(), p).put(uv.name(), uv))
+      .build();
+  }
+
+  @Test
+  public void testPlanSingleStream()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.resource("float32_3.smft");
+    final SMFArrayLayoutPlan plan =
+      SMFArrayLayoutPlans.plan(float32Configuration(3), header);
+
+    Assert.assertEquals(1L, (long) plan.attributeCount());
+    Assert.assertEquals(0L, (long) plan.attributeIndex(0));
+    Assert.assertEquals(
+      SMFAllocationBudgets.ATTRIBUTE, plan.attributeName(0));
+    Assert.assertEquals(JCGLScalarType.TYPE_FLOAT, plan.componentType(0));
+    Assert.assertEquals(3L, (long) plan.componentCount(0));
+    Assert.assertEquals(0L, plan.recordOffset(0));
+    Assert.assertEquals(12L, (long) plan.sizeBytes(0));
+    Assert.assertEquals(0L, (long) plan.stream(0));
+    Assert.assertEquals(1L, (long) plan.streamCount());
+    Assert.assertEquals(12L, (long) plan.streamStride(0));
+    Assert.assertEquals(12L, (long) plan.vertexSize());
+    Assert.assertEquals(36L, plan.vertexBytes(3L));
+
+    Assert.assertSame(plan.layout(3L), plan.layout(1000L));
+    Assert.assertEquals(
+      SMFArrayLayouts.layoutFor(float32Configuration(3), header),
+      plan.layout(3L));
+  }
+
+  @Test
+  public void testPlanStreams()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.resource("streams.smft");
+    final SMFArrayLayoutPlan plan =
+      SMFArrayLayoutPlans.plan(streamsConfiguration(), header);
+
+    Assert.assertEquals(2L, (long) plan.attributeCount());
+    Assert.assertEquals(2L, (long) plan.streamCount());
+    Assert.assertEquals(8L, (long) plan.streamStride(0));
+    Assert.assertEquals(12L, (long) plan.streamStride(1));
+    Assert.assertEquals(1L, (long) plan.stream(0));
+    Assert.assertEquals(0L, (long) plan.stream(1));
+    Assert.assertEquals(20L, (long) plan.vertexSize());
+
+    final SMFArrayLayout layout = plan.layout(3L);
+    Assert.assertEquals(
+      List.of(
+        SMFArrayStreamLayout.of(Optional.empty(), 0L, 8),
+        SMFArrayStreamLayout.of(Optional.of("position"), 24L, 12)),
+      layout.streams());
+    Assert.assertEquals(24L, layout.attributes().get(0).offset());
+    Assert.assertEquals(0L, layout.attributes().get(1).offset());
+
+    final SMFArrayLayout planar = plan.planarLayout(3L);
+    Assert.assertEquals(
+      List.of(SMFArrayStreamLayout.of(Optional.empty(), 0L, 20)),
+      planar.streams());
+    Assert.assertEquals(0L, planar.attributes().get(0).offset());
+    Assert.assertEquals(12L, (long) planar.attributes().get(0).stride());
+    Assert.assertEquals(36L, planar.attributes().get(1).offset());
+    Assert.assertEquals(8L, (long) planar.attributes().get(1).stride());
+    Assert.assertEquals(0L, (long) planar.attributes().get(1).stream());
+  }
+
+  @Test
+  public void testCacheHitsAndEviction()
+    throws Exception
+  {
+    final SMFArrayLayoutPlanCacheType cache = SMFArrayLayoutPlans.newCache(1);
+    final SMFArrayObjectConfiguration config3 = float32Configuration(3);
+    final SMFArrayObjectConfiguration config4 = float32Configuration(4);
+    final SMFHeader small = SMFTestHeaders.generated(3L, 1L);
+    final SMFHeader large = SMFTestHeaders.generated(1000L, 500L);
+
+    final SMFArrayLayoutPlan p0 = cache.planFor(config3, small);
+    Assert.assertEquals(0L, cache.hits());
+    Assert.assertEquals(1L, cache.misses());
+
+    final SMFArrayLayoutPlan p1 = cache.planFor(config3, large);
+    Assert.assertSame(p0, p1);
+    Assert.assertEquals(1L, cache.hits());
+    Assert.assertEquals(1L, cache.misses());
+
+    final SMFArrayLayoutPlan p2 = cache.planFor(config4, small);
+    Assert.assertNotSame(p0, p2);
+    Assert.assertEquals(2L, cache.misses());
+    Assert.assertEquals(1L, (long) cache.size());
+
+    final SMFArrayLayoutPlan p3 = cache.planFor(config3, small);
+    Assert.assertNotSame(p0, p3);
+    Assert.assertEquals(3L, cache.misses());
+
+    cache.clear();
+    Assert.assertEquals(0L, (long) cache.size());
+  }
+
+  @Test
+  public void testCacheEqualConfigurations()
+    throws Exception
+  {
+    final SMFArrayLayoutPlanCacheType cache = SMFArrayLayoutPlans.newCache(4);
+    final SMFArrayObjectConfiguration config_a = float32Configuration(3);
+    final SMFArrayObjectConfiguration config_b = float32Configuration(3);
+    Assert.assertNotSame(config_a, config_b);
+
+    final SMFArrayLayoutPlan p0 =
+      cache.planFor(config_a, SMFTestHeaders.generated(3L, 1L));
+    final SMFArrayLayoutPlan p1 =
+      cache.planFor(config_b, SMFTestHeaders.generated(3L, 1L));
+
+    Assert.assertSame(p0, p1);
+    Assert.assertEquals(1L, cache.hits());
+    Assert.assertEquals(1L, cache.misses());
+  }
+
+  @Test
+  public void testCacheInvalidSize()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayLayoutPlans.newCache(0);
+  }
+
+  @Test
+  public void testEstimate()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.generated(100L, 50L);
+    final SMFArrayLoadEstimate estimate =
+      SMFArrayLoadEstimates.estimate(float32Configuration(3), header);
+
+    Assert.assertEquals(100L, estimate.vertexCount());
+    Assert.assertEquals(50L, estimate.triangleCount());
+    Assert.assertEquals(
+      JCGLUnsignedType.TYPE_UNSIGNED_INT, estimate.indexType());
+    Assert.assertEquals(12L, (long) estimate.vertexSize());
+    Assert.assertEquals(1200L, estimate.vertexBytes());
+    Assert.assertEquals(600L, estimate.indexBytes());
+    Assert.assertEquals(1800L, estimate.gpuBytes());
+    Assert.assertEquals(1800L, estimate.stagingBytes());
+
+    final SMFArrayLoadEstimate streaming =
+      SMFArrayLoadEstimates.estimateStreaming(
+        float32Configuration(3), header, 4096);
+    Assert.assertEquals(1800L, streaming.gpuBytes());
+    Assert.assertEquals(4096L, streaming.stagingBytes());
+  }
+
+  @Test
+  public void testEstimateRangeNormalizedScratch()
+    throws Exception
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.builder()
+        .setComponentCount(3)
+        .setComponentType(JCGLScalarType.TYPE_UNSIGNED_SHORT)
+        .setEncoding(
+          SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED)
+        .setIndex(0)
+        .setName(SMFAllocationBudgets.ATTRIBUTE)
+        .build();
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setMappings(HashMap.of(attr.name(), attr))
+        .build();
+
+    final SMFHeader header = SMFTestHeaders.generated(100L, 50L);
+    final SMFArrayLoadEstimate estimate =
+      SMFArrayLoadEstimates.estimate(config, header);
+
+    Assert.assertEquals(600L, estimate.vertexBytes());
+    Assert.assertEquals(600L, estimate.indexBytes());
+    Assert.assertEquals(1200L, estimate.gpuBytes());
+    Assert.assertEquals(2400L, estimate.stagingBytes());
+  }
+
+  @Test
+  public void testEstimateStreamingInvalidWindow()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.generated(100L, 50L);
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayLoadEstimates.estimateStreaming(
+      float32Configuration(3), header, 0);
+  }
+
+  @Test
+  public void testEstimatePath()
+    throws Exception
+  {
+    final Path directory = Files.createTempDirectory("smfj-jcanephora-plan");
+    final Path file = directory.resolve("float32_3.smft");
+    final Path missing = directory.resolve("missing.smft");
+    try (final InputStream stream =
+           SMFArrayLayoutPlansTest.class.getResourceAsStream(
+             "/com/io7m/smfj/jcanephora/tests/float32_3.smft")) {
+      Files.copy(stream, file);
+    }
+
+    final SMFArrayLoadEstimateResult result =
+      SMFArrayLoadEstimates.estimatePath(
+        new SMFFormatText(), file, float32Configuration(3));
+    Assert.assertTrue(result.errors().isEmpty());
+
+    final SMFArrayLoadEstimate estimate = result.estimate().get();
+    Assert.assertEquals(36L, estimate.vertexBytes());
+    Assert.assertEquals(3L, estimate.indexBytes());
+    Assert.assertEquals(
+      JCGLUnsignedType.TYPE_UNSIGNED_BYTE, estimate.indexType());
+
+    final SMFArrayLoadEstimateResult failed =
+      SMFArrayLoadEstimates.estimatePath(
+        new SMFFormatText(), missing, float32Configuration(3));
+    Assert.assertFalse(failed.estimate().isPresent());
+    Assert.assertFalse(failed.errors().isEmpty());
+
+    Files.delete(file);
+    Files.delete(directory);
+  }
+}
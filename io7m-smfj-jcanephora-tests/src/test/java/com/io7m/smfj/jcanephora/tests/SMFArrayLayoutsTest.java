@@ -0,0 +1,196 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFHeader;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeEncoding;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayout;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayouts;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFIndexTypePolicy;
+import com.io7m.smfj.jcanephora.core.SMFOverdrawConfiguration;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Optional;
+
+import static com.io7m.jcanephora.core.JCGLUnsignedType.TYPE_UNSIGNED_BYTE;
+import static com.io7m.jcanephora.core.JCGLUnsignedType.TYPE_UNSIGNED_INT;
+import static com.io7m.jcanephora.core.JCGLUnsignedType.TYPE_UNSIGNED_SHORT;
+import static com.io7m.smfj.jcanephora.core.SMFIndexTypePolicy.INDEX_TYPE_POLICY_FROM_HEADER;
+import static com.io7m.smfj.jcanephora.core.SMFIndexTypePolicy.INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT;
+
+public final class SMFArrayLayoutsTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static SMFArrayAttributeMapping mapping(
+    final String name,
+    final int index,
+    final int component_count)
+  {
+    return SMFArrayAttributeMapping.of(
+      SMFAttributeName.of(name),
+      index,
+      Optional.of(JCGLScalarType.TYPE_FLOAT),
+      component_count);
+  }
+
+  private static SMFArrayObjectConfiguration overdrawConfiguration(
+    final List<SMFArrayAttributeMapping> mappings,
+    final String position)
+  {
+    return SMFArrayObjectConfiguration.builder()
+      .setMappings(mappings.foldLeft(
+        HashMap.<SMFAttributeName, SMFArrayAttributeMapping>empty(),
+        (m, a) -> m.put(a.name(), a)))
+      .setOverdrawOptimization(
+        SMFOverdrawConfiguration.of(SMFAttributeName.of(position), 1.05))
+      .build();
+  }
+
+  private static void check(
+    final JCGLUnsignedType expected,
+    final SMFIndexTypePolicy policy,
+    final boolean allow_byte,
+    final long header_bits,
+    final long vertex_count)
+  {
+    Assert.assertEquals(
+      expected,
+      SMFArrayLayouts.indexTypeFor(
+        policy, allow_byte, header_bits, vertex_count));
+  }
+
+  @Test
+  public void testIndexTypeFromHeader()
+  {
+    check(TYPE_UNSIGNED_BYTE, INDEX_TYPE_POLICY_FROM_HEADER, true, 8L, 3L);
+    check(TYPE_UNSIGNED_SHORT, INDEX_TYPE_POLICY_FROM_HEADER, true, 16L, 3L);
+    check(TYPE_UNSIGNED_INT, INDEX_TYPE_POLICY_FROM_HEADER, true, 32L, 3L);
+    check(TYPE_UNSIGNED_INT, INDEX_TYPE_POLICY_FROM_HEADER, true, 64L, 3L);
+  }
+
+  @Test
+  public void testIndexTypeFromHeaderWidened()
+  {
+    check(TYPE_UNSIGNED_BYTE, INDEX_TYPE_POLICY_FROM_HEADER, true, 8L, 256L);
+    check(TYPE_UNSIGNED_SHORT, INDEX_TYPE_POLICY_FROM_HEADER, true, 8L, 257L);
+    check(TYPE_UNSIGNED_SHORT, INDEX_TYPE_POLICY_FROM_HEADER, false, 8L, 300L);
+    check(TYPE_UNSIGNED_INT, INDEX_TYPE_POLICY_FROM_HEADER, true, 16L, 65537L);
+    check(TYPE_UNSIGNED_INT, INDEX_TYPE_POLICY_FROM_HEADER, true, 8L, 65537L);
+  }
+
+  @Test
+  public void testIndexTypeFromHeaderNoByte()
+  {
+    check(TYPE_UNSIGNED_SHORT, INDEX_TYPE_POLICY_FROM_HEADER, false, 8L, 3L);
+    check(TYPE_UNSIGNED_SHORT, INDEX_TYPE_POLICY_FROM_HEADER, false, 16L, 3L);
+    check(TYPE_UNSIGNED_INT, INDEX_TYPE_POLICY_FROM_HEADER, false, 32L, 3L);
+  }
+
+  @Test
+  public void testIndexTypeSmallest()
+  {
+    final SMFIndexTypePolicy p =
+      INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT;
+
+    check(TYPE_UNSIGNED_BYTE, p, true, 32L, 0L);
+    check(TYPE_UNSIGNED_BYTE, p, true, 32L, 256L);
+    check(TYPE_UNSIGNED_SHORT, p, true, 32L, 257L);
+    check(TYPE_UNSIGNED_SHORT, p, true, 8L, 65536L);
+    check(TYPE_UNSIGNED_INT, p, true, 16L, 65537L);
+  }
+
+  @Test
+  public void testIndexTypeSmallestNoByte()
+  {
+    final SMFIndexTypePolicy p =
+      INDEX_TYPE_POLICY_SMALLEST_FITTING_VERTEX_COUNT;
+
+    check(TYPE_UNSIGNED_SHORT, p, false, 32L, 3L);
+    check(TYPE_UNSIGNED_SHORT, p, false, 32L, 65536L);
+    check(TYPE_UNSIGNED_INT, p, false, 32L, 65537L);
+  }
+
+  @Test
+  public void testOverdrawPosition()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.generated(3L, 1L);
+    final SMFArrayObjectConfiguration config =
+      overdrawConfiguration(List.of(mapping("x", 0, 3)), "x");
+    final SMFArrayLayout layout = SMFArrayLayouts.layoutFor(config, header);
+    Assert.assertEquals(12L, (long) layout.vertexSize());
+  }
+
+  @Test
+  public void testOverdrawPositionMissing()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.generated(3L, 1L);
+    final SMFArrayObjectConfiguration config =
+      overdrawConfiguration(
+        List.of(mapping("x", 0, 3), mapping("p", 1, 3)), "p");
+
+    this.expected.expect(IllegalArgumentException.class);
+    this.expected.expectMessage("overdraw position");
+    SMFArrayLayouts.layoutFor(config, header);
+  }
+
+  @Test
+  public void testOverdrawPositionWrongComponents()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.resource("float32_4.smft");
+    final SMFArrayObjectConfiguration config =
+      overdrawConfiguration(List.of(mapping("x", 0, 4)), "x");
+
+    this.expected.expect(IllegalArgumentException.class);
+    this.expected.expectMessage("overdraw position");
+    SMFArrayLayouts.layoutFor(config, header);
+  }
+
+  @Test
+  public void testOverdrawPositionRangeNormalized()
+    throws Exception
+  {
+    final SMFHeader header = SMFTestHeaders.resource("range_float32_3.smft");
+    final SMFArrayAttributeMapping position =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("x"),
+        0,
+        Optional.of(JCGLScalarType.TYPE_UNSIGNED_SHORT),
+        3)
+        .withEncoding(
+          SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED);
+    final SMFArrayObjectConfiguration config =
+      overdrawConfiguration(List.of(position), "x");
+
+    this.expected.expect(IllegalArgumentException.class);
+    this.expected.expectMessage("overdraw position");
+    SMFArrayLayouts.layoutFor(config, header);
+  }
+}
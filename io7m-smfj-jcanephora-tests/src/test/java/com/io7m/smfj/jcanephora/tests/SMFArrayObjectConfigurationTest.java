@@ -21,6 +21,7 @@ import com.io7m.jcanephora.core.JCGLUsageHint;
 import com.io7m.smfj.core.SMFAttributeName;
 import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
 import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFOverdrawConfiguration;
 import javaslang.Tuple;
 import javaslang.collection.HashMap;
 import javaslang.collection.List;
@@ -86,4 +87,62 @@ public final class SMFArrayObjectConfigurationTest
     Assert.assertEquals(m1, m.mappings().get(SMFAttributeName.of("b")).get());
     Assert.assertEquals(2L, (long) m.mappings().size());
   }
+
+  @Test
+  public void testOverdrawPositionUnmapped()
+  {
+    final SMFArrayAttributeMapping m0 = SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("a"), 0, Optional.of(JCGLScalarType.TYPE_FLOAT), 4);
+
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(SMFAttributeName.of("a"), m0))
+      .setOverdrawOptimization(
+        SMFOverdrawConfiguration.of(SMFAttributeName.of("b"), 1.05))
+      .build();
+  }
+
+  @Test
+  public void testOverdrawThresholdTooSmall()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFOverdrawConfiguration.of(SMFAttributeName.of("a"), 0.5);
+  }
+
+  @Test
+  public void testStreamUsageUnused()
+  {
+    final SMFArrayAttributeMapping m0 = SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("a"), 0, Optional.of(JCGLScalarType.TYPE_FLOAT), 4)
+      .withStream("position");
+
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(SMFAttributeName.of("a"), m0))
+      .setStreamUsages(HashMap.of("other", JCGLUsageHint.USAGE_STATIC_DRAW))
+      .build();
+  }
+
+  @Test
+  public void testStreamUsage()
+  {
+    final SMFArrayAttributeMapping m0 = SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("a"), 0, Optional.of(JCGLScalarType.TYPE_FLOAT), 4)
+      .withStream("position");
+
+    final SMFArrayObjectConfiguration m =
+      SMFArrayObjectConfiguration.builder()
+        .setMappings(HashMap.of(SMFAttributeName.of("a"), m0))
+        .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+        .setStreamUsages(
+          HashMap.of("position", JCGLUsageHint.USAGE_DYNAMIC_DRAW))
+        .build();
+
+    Assert.assertEquals(
+      JCGLUsageHint.USAGE_DYNAMIC_DRAW,
+      m.streamUsage(Optional.of("position")));
+    Assert.assertEquals(
+      JCGLUsageHint.USAGE_STATIC_DRAW,
+      m.streamUsage(Optional.empty()));
+  }
 }
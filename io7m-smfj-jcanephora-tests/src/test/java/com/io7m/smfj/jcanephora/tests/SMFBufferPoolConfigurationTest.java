@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFBufferPoolConfiguration;
+import javaslang.collection.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public final class SMFBufferPoolConfigurationTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  @Test
+  public void testPowersOfTwo()
+  {
+    final SMFBufferPoolConfiguration c =
+      SMFBufferPoolConfiguration.builder()
+        .setMaximumPooledBytes(1024L)
+        .build();
+
+    Assert.assertEquals(1L, c.sizeClassFor(0L));
+    Assert.assertEquals(1L, c.sizeClassFor(1L));
+    Assert.assertEquals(2L, c.sizeClassFor(2L));
+    Assert.assertEquals(4L, c.sizeClassFor(3L));
+    Assert.assertEquals(64L, c.sizeClassFor(36L));
+    Assert.assertEquals(64L, c.sizeClassFor(64L));
+    Assert.assertEquals(128L, c.sizeClassFor(65L));
+  }
+
+  @Test
+  public void testConfiguredClasses()
+  {
+    final SMFBufferPoolConfiguration c =
+      SMFBufferPoolConfiguration.builder()
+        .setMaximumPooledBytes(1024L)
+        .setSizeClasses(List.of(Long.valueOf(100L), Long.valueOf(1000L)))
+        .build();
+
+    Assert.assertEquals(100L, c.sizeClassFor(0L));
+    Assert.assertEquals(100L, c.sizeClassFor(100L));
+    Assert.assertEquals(1000L, c.sizeClassFor(101L));
+    Assert.assertEquals(1001L, c.sizeClassFor(1001L));
+  }
+
+  @Test
+  public void testClassesNotAscending()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFBufferPoolConfiguration.builder()
+      .setMaximumPooledBytes(1024L)
+      .setSizeClasses(List.of(Long.valueOf(100L), Long.valueOf(100L)))
+      .build();
+  }
+
+  @Test
+  public void testNegativeMaximum()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFBufferPoolConfiguration.builder()
+      .setMaximumPooledBytes(-1L)
+      .build();
+  }
+}
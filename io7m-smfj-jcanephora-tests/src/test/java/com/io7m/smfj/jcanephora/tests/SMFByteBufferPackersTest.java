@@ -0,0 +1,243 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPacker;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackerType;
+import com.io7m.smfj.jcanephora.core.SMFByteBufferPackers;
+import com.io7m.smfj.parser.api.SMFParserEventsDataType;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class SMFByteBufferPackersTest
+{
+  private static final int VERTICES = 5;
+
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static ByteBuffer allocate(
+    final int size)
+  {
+    final ByteBuffer b = ByteBuffer.allocateDirect(size);
+    b.order(ByteOrder.nativeOrder());
+    return b;
+  }
+
+  private static void send(
+    final SMFParserEventsDataType p,
+    final JCGLScalarType type,
+    final int count,
+    final int vertex)
+  {
+    final long s = (long) (vertex * 3 - 7);
+    final long u = (long) (vertex * 3 + 1);
+    final double f = (double) vertex * 1.5 - 2.0;
+
+    switch (type) {
+      case TYPE_BYTE:
+      case TYPE_SHORT:
+      case TYPE_INT: {
+        sendSigned(p, count, s);
+        break;
+      }
+      case TYPE_UNSIGNED_BYTE:
+      case TYPE_UNSIGNED_SHORT:
+      case TYPE_UNSIGNED_INT: {
+        sendUnsigned(p, count, u);
+        break;
+      }
+      case TYPE_HALF_FLOAT:
+      case TYPE_FLOAT: {
+        sendFloat(p, count, f);
+        break;
+      }
+    }
+  }
+
+  private static void sendSigned(
+    final SMFParserEventsDataType p,
+    final int count,
+    final long x)
+  {
+    switch (count) {
+      case 1:
+        p.onDataAttributeValueIntegerSigned1(x);
+        break;
+      case 2:
+        p.onDataAttributeValueIntegerSigned2(x, -x);
+        break;
+      case 3:
+        p.onDataAttributeValueIntegerSigned3(x, -x, x + 1L);
+        break;
+      default:
+        p.onDataAttributeValueIntegerSigned4(x, -x, x + 1L, x - 1L);
+        break;
+    }
+  }
+
+  private static void sendUnsigned(
+    final SMFParserEventsDataType p,
+    final int count,
+    final long x)
+  {
+    switch (count) {
+      case 1:
+        p.onDataAttributeValueIntegerUnsigned1(x);
+        break;
+      case 2:
+        p.onDataAttributeValueIntegerUnsigned2(x, x + 1L);
+        break;
+      case 3:
+        p.onDataAttributeValueIntegerUnsigned3(x, x + 1L, x + 2L);
+        break;
+      default:
+        p.onDataAttributeValueIntegerUnsigned4(x, x + 1L, x + 2L, x + 3L);
+        break;
+    }
+  }
+
+  private static void sendFloat(
+    final SMFParserEventsDataType p,
+    final int count,
+    final double x)
+  {
+    switch (count) {
+      case 1:
+        p.onDataAttributeValueFloat1(x);
+        break;
+      case 2:
+        p.onDataAttributeValueFloat2(x, -x);
+        break;
+      case 3:
+        p.onDataAttributeValueFloat3(x, -x, x * 0.5);
+        break;
+      default:
+        p.onDataAttributeValueFloat4(x, -x, x * 0.5, 1.0);
+        break;
+    }
+  }
+
+  @Test
+  public void testSpecializedMatchesGeneric()
+  {
+    for (final JCGLScalarType type : JCGLScalarType.values()) {
+      for (int count = 1; count <= 4; count = count + 1) {
+        final int size = count * type.getSizeBytes();
+        final int stride = size + 2;
+        final int offset = 3;
+        final int capacity = offset + stride * VERTICES;
+
+        final ByteBuffer expected_data = allocate(capacity);
+        final ByteBuffer received_data = allocate(capacity);
+
+        final SMFByteBufferPacker generic =
+          new SMFByteBufferPacker(expected_data, type, offset, stride);
+        final SMFByteBufferPackerType specialized =
+          SMFByteBufferPackers.createPacker(
+            received_data, type, count, offset, stride);
+
+        for (int vertex = 0; vertex < VERTICES; vertex = vertex + 1) {
+          send(generic, type, count, vertex);
+          send(specialized, type, count, vertex);
+        }
+
+        Assert.assertEquals(
+          type + " " + count, expected_data, received_data);
+      }
+    }
+  }
+
+  @Test
+  public void testWrongCallback()
+  {
+    final SMFByteBufferPackerType p =
+      SMFByteBufferPackers.createPacker(
+        allocate(16), JCGLScalarType.TYPE_FLOAT, 3, 0, 12);
+
+    this.expected.expect(UnreachableCodeException.class);
+    p.onDataAttributeValueFloat2(0.0, 0.0);
+  }
+
+  @Test
+  public void testComponentCountZero()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFByteBufferPackers.createPacker(
+      allocate(16), JCGLScalarType.TYPE_FLOAT, 0, 0, 12);
+  }
+
+  @Test
+  public void testComponentCountFive()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFByteBufferPackers.createPacker(
+      allocate(16), JCGLScalarType.TYPE_FLOAT, 5, 0, 12);
+  }
+
+  @Test
+  public void testNormalizedSigned()
+  {
+    final ByteBuffer b = allocate(16);
+    final SMFByteBufferPackerType p =
+      SMFByteBufferPackers.createNormalizedPacker(
+        b, JCGLScalarType.TYPE_BYTE, 4, 0, 4);
+    p.onDataAttributeValueFloat4(1.0, -1.0, 0.5, 2.0);
+    p.onDataAttributeValueFloat4(0.0, -0.5, -3.0, 0.25);
+
+    Assert.assertEquals(127L, (long) b.get(0));
+    Assert.assertEquals(-127L, (long) b.get(1));
+    Assert.assertEquals(64L, (long) b.get(2));
+    Assert.assertEquals(127L, (long) b.get(3));
+    Assert.assertEquals(0L, (long) b.get(4));
+    Assert.assertEquals(-63L, (long) b.get(5));
+    Assert.assertEquals(-127L, (long) b.get(6));
+    Assert.assertEquals(32L, (long) b.get(7));
+  }
+
+  @Test
+  public void testNormalizedUnsigned()
+  {
+    final ByteBuffer b = allocate(16);
+    final SMFByteBufferPackerType p =
+      SMFByteBufferPackers.createNormalizedPacker(
+        b, JCGLScalarType.TYPE_UNSIGNED_SHORT, 3, 0, 6);
+    p.onDataAttributeValueFloat3(1.0, 0.0, 0.5);
+    p.onDataAttributeValueFloat3(-1.0, 2.0, 0.25);
+
+    Assert.assertEquals(65535L, (long) b.getChar(0));
+    Assert.assertEquals(0L, (long) b.getChar(2));
+    Assert.assertEquals(32768L, (long) b.getChar(4));
+    Assert.assertEquals(0L, (long) b.getChar(6));
+    Assert.assertEquals(65535L, (long) b.getChar(8));
+    Assert.assertEquals(16384L, (long) b.getChar(10));
+  }
+
+  @Test
+  public void testNormalizedFloating()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFByteBufferPackers.createNormalizedPacker(
+      allocate(16), JCGLScalarType.TYPE_FLOAT, 4, 0, 16);
+  }
+}
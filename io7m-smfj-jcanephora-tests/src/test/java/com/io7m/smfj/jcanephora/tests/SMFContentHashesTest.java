@@ -0,0 +1,100 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFContentHashes;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public final class SMFContentHashesTest
+{
+  private static ByteBuffer bytes(
+    final int count,
+    final int seed)
+  {
+    final ByteBuffer b = ByteBuffer.allocate(count);
+    for (int index = 0; index < count; index = index + 1) {
+      b.put(index, (byte) (index * 31 + seed));
+    }
+    return b;
+  }
+
+  @Test
+  public void testEqualContents()
+  {
+    for (int count = 0; count < 40; count = count + 1) {
+      final ByteBuffer a = bytes(count, 7);
+      final ByteBuffer b = ByteBuffer.allocateDirect(count);
+      b.order(ByteOrder.LITTLE_ENDIAN);
+      b.put(bytes(count, 7));
+      b.flip();
+      Assert.assertEquals(
+        SMFContentHashes.hash64(a), SMFContentHashes.hash64(b));
+    }
+  }
+
+  @Test
+  public void testDifferentContents()
+  {
+    for (int count = 1; count < 40; count = count + 1) {
+      final ByteBuffer a = bytes(count, 7);
+      final ByteBuffer b = bytes(count, 7);
+      b.put(count - 1, (byte) (b.get(count - 1) + 1));
+      Assert.assertNotEquals(
+        SMFContentHashes.hash64(a), SMFContentHashes.hash64(b));
+    }
+  }
+
+  @Test
+  public void testDifferentLengths()
+  {
+    final ByteBuffer a = ByteBuffer.allocate(8);
+    final ByteBuffer b = ByteBuffer.allocate(9);
+    Assert.assertNotEquals(
+      SMFContentHashes.hash64(a), SMFContentHashes.hash64(b));
+  }
+
+  @Test
+  public void testRemainingOnly()
+  {
+    final ByteBuffer a = bytes(24, 3);
+    a.position(5);
+    a.limit(20);
+
+    final ByteBuffer b = a.slice();
+    Assert.assertEquals(
+      SMFContentHashes.hash64(a), SMFContentHashes.hash64(b));
+    Assert.assertEquals(5L, (long) a.position());
+    Assert.assertEquals(20L, (long) a.limit());
+  }
+
+  @Test
+  public void testSeeds()
+  {
+    final ByteBuffer a = bytes(24, 3);
+    Assert.assertEquals(
+      SMFContentHashes.hash64(a), SMFContentHashes.hash64(a, 0L));
+    Assert.assertEquals(
+      SMFContentHashes.hash64(a, 23L), SMFContentHashes.hash64(a, 23L));
+    Assert.assertNotEquals(
+      SMFContentHashes.hash64(a, 0L), SMFContentHashes.hash64(a, 23L));
+  }
+}
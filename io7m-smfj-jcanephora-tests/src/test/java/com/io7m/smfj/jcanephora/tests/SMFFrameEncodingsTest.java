@@ -0,0 +1,147 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFFrameEncodings;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public final class SMFFrameEncodingsTest
+{
+  private static final double SNORM16 = 32767.0;
+
+  private static double quantize(
+    final double x)
+  {
+    return (double) Math.round(x * SNORM16) / SNORM16;
+  }
+
+  private static double[] randomUnit(
+    final Random random)
+  {
+    final double[] v = {
+      random.nextGaussian(), random.nextGaussian(), random.nextGaussian()};
+    normalize(v);
+    return v;
+  }
+
+  private static void normalize(
+    final double[] v)
+  {
+    final double length = Math.sqrt(v[0] * v[0] + v[1] * v[1] + v[2] * v[2]);
+    v[0] = v[0] / length;
+    v[1] = v[1] / length;
+    v[2] = v[2] / length;
+  }
+
+  private static double[] rotate(
+    final double[] q,
+    final double[] v)
+  {
+    final double cx = q[1] * v[2] - q[2] * v[1];
+    final double cy = q[2] * v[0] - q[0] * v[2];
+    final double cz = q[0] * v[1] - q[1] * v[0];
+    final double ccx = q[1] * cz - q[2] * cy;
+    final double ccy = q[2] * cx - q[0] * cz;
+    final double ccz = q[0] * cy - q[1] * cx;
+    return new double[]{
+      v[0] + 2.0 * (q[3] * cx + ccx),
+      v[1] + 2.0 * (q[3] * cy + ccy),
+      v[2] + 2.0 * (q[3] * cz + ccz),
+    };
+  }
+
+  private static void assertVector(
+    final double[] expected,
+    final double[] received,
+    final double delta)
+  {
+    Assert.assertEquals(expected[0], received[0], delta);
+    Assert.assertEquals(expected[1], received[1], delta);
+    Assert.assertEquals(expected[2], received[2], delta);
+  }
+
+  @Test
+  public void testOctahedralRoundTrip()
+  {
+    final Random random = new Random(0x5eedL);
+    final double[] out = new double[2];
+
+    for (int index = 0; index < 10000; index = index + 1) {
+      final double[] n = randomUnit(random);
+      SMFFrameEncodings.octahedral(n[0], n[1], n[2], out);
+
+      final double x = quantize(out[0]);
+      final double y = quantize(out[1]);
+      final double[] d = {x, y, 1.0 - Math.abs(x) - Math.abs(y)};
+      if (d[2] < 0.0) {
+        d[0] = (1.0 - Math.abs(y)) * (x >= 0.0 ? 1.0 : -1.0);
+        d[1] = (1.0 - Math.abs(x)) * (y >= 0.0 ? 1.0 : -1.0);
+      }
+      normalize(d);
+      assertVector(n, d, 1.0e-3);
+    }
+  }
+
+  @Test
+  public void testQTangentRoundTrip()
+  {
+    final Random random = new Random(0x5eedL);
+    final double[] q = new double[4];
+
+    for (int index = 0; index < 10000; index = index + 1) {
+      final double[] n = randomUnit(random);
+      final double[] t = randomUnit(random);
+      final double d = n[0] * t[0] + n[1] * t[1] + n[2] * t[2];
+      t[0] = t[0] - n[0] * d;
+      t[1] = t[1] - n[1] * d;
+      t[2] = t[2] - n[2] * d;
+      normalize(t);
+
+      final double sign = random.nextBoolean() ? 1.0 : -1.0;
+      SMFFrameEncodings.qTangent(
+        n[0], n[1], n[2], t[0], t[1], t[2], sign, 1.0 / SNORM16, q);
+
+      for (int c = 0; c < 4; c = c + 1) {
+        q[c] = quantize(q[c]);
+      }
+
+      Assert.assertEquals(sign, Math.signum(q[3]), 0.0);
+      assertVector(t, rotate(q, new double[]{1.0, 0.0, 0.0}), 1.0e-3);
+      assertVector(n, rotate(q, new double[]{0.0, 0.0, 1.0}), 1.0e-3);
+    }
+  }
+
+  @Test
+  public void testQTangentOrthogonalizes()
+  {
+    final double[] q = new double[4];
+    SMFFrameEncodings.qTangent(
+      0.0, 0.0, 2.0, 1.0, 0.0, 1.0, 1.0, 1.0 / SNORM16, q);
+
+    assertVector(
+      new double[]{1.0, 0.0, 0.0},
+      rotate(q, new double[]{1.0, 0.0, 0.0}),
+      1.0e-9);
+    assertVector(
+      new double[]{0.0, 0.0, 1.0},
+      rotate(q, new double[]{0.0, 0.0, 1.0}),
+      1.0e-9);
+  }
+}
@@ -0,0 +1,680 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.jcanephora.core.JCGLScalarType;
+import com.io7m.jcanephora.core.JCGLUnsignedType;
+import com.io7m.jcanephora.core.JCGLUsageHint;
+import com.io7m.jranges.RangeInclusiveL;
+import com.io7m.junreachable.UnreachableCodeException;
+import com.io7m.smfj.core.SMFAttribute;
+import com.io7m.smfj.core.SMFAttributeName;
+import com.io7m.smfj.core.SMFComponentType;
+import com.io7m.smfj.format.text.SMFFormatText;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeEncoding;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeLayout;
+import com.io7m.smfj.jcanephora.core.SMFArrayAttributeMapping;
+import com.io7m.smfj.jcanephora.core.SMFArrayLayout;
+import com.io7m.smfj.jcanephora.core.SMFArrayObjectConfiguration;
+import com.io7m.smfj.jcanephora.core.SMFArrayStreamLayout;
+import com.io7m.smfj.jcanephora.core.SMFAttributeDequantization;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparerType;
+import com.io7m.smfj.jcanephora.core.SMFMeshPreparers;
+import com.io7m.smfj.jcanephora.core.SMFPreparedMesh;
+import com.io7m.smfj.jcanephora.core.SMFShadowMeshType;
+import com.io7m.smfj.jcanephora.core.SMFShadowStoreType;
+import com.io7m.smfj.jcanephora.core.SMFShadowStores;
+import com.io7m.smfj.parser.api.SMFParseError;
+import com.io7m.smfj.parser.api.SMFParserEventsMetaType;
+import com.io7m.smfj.parser.api.SMFParserProviderType;
+import com.io7m.smfj.parser.api.SMFParserSequentialType;
+import javaslang.collection.HashMap;
+import javaslang.collection.List;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+public final class SMFMeshPreparerTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static SMFArrayObjectConfiguration configuration(
+    final JCGLScalarType type,
+    final int component_count)
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("x"), 0, Optional.of(type), component_count);
+
+    return SMFArrayObjectConfiguration.builder()
+      .setArrayBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setIndexBufferUsage(JCGLUsageHint.USAGE_STATIC_DRAW)
+      .setMappings(HashMap.of(attr.name(), attr))
+      .build();
+  }
+
+  private static SMFMeshPreparerType prepare(
+    final SMFArrayObjectConfiguration config,
+    final String name)
+    throws IOException
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(new Meta(), config);
+
+    final String rpath = "/com/io7m/smfj/jcanephora/tests/" + name;
+    try (final InputStream stream =
+           SMFMeshPreparerTest.class.getResourceAsStream(rpath)) {
+      final SMFParserProviderType fmt = new SMFFormatText();
+      final Path path = Paths.get(rpath);
+      try (final SMFParserSequentialType parser =
+             fmt.parserCreateSequential(preparer, path, stream)) {
+        parser.parseHeader();
+        parser.parseData();
+      }
+    }
+    return preparer;
+  }
+
+  @Test
+  public void testPrepareNormalized()
+    throws Exception
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("x"),
+        0,
+        Optional.of(JCGLScalarType.TYPE_SHORT),
+        3)
+        .withEncoding(SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_NORMALIZED);
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setMappings(HashMap.of(attr.name(), attr))
+        .build();
+
+    final SMFMeshPreparerType preparer = prepare(config, "float32_3.smft");
+    Assert.assertTrue(preparer.errors().isEmpty());
+
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    Assert.assertEquals(6L, (long) mesh.layout().vertexSize());
+    Assert.assertEquals(
+      SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_NORMALIZED,
+      mesh.layout().attributes().get(0).encoding());
+
+    final ByteBuffer vertices = mesh.vertexData();
+    for (int index = 0; index < 3; index = index + 1) {
+      final int base = index * 6;
+      Assert.assertEquals(-32767L, (long) vertices.getShort(base));
+      Assert.assertEquals(0L, (long) vertices.getShort(base + 2));
+      Assert.assertEquals(32767L, (long) vertices.getShort(base + 4));
+    }
+  }
+
+  @Test
+  public void testNormalizedRequiresInteger()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("x"),
+      0,
+      Optional.of(JCGLScalarType.TYPE_FLOAT),
+      3)
+      .withEncoding(SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_NORMALIZED);
+  }
+
+  @Test
+  public void testPrepareOctahedral()
+    throws Exception
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("x"),
+        0,
+        Optional.of(JCGLScalarType.TYPE_SHORT),
+        2)
+        .withEncoding(SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_OCTAHEDRAL);
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setMappings(HashMap.of(attr.name(), attr))
+        .build();
+
+    final SMFMeshPreparerType preparer = prepare(config, "float32_3.smft");
+    Assert.assertTrue(preparer.errors().isEmpty());
+
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    Assert.assertEquals(4L, (long) mesh.layout().vertexSize());
+    Assert.assertEquals(
+      2L, (long) mesh.layout().attributes().get(0).componentCount());
+
+    final ByteBuffer vertices = mesh.vertexData();
+    for (int index = 0; index < 3; index = index + 1) {
+      final int base = index * 4;
+      Assert.assertEquals(-16383L, (long) vertices.getShort(base));
+      Assert.assertEquals(0L, (long) vertices.getShort(base + 2));
+    }
+  }
+
+  @Test
+  public void testQTangentRequiresNormal()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("x"),
+      0,
+      Optional.of(JCGLScalarType.TYPE_SHORT),
+      4)
+      .withEncoding(SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_QTANGENT);
+  }
+
+  @Test
+  public void testOctahedralRequiresTwoComponents()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("x"),
+      0,
+      Optional.of(JCGLScalarType.TYPE_SHORT),
+      3)
+      .withEncoding(SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_OCTAHEDRAL);
+  }
+
+  private static SMFArrayObjectConfiguration rangeConfiguration()
+  {
+    final SMFArrayAttributeMapping attr =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("x"),
+        0,
+        Optional.of(JCGLScalarType.TYPE_UNSIGNED_SHORT),
+        3)
+        .withEncoding(
+          SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED);
+
+    return SMFArrayObjectConfiguration.builder()
+      .setMappings(HashMap.of(attr.name(), attr))
+      .build();
+  }
+
+  @Test
+  public void testPrepareRangeNormalized()
+    throws Exception
+  {
+    final SMFMeshPreparerType preparer =
+      prepare(rangeConfiguration(), "range_float32_3.smft");
+    Assert.assertTrue(preparer.errors().isEmpty());
+
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    Assert.assertEquals(6L, (long) mesh.layout().vertexSize());
+
+    final ByteBuffer vertices = mesh.vertexData();
+    Assert.assertEquals(0L, (long) vertices.getChar(0));
+    Assert.assertEquals(0L, (long) vertices.getChar(2));
+    Assert.assertEquals(0L, (long) vertices.getChar(4));
+    Assert.assertEquals(65535L, (long) vertices.getChar(6));
+    Assert.assertEquals(65535L, (long) vertices.getChar(8));
+    Assert.assertEquals(0L, (long) vertices.getChar(10));
+    Assert.assertEquals(32768L, (long) vertices.getChar(12));
+    Assert.assertEquals(32768L, (long) vertices.getChar(14));
+    Assert.assertEquals(0L, (long) vertices.getChar(16));
+
+    final SMFAttributeDequantization d =
+      mesh.dequantization().get(SMFAttributeName.of("x")).get();
+    Assert.assertEquals(
+      List.of(Double.valueOf(-10.0), Double.valueOf(0.0), Double.valueOf(5.0)),
+      d.offsets());
+    Assert.assertEquals(
+      List.of(Double.valueOf(20.0), Double.valueOf(2.0), Double.valueOf(0.0)),
+      d.scales());
+  }
+
+  @Test
+  public void testPrepareRangeNormalizedBulkMatchesEvents()
+    throws Exception
+  {
+    final SMFPreparedMesh expected_mesh =
+      prepare(rangeConfiguration(), "range_float32_3.smft").preparedMesh();
+
+    for (final ByteOrder order : new ByteOrder[]{
+      ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      final ByteBuffer data = ByteBuffer.allocate(36);
+      data.order(order);
+      data.putFloat(-10.0f).putFloat(0.0f).putFloat(5.0f);
+      data.putFloat(10.0f).putFloat(2.0f).putFloat(5.0f);
+      data.putFloat(0.0f).putFloat(1.0f).putFloat(5.0f);
+      data.flip();
+
+      final SMFPreparedMesh received_mesh =
+        prepareBulk(rangeConfiguration(), data, true).preparedMesh();
+
+      Assert.assertEquals(
+        expected_mesh.vertexData(), received_mesh.vertexData());
+      Assert.assertEquals(
+        expected_mesh.dequantization(), received_mesh.dequantization());
+    }
+  }
+
+  @Test
+  public void testRangeNormalizedRequiresUnsigned()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFArrayAttributeMapping.of(
+      SMFAttributeName.of("x"),
+      0,
+      Optional.of(JCGLScalarType.TYPE_SHORT),
+      3)
+      .withEncoding(
+        SMFArrayAttributeEncoding.ATTRIBUTE_ENCODING_RANGE_NORMALIZED);
+  }
+
+  @Test
+  public void testPrepareStreams()
+    throws Exception
+  {
+    final SMFArrayAttributeMapping p =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("p"),
+        0,
+        Optional.of(JCGLScalarType.TYPE_FLOAT),
+        3)
+        .withStream("position");
+    final SMFArrayAttributeMapping uv =
+      SMFArrayAttributeMapping.of(
+        SMFAttributeName.of("uv"),
+        1,
+        Optional.of(JCGLScalarType.TYPE_FLOAT),
+        2);
+
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .setMappings(HashMap.of(p.name(), p).put(uv.name(), uv))
+        .build();
+
+    final SMFMeshPreparerType preparer = prepare(config, "streams.smft");
+    Assert.assertTrue(preparer.errors().isEmpty());
+
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    final SMFArrayLayout layout = mesh.layout();
+    Assert.assertEquals(20L, (long) layout.vertexSize());
+    Assert.assertEquals(
+      List.of(
+        SMFArrayStreamLayout.of(Optional.empty(), 0L, 8),
+        SMFArrayStreamLayout.of(Optional.of("position"), 24L, 12)),
+      layout.streams());
+
+    final SMFArrayAttributeLayout p_layout = layout.attributes().get(0);
+    Assert.assertEquals(p.name(), p_layout.name());
+    Assert.assertEquals(1L, (long) p_layout.stream());
+    Assert.assertEquals(24L, p_layout.offset());
+    Assert.assertEquals(12L, (long) p_layout.stride());
+
+    final SMFArrayAttributeLayout uv_layout = layout.attributes().get(1);
+    Assert.assertEquals(uv.name(), uv_layout.name());
+    Assert.assertEquals(0L, (long) uv_layout.stream());
+    Assert.assertEquals(0L, uv_layout.offset());
+    Assert.assertEquals(8L, (long) uv_layout.stride());
+
+    final ByteBuffer vertices = mesh.vertexData();
+    Assert.assertEquals(60L, (long) vertices.capacity());
+    for (int index = 0; index < 6; index = index + 1) {
+      Assert.assertEquals(
+        10.0 + (double) index,
+        (double) vertices.getFloat(index * 4),
+        0.0);
+    }
+    for (int index = 0; index < 9; index = index + 1) {
+      Assert.assertEquals(
+        (double) index,
+        (double) vertices.getFloat(24 + (index * 4)),
+        0.0);
+    }
+  }
+
+  @Test
+  public void testPrepareFloat32()
+    throws Exception
+  {
+    final SMFMeshPreparerType preparer =
+      prepare(configuration(JCGLScalarType.TYPE_FLOAT, 3), "float32_3.smft");
+
+    Assert.assertTrue(preparer.errors().isEmpty());
+
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    Assert.assertEquals(3L, mesh.vertexCount());
+    Assert.assertEquals(1L, mesh.triangleCount());
+    Assert.assertEquals(JCGLUnsignedType.TYPE_UNSIGNED_BYTE, mesh.indexType());
+    Assert.assertEquals(12L, (long) mesh.layout().vertexSize());
+    Assert.assertEquals(1L, (long) mesh.layout().attributes().size());
+
+    final ByteBuffer vertices = mesh.vertexData();
+    Assert.assertTrue(vertices.isReadOnly());
+    Assert.assertEquals(ByteOrder.nativeOrder(), vertices.order());
+    Assert.assertEquals(36L, (long) vertices.capacity());
+
+    for (int index = 0; index < 3; index = index + 1) {
+      final int base = index * 12;
+      Assert.assertEquals(-1000.0, (double) vertices.getFloat(base), 0.0);
+      Assert.assertEquals(0.0, (double) vertices.getFloat(base + 4), 0.0);
+      Assert.assertEquals(1000.0, (double) vertices.getFloat(base + 8), 0.0);
+    }
+
+    Assert.assertEquals(
+      Optional.of(new RangeInclusiveL(0L, 2L)), mesh.indexRange());
+
+    final ByteBuffer indices = mesh.indexData();
+    Assert.assertTrue(indices.isReadOnly());
+    Assert.assertEquals(3L, (long) indices.capacity());
+    Assert.assertEquals(0L, (long) indices.get(0));
+    Assert.assertEquals(1L, (long) indices.get(1));
+    Assert.assertEquals(2L, (long) indices.get(2));
+  }
+
+  private static ByteBuffer float32Data(
+    final ByteOrder order)
+  {
+    final ByteBuffer data = ByteBuffer.allocate(36);
+    data.order(order);
+    for (int index = 0; index < 3; index = index + 1) {
+      data.putFloat(-1000.0f);
+      data.putFloat(0.0f);
+      data.putFloat(1000.0f);
+    }
+    data.flip();
+    return data;
+  }
+
+  private static SMFMeshPreparerType prepareBulk(
+    final SMFArrayObjectConfiguration config,
+    final ByteBuffer data,
+    final boolean expect_accepted)
+    throws IOException
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(new Meta(), config);
+
+    final String rpath = "/com/io7m/smfj/jcanephora/tests/float32_3.smft";
+    try (final InputStream stream =
+           SMFMeshPreparerTest.class.getResourceAsStream(rpath)) {
+      final SMFParserProviderType fmt = new SMFFormatText();
+      final Path path = Paths.get(rpath);
+      try (final SMFParserSequentialType parser =
+             fmt.parserCreateSequential(preparer, path, stream)) {
+        parser.parseHeader();
+
+        final SMFAttribute attribute = SMFAttribute.of(
+          SMFAttributeName.of("x"),
+          SMFComponentType.ELEMENT_TYPE_FLOATING,
+          3,
+          32);
+
+        Assert.assertEquals(
+          Boolean.valueOf(expect_accepted),
+          Boolean.valueOf(preparer.onDataAttributeBulk(attribute, data)));
+        Assert.assertEquals(0L, (long) data.position());
+
+        preparer.onDataTrianglesStart();
+        preparer.onDataTriangle(0L, 1L, 2L);
+        preparer.onDataTrianglesFinish();
+      }
+    }
+
+    preparer.onFinish();
+    return preparer;
+  }
+
+  @Test
+  public void testPrepareBulkMatchesEvents()
+    throws Exception
+  {
+    final SMFArrayObjectConfiguration config =
+      configuration(JCGLScalarType.TYPE_FLOAT, 3);
+
+    final SMFPreparedMesh expected_mesh =
+      prepare(config, "float32_3.smft").preparedMesh();
+
+    for (final ByteOrder order : new ByteOrder[]{
+      ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN}) {
+      final SMFPreparedMesh received_mesh =
+        prepareBulk(config, float32Data(order), true).preparedMesh();
+
+      Assert.assertEquals(
+        expected_mesh.vertexData(), received_mesh.vertexData());
+      Assert.assertEquals(
+        expected_mesh.indexData(), received_mesh.indexData());
+    }
+  }
+
+  @Test
+  public void testPrepareBulkRequiresConversion()
+    throws Exception
+  {
+    prepareBulk(
+      configuration(JCGLScalarType.TYPE_HALF_FLOAT, 3),
+      float32Data(ByteOrder.BIG_ENDIAN),
+      false);
+  }
+
+  @Test
+  public void testPrepareBulkBadSize()
+    throws Exception
+  {
+    final ByteBuffer data = float32Data(ByteOrder.BIG_ENDIAN);
+    data.limit(35);
+
+    this.expected.expect(IllegalArgumentException.class);
+    prepareBulk(configuration(JCGLScalarType.TYPE_FLOAT, 3), data, true);
+  }
+
+  @Test
+  public void testPrepareIndexTypeNoByte()
+    throws Exception
+  {
+    final SMFArrayObjectConfiguration config =
+      SMFArrayObjectConfiguration.builder()
+        .from(configuration(JCGLScalarType.TYPE_FLOAT, 3))
+        .setIndexTypeAllowByte(false)
+        .build();
+
+    final SMFPreparedMesh mesh =
+      prepare(config, "float32_3.smft").preparedMesh();
+    Assert.assertEquals(JCGLUnsignedType.TYPE_UNSIGNED_SHORT, mesh.indexType());
+
+    final ByteBuffer indices = mesh.indexData();
+    Assert.assertEquals(6L, (long) indices.capacity());
+    Assert.assertEquals(0L, (long) indices.getChar(0));
+    Assert.assertEquals(1L, (long) indices.getChar(2));
+    Assert.assertEquals(2L, (long) indices.getChar(4));
+  }
+
+  private static SMFMeshPreparerType prepareBulkTriangles(
+    final int[] triangles)
+    throws IOException
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(
+        new Meta(), configuration(JCGLScalarType.TYPE_FLOAT, 3));
+
+    final String rpath = "/com/io7m/smfj/jcanephora/tests/float32_3.smft";
+    try (final InputStream stream =
+           SMFMeshPreparerTest.class.getResourceAsStream(rpath)) {
+      final SMFParserProviderType fmt = new SMFFormatText();
+      final Path path = Paths.get(rpath);
+      try (final SMFParserSequentialType parser =
+             fmt.parserCreateSequential(preparer, path, stream)) {
+        parser.parseHeader();
+        preparer.onDataTrianglesStart();
+        preparer.onDataTrianglesBulk(triangles, 0, triangles.length / 3);
+        preparer.onDataTrianglesFinish();
+      }
+    }
+
+    preparer.onFinish();
+    return preparer;
+  }
+
+  @Test
+  public void testPrepareBulkTriangles()
+    throws Exception
+  {
+    final SMFMeshPreparerType preparer =
+      prepareBulkTriangles(new int[]{1, 2, 1});
+
+    Assert.assertTrue(preparer.errors().isEmpty());
+    final SMFPreparedMesh mesh = preparer.preparedMesh();
+    Assert.assertEquals(
+      Optional.of(new RangeInclusiveL(1L, 2L)), mesh.indexRange());
+    Assert.assertEquals(1L, (long) mesh.indexData().get(0));
+    Assert.assertEquals(2L, (long) mesh.indexData().get(1));
+    Assert.assertEquals(1L, (long) mesh.indexData().get(2));
+  }
+
+  @Test
+  public void testPrepareTriangleOutOfRange()
+    throws Exception
+  {
+    final SMFMeshPreparerType preparer =
+      prepareBulkTriangles(new int[]{0, 1, 3});
+
+    Assert.assertEquals(1L, (long) preparer.errors().size());
+    this.expected.expect(IllegalStateException.class);
+    preparer.preparedMesh();
+  }
+
+  @Test
+  public void testPrepareTriangleNegative()
+    throws Exception
+  {
+    final SMFMeshPreparerType preparer =
+      prepareBulkTriangles(new int[]{0, 1, -1});
+
+    Assert.assertEquals(1L, (long) preparer.errors().size());
+  }
+
+  @Test
+  public void testPreparedMeshNotFinished()
+  {
+    final SMFMeshPreparerType preparer =
+      SMFMeshPreparers.newPreparer(
+        new Meta(), configuration(JCGLScalarType.TYPE_FLOAT, 3));
+
+    this.expected.expect(IllegalStateException.class);
+    preparer.preparedMesh();
+  }
+
+  @Test
+  public void testShadowStoreRetain()
+    throws Exception
+  {
+    final SMFArrayObjectConfiguration config =
+      configuration(JCGLScalarType.TYPE_FLOAT, 3);
+    final SMFPreparedMesh mesh =
+      prepare(config, "float32_3.smft").preparedMesh();
+
+    final SMFShadowStoreType store = SMFShadowStores.newStore(1024L);
+    final SMFShadowMeshType shadow = store.retain(mesh, config).get();
+    Assert.assertEquals(39L, shadow.sizeBytes());
+    Assert.assertEquals(39L, store.usedBytes());
+    Assert.assertEquals(config, shadow.configuration());
+
+    final SMFPreparedMesh copy = shadow.mesh();
+    Assert.assertEquals(mesh.layout(), copy.layout());
+    Assert.assertEquals(mesh.vertexData(), copy.vertexData());
+    Assert.assertEquals(mesh.indexData(), copy.indexData());
+    Assert.assertEquals(mesh.vertexData().order(), copy.vertexData().order());
+    Assert.assertEquals(mesh.indexRange(), copy.indexRange());
+
+    store.release(shadow);
+    Assert.assertTrue(shadow.isReleased());
+    Assert.assertEquals(0L, store.usedBytes());
+
+    this.expected.expect(IllegalStateException.class);
+    shadow.mesh();
+  }
+
+  @Test
+  public void testShadowStoreBudget()
+    throws Exception
+  {
+    final SMFArrayObjectConfiguration config =
+      configuration(JCGLScalarType.TYPE_FLOAT, 3);
+    final SMFPreparedMesh mesh =
+      prepare(config, "float32_3.smft").preparedMesh();
+
+    final SMFShadowStoreType store = SMFShadowStores.newStore(50L);
+    Assert.assertTrue(store.retain(mesh, config).isPresent());
+    Assert.assertFalse(store.retain(mesh, config).isPresent());
+    Assert.assertEquals(39L, store.usedBytes());
+  }
+
+  @Test
+  public void testShadowStoreReleaseTwice()
+    throws Exception
+  {
+    final SMFArrayObjectConfiguration config =
+      configuration(JCGLScalarType.TYPE_FLOAT, 3);
+    final SMFPreparedMesh mesh =
+      prepare(config, "float32_3.smft").preparedMesh();
+
+    final SMFShadowStoreType store = SMFShadowStores.newStore(1024L);
+    final SMFShadowMeshType shadow = store.retain(mesh, config).get();
+    store.release(shadow);
+
+    this.expected.expect(IllegalArgumentException.class);
+    store.release(shadow);
+  }
+
+  private static final class Meta implements SMFParserEventsMetaType
+  {
+    Meta()
+    {
+
+    }
+
+    @Override
+    public boolean onMeta(
+      final long vendor,
+      final long schema,
+      final long length)
+    {
+      throw new UnreachableCodeException();
+    }
+
+    @Override
+    public void onMetaData(
+      final long vendor,
+      final long schema,
+      final byte[] data)
+    {
+      throw new UnreachableCodeException();
+    }
+
+    @Override
+    public void onError(
+      final SMFParseError e)
+    {
+      throw new UnreachableCodeException();
+    }
+  }
+}
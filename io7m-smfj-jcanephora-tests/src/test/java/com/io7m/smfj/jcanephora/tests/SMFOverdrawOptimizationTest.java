@@ -0,0 +1,127 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFOverdrawOptimization;
+import com.io7m.smfj.jcanephora.core.SMFVertexCacheOptimization;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.Arrays;
+
+public final class SMFOverdrawOptimizationTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  private static final int SEGMENTS = 32;
+
+  private static double[] spherePositions()
+  {
+    final int count = (SEGMENTS + 1) * (SEGMENTS + 1);
+    final double[] positions = new double[count * 3];
+    for (int i = 0; i <= SEGMENTS; i = i + 1) {
+      for (int j = 0; j <= SEGMENTS; j = j + 1) {
+        final double theta = Math.PI * (double) i / (double) SEGMENTS;
+        final double phi = 2.0 * Math.PI * (double) j / (double) SEGMENTS;
+        final int p = (i * (SEGMENTS + 1) + j) * 3;
+        positions[p] = Math.sin(theta) * Math.cos(phi);
+        positions[p + 1] = Math.sin(theta) * Math.sin(phi);
+        positions[p + 2] = Math.cos(theta);
+      }
+    }
+    return positions;
+  }
+
+  private static int[] sphereIndices()
+  {
+    final int[] indices = new int[SEGMENTS * SEGMENTS * 6];
+    int index = 0;
+    for (int i = 0; i < SEGMENTS; i = i + 1) {
+      for (int j = 0; j < SEGMENTS; j = j + 1) {
+        final int v00 = i * (SEGMENTS + 1) + j;
+        final int v01 = v00 + SEGMENTS + 1;
+        indices[index] = v00;
+        indices[index + 1] = v01;
+        indices[index + 2] = v01 + 1;
+        indices[index + 3] = v00;
+        indices[index + 4] = v01 + 1;
+        indices[index + 5] = v00 + 1;
+        index = index + 6;
+      }
+    }
+    return indices;
+  }
+
+  @Test
+  public void testOutwardFirst()
+  {
+    final double[] positions = {
+      -1.0, -1.0, -1.0,
+      1.0, -1.0, -1.0,
+      0.0, 1.0, -1.0,
+      -1.0, -1.0, 1.0,
+      1.0, -1.0, 1.0,
+      0.0, 1.0, 1.0,
+    };
+
+    final int[] indices = {0, 1, 2, 3, 4, 5};
+    final int[] result =
+      SMFOverdrawOptimization.optimize(indices, positions, 6, 1.05);
+    Assert.assertArrayEquals(new int[]{3, 4, 5, 0, 1, 2}, result);
+  }
+
+  @Test
+  public void testPreservesTriangles()
+  {
+    final double[] positions = spherePositions();
+    final int vertices = positions.length / 3;
+    final int[] indices =
+      SMFVertexCacheOptimization.optimize(sphereIndices(), vertices);
+    final int[] result =
+      SMFOverdrawOptimization.optimize(indices, positions, vertices, 1.05);
+
+    final int[] sorted_indices = indices.clone();
+    final int[] sorted_result = result.clone();
+    Arrays.sort(sorted_indices);
+    Arrays.sort(sorted_result);
+    Assert.assertArrayEquals(sorted_indices, sorted_result);
+
+    final int size = SMFVertexCacheOptimization.CACHE_SIZE;
+    final double before =
+      SMFVertexCacheOptimization.acmr(indices, vertices, size);
+    final double after =
+      SMFVertexCacheOptimization.acmr(result, vertices, size);
+    Assert.assertTrue(after <= before * 1.2);
+  }
+
+  @Test
+  public void testEmpty()
+  {
+    Assert.assertArrayEquals(
+      new int[0],
+      SMFOverdrawOptimization.optimize(new int[0], new double[0], 0, 1.05));
+  }
+
+  @Test
+  public void testThresholdTooSmall()
+  {
+    this.expected.expect(IllegalArgumentException.class);
+    SMFOverdrawOptimization.optimize(new int[0], new double[0], 0, 0.99);
+  }
+}
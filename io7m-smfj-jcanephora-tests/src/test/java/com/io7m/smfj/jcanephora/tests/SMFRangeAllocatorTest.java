@@ -0,0 +1,133 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFRangeAllocator;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Random;
+
+public final class SMFRangeAllocatorTest
+{
+  @Rule public ExpectedException expected = ExpectedException.none();
+
+  @Test
+  public void testFirstFit()
+  {
+    final SMFRangeAllocator a = new SMFRangeAllocator(100L);
+    Assert.assertEquals(OptionalLong.of(0L), a.allocate(10L));
+    Assert.assertEquals(OptionalLong.of(10L), a.allocate(20L));
+    Assert.assertEquals(OptionalLong.of(30L), a.allocate(70L));
+    Assert.assertEquals(OptionalLong.empty(), a.allocate(1L));
+    Assert.assertEquals(0L, a.available());
+
+    a.release(0L, 10L);
+    Assert.assertEquals(OptionalLong.empty(), a.allocate(11L));
+    Assert.assertEquals(OptionalLong.of(0L), a.allocate(5L));
+    Assert.assertEquals(5L, a.available());
+  }
+
+  @Test
+  public void testCoalesce()
+  {
+    final SMFRangeAllocator a = new SMFRangeAllocator(30L);
+    a.allocate(10L);
+    a.allocate(10L);
+    a.allocate(10L);
+
+    a.release(0L, 10L);
+    a.release(20L, 10L);
+    Assert.assertEquals(OptionalLong.empty(), a.allocate(30L));
+    a.release(10L, 10L);
+    Assert.assertEquals(OptionalLong.of(0L), a.allocate(30L));
+  }
+
+  @Test
+  public void testZeroSize()
+  {
+    final SMFRangeAllocator a = new SMFRangeAllocator(0L);
+    Assert.assertEquals(OptionalLong.of(0L), a.allocate(0L));
+    Assert.assertEquals(OptionalLong.empty(), a.allocate(1L));
+    a.release(0L, 0L);
+  }
+
+  @Test
+  public void testReleaseOverlap()
+  {
+    final SMFRangeAllocator a = new SMFRangeAllocator(30L);
+    a.allocate(10L);
+
+    this.expected.expect(IllegalArgumentException.class);
+    a.release(5L, 10L);
+  }
+
+  @Test
+  public void testReleaseOutOfRange()
+  {
+    final SMFRangeAllocator a = new SMFRangeAllocator(30L);
+    a.allocate(30L);
+
+    this.expected.expect(IllegalArgumentException.class);
+    a.release(25L, 10L);
+  }
+
+  @Test
+  public void testRandom()
+  {
+    final Random random = new Random(0x5eedL);
+    final SMFRangeAllocator a = new SMFRangeAllocator(1000L);
+    final boolean[] used = new boolean[1000];
+    final List<long[]> live = new ArrayList<>(64);
+
+    for (int step = 0; step < 10000; step = step + 1) {
+      if (live.isEmpty() || random.nextBoolean()) {
+        final long size = (long) (1 + random.nextInt(50));
+        final OptionalLong offset = a.allocate(size);
+        if (offset.isPresent()) {
+          final int start = (int) offset.getAsLong();
+          for (int index = start; index < start + (int) size;
+               index = index + 1) {
+            Assert.assertFalse(used[index]);
+            used[index] = true;
+          }
+          live.add(new long[]{offset.getAsLong(), size});
+        }
+      } else {
+        final long[] range = live.remove(random.nextInt(live.size()));
+        a.release(range[0], range[1]);
+        for (int index = (int) range[0];
+             index < (int) (range[0] + range[1]);
+             index = index + 1) {
+          used[index] = false;
+        }
+      }
+    }
+
+    for (final long[] range : live) {
+      a.release(range[0], range[1]);
+    }
+    Assert.assertEquals(1000L, a.available());
+    Assert.assertEquals(OptionalLong.of(0L), a.allocate(1000L));
+  }
+}
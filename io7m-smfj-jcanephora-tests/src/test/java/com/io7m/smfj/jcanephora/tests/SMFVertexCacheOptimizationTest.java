@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFVertexCacheOptimization;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class SMFVertexCacheOptimizationTest
+{
+  private static final int GRID = 64;
+
+  private static int[] shuffledGrid()
+  {
+    final List<int[]> triangles = new ArrayList<>(GRID * GRID * 2);
+    for (int y = 0; y < GRID; y = y + 1) {
+      for (int x = 0; x < GRID; x = x + 1) {
+        final int v00 = y * (GRID + 1) + x;
+        final int v10 = v00 + 1;
+        final int v01 = v00 + GRID + 1;
+        final int v11 = v01 + 1;
+        triangles.add(new int[]{v00, v10, v11});
+        triangles.add(new int[]{v00, v11, v01});
+      }
+    }
+
+    Collections.shuffle(triangles, new Random(0x5eedL));
+
+    final int[] indices = new int[triangles.size() * 3];
+    for (int index = 0; index < triangles.size(); index = index + 1) {
+      System.arraycopy(triangles.get(index), 0, indices, index * 3, 3);
+    }
+    return indices;
+  }
+
+  private static List<String> canonical(
+    final int[] indices)
+  {
+    final List<String> triangles = new ArrayList<>(indices.length / 3);
+    for (int index = 0; index < indices.length; index = index + 3) {
+      triangles.add(
+        indices[index] + " " + indices[index + 1] + " " + indices[index + 2]);
+    }
+    Collections.sort(triangles);
+    return triangles;
+  }
+
+  @Test
+  public void testOptimizeImprovesACMR()
+  {
+    final int vertices = (GRID + 1) * (GRID + 1);
+    final int[] indices = shuffledGrid();
+    final int[] optimized =
+      SMFVertexCacheOptimization.optimize(indices, vertices);
+
+    final int size = SMFVertexCacheOptimization.CACHE_SIZE;
+    final double before =
+      SMFVertexCacheOptimization.acmr(indices, vertices, size);
+    final double after =
+      SMFVertexCacheOptimization.acmr(optimized, vertices, size);
+
+    Assert.assertTrue(before > 1.5);
+    Assert.assertTrue(after < 0.8);
+  }
+
+  @Test
+  public void testOptimizePreservesTriangles()
+  {
+    final int vertices = (GRID + 1) * (GRID + 1);
+    final int[] indices = shuffledGrid();
+    final int[] optimized =
+      SMFVertexCacheOptimization.optimize(indices, vertices);
+
+    Assert.assertEquals(canonical(indices), canonical(optimized));
+  }
+
+  @Test
+  public void testOptimizeDegenerate()
+  {
+    final int[] indices = {0, 0, 1, 1, 2, 2, 0, 1, 2};
+    final int[] optimized = SMFVertexCacheOptimization.optimize(indices, 3);
+    Assert.assertEquals(canonical(indices), canonical(optimized));
+  }
+
+  @Test
+  public void testACMREmpty()
+  {
+    Assert.assertEquals(
+      0.0, SMFVertexCacheOptimization.acmr(new int[0], 0, 32), 0.0);
+  }
+
+  @Test
+  public void testACMRSingle()
+  {
+    Assert.assertEquals(
+      3.0, SMFVertexCacheOptimization.acmr(new int[]{0, 1, 2}, 3, 32), 0.0);
+  }
+}
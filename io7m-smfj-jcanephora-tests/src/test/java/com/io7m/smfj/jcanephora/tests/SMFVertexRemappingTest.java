@@ -0,0 +1,107 @@
+/*
+ * Copyright © 2016 <code@io7m.com> http://io7m.com
+ *
+ * Permission to use, copy, modify, and/or distribute this software for any
+ * purpose with or without fee is hereby granted, provided that the above
+ * copyright notice and this permission notice appear in all copies.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS" AND THE AUTHOR DISCLAIMS ALL WARRANTIES
+ * WITH REGARD TO THIS SOFTWARE INCLUDING ALL IMPLIED WARRANTIES OF
+ * MERCHANTABILITY AND FITNESS. IN NO EVENT SHALL THE AUTHOR BE LIABLE FOR ANY
+ * SPECIAL, DIRECT, INDIRECT, OR CONSEQUENTIAL DAMAGES OR ANY DAMAGES
+ * WHATSOEVER RESULTING FROM LOSS OF USE, DATA OR PROFITS, WHETHER IN AN
+ * ACTION OF CONTRACT, NEGLIGENCE OR OTHER TORTIOUS ACTION, ARISING OUT OF OR
+ * IN CONNECTION WITH THE USE OR PERFORMANCE OF THIS SOFTWARE.
+ */
+
+package com.io7m.smfj.jcanephora.tests;
+
+import com.io7m.smfj.jcanephora.core.SMFVertexRemapping;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+public final class SMFVertexRemappingTest
+{
+  private static final int VERTICES = 1000;
+  private static final int RECORD = 12;
+
+  private static int[] randomIndices()
+  {
+    final Random random = new Random(0x5eedL);
+    final int[] indices = new int[900 * 3];
+    for (int index = 0; index < indices.length; index = index + 1) {
+      indices[index] = random.nextInt(VERTICES - 50);
+    }
+    return indices;
+  }
+
+  private static ByteBuffer vertexData()
+  {
+    final ByteBuffer data = ByteBuffer.allocateDirect(VERTICES * RECORD);
+    data.order(ByteOrder.nativeOrder());
+    for (int v = 0; v < VERTICES; v = v + 1) {
+      data.putInt(v * RECORD, v);
+      data.putInt(v * RECORD + 4, v * 7);
+      data.putInt(v * RECORD + 8, -v);
+    }
+    return data;
+  }
+
+  private static void checkPermuted(
+    final int[] table,
+    final ByteBuffer data)
+  {
+    for (int v = 0; v < VERTICES; v = v + 1) {
+      final int base = table[v] * RECORD;
+      Assert.assertEquals((long) v, (long) data.getInt(base));
+      Assert.assertEquals((long) (v * 7), (long) data.getInt(base + 4));
+      Assert.assertEquals((long) -v, (long) data.getInt(base + 8));
+    }
+  }
+
+  @Test
+  public void testTableFirstUse()
+  {
+    final int[] table =
+      SMFVertexRemapping.table(new int[]{5, 2, 5, 0, 2, 3}, 6);
+    Assert.assertArrayEquals(new int[]{2, 4, 1, 3, 5, 0}, table);
+  }
+
+  @Test
+  public void testRemapIndicesSequential()
+  {
+    final int[] indices = randomIndices();
+    final int[] table = SMFVertexRemapping.table(indices, VERTICES);
+    SMFVertexRemapping.remapIndices(indices, table);
+
+    int next = 0;
+    for (int index = 0; index < indices.length; index = index + 1) {
+      Assert.assertTrue(indices[index] <= next);
+      if (indices[index] == next) {
+        next = next + 1;
+      }
+    }
+  }
+
+  @Test
+  public void testPermuteInPlace()
+  {
+    final int[] table = SMFVertexRemapping.table(randomIndices(), VERTICES);
+    final ByteBuffer data = vertexData();
+    SMFVertexRemapping.permuteInPlace(data, RECORD, table);
+    checkPermuted(table, data);
+  }
+
+  @Test
+  public void testPermuteScratchCopy()
+  {
+    final int[] table = SMFVertexRemapping.table(randomIndices(), VERTICES);
+    final ByteBuffer data = vertexData();
+    SMFVertexRemapping.permuteScratchCopy(data, RECORD, table);
+    checkPermuted(table, data);
+  }
+}